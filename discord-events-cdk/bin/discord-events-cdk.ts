@@ -4,6 +4,12 @@ import { getEnvVar } from '../lib/utils';
 
 const DDB_PARTITION_KEY = 'guildId';
 const DDB_SORT_KEY = 'datetimeCreatedBy';
+const DDB_MESSAGE_ID_KEY = 'messageId';
+const DDB_MESSAGE_ID_INDEX = 'messageIdIndex';
+const DDB_GUILD_ID_CREATED_BY_KEY = 'guildIdCreatedBy';
+const DDB_GUILD_ID_CREATED_BY_INDEX = 'guildIdCreatedByIndex';
+const DDB_START_SLOT_KEY = 'startSlot';
+const DDB_START_SLOT_INDEX = 'startSlotIndex';
 const CLUSTER_NAME = 'discord-events-cluster';
 const SERVICE_NAME = 'discord-events-service';
 
@@ -28,6 +34,12 @@ const stackId: string = isProd ? 'DiscordEventsStack' : 'DiscordEventsDevStack';
 // Have this same suffix handling for DDB table name in
 // https://github.com/alvyn279/discord-events/blob/main/discord-events/src/main/java/com/alvyn279/discord/utils/EnvironmentUtils.java
 const ddbTableName: string = isProd ? DISCORD_EVENTS_TABLE_NAME : `${DISCORD_EVENTS_TABLE_NAME}Test`;
+const ddbArchiveTableName: string = `${ddbTableName}Archive`;
+
+// Existing tables get their indexes and stream one deploy at a time, see DDB_TABLE_STAGES
+const ddbTableStageContext: string | undefined = app.node.tryGetContext('ddbTableStage');
+const ddbTableStage: number | undefined = ddbTableStageContext === undefined ?
+  undefined : Number(ddbTableStageContext);
 
 const ENV_VARS: DiscordEventsEnvVars = {
   AWS_DEFAULT_REGION,
@@ -42,7 +54,15 @@ new DiscordEventsStack(app, stackId, {
   clusterName: CLUSTER_NAME,
   ddbPartitionKeyName: DDB_PARTITION_KEY,
   ddbSortKeyName: DDB_SORT_KEY,
+  ddbMessageIdKeyName: DDB_MESSAGE_ID_KEY,
+  ddbMessageIdIndexName: DDB_MESSAGE_ID_INDEX,
+  ddbGuildIdCreatedByKeyName: DDB_GUILD_ID_CREATED_BY_KEY,
+  ddbGuildIdCreatedByIndexName: DDB_GUILD_ID_CREATED_BY_INDEX,
+  ddbStartSlotKeyName: DDB_START_SLOT_KEY,
+  ddbStartSlotIndexName: DDB_START_SLOT_INDEX,
   ddbTableName,
+  ddbArchiveTableName,
+  ddbTableStage,
   env,
   environmentVariables: ENV_VARS,
   isProd,
@@ -10,7 +10,18 @@ import * as ecs from '@aws-cdk/aws-ecs';
 export interface DiscordEventsStackProps extends cdk.StackProps {
   ddbPartitionKeyName: string,
   ddbSortKeyName: string,
+  ddbMessageIdKeyName: string,
+  ddbMessageIdIndexName: string,
+  ddbGuildIdCreatedByKeyName: string,
+  ddbGuildIdCreatedByIndexName: string,
+  ddbStartSlotKeyName: string,
+  ddbStartSlotIndexName: string,
   ddbTableName: string,
+  ddbArchiveTableName: string,
+  /**
+   * Number of {@link DDB_TABLE_STAGES} deployed on the events table, all of them by default
+   */
+  ddbTableStage?: number,
   clusterName: string,
   serviceName: string,
   environmentVariables?: DiscordEventsEnvVars,
@@ -30,6 +41,21 @@ export interface DiscordEventsEnvVars {
   DISCORD_EVENTS_TABLE_NAME: string,
 }
 
+/**
+ * Changes made to the events table after it was first deployed, in rollout order.
+ *
+ * DynamoDB creates a single GSI, or turns the stream on, per table update, so a deploy
+ * that makes more than one of these changes to an existing table fails. Such a table is
+ * brought up to date one stage at a time: `cdk deploy -c ddbTableStage=1`, then 2, 3
+ * and 4, each one once the index of the previous stage is `ACTIVE`.
+ */
+export const DDB_TABLE_STAGES: string[] = [
+  'messageIdIndex',
+  'guildIdCreatedByIndex',
+  'startSlotIndex',
+  'stream',
+];
+
 /**
  * Stack that defines the AWS resources needed running the
  * discord-events bot.
@@ -40,7 +66,10 @@ export class DiscordEventsStack extends cdk.Stack {
 
     /* Create events DynamoDB table */
 
-    new ddb.Table(this, 'DiscordEventsTable', {
+    const ddbTableStage: number = props.ddbTableStage ?? DDB_TABLE_STAGES.length;
+    const hasStage = (stage: string): boolean => DDB_TABLE_STAGES.indexOf(stage) < ddbTableStage;
+
+    const discordEventsTable: ddb.Table = new ddb.Table(this, 'DiscordEventsTable', {
       tableName: props.ddbTableName,
       partitionKey: {
         name: props.ddbPartitionKeyName,
@@ -50,9 +79,93 @@ export class DiscordEventsStack extends cdk.Stack {
         name: props.ddbSortKeyName,
         type: ddb.AttributeType.STRING,
       },
+      // Read by every bot instance to learn about the changes made by the others
+      stream: hasStage('stream') ? ddb.StreamViewType.NEW_AND_OLD_IMAGES : undefined,
       removalPolicy: cdk.RemovalPolicy.DESTROY,
     });
 
+    // Message IDs (delete codes) are unique snowflakes, so a lookup reads a single
+    // item instead of the guild's whole partition. Projecting all attributes saves
+    // the extra read before a delete.
+    if (hasStage('messageIdIndex')) {
+      discordEventsTable.addGlobalSecondaryIndex({
+        indexName: props.ddbMessageIdIndexName,
+        partitionKey: {
+          name: props.ddbMessageIdKeyName,
+          type: ddb.AttributeType.STRING,
+        },
+        projectionType: ddb.ProjectionType.ALL,
+      });
+    }
+
+    // A user's events within a guild, in time order. Reads grow with the number of
+    // events the user created instead of the number of events in the guild.
+    // Events written before the index are backfilled by the bot.
+    if (hasStage('guildIdCreatedByIndex')) {
+      discordEventsTable.addGlobalSecondaryIndex({
+        indexName: props.ddbGuildIdCreatedByIndexName,
+        partitionKey: {
+          name: props.ddbGuildIdCreatedByKeyName,
+          type: ddb.AttributeType.STRING,
+        },
+        sortKey: {
+          name: props.ddbSortKeyName,
+          type: ddb.AttributeType.STRING,
+        },
+        projectionType: ddb.ProjectionType.ALL,
+      });
+    }
+
+    // Events of all guilds that start within the same UTC hour, in time order. The
+    // reminders read the upcoming events of every guild with one or two queries.
+    // Only the attributes of event summaries are projected. Events written before the
+    // index are backfilled by the bot.
+    if (hasStage('startSlotIndex')) {
+      discordEventsTable.addGlobalSecondaryIndex({
+        indexName: props.ddbStartSlotIndexName,
+        partitionKey: {
+          name: props.ddbStartSlotKeyName,
+          type: ddb.AttributeType.STRING,
+        },
+        sortKey: {
+          name: props.ddbSortKeyName,
+          type: ddb.AttributeType.STRING,
+        },
+        projectionType: ddb.ProjectionType.INCLUDE,
+        nonKeyAttributes: [props.ddbMessageIdKeyName, 'name'],
+      });
+    }
+
+    /* Create archive DynamoDB table */
+
+    // Past events are moved here by the bot so that live partitions stay small.
+    // Same keys as the live table, only the user index is needed for `!my-events history`.
+    const discordEventsArchiveTable: ddb.Table = new ddb.Table(this, 'DiscordEventsArchiveTable', {
+      tableName: props.ddbArchiveTableName,
+      partitionKey: {
+        name: props.ddbPartitionKeyName,
+        type: ddb.AttributeType.STRING,
+      },
+      sortKey: {
+        name: props.ddbSortKeyName,
+        type: ddb.AttributeType.STRING,
+      },
+      removalPolicy: cdk.RemovalPolicy.DESTROY,
+    });
+
+    discordEventsArchiveTable.addGlobalSecondaryIndex({
+      indexName: props.ddbGuildIdCreatedByIndexName,
+      partitionKey: {
+        name: props.ddbGuildIdCreatedByKeyName,
+        type: ddb.AttributeType.STRING,
+      },
+      sortKey: {
+        name: props.ddbSortKeyName,
+        type: ddb.AttributeType.STRING,
+      },
+      projectionType: ddb.ProjectionType.ALL,
+    });
+
     if (props.isProd) {
       /* Create ECS service */
       
@@ -2,12 +2,8 @@ import { expect as expectCDK, haveResourceLike } from '@aws-cdk/assert';
 import * as cdk from '@aws-cdk/core';
 import * as DiscordEventsCdk from '../lib/discord-events-stack';
 
-test('Discord Events Stack has DDB table', () => {
-  // GIVEN
-  const app = new cdk.App();
-
-  // WHEN
-  const stack = new DiscordEventsCdk.DiscordEventsStack(app, 'MyTestStack', {
+const createTestStack = (app: cdk.App, ddbTableStage?: number): DiscordEventsCdk.DiscordEventsStack => {
+  return new DiscordEventsCdk.DiscordEventsStack(app, 'MyTestStack', {
     env: {
       account: 'random',
       region: 'us-east-1',
@@ -22,11 +18,27 @@ test('Discord Events Stack has DDB table', () => {
     },
     ddbPartitionKeyName: 'randomPartitionKeyName',
     ddbSortKeyName: 'randomSortKeyName',
+    ddbMessageIdKeyName: 'randomMessageIdKeyName',
+    ddbMessageIdIndexName: 'randomMessageIdIndexName',
+    ddbGuildIdCreatedByKeyName: 'randomGuildIdCreatedByKeyName',
+    ddbGuildIdCreatedByIndexName: 'randomGuildIdCreatedByIndexName',
+    ddbStartSlotKeyName: 'randomStartSlotKeyName',
+    ddbStartSlotIndexName: 'randomStartSlotIndexName',
     clusterName: 'randomClusterName',
     serviceName: 'randomServiceName',
     ddbTableName: 'randomTableName',
+    ddbArchiveTableName: 'randomArchiveTableName',
+    ddbTableStage,
     isProd: true,
   });
+};
+
+test('Discord Events Stack has DDB table', () => {
+  // GIVEN
+  const app = new cdk.App();
+
+  // WHEN
+  const stack = createTestStack(app);
 
   // THEN
   expectCDK(stack).to(haveResourceLike('AWS::DynamoDB::Table', {
@@ -52,3 +64,125 @@ test('Discord Events Stack has DDB table', () => {
     TableName: 'randomTableName',
   }));
 });
+
+test('Discord Events Stack has DDB secondary indexes', () => {
+  // GIVEN
+  const app = new cdk.App();
+
+  // WHEN
+  const stack = createTestStack(app);
+
+  // THEN
+  expectCDK(stack).to(haveResourceLike('AWS::DynamoDB::Table', {
+    GlobalSecondaryIndexes: [
+      {
+        IndexName: 'randomMessageIdIndexName',
+        KeySchema: [
+          {
+            AttributeName: 'randomMessageIdKeyName',
+            KeyType: 'HASH',
+          },
+        ],
+        Projection: {
+          ProjectionType: 'ALL',
+        },
+      }, {
+        IndexName: 'randomGuildIdCreatedByIndexName',
+        KeySchema: [
+          {
+            AttributeName: 'randomGuildIdCreatedByKeyName',
+            KeyType: 'HASH',
+          }, {
+            AttributeName: 'randomSortKeyName',
+            KeyType: 'RANGE',
+          },
+        ],
+        Projection: {
+          ProjectionType: 'ALL',
+        },
+      }, {
+        IndexName: 'randomStartSlotIndexName',
+        KeySchema: [
+          {
+            AttributeName: 'randomStartSlotKeyName',
+            KeyType: 'HASH',
+          }, {
+            AttributeName: 'randomSortKeyName',
+            KeyType: 'RANGE',
+          },
+        ],
+        Projection: {
+          NonKeyAttributes: ['randomMessageIdKeyName', 'name'],
+          ProjectionType: 'INCLUDE',
+        },
+      },
+    ],
+  }));
+});
+
+test('Discord Events Stack has DDB table stream', () => {
+  // GIVEN
+  const app = new cdk.App();
+
+  // WHEN
+  const stack = createTestStack(app);
+
+  // THEN
+  expectCDK(stack).to(haveResourceLike('AWS::DynamoDB::Table', {
+    StreamSpecification: {
+      StreamViewType: 'NEW_AND_OLD_IMAGES',
+    },
+    TableName: 'randomTableName',
+  }));
+});
+
+test('Discord Events Stack adds DDB table stages one at a time', () => {
+  // GIVEN
+  const app = new cdk.App();
+
+  // WHEN
+  const stack = createTestStack(app, 1);
+
+  // THEN
+  expectCDK(stack).to(haveResourceLike('AWS::DynamoDB::Table', {
+    GlobalSecondaryIndexes: [
+      {
+        IndexName: 'randomMessageIdIndexName',
+      },
+    ],
+    TableName: 'randomTableName',
+  }));
+  expectCDK(stack).notTo(haveResourceLike('AWS::DynamoDB::Table', {
+    StreamSpecification: {
+      StreamViewType: 'NEW_AND_OLD_IMAGES',
+    },
+    TableName: 'randomTableName',
+  }));
+});
+
+test('Discord Events Stack has DDB archive table', () => {
+  // GIVEN
+  const app = new cdk.App();
+
+  // WHEN
+  const stack = createTestStack(app);
+
+  // THEN
+  expectCDK(stack).to(haveResourceLike('AWS::DynamoDB::Table', {
+    KeySchema: [
+      {
+        AttributeName: 'randomPartitionKeyName',
+        KeyType: 'HASH',
+      }, {
+        AttributeName: 'randomSortKeyName',
+        KeyType: 'RANGE',
+      },
+    ],
+    GlobalSecondaryIndexes: [
+      {
+        IndexName: 'randomGuildIdCreatedByIndexName',
+      },
+    ],
+    TableName: 'randomArchiveTableName',
+  }));
+});
@@ -0,0 +1,115 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableSet;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.time.Instant;
+import java.util.UUID;
+import java.util.function.IntFunction;
+
+/**
+ * Retained heap per cached {@link DiscordEvent}, against the same event with its
+ * snowflakes held as strings in an {@link ImmutableSet}, as they were before.
+ * <p>
+ * JMH measures time and allocation per operation, while the cache is bound by what
+ * its events keep reachable, so the object graphs are walked with JOL instead.
+ * Objects shared between events, like the timestamp, are only counted once.
+ * <p>
+ * `./gradlew jmhHeapFootprint`
+ */
+public class DiscordEventHeapBenchmark {
+
+    private static final int EVENTS = 10_000;
+    private static final int ATTENDEES_PER_EVENT = 10;
+    private static final long FIRST_SNOWFLAKE = 795463592128462850L;
+    private static final Instant NOW = Instant.parse("2021-03-01T20:00:00Z");
+
+    // Layout of an event before snowflakes were longs
+    private static class StringIdDiscordEvent {
+        private final String guildId;
+        private final Instant timestamp;
+        private final String createdBy;
+        private final String messageId;
+        private final String name;
+        private final String description;
+        private final ImmutableSet<String> attendees;
+        private final long version;
+        private final String idempotencyKey;
+
+        private StringIdDiscordEvent(String guildId,
+                                     Instant timestamp,
+                                     String createdBy,
+                                     String messageId,
+                                     String name,
+                                     String description,
+                                     ImmutableSet<String> attendees,
+                                     long version,
+                                     String idempotencyKey) {
+            this.guildId = guildId;
+            this.timestamp = timestamp;
+            this.createdBy = createdBy;
+            this.messageId = messageId;
+            this.name = name;
+            this.description = description;
+            this.attendees = attendees;
+            this.version = version;
+            this.idempotencyKey = idempotencyKey;
+        }
+    }
+
+    public static void main(String[] args) {
+        long stringIdBytes = retainedBytesPerEvent(DiscordEventHeapBenchmark::stringIdEvent);
+        long longIdBytes = retainedBytesPerEvent(DiscordEventHeapBenchmark::longIdEvent);
+        System.out.printf("%d events of %d attendees%n", EVENTS, ATTENDEES_PER_EVENT);
+        System.out.printf("String ids: %d bytes/event%n", stringIdBytes);
+        System.out.printf("long ids:   %d bytes/event (%d%% less)%n",
+            longIdBytes, 100 * (stringIdBytes - longIdBytes) / stringIdBytes);
+    }
+
+    private static long retainedBytesPerEvent(IntFunction<Object> event) {
+        Object[] events = new Object[EVENTS];
+        for (int i = 0; i < EVENTS; i++) {
+            events[i] = event.apply(i);
+        }
+        // Each event is a root, the array holding them is not counted
+        return GraphLayout.parseInstance(events).totalSize() / EVENTS;
+    }
+
+    private static Object stringIdEvent(int i) {
+        ImmutableSet.Builder<String> attendees = ImmutableSet.builder();
+        for (int a = 0; a < ATTENDEES_PER_EVENT; a++) {
+            attendees.add(Long.toUnsignedString(snowflake(i, a)));
+        }
+        return new StringIdDiscordEvent(
+            Long.toUnsignedString(FIRST_SNOWFLAKE),
+            NOW,
+            Long.toUnsignedString(snowflake(i, -1)),
+            Long.toUnsignedString(snowflake(i, -2)),
+            "Game night",
+            "",
+            attendees.build(),
+            1L,
+            UUID.randomUUID().toString());
+    }
+
+    private static Object longIdEvent(int i) {
+        long[] attendees = new long[ATTENDEES_PER_EVENT];
+        for (int a = 0; a < ATTENDEES_PER_EVENT; a++) {
+            attendees[a] = snowflake(i, a);
+        }
+        return DiscordEvent.builder()
+            .guildId(FIRST_SNOWFLAKE)
+            .timestamp(NOW)
+            .createdBy(snowflake(i, -1))
+            .messageId(snowflake(i, -2))
+            .name("Game night")
+            .description("")
+            .attendees(SnowflakeSet.of(attendees))
+            .version(1L)
+            .build();
+    }
+
+    private static long snowflake(int event, int offset) {
+        return FIRST_SNOWFLAKE + (long) event * (ATTENDEES_PER_EVENT + 2) + offset + 2;
+    }
+}
@@ -0,0 +1,77 @@
+package com.alvyn279.discord.utils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link CommandTokens} against the regex tokenizer it replaced, which compiled its
+ * pattern on every call and copied every token.
+ * <p>
+ * `./gradlew jmh`, add `-prof gc` to the JMH args for the allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CommandTokenizerBenchmark {
+
+    private static final String TOKENIZER_GROUP_DELIMITER_REGEX = "\"([^\"]*)\"|'([^']*)'|(\\S+)";
+
+    @Param({
+        "!list-events",
+        "!create-event \"Game night\" 2021/03/01 20:00 'Bring snacks and a controller'",
+        "!delete-events 795463592128462851 795463592128462852 795463592128462853 795463592128462854"
+    })
+    public String command;
+
+    @Benchmark
+    public List<String> regex() {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = Pattern
+            .compile(TOKENIZER_GROUP_DELIMITER_REGEX)
+            .matcher(command);
+
+        while (matcher.find()) {
+            String token;
+            String[] matchGroups = {matcher.group(1), matcher.group(2), matcher.group(3)};
+            if (matchGroups[0] != null) {
+                token = isEmbeddedString(matchGroups[0]) ? stripFirstAndLastChar(matchGroups[0]) : matchGroups[0];
+            } else if (matchGroups[1] != null) {
+                token = isEmbeddedString(matchGroups[1]) ? stripFirstAndLastChar(matchGroups[1]) : matchGroups[1];
+            } else {
+                token = matchGroups[2];
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    @Benchmark
+    public CommandTokens commandTokens() {
+        return CommandTokens.tokenize(command);
+    }
+
+    private static boolean isEmbeddedString(String s) {
+        return (s.startsWith("\"") && s.endsWith("\"")) || (s.startsWith("'") && s.endsWith("'"));
+    }
+
+    private static String stripFirstAndLastChar(String s) {
+        return s.substring(1, s.length() - 1);
+    }
+}
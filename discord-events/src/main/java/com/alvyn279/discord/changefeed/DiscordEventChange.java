@@ -0,0 +1,48 @@
+package com.alvyn279.discord.changefeed;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * Change made to a stored {@link DiscordEvent}, as published by a
+ * {@link DiscordEventChangeFeed}.
+ */
+@Data
+@Builder
+public class DiscordEventChange {
+
+    public enum Type {
+        INSERT,
+        MODIFY,
+        REMOVE,
+    }
+
+    @NonNull
+    private final Type type;
+
+    /**
+     * Event before the change, null for inserts. It may be null for
+     * modifications too, when the feed does not know it.
+     */
+    private final DiscordEvent oldDiscordEvent;
+
+    /**
+     * Event after the change, null for removals
+     */
+    private final DiscordEvent newDiscordEvent;
+
+    /**
+     * Latest known state of the changed event.
+     *
+     * @return DiscordEvent new event, or old event for removals
+     */
+    public DiscordEvent getDiscordEvent() {
+        return type == Type.REMOVE ? oldDiscordEvent : newDiscordEvent;
+    }
+
+    public long getGuildId() {
+        return getDiscordEvent().getGuildId();
+    }
+}
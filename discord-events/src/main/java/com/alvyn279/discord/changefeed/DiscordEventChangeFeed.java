@@ -0,0 +1,28 @@
+package com.alvyn279.discord.changefeed;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Feed of the changes made to the stored events, by this bot instance or
+ * any other one. It lets in-memory views of the events (the events cache, the
+ * reminders) stay up to date without reading the storage again.
+ * <p>
+ * The feed is hot: changes made while nobody follows it are not replayed.
+ * It completes or errors when it stops, after which followers must go back
+ * to reading the storage.
+ */
+public interface DiscordEventChangeFeed {
+
+    /**
+     * Feed that never publishes, for storages without one.
+     */
+    DiscordEventChangeFeed NONE = Flux::empty;
+
+    /**
+     * Changes of the stored events from now on. Changes of the same event are
+     * in order, but changes of different events may not be.
+     *
+     * @return Flux of changes
+     */
+    Flux<DiscordEventChange> changes();
+}
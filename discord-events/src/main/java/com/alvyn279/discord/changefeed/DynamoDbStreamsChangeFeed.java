@@ -0,0 +1,288 @@
+package com.alvyn279.discord.changefeed;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.Disposable;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+import reactor.util.retry.Retry;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeStreamRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetRecordsResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetShardIteratorRequest;
+import software.amazon.awssdk.services.dynamodb.model.Record;
+import software.amazon.awssdk.services.dynamodb.model.Shard;
+import software.amazon.awssdk.services.dynamodb.model.ShardIteratorType;
+import software.amazon.awssdk.services.dynamodb.model.TrimmedDataAccessException;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsAsyncClient;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * {@link DiscordEventChangeFeed} that reads the DDB stream of the events table,
+ * so that changes made by any bot instance are seen by all of them.
+ * <p>
+ * The stream is read from the moment the feed starts: the shards open at that
+ * time are read from their latest record, and shards that show up later (when
+ * DDB splits or rolls over a shard) from their first one. Each shard is polled
+ * on its own, and resumes after its last read record when a read fails. A shard
+ * is only read once its parent shard is closed and fully read, so that the
+ * changes of an event are published in the order they were made.
+ * <p>
+ * The table must have a stream with both the new and old images, otherwise
+ * the feed errors on start.
+ */
+@Slf4j
+public class DynamoDbStreamsChangeFeed implements DiscordEventChangeFeed {
+
+    private final DynamoDbAsyncClient client;
+    private final DynamoDbStreamsAsyncClient streamsClient;
+    private final String tableName;
+    private final Duration pollInterval;
+    private final Duration shardRefreshInterval;
+    private final DirectProcessor<DiscordEventChange> processor;
+    private final FluxSink<DiscordEventChange> sink;
+    // { shardId -> sequence number of the last record read }, shards being read
+    private final Map<String, String> shardPositions;
+    // { shardId -> completes once the shard is closed and fully read }, shards being read
+    private final Map<String, MonoProcessor<Void>> shardsRead;
+    private final AtomicLong changes;
+    private final AtomicLong lastChangeMillis;
+    private Disposable reading;
+
+    /**
+     * Point-in-time view of the stream reads.
+     */
+    @Data
+    @Builder
+    public static class ChangeFeedUsage {
+        private final long shards;
+        private final long changes;
+        // Time between the last change and its read
+        private final long lagMillis;
+    }
+
+    @Builder
+    public DynamoDbStreamsChangeFeed(@NonNull DynamoDbAsyncClient client,
+                                     @NonNull DynamoDbStreamsAsyncClient streamsClient,
+                                     @NonNull String tableName,
+                                     @NonNull Duration pollInterval,
+                                     @NonNull Duration shardRefreshInterval) {
+        this.client = client;
+        this.streamsClient = streamsClient;
+        this.tableName = tableName;
+        this.pollInterval = pollInterval;
+        this.shardRefreshInterval = shardRefreshInterval;
+        this.processor = DirectProcessor.create();
+        this.sink = processor.sink();
+        this.shardPositions = new ConcurrentHashMap<>();
+        this.shardsRead = new ConcurrentHashMap<>();
+        this.changes = new AtomicLong();
+        this.lastChangeMillis = new AtomicLong();
+    }
+
+    public ChangeFeedUsage getUsage() {
+        return ChangeFeedUsage.builder()
+            .shards(shardPositions.size())
+            .changes(changes.get())
+            .lagMillis(lastChangeMillis.get())
+            .build();
+    }
+
+    @Override
+    public Flux<DiscordEventChange> changes() {
+        // Slow followers do not hold the shards back
+        return processor.onBackpressureBuffer();
+    }
+
+    /**
+     * Starts reading the stream of the table. Calling it more than once has no effect.
+     */
+    public synchronized void start() {
+        if (reading != null) {
+            return;
+        }
+        reading = Mono.fromCompletionStage(() -> client.describeTable(DescribeTableRequest.builder()
+            .tableName(tableName)
+            .build()))
+            .flatMapMany(describeTableResponse -> {
+                String streamArn = describeTableResponse.table().latestStreamArn();
+                if (streamArn == null) {
+                    return Mono.error(new IllegalStateException(String.format("Table %s has no stream", tableName)));
+                }
+                log.info("Reading DDB change feed {}", streamArn);
+                return readStream(streamArn);
+            })
+            .subscribe(null, throwable -> {
+                log.error("Stopped reading DDB change feed", throwable);
+                sink.error(throwable);
+            });
+    }
+
+    /**
+     * Stops reading the stream, the followers see the feed complete.
+     */
+    public synchronized void stop() {
+        if (reading == null) {
+            return;
+        }
+        reading.dispose();
+        sink.complete();
+    }
+
+    /**
+     * Lists the shards of the stream every `shardRefreshInterval` and reads the new ones,
+     * each after its parent.
+     *
+     * @param streamArn ARN of the stream
+     * @return Flux that never completes
+     */
+    private Flux<Void> readStream(String streamArn) {
+        return Flux.interval(Duration.ZERO, shardRefreshInterval)
+            .concatMap(refresh -> listShards(streamArn)
+                .flatMapIterable(shards -> {
+                    // Trimmed shards are no longer listed
+                    Set<String> shardIds = shards.stream().map(Shard::shardId).collect(Collectors.toSet());
+                    shardPositions.keySet().retainAll(shardIds);
+                    shardsRead.keySet().retainAll(shardIds);
+                    // Every new shard is known before any is read, a child listed
+                    // before its parent still waits for it
+                    List<Shard> newShards = shards.stream()
+                        .filter(shard -> shardPositions.putIfAbsent(shard.shardId(), "") == null)
+                        .collect(Collectors.toList());
+                    newShards.forEach(shard -> shardsRead.put(shard.shardId(), MonoProcessor.create()));
+                    return newShards;
+                })
+                .map(shard -> readShardAfterParent(streamArn, shard,
+                    refresh == 0 ? ShardIteratorType.LATEST : ShardIteratorType.TRIM_HORIZON)))
+            .flatMap(shardRead -> shardRead, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Waits for the parent of a shard to be closed and fully read, unless it is
+     * no longer listed, then reads the shard.
+     *
+     * @param streamArn       ARN of the stream
+     * @param shard           shard to read
+     * @param initialPosition where to start reading
+     * @return Mono<Void> completes once the shard is closed and fully read
+     */
+    private Mono<Void> readShardAfterParent(String streamArn, Shard shard, ShardIteratorType initialPosition) {
+        MonoProcessor<Void> shardRead = shardsRead.get(shard.shardId());
+        MonoProcessor<Void> parentRead = shard.parentShardId() == null ? null : shardsRead.get(shard.parentShardId());
+        Mono<Void> parentDone = parentRead == null ? Mono.empty() : parentRead;
+
+        return parentDone
+            .then(readShard(streamArn, shard.shardId(), initialPosition))
+            .doOnSuccess(done -> shardRead.onComplete());
+    }
+
+    private Mono<List<Shard>> listShards(String streamArn) {
+        DescribeStreamRequest describeStreamRequest = DescribeStreamRequest.builder()
+            .streamArn(streamArn)
+            .build();
+
+        return Mono.fromCompletionStage(() -> streamsClient.describeStream(describeStreamRequest))
+            .expand(describeStreamResponse -> describeStreamResponse.streamDescription().lastEvaluatedShardId() == null ?
+                Mono.empty() :
+                Mono.fromCompletionStage(() -> streamsClient.describeStream(describeStreamRequest.toBuilder()
+                    .exclusiveStartShardId(describeStreamResponse.streamDescription().lastEvaluatedShardId())
+                    .build())))
+            .flatMapIterable(describeStreamResponse -> describeStreamResponse.streamDescription().shards())
+            .collectList()
+            .onErrorResume(throwable -> {
+                log.warn("Could not list the shards of DDB change feed: {}", throwable.toString());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * Reads a shard until it is closed and fully read. Failed reads start over after
+     * the last record read, or from `initialPosition` when none was read yet.
+     *
+     * @param streamArn       ARN of the stream
+     * @param shardId         shard to read
+     * @param initialPosition where to start reading
+     * @return Mono<Void> completes once the shard is closed
+     */
+    private Mono<Void> readShard(String streamArn, String shardId, ShardIteratorType initialPosition) {
+        return Mono.defer(() -> {
+            String sequenceNumber = shardPositions.getOrDefault(shardId, "");
+            GetShardIteratorRequest.Builder shardIteratorRequest = GetShardIteratorRequest.builder()
+                .streamArn(streamArn)
+                .shardId(shardId);
+            if (sequenceNumber.isEmpty()) {
+                shardIteratorRequest.shardIteratorType(initialPosition);
+            } else {
+                shardIteratorRequest
+                    .shardIteratorType(ShardIteratorType.AFTER_SEQUENCE_NUMBER)
+                    .sequenceNumber(sequenceNumber);
+            }
+            return Mono.fromCompletionStage(() -> streamsClient.getShardIterator(shardIteratorRequest.build()));
+        })
+            .flatMap(shardIteratorResponse -> getRecords(shardIteratorResponse.shardIterator())
+                .expand(getRecordsResponse -> getRecordsResponse.nextShardIterator() == null ?
+                    Mono.empty() :
+                    getRecords(getRecordsResponse.nextShardIterator())
+                        // Keeps reading right away while the shard has a backlog
+                        .delaySubscription(getRecordsResponse.records().isEmpty() ? pollInterval : Duration.ZERO))
+                .doOnNext(getRecordsResponse -> getRecordsResponse.records().forEach(record -> publish(shardId, record)))
+                .then())
+            .doOnError(TrimmedDataAccessException.class, e -> shardPositions.replace(shardId, ""))
+            .retryWhen(Retry.backoff(Long.MAX_VALUE, pollInterval)
+                .maxBackoff(shardRefreshInterval)
+                .doBeforeRetry(retrySignal -> log.warn("Could not read shard {} of DDB change feed: {}",
+                    shardId, retrySignal.failure().toString())))
+            .doOnSuccess(done -> log.info("Read closed shard {} of DDB change feed", shardId));
+    }
+
+    private Mono<GetRecordsResponse> getRecords(String shardIterator) {
+        return Mono.fromCompletionStage(() -> streamsClient.getRecords(GetRecordsRequest.builder()
+            .shardIterator(shardIterator)
+            .build()));
+    }
+
+    private void publish(String shardId, Record record) {
+        shardPositions.replace(shardId, record.dynamodb().sequenceNumber());
+        changes.incrementAndGet();
+        if (record.dynamodb().approximateCreationDateTime() != null) {
+            lastChangeMillis.set(Duration.between(record.dynamodb().approximateCreationDateTime(), Instant.now()).toMillis());
+        }
+
+        DiscordEventChange.Type type;
+        switch (record.eventName()) {
+            case INSERT:
+                type = DiscordEventChange.Type.INSERT;
+                break;
+            case MODIFY:
+                type = DiscordEventChange.Type.MODIFY;
+                break;
+            case REMOVE:
+                type = DiscordEventChange.Type.REMOVE;
+                break;
+            default:
+                return;
+        }
+
+        sink.next(DiscordEventChange.builder()
+            .type(type)
+            .oldDiscordEvent(record.dynamodb().hasOldImage() ? DiscordEvent.fromDDBMap(record.dynamodb().oldImage()) : null)
+            .newDiscordEvent(record.dynamodb().hasNewImage() ? DiscordEvent.fromDDBMap(record.dynamodb().newImage()) : null)
+            .build());
+    }
+}
@@ -0,0 +1,38 @@
+package com.alvyn279.discord.changefeed;
+
+import com.google.inject.Singleton;
+import reactor.core.publisher.DirectProcessor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+
+/**
+ * {@link DiscordEventChangeFeed} of a storage that only this process writes
+ * to, e.g. the local storage. Changes are published by the writers themselves,
+ * see {@link com.alvyn279.discord.repository.PublishingDiscordEventReactiveRepository}.
+ */
+@Singleton
+public class InProcessDiscordEventChangeFeed implements DiscordEventChangeFeed {
+
+    private final DirectProcessor<DiscordEventChange> processor;
+    private final FluxSink<DiscordEventChange> sink;
+
+    public InProcessDiscordEventChangeFeed() {
+        this.processor = DirectProcessor.create();
+        this.sink = processor.sink();
+    }
+
+    /**
+     * Publishes a change to the current followers. Safe to call from any thread.
+     *
+     * @param change change of a stored event
+     */
+    public void publish(DiscordEventChange change) {
+        sink.next(change);
+    }
+
+    @Override
+    public Flux<DiscordEventChange> changes() {
+        // Slow followers do not fail the writers
+        return processor.onBackpressureBuffer();
+    }
+}
@@ -0,0 +1,175 @@
+package com.alvyn279.discord.command;
+
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.utils.CommandTokens;
+import com.alvyn279.discord.utils.DateUtils;
+import com.alvyn279.discord.utils.DiscordStringUtils;
+import com.google.common.collect.ImmutableList;
+
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Grammar of the arguments of the bot commands. Each method is a {@link CommandParser}
+ * that checks the tokens of a command and turns them into its typed arguments, so that
+ * malformed commands are rejected before the guild, the channel or the storage is read.
+ * <p>
+ * See the `Formats` section of the help message for the formats of the arguments.
+ */
+public final class CommandGrammar {
+
+    public static final String CREATE_EVENT_USAGE =
+        "!create-event [title:str] [date:date] [time:time] [description:str]?";
+    public static final String DELETE_EVENTS_USAGE = "!delete-events [deleteCode:str]*";
+    public static final String LIST_EVENTS_USAGE = "!list-events [[upcoming:num]] [[on:date]] [[from:date] [to:date]]";
+    public static final String MY_EVENTS_USAGE = "!my-events [history:str]?";
+    public static final String REMIND_EVENTS_USAGE = "!remind-events [on|off:str]?";
+
+    public static final String HISTORY_QUALIFIER = "history";
+    public static final String REMIND_ON_QUALIFIER = "on";
+    public static final String REMIND_OFF_QUALIFIER = "off";
+
+    static final int DEFAULT_UPCOMING_LIMIT = 5;
+
+    private CommandGrammar() {
+    }
+
+    /**
+     * Grammar of the commands that take no arguments, extra tokens are ignored.
+     *
+     * @param tokens tokens of the command
+     * @return null
+     */
+    public static Void noArguments(CommandTokens tokens) {
+        return null;
+    }
+
+    public static CreateEventCommand createEvent(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() < 4 || tokens.size() > 5) {
+            throw new InvalidCommandException(
+                "Expected a title, a date, a time and an optional description.", CREATE_EVENT_USAGE);
+        }
+        String name = tokens.get(1);
+        if (name.isBlank()) {
+            throw new InvalidCommandException("The title of the event cannot be empty.", CREATE_EVENT_USAGE);
+        }
+        Instant timestamp;
+        try {
+            timestamp = DateUtils.fromDateAndTime(tokens.view(2), tokens.view(3));
+        } catch (DateTimeParseException e) {
+            throw new InvalidCommandException(String.format(
+                "`%s %s` is not a valid date and time.", tokens.view(2), tokens.view(3)), CREATE_EVENT_USAGE);
+        }
+        return CreateEventCommand.builder()
+            .name(name)
+            .timestamp(timestamp)
+            .description(tokens.size() == 5 ? tokens.get(4) : null)
+            .build();
+    }
+
+    public static DeleteEventsCommand deleteEvents(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() < 2) {
+            throw new InvalidCommandException("Expected at least one delete code.", DELETE_EVENTS_USAGE);
+        }
+        ImmutableList.Builder<String> deleteCodes = ImmutableList.builderWithExpectedSize(tokens.size() - 1);
+        for (int i = 1; i < tokens.size(); i++) {
+            String deleteCode = tokens.get(i);
+            if (!DiscordStringUtils.isDeleteCode(deleteCode)) {
+                throw new InvalidCommandException(String.format(
+                    "`%s` is not a delete code.", deleteCode), DELETE_EVENTS_USAGE);
+            }
+            deleteCodes.add(deleteCode);
+        }
+        return DeleteEventsCommand.builder()
+            .deleteCodes(deleteCodes.build())
+            .build();
+    }
+
+    public static ListUpcomingCommand listUpcoming(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() == 1) {
+            return ListUpcomingCommand.builder()
+                .upcomingLimit(DEFAULT_UPCOMING_LIMIT)
+                .build();
+        }
+        if (tokens.size() != 2) {
+            throw new InvalidCommandException("Expected a number of upcoming events.", LIST_EVENTS_USAGE);
+        }
+        int upcomingLimit;
+        try {
+            upcomingLimit = Integer.parseInt(tokens.get(1));
+        } catch (NumberFormatException e) {
+            upcomingLimit = 0;
+        }
+        if (upcomingLimit < 1) {
+            throw new InvalidCommandException(String.format(
+                "`%s` is not a number of upcoming events.", tokens.view(1)), LIST_EVENTS_USAGE);
+        }
+        return ListUpcomingCommand.builder()
+            .upcomingLimit(upcomingLimit)
+            .build();
+    }
+
+    public static ListOnDateCommand listOnDate(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() != 2) {
+            throw new InvalidCommandException("Expected a date.", LIST_EVENTS_USAGE);
+        }
+        return ListOnDateCommand.builder()
+            .date(date(tokens, 1, LIST_EVENTS_USAGE))
+            .dateText(tokens.get(1))
+            .build();
+    }
+
+    public static ListRangeCommand listRange(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() != 3) {
+            throw new InvalidCommandException("Expected a start date and an end date.", LIST_EVENTS_USAGE);
+        }
+        Instant from = date(tokens, 1, LIST_EVENTS_USAGE);
+        Instant to = date(tokens, 2, LIST_EVENTS_USAGE);
+        if (from.isAfter(to)) {
+            throw new InvalidCommandException(String.format(
+                "`%s` is after `%s`.", tokens.view(1), tokens.view(2)), LIST_EVENTS_USAGE);
+        }
+        return ListRangeCommand.builder()
+            .from(from)
+            .to(to)
+            .fromText(tokens.get(1))
+            .toText(tokens.get(2))
+            .build();
+    }
+
+    public static MyEventsCommand myEvents(CommandTokens tokens) throws InvalidCommandException {
+        if (tokens.size() > 2 || (tokens.size() == 2 && !tokens.matches(1, HISTORY_QUALIFIER))) {
+            throw new InvalidCommandException(String.format(
+                "Expected nothing or `%s`.", HISTORY_QUALIFIER), MY_EVENTS_USAGE);
+        }
+        return MyEventsCommand.builder()
+            .history(tokens.size() == 2)
+            .build();
+    }
+
+    public static RemindCommand remindEvents(CommandTokens tokens) throws InvalidCommandException {
+        RemindCommand.Mode mode;
+        if (tokens.size() == 1) {
+            mode = RemindCommand.Mode.STATUS;
+        } else if (tokens.size() == 2 && tokens.matches(1, REMIND_ON_QUALIFIER)) {
+            mode = RemindCommand.Mode.ON;
+        } else if (tokens.size() == 2 && tokens.matches(1, REMIND_OFF_QUALIFIER)) {
+            mode = RemindCommand.Mode.OFF;
+        } else {
+            throw new InvalidCommandException(String.format(
+                "Expected nothing, `%s` or `%s`.", REMIND_ON_QUALIFIER, REMIND_OFF_QUALIFIER), REMIND_EVENTS_USAGE);
+        }
+        return RemindCommand.builder()
+            .mode(mode)
+            .build();
+    }
+
+    private static Instant date(CommandTokens tokens, int index, String usage) throws InvalidCommandException {
+        try {
+            return DateUtils.fromDate(tokens.view(index));
+        } catch (DateTimeParseException e) {
+            throw new InvalidCommandException(String.format(
+                "`%s` is not a valid date.", tokens.view(index)), usage);
+        }
+    }
+}
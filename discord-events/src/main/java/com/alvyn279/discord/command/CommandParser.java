@@ -0,0 +1,20 @@
+package com.alvyn279.discord.command;
+
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.utils.CommandTokens;
+
+/**
+ * Turns the tokens of a command into its typed arguments.
+ *
+ * @param <C> type of the arguments
+ */
+@FunctionalInterface
+public interface CommandParser<C> {
+
+    /**
+     * @param tokens tokens of the command, the command word included
+     * @return C arguments of the command
+     * @throws InvalidCommandException if the tokens do not match the grammar of the command
+     */
+    C parse(CommandTokens tokens) throws InvalidCommandException;
+}
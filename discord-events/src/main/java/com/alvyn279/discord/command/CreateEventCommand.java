@@ -0,0 +1,23 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Instant;
+
+/**
+ * Arguments of `!create-event [title:str] [date:date] [time:time] [description:str]?`.
+ */
+@Data
+@Builder
+public class CreateEventCommand {
+    @NonNull
+    private final String name;
+
+    @NonNull
+    private final Instant timestamp;
+
+    // null when the event has no description
+    private final String description;
+}
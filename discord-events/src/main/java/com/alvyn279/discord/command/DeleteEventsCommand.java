@@ -0,0 +1,18 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.List;
+
+/**
+ * Arguments of `!delete-events [deleteCode:str]*`.
+ */
+@Data
+@Builder
+public class DeleteEventsCommand {
+    // One or more delete codes, in the order they were given
+    @NonNull
+    private final List<String> deleteCodes;
+}
@@ -0,0 +1,22 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Instant;
+
+/**
+ * Arguments of `!list-events [on:date]`.
+ */
+@Data
+@Builder
+public class ListOnDateCommand {
+    // Start of the day
+    @NonNull
+    private final Instant date;
+
+    // As written by the user
+    @NonNull
+    private final String dateText;
+}
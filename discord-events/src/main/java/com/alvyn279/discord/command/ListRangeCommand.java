@@ -0,0 +1,27 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Instant;
+
+/**
+ * Arguments of `!list-events [from:date] [to:date]`.
+ */
+@Data
+@Builder
+public class ListRangeCommand {
+    @NonNull
+    private final Instant from;
+
+    @NonNull
+    private final Instant to;
+
+    // As written by the user
+    @NonNull
+    private final String fromText;
+
+    @NonNull
+    private final String toText;
+}
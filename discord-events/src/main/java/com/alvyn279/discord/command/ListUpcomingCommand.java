@@ -0,0 +1,13 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Arguments of `!list-events` and `!list-events [upcoming:num]`.
+ */
+@Data
+@Builder
+public class ListUpcomingCommand {
+    private final int upcomingLimit;
+}
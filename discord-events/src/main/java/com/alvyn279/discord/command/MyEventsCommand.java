@@ -0,0 +1,14 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Arguments of `!my-events [history:str]?`.
+ */
+@Data
+@Builder
+public class MyEventsCommand {
+    // Lists the archived events instead of the live ones
+    private final boolean history;
+}
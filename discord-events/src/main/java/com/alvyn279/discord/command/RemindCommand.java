@@ -0,0 +1,22 @@
+package com.alvyn279.discord.command;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * Arguments of `!remind-events [on|off:str]?`.
+ */
+@Data
+@Builder
+public class RemindCommand {
+
+    public enum Mode {
+        STATUS,
+        ON,
+        OFF,
+    }
+
+    @NonNull
+    private final Mode mode;
+}
@@ -1,5 +1,7 @@
 package com.alvyn279.discord.domain;
 
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
 import com.alvyn279.discord.utils.DateUtils;
 import com.alvyn279.discord.utils.DiscordStringUtils;
 import com.google.common.collect.ImmutableList;
@@ -25,6 +27,9 @@ import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
 public class BotMessages {
 
     public static final String EMOJI_AND_TITLE_FORMAT_STR = "**%s** %s";
+    public static final String EMOJI_AND_LINE_FORMAT_STR = "%s %s";
+    // Discord rejects embeds with more fields than this
+    public static final Integer EMBED_FIELD_LIMIT = 25;
 
     private static final String DISCORD_EVENT_DESCRIPTION_HEADLINE_FORMAT_STR = "**%s**, by %s\n";
     private static final String DISCORD_EVENTS_ATTEND_EVENTS_TITLE = "Attend Events";
@@ -35,15 +40,26 @@ public class BotMessages {
     private static final String DISCORD_EVENTS_DELETE_ACCESS_DENIED_TITLE = "Cannot Delete Event";
     private static final String DISCORD_EVENTS_DELETE_ACCESS_DENIED_DESCRIPTION_FORMAT_STR =
         "You cannot delete \"%s\" because you are not the one that created it.";
+    private static final String DISCORD_EVENTS_CREATE_CONFLICT_TITLE = "Cannot Create Event";
+    private static final String DISCORD_EVENTS_CREATE_CONFLICT_DESCRIPTION_FORMAT_STR =
+        "You already have an event happening on %s.";
     private static final String DISCORD_EVENTS_DELETE_CONFIRMATION_TITLE = "Deleted Event";
     private static final String DISCORD_EVENTS_DELETE_CONFIRMATION_DESCRIPTION_FORMAT_STR =
         "You deleted the event called \"**%s**\" happening on %s.";
     private static final String DISCORD_EVENTS_DELETE_MULTIPLE_CONFIRMATION_TITLE = "Deleted Events";
+    private static final String DISCORD_EVENTS_DELETE_NOT_FOUND_FORMAT_STR = "No event has the delete code `%s`.";
+    private static final String DISCORD_EVENTS_DELETE_FAILED_FORMAT_STR =
+        "The event with the delete code `%s` could not be deleted, try again.";
     private static final String DISCORD_EVENTS_HELP_TITLE = "discord-events Help";
     private static final String DISCORD_EVENTS_NONE_FOUND = "No events were found.";
     private static final String DISCORD_EVENTS_THUMBNAIL_LINK =
         "https://cdn.betterttv.net/emote/57b377aae42b335143d48993/3x";
     private static final String ERROR_STATE_GENERIC_TITLE = "Oops! Something went wrong.";
+    private static final String ERROR_STATE_INVALID_COMMAND_TITLE = "Invalid command";
+    private static final String ERROR_STATE_INVALID_COMMAND_DESCRIPTION_FORMAT_STR = "%s\nUsage: `%s`";
+    private static final String ERROR_STATE_STORAGE_BUSY_TITLE = "Events are unavailable right now.";
+    private static final String ERROR_STATE_STORAGE_BUSY_DESCRIPTION = "The bot is having trouble reaching its" +
+        " storage. Try again in a minute.";
     private static final String ERROR_STATE_GENERIC_DESCRIPTION = "Use `!events-help` command to make sure you are using" +
         " commands correctly.";
     private static final String EVENT_REMINDERS_ON = "Event reminders are on.";
@@ -73,7 +89,7 @@ public class BotMessages {
             "`[]*:     repeatable one to many times`";
     private static final String HELP_SECTION_LIST = "Listing events";
     private static final String HELP_SECTION_LIST_INFO =
-        "`!my-events`\n" +
+        "`!my-events [history:str]?`\n" +
             "`!list-events`\n" +
             "`!list-events [upcoming:num]`\n" +
             "`!list-events [on:date]`\n" +
@@ -110,7 +126,7 @@ public class BotMessages {
      */
     public static void attachAttendableDiscordEvents(EmbedCreateSpec embedCreateSpec,
                                                      List<DiscordEvent> discordEvents,
-                                                     Map<String, User> usersMap) {
+                                                     Map<Long, User> usersMap) {
         if (discordEvents.isEmpty()) {
             attachNoDiscordEventsDescription(embedCreateSpec);
             return;
@@ -132,7 +148,7 @@ public class BotMessages {
                 } else {
                     attendeesList = StringUtils.join(
                         discordEvent.getAttendees().stream()
-                            .map(s -> usersMap.containsKey(s) ? usersMap.get(s).getUsername() : UNKNOWN_USER)
+                            .mapToObj(s -> usersMap.containsKey(s) ? usersMap.get(s).getUsername() : UNKNOWN_USER)
                             .map(DiscordStringUtils::boldify)
                             .toArray(String[]::new),
                         ", ");
@@ -169,7 +185,7 @@ public class BotMessages {
      */
     public static void attachDiscordEventsListToEmbed(EmbedCreateSpec embedCreateSpec,
                                                       List<DiscordEvent> discordEvents,
-                                                      Map<String, User> usernamesMap) {
+                                                      Map<Long, User> usernamesMap) {
         if (discordEvents.isEmpty()) {
             attachNoDiscordEventsDescription(embedCreateSpec);
             return;
@@ -193,6 +209,38 @@ public class BotMessages {
         );
     }
 
+    /**
+     * Fills an embed with a numerated list of {@link DiscordEventSummary}s,
+     * i.e. events without their description.
+     *
+     * @param embedCreateSpec       Embed creation spec object that can be modified
+     * @param discordEventSummaries List of discord event summaries
+     * @param usernamesMap          Map of user id to user for the guild
+     */
+    public static void attachDiscordEventSummariesListToEmbed(EmbedCreateSpec embedCreateSpec,
+                                                              List<DiscordEventSummary> discordEventSummaries,
+                                                              Map<Long, User> usernamesMap) {
+        if (discordEventSummaries.isEmpty()) {
+            attachNoDiscordEventsDescription(embedCreateSpec);
+            return;
+        }
+
+        AtomicInteger eventCounter = new AtomicInteger(1);
+        discordEventSummaries.forEach(discordEventSummary ->
+            embedCreateSpec.addField(
+                String.format("[%d] %s",
+                    eventCounter.getAndIncrement(),
+                    DateUtils.prettyPrintInstantInLocalTimezone(discordEventSummary.getTimestamp())),
+                String.format(
+                    DISCORD_EVENT_DESCRIPTION_HEADLINE_FORMAT_STR,
+                    discordEventSummary.getName(),
+                    usernamesMap.containsKey(discordEventSummary.getCreatedBy()) ?
+                        usernamesMap.get(discordEventSummary.getCreatedBy()).getUsername() :
+                        UNKNOWN_USER),
+                false)
+        );
+    }
+
     /**
      * Fills an embed with a numerated list of {@link DiscordEvent}s created by
      * a single user.
@@ -244,34 +292,64 @@ public class BotMessages {
     }
 
     /**
-     * Confirmation message for deletion of multiple discord events
+     * Confirmation message for deletion of multiple discord events, with
+     * one line per delete code
      *
-     * @param embedCreateSpec      embed to be modified
-     * @param deletedDiscordEvents discordEvents that were just deleted
+     * @param embedCreateSpec embed to be modified
+     * @param deleteResults   outcome of each delete code
      */
     public static void attachDeleteMultipleConfirmationToEmbed(EmbedCreateSpec embedCreateSpec,
-                                                               List<DiscordEvent> deletedDiscordEvents) {
+                                                               List<DeleteDiscordEventResultDTO> deleteResults) {
         StringBuilder description = new StringBuilder();
-        deletedDiscordEvents
-            .forEach(discordEvent -> description
-                .append(String.format(
-                    DISCORD_EVENTS_DELETE_CONFIRMATION_DESCRIPTION_FORMAT_STR,
-                    discordEvent.getName(),
-                    DateUtils.prettyPrintInstantInLocalTimezone(discordEvent.getTimestamp()))
-                )
+        deleteResults
+            .forEach(deleteResult -> description
+                .append(deleteResultLine(deleteResult))
                 .append("\n")
             );
+
+        long deletedCount = deleteResults.stream()
+            .filter(deleteResult -> deleteResult.getStatus() == DeleteDiscordEventResultDTO.Status.DELETED)
+            .count();
+        Color color = deletedCount == deleteResults.size() ? Color.GREEN :
+            deletedCount == 0 ? Color.RED : Color.ORANGE;
+
         embedCreateSpec
             .setTitle(String.format(
                 EMOJI_AND_TITLE_FORMAT_STR,
                 Emoji.GARBAGE,
                 DISCORD_EVENTS_DELETE_MULTIPLE_CONFIRMATION_TITLE
             ))
-            .setDescription(description.toString())
-            .setColor(Color.GREEN)
+            .setDescription(deleteResults.isEmpty() ? DISCORD_EVENTS_NONE_FOUND : description.toString())
+            .setColor(color)
             .setTimestamp(Instant.now());
     }
 
+    private static String deleteResultLine(DeleteDiscordEventResultDTO deleteResult) {
+        DiscordEvent discordEvent = deleteResult.getDiscordEvent();
+        switch (deleteResult.getStatus()) {
+            case DELETED:
+                return String.format(
+                    DISCORD_EVENTS_DELETE_CONFIRMATION_DESCRIPTION_FORMAT_STR,
+                    discordEvent.getName(),
+                    DateUtils.prettyPrintInstantInLocalTimezone(discordEvent.getTimestamp()));
+            case ACCESS_DENIED:
+                return String.format(
+                    EMOJI_AND_LINE_FORMAT_STR,
+                    Emoji.ACCESS_DENIED,
+                    String.format(DISCORD_EVENTS_DELETE_ACCESS_DENIED_DESCRIPTION_FORMAT_STR, discordEvent.getName()));
+            case NOT_FOUND:
+                return String.format(
+                    EMOJI_AND_LINE_FORMAT_STR,
+                    Emoji.QUESTION,
+                    String.format(DISCORD_EVENTS_DELETE_NOT_FOUND_FORMAT_STR, deleteResult.getDeleteCode()));
+            default:
+                return String.format(
+                    EMOJI_AND_LINE_FORMAT_STR,
+                    Emoji.WARNING,
+                    String.format(DISCORD_EVENTS_DELETE_FAILED_FORMAT_STR, deleteResult.getDeleteCode()));
+        }
+    }
+
     /**
      * Confirmation message for access denied during
      * deletion of a discord event
@@ -294,6 +372,28 @@ public class BotMessages {
             .setTimestamp(Instant.now());
     }
 
+    /**
+     * Message for a created discord event that conflicts with
+     * another event of the same user at the same time
+     *
+     * @param embedCreateSpec embed to be modified
+     * @param timestamp       time of the event that was attempted to be created
+     */
+    public static void attachCreateConflictToEmbed(EmbedCreateSpec embedCreateSpec, Instant timestamp) {
+        embedCreateSpec
+            .setTitle(String.format(
+                EMOJI_AND_TITLE_FORMAT_STR,
+                Emoji.RED_CROSS,
+                DISCORD_EVENTS_CREATE_CONFLICT_TITLE
+            ))
+            .setDescription(String.format(
+                DISCORD_EVENTS_CREATE_CONFLICT_DESCRIPTION_FORMAT_STR,
+                DateUtils.prettyPrintInstantInLocalTimezone(timestamp)
+            ))
+            .setColor(Color.RED)
+            .setTimestamp(Instant.now());
+    }
+
     /**
      * Message to inform that the reminders for events are turned on
      *
@@ -412,6 +512,42 @@ public class BotMessages {
             .setDescription(BotMessages.ERROR_STATE_GENERIC_DESCRIPTION);
     }
 
+    /**
+     * Creates the discord-events invalid command message, with what is wrong
+     * with the command and how to write it
+     *
+     * @param embedCreateSpec embed to be modified
+     * @param e               rejection of the command by its grammar
+     */
+    public static void invalidCommand(EmbedCreateSpec embedCreateSpec, InvalidCommandException e) {
+        embedCreateSpec
+            .setColor(Color.ORANGE)
+            .setTitle(String.format(
+                EMOJI_AND_TITLE_FORMAT_STR,
+                Emoji.QUESTION,
+                BotMessages.ERROR_STATE_INVALID_COMMAND_TITLE
+            ))
+            .setDescription(String.format(
+                ERROR_STATE_INVALID_COMMAND_DESCRIPTION_FORMAT_STR, e.getMessage(), e.getUsage()));
+    }
+
+    /**
+     * Creates the discord-events storage busy message, for commands that were
+     * refused without being run
+     *
+     * @param embedCreateSpec embed to be modified
+     */
+    public static void storageBusy(EmbedCreateSpec embedCreateSpec) {
+        embedCreateSpec
+            .setColor(Color.ORANGE)
+            .setTitle(String.format(
+                EMOJI_AND_TITLE_FORMAT_STR,
+                Emoji.HOURGLASS,
+                BotMessages.ERROR_STATE_STORAGE_BUSY_TITLE
+            ))
+            .setDescription(BotMessages.ERROR_STATE_STORAGE_BUSY_DESCRIPTION);
+    }
+
     /**
      * Builder class to obtain a differently formatted field
      * encapsulating {@link DiscordEvent} information on a Discord
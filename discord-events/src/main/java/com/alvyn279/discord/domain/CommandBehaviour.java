@@ -1,5 +1,6 @@
 package com.alvyn279.discord.domain;
 
+import com.alvyn279.discord.utils.CommandTokens;
 import discord4j.core.event.domain.message.MessageCreateEvent;
 import reactor.core.publisher.Mono;
 
@@ -11,8 +12,9 @@ public interface CommandBehaviour {
 
     /**
      * Executes a reaction to a given command
-     * @param event {@link MessageCreateEvent} Message that is sent from a discord channel
+     * @param event  {@link MessageCreateEvent} Message that is sent from a discord channel
+     * @param tokens tokens of the content of the message
      * @return Publisher with Void type completion
      */
-    Mono<Void> execute(MessageCreateEvent event);
+    Mono<Void> execute(MessageCreateEvent event, CommandTokens tokens);
 }
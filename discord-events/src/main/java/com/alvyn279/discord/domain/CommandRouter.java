@@ -0,0 +1,67 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableMap;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.object.entity.Message;
+import discord4j.core.object.entity.User;
+
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Finds the {@link CommandBehaviour} of an incoming message.
+ * <p>
+ * Every message of every guild the bot is in goes through here, most of them
+ * ordinary chat. Those are rejected on their first character, without allocating.
+ * Commands are matched on their first word, `!{command}`, with a single lookup in
+ * a map built once.
+ */
+public class CommandRouter {
+
+    private final String prefix;
+    private final Map<String, CommandBehaviour> commands;
+
+    /**
+     * @param prefix   prefix of every command, ex: `!`
+     * @param commands { command word without the prefix -> behaviour }
+     */
+    public CommandRouter(String prefix, Map<String, CommandBehaviour> commands) {
+        if (prefix.isEmpty()) {
+            throw new IllegalArgumentException("Command prefix cannot be empty");
+        }
+        this.prefix = prefix;
+        this.commands = ImmutableMap.copyOf(commands);
+    }
+
+    /**
+     * @param event message sent to a channel the bot can read
+     * @return Optional of the behaviour of the command, empty if the message is not a command
+     * or was sent by a bot (or a webhook)
+     */
+    public Optional<CommandBehaviour> route(MessageCreateEvent event) {
+        Message message = event.getMessage();
+        Optional<CommandBehaviour> command = find(message.getContent());
+        if (command.isEmpty() || message.getAuthor().map(User::isBot).orElse(true)) {
+            return Optional.empty();
+        }
+        return command;
+    }
+
+    /**
+     * @param content content of a message
+     * @return Optional of the behaviour of the command word that starts the content
+     */
+    public Optional<CommandBehaviour> find(String content) {
+        if (!content.startsWith(prefix)) {
+            return Optional.empty();
+        }
+        int commandEnd = prefix.length();
+        while (commandEnd < content.length() && !Character.isWhitespace(content.charAt(commandEnd))) {
+            commandEnd++;
+        }
+        if (commandEnd == prefix.length()) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(commands.get(content.substring(prefix.length(), commandEnd)));
+    }
+}
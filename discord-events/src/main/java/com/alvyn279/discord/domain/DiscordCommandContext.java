@@ -6,16 +6,16 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 
-import java.util.List;
-
 /**
  * Command arguments and discord context
+ *
+ * @param <C> type of the parsed arguments of the command
  */
 @Data
 @Builder
-public class DiscordCommandContext {
-    @NonNull
-    private final List<String> tokens;
+public class DiscordCommandContext<C> {
+    // null for commands without arguments
+    private final C command;
 
     @NonNull
     private final MessageCreateEvent messageCreateEvent;
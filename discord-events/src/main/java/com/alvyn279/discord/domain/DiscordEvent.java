@@ -1,18 +1,23 @@
 package com.alvyn279.discord.domain;
 
 import com.alvyn279.discord.repository.dto.DiscordEventDTO;
-import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.ImmutableList;
 import discord4j.common.util.Snowflake;
 import lombok.Builder;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
 import lombok.NonNull;
+import lombok.ToString;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
 import software.amazon.awssdk.utils.DateUtils;
 import software.amazon.awssdk.utils.ImmutableMap;
 
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
 import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
 
@@ -20,11 +25,20 @@ import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
  * Class that represents a Discord Event from the DDB table.
  * <p>
  * DynamoDB:
- * PK: `{guildID}`
+ * PK: `{guildID}`, or `{guildID}#{yyyy-MM}` with bucketed partitions (see {@link PartitionKeyScheme})
  * SK: `{timestamp}#{createdBy}`
+ * GSI `messageIdIndex`: PK `{messageId}`, all attributes projected
+ * GSI `guildIdCreatedByIndex`: PK `{guildID}#{createdBy}`, SK `{timestamp}#{createdBy}`,
+ * all attributes projected
+ * GSI `startSlotIndex`: PK `{yyyy-MM-ddTHH}` (UTC hour the event starts in), SK `{timestamp}#{createdBy}`,
+ * summary attributes projected (see {@link DiscordEventSummary})
+ * <p>
+ * Equality and `toString` leave out the description and attendees, so that they
+ * do not decode them. Events are compared on their key, message, name, and on
+ * their version and idempotency key, which tell apart the writes of an event.
  */
 @Data
-@Builder
+@Builder(toBuilder = true)
 public class DiscordEvent {
     // Key names for DiscordEvent entity in DDB Table (attrs)
     public static final String PARTITION_KEY = "guildId";
@@ -34,6 +48,18 @@ public class DiscordEvent {
     public static final String NAME_KEY = "name";
     public static final String DESCRIPTION_KEY = "description";
     public static final String ATTENDEES_KEY = "attendees";
+    public static final String GUILD_ID_CREATED_BY_KEY = "guildIdCreatedBy";
+    public static final String VERSION_KEY = "version";
+    public static final String IDEMPOTENCY_KEY_KEY = "idempotencyKey";
+    public static final String START_SLOT_KEY = "startSlot";
+
+    // Index names for DiscordEvent entity in DDB Table
+    public static final String MESSAGE_ID_INDEX = "messageIdIndex";
+    public static final String GUILD_ID_CREATED_BY_INDEX = "guildIdCreatedByIndex";
+    public static final String START_SLOT_INDEX = "startSlotIndex";
+
+    private static final DateTimeFormatter START_SLOT_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH")
+        .withZone(ZoneOffset.UTC);
 
     public static final String MESSAGE_ID_LABEL = "Message ID";
     public static final String CREATED_BY_LABEL = "Created by";
@@ -42,8 +68,7 @@ public class DiscordEvent {
     /**
      * The discord guild/server's {@link Snowflake} id
      */
-    @NonNull
-    private final String guildId;
+    private final long guildId;
 
     /**
      * The Instant object at which the event will start.
@@ -55,14 +80,12 @@ public class DiscordEvent {
     /**
      * The {@link Snowflake} id of the user that created the event
      */
-    @NonNull
-    private final String createdBy;
+    private final long createdBy;
 
     /**
      * The event message's {@link Snowflake} id
      */
-    @NonNull
-    private final String messageId;
+    private final long messageId;
 
     /**
      * The name/title of the event
@@ -71,18 +94,80 @@ public class DiscordEvent {
     private final String name;
 
     /**
-     * The description for the event
+     * The description for the event.
+     * Read from DDB, it is only decoded once it is accessed (see {@link DiscordEventItemCodec}).
      */
     @NonNull
-    private final String description;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final LazyAttribute<String> description;
 
     /**
      * The {@link Snowflake} ids of the event's attendees.
      * This is a readonly value.
+     * Read from DDB, it is only decoded once it is accessed (see {@link DiscordEventItemCodec}).
      */
     @NonNull
-    private final Set<String> attendees;
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    private final LazyAttribute<SnowflakeSet> attendees;
 
+    /**
+     * Incremented on every write of the event, starting at 1 when it is created.
+     * Events written before versions were introduced are at 0.
+     */
+    @Builder.Default
+    private final long version = 0L;
+
+    /**
+     * Idempotency key of the last full write of the event,
+     * see {@link DiscordEventDTO#getIdempotencyKey()}
+     */
+    @NonNull
+    @Builder.Default
+    private final String idempotencyKey = EMPTY;
+
+    public String getDescription() {
+        return description.get();
+    }
+
+    public SnowflakeSet getAttendees() {
+        return attendees.get();
+    }
+
+    /**
+     * @return boolean whether the description and attendees were decoded from their stored form
+     */
+    boolean isDecoded() {
+        return description.isDecoded() && attendees.isDecoded();
+    }
+
+    /**
+     * Builder that takes the description and attendees as values, or as
+     * attributes to decode from their stored form.
+     */
+    public static class DiscordEventBuilder {
+
+        public DiscordEventBuilder description(@NonNull String description) {
+            this.description = LazyAttribute.of(description);
+            return this;
+        }
+
+        DiscordEventBuilder description(@NonNull LazyAttribute<String> description) {
+            this.description = description;
+            return this;
+        }
+
+        public DiscordEventBuilder attendees(@NonNull SnowflakeSet attendees) {
+            this.attendees = LazyAttribute.of(attendees);
+            return this;
+        }
+
+        DiscordEventBuilder attendees(@NonNull LazyAttribute<SnowflakeSet> attendees) {
+            this.attendees = attendees;
+            return this;
+        }
+    }
 
     /**
      * Returns `datetimeCreatedBy` string for user-defined DiscordEvent.
@@ -99,16 +184,84 @@ public class DiscordEvent {
             .asString();
     }
 
+    /**
+     * Builds the `guildIdCreatedBy` partition key value of the
+     * `guildIdCreatedByIndex` GSI, which groups the events of a user
+     * within a guild.
+     *
+     * @param guildId   guild id snowflake
+     * @param createdBy user id snowflake
+     * @return String `{guildId}#{createdBy}`
+     */
+    public static String guildIdCreatedBy(long guildId, long createdBy) {
+        return String.format("%1$s%2$s%3$s",
+            Long.toUnsignedString(guildId),
+            DatetimeCreatedBy.DDB_COMPOSITE_KEY_SEPARATOR,
+            Long.toUnsignedString(createdBy)
+        );
+    }
+
+    /**
+     * Builds the `startSlot` partition key value of the `startSlotIndex` GSI, which
+     * groups the events of all guilds that start within the same hour (UTC).
+     *
+     * @param timestamp time of the event
+     * @return String `{yyyy-MM-ddTHH}`
+     */
+    public static String startSlotOf(Instant timestamp) {
+        return START_SLOT_FORMATTER.format(timestamp);
+    }
+
+    /**
+     * Start slots that cover a time range, in time order.
+     *
+     * @param start start of the time range
+     * @param end   end of the time range
+     * @return List of `startSlot` values
+     */
+    public static List<String> startSlots(Instant start, Instant end) {
+        ImmutableList.Builder<String> startSlots = ImmutableList.builder();
+        for (Instant slot = start.truncatedTo(ChronoUnit.HOURS);
+             !slot.isAfter(end);
+             slot = slot.plus(1, ChronoUnit.HOURS)) {
+            startSlots.add(startSlotOf(slot));
+        }
+        return startSlots.build();
+    }
+
+    /**
+     * Reads the creator of an event from its `datetimeCreatedBy` sort key value,
+     * without parsing the date-time.
+     *
+     * @param datetimeCreatedBy sort key value
+     * @return long user id snowflake
+     */
+    public static long createdByOf(String datetimeCreatedBy) {
+        return Long.parseUnsignedLong(datetimeCreatedBy,
+            datetimeCreatedBy.indexOf(DatetimeCreatedBy.DDB_COMPOSITE_KEY_SEPARATOR) + 1,
+            datetimeCreatedBy.length(),
+            10);
+    }
+
+    /**
+     * Reads the time of an event from its `datetimeCreatedBy` sort key value.
+     *
+     * @param datetimeCreatedBy sort key value
+     * @return Instant time of the event
+     */
+    public static Instant timestampOf(String datetimeCreatedBy) {
+        return DatetimeCreatedBy.from(datetimeCreatedBy).getDatetime();
+    }
+
     @Builder
     @Data
-    private static class DatetimeCreatedBy {
+    static class DatetimeCreatedBy {
         private static final String DDB_COMPOSITE_KEY_SEPARATOR = "#";
 
         @NonNull
         private final Instant datetime;
 
-        @NonNull
-        private final String createdBy;
+        private final long createdBy;
 
         /**
          * Builds the datetime#createdBy sort key value to uniquely identify this
@@ -120,7 +273,7 @@ public class DiscordEvent {
             return String.format("%1$s%2$s%3$s",
                 datetime.toString(),
                 DDB_COMPOSITE_KEY_SEPARATOR,
-                createdBy
+                Long.toUnsignedString(createdBy)
             );
         }
 
@@ -134,7 +287,7 @@ public class DiscordEvent {
             String[] composite = datetimeCreatedByString.split(DDB_COMPOSITE_KEY_SEPARATOR);
             return DatetimeCreatedBy.builder()
                 .datetime(DateUtils.parseIso8601Date(composite[0]))
-                .createdBy(composite[1])
+                .createdBy(Long.parseUnsignedLong(composite[1]))
                 .build();
         }
     }
@@ -148,19 +301,21 @@ public class DiscordEvent {
      * would usually expose as skip-missing-attributes annotation.
      *
      * Assumptions: partition and sort keys are always non-nulls.
+     * The creator is read from the sort key. The description and attendees are left out,
+     * {@link DiscordEventItemCodec} reads them. {@link DiscordEventSummary} reads
+     * its attributes through it too.
      *
      * @param map DDB items maps
      * @return non-null attribute-attributeValue map
      */
-    private static Map<String, AttributeValue> safeDDBMap(Map<String, AttributeValue> map) {
+    static Map<String, AttributeValue> safeDDBMap(Map<String, AttributeValue> map) {
         return new ImmutableMap.Builder<String, AttributeValue>()
             .put(PARTITION_KEY, map.get(PARTITION_KEY))
             .put(SORT_KEY, map.get(SORT_KEY))
-            .put(MESSAGE_ID_KEY, map.getOrDefault(MESSAGE_ID_KEY, AttributeValue.builder().s(EMPTY).build()))
-            .put(CREATED_BY_KEY, map.getOrDefault(CREATED_BY_KEY, AttributeValue.builder().s(EMPTY).build()))
+            .put(MESSAGE_ID_KEY, map.getOrDefault(MESSAGE_ID_KEY, AttributeValue.builder().s("0").build()))
             .put(NAME_KEY, map.getOrDefault(NAME_KEY, AttributeValue.builder().s(EMPTY).build()))
-            .put(DESCRIPTION_KEY, map.getOrDefault(DESCRIPTION_KEY, AttributeValue.builder().s(EMPTY).build()))
-            .put(ATTENDEES_KEY, map.getOrDefault(ATTENDEES_KEY, AttributeValue.builder().ss(ImmutableSet.of()).build()))
+            .put(VERSION_KEY, map.getOrDefault(VERSION_KEY, AttributeValue.builder().n("0").build()))
+            .put(IDEMPOTENCY_KEY_KEY, map.getOrDefault(IDEMPOTENCY_KEY_KEY, AttributeValue.builder().s(EMPTY).build()))
             .build();
     }
 
@@ -174,8 +329,23 @@ public class DiscordEvent {
      * @return Item in ddb domain
      */
     public static Map<String, AttributeValue> toDDBItem(DiscordEventDTO discordEventDTO) {
+        return toDDBItem(discordEventDTO, PartitionKeyScheme.LEGACY);
+    }
+
+    /**
+     * AWS DDB SETTER
+     * Same as {@link #toDDBItem(DiscordEventDTO)}, with the partition key written
+     * in the layout of the given scheme.
+     *
+     * @param discordEventDTO    DiscordEventDTO pojo
+     * @param partitionKeyScheme layout of the partition key
+     * @return Item in ddb domain
+     */
+    public static Map<String, AttributeValue> toDDBItem(DiscordEventDTO discordEventDTO,
+                                                        PartitionKeyScheme partitionKeyScheme) {
         ImmutableMap.Builder<String, AttributeValue> ddbItemBuilder = ImmutableMap.<String, AttributeValue>builder()
-            .put(PARTITION_KEY, AttributeValue.builder().s(discordEventDTO.getGuildId()).build())
+            .put(PARTITION_KEY, AttributeValue.builder().s(partitionKeyScheme.writePartitionKey(
+                discordEventDTO.getGuildId(), discordEventDTO.getTimestamp())).build())
             .put(SORT_KEY, AttributeValue.builder().s(
                 DatetimeCreatedBy.builder()
                     .datetime(discordEventDTO.getTimestamp())
@@ -183,16 +353,22 @@ public class DiscordEvent {
                     .build()
                     .asString())
                 .build())
-            .put(MESSAGE_ID_KEY, AttributeValue.builder().s(discordEventDTO.getMessageId()).build())
-            .put(CREATED_BY_KEY, AttributeValue.builder().s(discordEventDTO.getCreatedBy()).build())
-            .put(NAME_KEY, AttributeValue.builder().s(discordEventDTO.getName()).build());
+            .put(MESSAGE_ID_KEY, AttributeValue.builder().s(Long.toUnsignedString(discordEventDTO.getMessageId())).build())
+            .put(CREATED_BY_KEY, AttributeValue.builder().s(Long.toUnsignedString(discordEventDTO.getCreatedBy())).build())
+            .put(GUILD_ID_CREATED_BY_KEY, AttributeValue.builder().s(
+                guildIdCreatedBy(discordEventDTO.getGuildId(), discordEventDTO.getCreatedBy())).build())
+            .put(NAME_KEY, AttributeValue.builder().s(discordEventDTO.getName()).build())
+            .put(VERSION_KEY, AttributeValue.builder().n(Long.toString(discordEventDTO.writtenVersion())).build())
+            .put(IDEMPOTENCY_KEY_KEY, AttributeValue.builder().s(discordEventDTO.getIdempotencyKey()).build())
+            .put(START_SLOT_KEY, AttributeValue.builder().s(startSlotOf(discordEventDTO.getTimestamp())).build())
+            .put(DiscordEventItemCodec.CODEC_KEY, DiscordEventItemCodec.currentVersion());
 
         if (discordEventDTO.getDescription() != null) {
-            ddbItemBuilder.put(DESCRIPTION_KEY, AttributeValue.builder().s(discordEventDTO.getDescription()).build());
+            DiscordEventItemCodec.putDescription(discordEventDTO.getDescription(), ddbItemBuilder);
         }
 
-        if (discordEventDTO.getAttendees() != null && !discordEventDTO.getAttendees().isEmpty()) {
-            ddbItemBuilder.put(ATTENDEES_KEY, AttributeValue.builder().ss(discordEventDTO.getAttendees()).build());
+        if (discordEventDTO.getAttendees() != null) {
+            DiscordEventItemCodec.putAttendees(discordEventDTO.getAttendees(), ddbItemBuilder);
         }
 
         return ddbItemBuilder.build();
@@ -200,7 +376,8 @@ public class DiscordEvent {
 
     /**
      * AWS DDB GETTER
-     * Creates a client-side instance of {@link DiscordEvent} from attributes map
+     * Creates a client-side instance of {@link DiscordEvent} from attributes map.
+     * Items of every {@link DiscordEventItemCodec} version are read.
      *
      * @param rawMap Map<String, AttributeValue> map from DDB reads
      * @return A discord event
@@ -209,15 +386,15 @@ public class DiscordEvent {
         Map<String, AttributeValue> map = safeDDBMap(rawMap);
         DatetimeCreatedBy datetimeCreatedBy = DatetimeCreatedBy.from(map.get(SORT_KEY).s());
         return DiscordEvent.builder()
-            .guildId(map.get(PARTITION_KEY).s())
+            .guildId(PartitionKeyScheme.guildIdOf(map.get(PARTITION_KEY).s()))
             .timestamp(datetimeCreatedBy.datetime)
-            .messageId(map.get(MESSAGE_ID_KEY).s())
-            .createdBy(map.get(CREATED_BY_KEY).s())
+            .messageId(Long.parseUnsignedLong(map.get(MESSAGE_ID_KEY).s()))
+            .createdBy(datetimeCreatedBy.createdBy)
             .name(map.get(NAME_KEY).s())
-            .description(map.get(DESCRIPTION_KEY).s())
-            .attendees(
-                ImmutableSet.copyOf(map.get(ATTENDEES_KEY).ss())
-            )
+            .description(DiscordEventItemCodec.readDescription(rawMap))
+            .attendees(DiscordEventItemCodec.readAttendees(rawMap))
+            .version(Long.parseLong(map.get(VERSION_KEY).n()))
+            .idempotencyKey(map.get(IDEMPOTENCY_KEY_KEY).s())
             .build();
     }
 }
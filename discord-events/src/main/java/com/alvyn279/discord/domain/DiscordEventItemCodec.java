@@ -0,0 +1,198 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableList;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.utils.ImmutableMap;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+import java.util.zip.Inflater;
+
+import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
+
+/**
+ * Encoding of the bulky attributes of a {@link DiscordEvent} item in DDB.
+ * <p>
+ * Items carry the version of the codec they were written with in their `codec`
+ * attribute. Items written before it (version 0) hold a plain `description` string
+ * and an `attendees` string set of decimal snowflakes. From version 1:
+ * - descriptions of at least {@link #COMPRESSION_THRESHOLD_BYTES} are deflated in
+ * the `descriptionZ` binary attribute, shorter ones stay in `description`
+ * - attendee snowflakes are packed as 8-byte big-endian values in the `attendeesPacked`
+ * binary set, which keeps the atomic `ADD`/`DELETE` updates of attendees.
+ * <p>
+ * Both attendee sets are read and merged, so that the attendees added to an item
+ * by a previous version of the bot are kept.
+ */
+public final class DiscordEventItemCodec {
+    public static final String CODEC_KEY = "codec";
+    public static final String DESCRIPTION_Z_KEY = "descriptionZ";
+    public static final String ATTENDEES_PACKED_KEY = "attendeesPacked";
+
+    public static final int LEGACY_VERSION = 0;
+    public static final int CURRENT_VERSION = 1;
+
+    // Below it, the deflate header and checksum outweigh the saving
+    static final int COMPRESSION_THRESHOLD_BYTES = 256;
+
+    private static final int SNOWFLAKE_BYTES = Long.BYTES;
+
+    private DiscordEventItemCodec() {
+    }
+
+    /**
+     * @return AttributeValue version of the codec to write along with the encoded attributes
+     */
+    public static AttributeValue currentVersion() {
+        return AttributeValue.builder().n(Integer.toString(CURRENT_VERSION)).build();
+    }
+
+    /**
+     * Writes the description of an event in the item, compressed when it is long.
+     *
+     * @param description    description of the event
+     * @param ddbItemBuilder item being written
+     */
+    static void putDescription(String description, ImmutableMap.Builder<String, AttributeValue> ddbItemBuilder) {
+        byte[] utf8 = description.getBytes(StandardCharsets.UTF_8);
+        if (utf8.length >= COMPRESSION_THRESHOLD_BYTES) {
+            byte[] deflated = deflate(utf8);
+            if (deflated.length < utf8.length) {
+                ddbItemBuilder.put(DESCRIPTION_Z_KEY, AttributeValue.builder().b(SdkBytes.fromByteArray(deflated)).build());
+                return;
+            }
+        }
+        ddbItemBuilder.put(DiscordEvent.DESCRIPTION_KEY, AttributeValue.builder().s(description).build());
+    }
+
+    /**
+     * Writes the attendees of an event in the item, packed.
+     *
+     * @param attendees      snowflake ids of the attendees
+     * @param ddbItemBuilder item being written
+     */
+    static void putAttendees(SnowflakeSet attendees, ImmutableMap.Builder<String, AttributeValue> ddbItemBuilder) {
+        // DDB does not store empty sets
+        if (!attendees.isEmpty()) {
+            ddbItemBuilder.put(ATTENDEES_PACKED_KEY, AttributeValue.builder()
+                .bs(attendees.stream().mapToObj(DiscordEventItemCodec::pack).collect(Collectors.toList()))
+                .build());
+        }
+    }
+
+    /**
+     * Value to `ADD` to or `DELETE` from the {@link #ATTENDEES_PACKED_KEY} set.
+     *
+     * @param attendee snowflake id of the attendee
+     * @return AttributeValue set of the single attendee
+     */
+    public static AttributeValue packedAttendee(long attendee) {
+        return AttributeValue.builder().bs(pack(attendee)).build();
+    }
+
+    /**
+     * Value to `DELETE` from the legacy {@link DiscordEvent#ATTENDEES_KEY} set.
+     *
+     * @param attendee snowflake id of the attendee
+     * @return AttributeValue set of the single attendee
+     */
+    public static AttributeValue legacyAttendee(long attendee) {
+        return AttributeValue.builder().ss(Long.toUnsignedString(attendee)).build();
+    }
+
+    /**
+     * Reads the description of an item, it is only inflated once it is read.
+     *
+     * @param map DDB item
+     * @return LazyAttribute<String> description, empty if the item has none
+     */
+    static LazyAttribute<String> readDescription(Map<String, AttributeValue> map) {
+        AttributeValue deflated = map.get(DESCRIPTION_Z_KEY);
+        if (versionOf(map) >= 1 && deflated != null) {
+            SdkBytes bytes = deflated.b();
+            return LazyAttribute.decodedBy(() -> inflate(bytes.asByteArrayUnsafe()));
+        }
+        AttributeValue description = map.get(DiscordEvent.DESCRIPTION_KEY);
+        return LazyAttribute.of(description == null ? EMPTY : description.s());
+    }
+
+    /**
+     * Reads the attendees of an item, they are only unpacked once they are read.
+     *
+     * @param map DDB item
+     * @return LazyAttribute<SnowflakeSet> attendees, empty if the item has none
+     */
+    static LazyAttribute<SnowflakeSet> readAttendees(Map<String, AttributeValue> map) {
+        AttributeValue unpacked = map.get(DiscordEvent.ATTENDEES_KEY);
+        AttributeValue packed = map.get(ATTENDEES_PACKED_KEY);
+        if (unpacked == null && packed == null) {
+            return LazyAttribute.of(SnowflakeSet.EMPTY);
+        }
+
+        List<String> unpackedAttendees = unpacked == null ? ImmutableList.of() : unpacked.ss();
+        List<SdkBytes> packedAttendees = packed == null ? ImmutableList.of() : packed.bs();
+        return LazyAttribute.decodedBy(() -> SnowflakeSet.of(LongStream.concat(
+            unpackedAttendees.stream().mapToLong(Long::parseUnsignedLong),
+            packedAttendees.stream().mapToLong(DiscordEventItemCodec::unpack))));
+    }
+
+    private static int versionOf(Map<String, AttributeValue> map) {
+        AttributeValue version = map.get(CODEC_KEY);
+        return version == null ? LEGACY_VERSION : Integer.parseInt(version.n());
+    }
+
+    private static SdkBytes pack(long attendee) {
+        return SdkBytes.fromByteArray(ByteBuffer.allocate(SNOWFLAKE_BYTES)
+            .putLong(attendee)
+            .array());
+    }
+
+    private static long unpack(SdkBytes attendee) {
+        return attendee.asByteBuffer().getLong();
+    }
+
+    private static byte[] deflate(byte[] input) {
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length);
+            byte[] buffer = new byte[1024];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return output.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static String inflate(byte[] input) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[1024];
+            while (!inflater.finished()) {
+                int inflated = inflater.inflate(buffer);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed description");
+                }
+                output.write(buffer, 0, inflated);
+            }
+            return new String(output.toByteArray(), StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Invalid compressed description", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
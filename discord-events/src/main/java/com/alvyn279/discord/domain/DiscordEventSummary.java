@@ -0,0 +1,81 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableMap;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Compact read-only view of a {@link DiscordEvent} with the attributes needed to
+ * announce it: no description nor attendees.
+ * <p>
+ * Reads of summaries only fetch the attributes of {@link #PROJECTION_EXPRESSION}
+ * from the DDB table.
+ */
+@Data
+@Builder
+public class DiscordEventSummary {
+
+    // `name` is a DDB reserved word, attributes go through placeholders
+    public static final String PROJECTION_EXPRESSION = "#guildId, #datetimeCreatedBy, #messageId, #name";
+    public static final Map<String, String> PROJECTION_EXPRESSION_NAMES = ImmutableMap.of(
+        "#guildId", DiscordEvent.PARTITION_KEY,
+        "#datetimeCreatedBy", DiscordEvent.SORT_KEY,
+        "#messageId", DiscordEvent.MESSAGE_ID_KEY,
+        "#name", DiscordEvent.NAME_KEY
+    );
+
+    private final long guildId;
+
+    @NonNull
+    private final Instant timestamp;
+
+    private final long createdBy;
+
+    private final long messageId;
+
+    @NonNull
+    private final String name;
+
+    /**
+     * Summary of an already fetched {@link DiscordEvent}.
+     *
+     * @param discordEvent full discord event
+     * @return DiscordEventSummary
+     */
+    public static DiscordEventSummary of(DiscordEvent discordEvent) {
+        return DiscordEventSummary.builder()
+            .guildId(discordEvent.getGuildId())
+            .timestamp(discordEvent.getTimestamp())
+            .createdBy(discordEvent.getCreatedBy())
+            .messageId(discordEvent.getMessageId())
+            .name(discordEvent.getName())
+            .build();
+    }
+
+    /**
+     * AWS DDB GETTER
+     * Creates a summary from a projected attributes map. The timestamp and creator
+     * are decoded from the sort key. Missing attributes get the same defaults as
+     * {@link DiscordEvent#fromDDBMap}.
+     *
+     * @param rawMap Map<String, AttributeValue> map from DDB projected reads
+     * @return A discord event summary
+     */
+    public static DiscordEventSummary fromDDBMap(Map<String, AttributeValue> rawMap) {
+        Map<String, AttributeValue> map = DiscordEvent.safeDDBMap(rawMap);
+        DiscordEvent.DatetimeCreatedBy datetimeCreatedBy = DiscordEvent.DatetimeCreatedBy.from(
+            map.get(DiscordEvent.SORT_KEY).s());
+        return DiscordEventSummary.builder()
+            .guildId(PartitionKeyScheme.guildIdOf(map.get(DiscordEvent.PARTITION_KEY).s()))
+            .timestamp(datetimeCreatedBy.getDatetime())
+            .createdBy(datetimeCreatedBy.getCreatedBy())
+            .messageId(Long.parseUnsignedLong(map.get(DiscordEvent.MESSAGE_ID_KEY).s()))
+            .name(map.get(DiscordEvent.NAME_KEY).s())
+            .build();
+    }
+}
@@ -56,12 +56,12 @@ public class GuildUtils {
      * @param guild Discord guild from messageCreateEvent
      * @return Mono of id to User map
      */
-    public static Mono<Map<String, User>> retrieveGuildUsers(Guild guild) {
-        Map<String, User> userIdToUsername = new HashMap<>();
+    public static Mono<Map<Long, User>> retrieveGuildUsers(Guild guild) {
+        Map<Long, User> userIdToUsername = new HashMap<>();
 
         return guild.getMembers(EntityRetrievalStrategy.REST)
             .flatMap(member -> {
-                userIdToUsername.put(member.getId().asString(), member);
+                userIdToUsername.put(member.getId().asLong(), member);
                 return Flux.just(member);
             })
             .then(Mono.just(userIdToUsername));
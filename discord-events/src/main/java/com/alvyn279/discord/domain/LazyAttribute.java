@@ -0,0 +1,48 @@
+package com.alvyn279.discord.domain;
+
+import java.util.function.Supplier;
+
+/**
+ * Attribute of a {@link DiscordEvent} that is decoded from its stored form the
+ * first time it is read. Decoding happens at most once, after which the stored
+ * form is released.
+ *
+ * @param <T> type of the decoded attribute
+ */
+final class LazyAttribute<T> {
+
+    // Guarded by `this`
+    private Supplier<T> decoder;
+    private volatile T value;
+
+    private LazyAttribute(Supplier<T> decoder, T value) {
+        this.decoder = decoder;
+        this.value = value;
+    }
+
+    static <T> LazyAttribute<T> of(T value) {
+        return new LazyAttribute<>(null, value);
+    }
+
+    static <T> LazyAttribute<T> decodedBy(Supplier<T> decoder) {
+        return new LazyAttribute<>(decoder, null);
+    }
+
+    boolean isDecoded() {
+        return value != null;
+    }
+
+    T get() {
+        T decoded = value;
+        if (decoded == null) {
+            synchronized (this) {
+                if (value == null) {
+                    value = decoder.get();
+                    decoder = null;
+                }
+                decoded = value;
+            }
+        }
+        return decoded;
+    }
+}
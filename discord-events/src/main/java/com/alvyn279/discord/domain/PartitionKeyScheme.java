@@ -0,0 +1,119 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableList;
+
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Layouts of the {@link DiscordEvent#PARTITION_KEY} value in the DDB table.
+ * <p>
+ * LEGACY: all events of a guild share the `{guildId}` partition.
+ * BUCKETED: events are spread in monthly `{guildId}#{yyyy-MM}` partitions (UTC),
+ * based on the time of the event, so no partition grows forever.
+ * MIGRATING: new events are written in the bucketed layout while reads cover
+ * both layouts, so that a table can move from one to the other without downtime.
+ * An existing event that is written again gets a bucketed item next to its legacy
+ * one, reads keep the bucketed item and deletes remove both.
+ */
+public enum PartitionKeyScheme {
+    LEGACY(false, true),
+    MIGRATING(true, true),
+    BUCKETED(true, false);
+
+    private static final String BUCKET_SEPARATOR = "#";
+    private static final DateTimeFormatter BUCKET_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    private final boolean writesBuckets;
+    private final boolean readsLegacy;
+
+    PartitionKeyScheme(boolean writesBuckets, boolean readsLegacy) {
+        this.writesBuckets = writesBuckets;
+        this.readsLegacy = readsLegacy;
+    }
+
+    /**
+     * @return whether reads must cover the legacy `{guildId}` partition
+     */
+    public boolean readsLegacy() {
+        return readsLegacy;
+    }
+
+    /**
+     * @return whether reads must cover the bucketed partitions
+     */
+    public boolean readsBuckets() {
+        return this != LEGACY;
+    }
+
+    /**
+     * Partition key value under which a new event is written.
+     *
+     * @param guildId   guild of the event
+     * @param timestamp time of the event
+     * @return String partition key value
+     */
+    public String writePartitionKey(long guildId, Instant timestamp) {
+        return writesBuckets ?
+            bucket(guildId, YearMonth.from(timestamp.atZone(ZoneOffset.UTC))) :
+            Long.toUnsignedString(guildId);
+    }
+
+    /**
+     * Partition key values an existing event may be stored under, the
+     * most likely one first.
+     *
+     * @param guildId   guild of the event
+     * @param timestamp time of the event
+     * @return List of partition key values
+     */
+    public List<String> partitionKeys(long guildId, Instant timestamp) {
+        String bucket = bucket(guildId, YearMonth.from(timestamp.atZone(ZoneOffset.UTC)));
+        switch (this) {
+            case LEGACY:
+                return ImmutableList.of(Long.toUnsignedString(guildId));
+            case MIGRATING:
+                return ImmutableList.of(bucket, Long.toUnsignedString(guildId));
+            default:
+                return ImmutableList.of(bucket);
+        }
+    }
+
+    /**
+     * Bucketed partition key values of a guild that cover a time range, in time order.
+     *
+     * @param guildId guild of the events
+     * @param start   start of the range
+     * @param end     end of the range
+     * @return List of partition key values
+     */
+    public static List<String> buckets(long guildId, Instant start, Instant end) {
+        ImmutableList.Builder<String> buckets = ImmutableList.builder();
+        YearMonth endMonth = YearMonth.from(end.atZone(ZoneOffset.UTC));
+        for (YearMonth month = YearMonth.from(start.atZone(ZoneOffset.UTC));
+             !month.isAfter(endMonth);
+             month = month.plusMonths(1)) {
+            buckets.add(bucket(guildId, month));
+        }
+        return buckets.build();
+    }
+
+    /**
+     * Reads the guild id back from a partition key value of any layout.
+     *
+     * @param partitionKey partition key value
+     * @return long guild id
+     */
+    public static long guildIdOf(String partitionKey) {
+        int separatorIndex = partitionKey.indexOf(BUCKET_SEPARATOR);
+        return Long.parseUnsignedLong(partitionKey, 0, separatorIndex < 0 ? partitionKey.length() : separatorIndex, 10);
+    }
+
+    private static String bucket(long guildId, YearMonth month) {
+        return String.format("%1$s%2$s%3$s",
+            Long.toUnsignedString(guildId), BUCKET_SEPARATOR, month.format(BUCKET_FORMATTER));
+    }
+}
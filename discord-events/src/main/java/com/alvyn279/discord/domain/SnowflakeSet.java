@@ -0,0 +1,115 @@
+package com.alvyn279.discord.domain;
+
+import discord4j.common.util.Snowflake;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+/**
+ * Immutable set of {@link Snowflake} ids held as a sorted array of primitive longs,
+ * so that a set of n ids takes 8n bytes instead of a boxed or string entry per id.
+ * <p>
+ * Sets are small (the attendees of an event), additions and removals copy the array.
+ */
+public final class SnowflakeSet {
+
+    public static final SnowflakeSet EMPTY = new SnowflakeSet(new long[0]);
+
+    // Sorted, without duplicates
+    private final long[] ids;
+
+    private SnowflakeSet(long[] ids) {
+        this.ids = ids;
+    }
+
+    /**
+     * @param ids snowflake ids, in any order and possibly repeated
+     * @return SnowflakeSet of the ids
+     */
+    public static SnowflakeSet of(long... ids) {
+        if (ids.length == 0) {
+            return EMPTY;
+        }
+        return new SnowflakeSet(LongStream.of(ids).sorted().distinct().toArray());
+    }
+
+    /**
+     * @param ids snowflake ids, in any order and possibly repeated
+     * @return SnowflakeSet of the ids
+     */
+    public static SnowflakeSet of(LongStream ids) {
+        return of(ids.toArray());
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+    /**
+     * @param id snowflake id
+     * @return SnowflakeSet with the id, this set if it already has it
+     */
+    public SnowflakeSet with(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index >= 0) {
+            return this;
+        }
+        int insertionPoint = -index - 1;
+        long[] withId = new long[ids.length + 1];
+        System.arraycopy(ids, 0, withId, 0, insertionPoint);
+        withId[insertionPoint] = id;
+        System.arraycopy(ids, insertionPoint, withId, insertionPoint + 1, ids.length - insertionPoint);
+        return new SnowflakeSet(withId);
+    }
+
+    /**
+     * @param id snowflake id
+     * @return SnowflakeSet without the id, this set if it does not have it
+     */
+    public SnowflakeSet without(long id) {
+        int index = Arrays.binarySearch(ids, id);
+        if (index < 0) {
+            return this;
+        }
+        if (ids.length == 1) {
+            return EMPTY;
+        }
+        long[] withoutId = new long[ids.length - 1];
+        System.arraycopy(ids, 0, withoutId, 0, index);
+        System.arraycopy(ids, index + 1, withoutId, index, ids.length - index - 1);
+        return new SnowflakeSet(withoutId);
+    }
+
+    /**
+     * @return LongStream of the ids, in ascending order
+     */
+    public LongStream stream() {
+        return Arrays.stream(ids);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return this == o || (o instanceof SnowflakeSet && Arrays.equals(ids, ((SnowflakeSet) o).ids));
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+
+    @Override
+    public String toString() {
+        return stream()
+            .mapToObj(Long::toUnsignedString)
+            .collect(Collectors.joining(", ", "[", "]"));
+    }
+}
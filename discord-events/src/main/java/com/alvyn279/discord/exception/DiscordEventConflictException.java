@@ -0,0 +1,32 @@
+package com.alvyn279.discord.exception;
+
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Exception thrown when a conditional write of a discord event does not go through
+ * because the stored event is not the one the write expected.
+ * <p>
+ * The write had no effect, so callers can resolve it without reading the event:
+ * - {@link Reason#ALREADY_EXISTS}: another event has the same key (same creator and time)
+ * - {@link Reason#VERSION_MISMATCH}: the event was written or deleted since it was read
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class DiscordEventConflictException extends Exception {
+
+    public enum Reason {
+        ALREADY_EXISTS,
+        VERSION_MISMATCH,
+    }
+
+    Reason reason;
+    DiscordEventDTO discordEventDTO;
+
+    public DiscordEventConflictException(String message, DiscordEventDTO discordEventDTO) {
+        super(message);
+        this.reason = discordEventDTO.getExpectedVersion() == null ? Reason.ALREADY_EXISTS : Reason.VERSION_MISMATCH;
+        this.discordEventDTO = discordEventDTO;
+    }
+}
@@ -0,0 +1,24 @@
+package com.alvyn279.discord.exception;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Exception thrown when the arguments of a command do not match its grammar. It is
+ * thrown before anything is fetched from Discord or the storage, and its message is
+ * meant for the user who wrote the command.
+ * <p>
+ * It has no stack trace: it is a typo, not a bug.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class InvalidCommandException extends Exception {
+
+    // Expected form of the command, ex: `!list-events [from:date] [to:date]`
+    String usage;
+
+    public InvalidCommandException(String message, String usage) {
+        super(message, null, false, false);
+        this.usage = usage;
+    }
+}
@@ -0,0 +1,29 @@
+package com.alvyn279.discord.exception;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Exception thrown when a storage call is refused without being made, because the
+ * storage is failing (its circuit breaker is open) or because too many calls of the
+ * same kind are already in flight. Nothing was read or written, so callers can tell
+ * users to try again later.
+ * <p>
+ * It has no stack trace: it is thrown in bursts, exactly when the bot is under pressure.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class StorageBusyException extends Exception {
+
+    public enum Reason {
+        CIRCUIT_OPEN,
+        BULKHEAD_FULL,
+    }
+
+    Reason reason;
+
+    public StorageBusyException(String message, Reason reason) {
+        super(message, null, false, false);
+        this.reason = reason;
+    }
+}
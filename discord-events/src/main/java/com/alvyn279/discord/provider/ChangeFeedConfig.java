@@ -0,0 +1,64 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings of the reads of the DDB stream that feeds the changes of the
+ * events to the cache and the reminders, see
+ * {@link com.alvyn279.discord.changefeed.DynamoDbStreamsChangeFeed}.
+ * <p>
+ * All values can be overridden with env vars. Setting the poll interval
+ * to 0 turns the feed off: the cache and the reminders then read the table
+ * again from time to time.
+ */
+@Data
+@Builder
+public class ChangeFeedConfig {
+
+    private static final String POLL_INTERVAL_MILLIS_KEY = "DISCORD_EVENTS_DDB_STREAM_POLL_INTERVAL_MILLIS";
+    private static final String SHARD_REFRESH_SECONDS_KEY = "DISCORD_EVENTS_DDB_STREAM_SHARD_REFRESH_SECONDS";
+
+    private static final Integer DEFAULT_POLL_INTERVAL_MILLIS = 1000;
+    private static final Integer DEFAULT_SHARD_REFRESH_SECONDS = 60;
+
+    /**
+     * Time between two reads of a shard that had no new records
+     */
+    @NonNull
+    private final Duration pollInterval;
+
+    /**
+     * Time between two listings of the shards of the stream, to find the new ones
+     */
+    @NonNull
+    private final Duration shardRefreshInterval;
+
+    public boolean isEnabled() {
+        return !pollInterval.isZero();
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return ChangeFeedConfig
+     */
+    public static ChangeFeedConfig fromEnvironment() {
+        ChangeFeedConfig config = ChangeFeedConfig.builder()
+            .pollInterval(Duration.ofMillis(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                POLL_INTERVAL_MILLIS_KEY, DEFAULT_POLL_INTERVAL_MILLIS)))
+            .shardRefreshInterval(Duration.ofSeconds(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                SHARD_REFRESH_SECONDS_KEY, DEFAULT_SHARD_REFRESH_SECONDS)))
+            .build();
+        if (config.getPollInterval().isNegative() || config.getShardRefreshInterval().compareTo(Duration.ofSeconds(1)) < 0) {
+            throw new Error(String.format("`%s` must be positive or 0 and `%s` at least 1, got %d and %d",
+                POLL_INTERVAL_MILLIS_KEY, SHARD_REFRESH_SECONDS_KEY,
+                config.getPollInterval().toMillis(), config.getShardRefreshInterval().getSeconds()));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,72 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.repository.DiscordEventReactiveRepositoryImpl;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings for the background archiver that moves past events from the
+ * live DDB table to the archive table.
+ * <p>
+ * All values can be overridden with env vars. Setting the archive age
+ * to 0 turns the archiver off.
+ * <p>
+ * Every bot instance runs its own archiver, and each run scans the whole live
+ * table. Concurrent runs are safe, but with several instances the archiver is
+ * best turned off on all but one of them.
+ */
+@Data
+@Builder
+public class DiscordEventArchiveConfig {
+
+    private static final String ARCHIVE_AFTER_DAYS_KEY = "DISCORD_EVENTS_ARCHIVE_AFTER_DAYS";
+    private static final String ARCHIVE_INTERVAL_MINUTES_KEY = "DISCORD_EVENTS_ARCHIVE_INTERVAL_MINUTES";
+    private static final String ARCHIVE_BATCH_INTERVAL_MILLIS_KEY = "DISCORD_EVENTS_ARCHIVE_BATCH_INTERVAL_MILLIS";
+
+    private static final Integer DEFAULT_ARCHIVE_AFTER_DAYS = 30;
+    private static final Integer DEFAULT_ARCHIVE_INTERVAL_MINUTES = 360;
+
+    /**
+     * How long after it happened an event is moved to the archive table
+     */
+    @NonNull
+    private final Duration archiveAfter;
+
+    /**
+     * Time between two archiver runs
+     */
+    @NonNull
+    private final Duration archiveInterval;
+
+    /**
+     * Pause before each batch of 25 archived events, which caps the
+     * write rate of the archiver
+     */
+    @NonNull
+    private final Duration batchInterval;
+
+    public boolean isEnabled() {
+        return !archiveAfter.isZero();
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return DiscordEventArchiveConfig
+     */
+    public static DiscordEventArchiveConfig fromEnvironment() {
+        return DiscordEventArchiveConfig.builder()
+            .archiveAfter(Duration.ofDays(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                ARCHIVE_AFTER_DAYS_KEY, DEFAULT_ARCHIVE_AFTER_DAYS)))
+            .archiveInterval(Duration.ofMinutes(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                ARCHIVE_INTERVAL_MINUTES_KEY, DEFAULT_ARCHIVE_INTERVAL_MINUTES)))
+            .batchInterval(Duration.ofMillis(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                ARCHIVE_BATCH_INTERVAL_MILLIS_KEY,
+                (int) DiscordEventReactiveRepositoryImpl.DEFAULT_ARCHIVE_BATCH_INTERVAL.toMillis())))
+            .build();
+    }
+}
@@ -0,0 +1,67 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings for the per-guild cache of upcoming events that sits in
+ * front of the DDB repository.
+ * <p>
+ * All values can be overridden with env vars. Setting the max number of
+ * guilds to 0 turns the cache off.
+ */
+@Data
+@Builder
+public class DiscordEventCacheConfig {
+
+    private static final String MAX_GUILDS_KEY = "DISCORD_EVENTS_CACHE_MAX_GUILDS";
+    private static final String MAX_EVENTS_PER_GUILD_KEY = "DISCORD_EVENTS_CACHE_MAX_EVENTS_PER_GUILD";
+    private static final String TTL_SECONDS_KEY = "DISCORD_EVENTS_CACHE_TTL_SECONDS";
+
+    private static final Integer DEFAULT_MAX_GUILDS = 1000;
+    private static final Integer DEFAULT_MAX_EVENTS_PER_GUILD = 200;
+    private static final Integer DEFAULT_TTL_SECONDS = 60;
+
+    /**
+     * Max number of guilds held in the cache, least recently used ones are evicted first
+     */
+    @NonNull
+    private final Integer maxGuilds;
+
+    /**
+     * Max number of upcoming events held for one guild
+     */
+    @NonNull
+    private final Integer maxEventsPerGuild;
+
+    /**
+     * How long a guild's events are served from memory before being read again.
+     * This bounds how stale the cache is when other bot instances write to the table.
+     */
+    @NonNull
+    private final Duration ttl;
+
+    public boolean isEnabled() {
+        return maxGuilds > 0;
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return DiscordEventCacheConfig
+     */
+    public static DiscordEventCacheConfig fromEnvironment() {
+        return DiscordEventCacheConfig.builder()
+            .maxGuilds(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                MAX_GUILDS_KEY, DEFAULT_MAX_GUILDS))
+            .maxEventsPerGuild(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                MAX_EVENTS_PER_GUILD_KEY, DEFAULT_MAX_EVENTS_PER_GUILD))
+            .ttl(Duration.ofSeconds(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                TTL_SECONDS_KEY, DEFAULT_TTL_SECONDS)))
+            .build();
+    }
+}
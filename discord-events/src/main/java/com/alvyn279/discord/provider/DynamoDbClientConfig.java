@@ -0,0 +1,101 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.domain.PartitionKeyScheme;
+import com.alvyn279.discord.repository.DiscordEventReactiveRepositoryImpl;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Connection pool and query settings for the shared DDB async client.
+ * <p>
+ * All values can be overridden with env vars, otherwise the defaults
+ * are sized for a single bot instance on a small EC2 host.
+ */
+@Data
+@Builder
+public class DynamoDbClientConfig {
+
+    private static final String MAX_CONNECTIONS_KEY = "DISCORD_EVENTS_DDB_MAX_CONNECTIONS";
+    private static final String CONNECTION_MAX_IDLE_SECONDS_KEY = "DISCORD_EVENTS_DDB_CONNECTION_MAX_IDLE_SECONDS";
+    private static final String WARM_CONNECTIONS_KEY = "DISCORD_EVENTS_DDB_WARM_CONNECTIONS";
+    private static final String QUERY_PAGE_SIZE_KEY = "DISCORD_EVENTS_DDB_QUERY_PAGE_SIZE";
+    private static final String PARTITION_KEY_SCHEME_KEY = "DISCORD_EVENTS_DDB_PARTITION_KEY_SCHEME";
+    private static final String BUCKET_HORIZON_MONTHS_KEY = "DISCORD_EVENTS_DDB_BUCKET_HORIZON_MONTHS";
+
+    private static final Integer DEFAULT_MAX_CONNECTIONS = 50;
+    private static final Integer DEFAULT_CONNECTION_MAX_IDLE_SECONDS = 300;
+    private static final Integer DEFAULT_WARM_CONNECTIONS = 4;
+
+    /**
+     * Maximum number of concurrent connections in the Netty pool
+     */
+    @NonNull
+    private final Integer maxConnections;
+
+    /**
+     * How long an idle connection is kept open before being reaped.
+     * TCP keep-alive is enabled so these stay usable in between.
+     */
+    @NonNull
+    private final Duration connectionMaxIdleTime;
+
+    /**
+     * Number of connections opened at startup, before the first command
+     */
+    @NonNull
+    private final Integer warmConnections;
+
+    /**
+     * Max number of items read per query page
+     */
+    @NonNull
+    private final Integer queryPageSize;
+
+    /**
+     * Layout of the partition keys of the table
+     */
+    @NonNull
+    private final PartitionKeyScheme partitionKeyScheme;
+
+    /**
+     * With bucketed partitions, number of monthly buckets ahead that upcoming reads look into
+     */
+    @NonNull
+    private final Integer bucketHorizonMonths;
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return DynamoDbClientConfig
+     */
+    public static DynamoDbClientConfig fromEnvironment() {
+        return DynamoDbClientConfig.builder()
+            .maxConnections(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                MAX_CONNECTIONS_KEY, DEFAULT_MAX_CONNECTIONS))
+            .connectionMaxIdleTime(Duration.ofSeconds(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                CONNECTION_MAX_IDLE_SECONDS_KEY, DEFAULT_CONNECTION_MAX_IDLE_SECONDS)))
+            .warmConnections(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                WARM_CONNECTIONS_KEY, DEFAULT_WARM_CONNECTIONS))
+            .queryPageSize(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                QUERY_PAGE_SIZE_KEY, DiscordEventReactiveRepositoryImpl.DEFAULT_PAGE_SIZE))
+            .partitionKeyScheme(partitionKeySchemeFromEnvironment())
+            .bucketHorizonMonths(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                BUCKET_HORIZON_MONTHS_KEY, DiscordEventReactiveRepositoryImpl.DEFAULT_BUCKET_HORIZON_MONTHS))
+            .build();
+    }
+
+    private static PartitionKeyScheme partitionKeySchemeFromEnvironment() {
+        String value = EnvironmentUtils.getEnvVarOrDefault(
+            PARTITION_KEY_SCHEME_KEY, PartitionKeyScheme.LEGACY.name());
+        try {
+            return PartitionKeyScheme.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new Error(String.format("`%s` must be one of legacy, migrating, bucketed, got `%s`",
+                PARTITION_KEY_SCHEME_KEY, value), e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.stateful.metrics.ConnectionPoolMetricPublisher;
+import com.alvyn279.discord.stateful.metrics.MetricsReporter;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Owns the lifecycle of the shared {@link DynamoDbAsyncClient}.
+ * <p>
+ * On start, it opens connections ahead of the first command so that
+ * users do not pay for the TLS handshakes (and the cold
+ * `PrematureCloseException`s that came with them). On shutdown, it
+ * closes the client and its Netty pool.
+ */
+@Slf4j
+@Singleton
+public class DynamoDbClientLifecycle {
+
+    private static final String POOL_METRICS_NAME = "ddb-connection-pool";
+    private static final Duration WARM_UP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final DynamoDbAsyncClient client;
+    private final DynamoDbClientConfig config;
+    private final ConnectionPoolMetricPublisher connectionPoolMetricPublisher;
+    private final MetricsReporter metricsReporter;
+    private final AtomicBoolean closed;
+
+    @Inject
+    public DynamoDbClientLifecycle(DynamoDbAsyncClient client,
+                                   DynamoDbClientConfig config,
+                                   ConnectionPoolMetricPublisher connectionPoolMetricPublisher,
+                                   MetricsReporter metricsReporter) {
+        this.client = client;
+        this.config = config;
+        this.connectionPoolMetricPublisher = connectionPoolMetricPublisher;
+        this.metricsReporter = metricsReporter;
+        this.closed = new AtomicBoolean(false);
+    }
+
+    /**
+     * Pre-warms the connection pool with concurrent cheap calls and
+     * registers the pool usage to the metrics reporter. A failed warm-up
+     * is not fatal, commands will open connections on demand.
+     */
+    public void start() {
+        metricsReporter.register(POOL_METRICS_NAME, connectionPoolMetricPublisher::getUsage);
+
+        DescribeTableRequest describeTableRequest = DescribeTableRequest.builder()
+            .tableName(EnvironmentUtils.getDDBTableName())
+            .build();
+
+        // Concurrent requests force the pool to open one connection each
+        Flux.range(0, config.getWarmConnections())
+            .flatMap(i -> Mono.fromCompletionStage(client.describeTable(describeTableRequest))
+                .onErrorResume(throwable -> {
+                    log.warn("Could not warm up DDB connection: {}", throwable.getMessage());
+                    return Mono.empty();
+                }))
+            .then()
+            .timeout(WARM_UP_TIMEOUT)
+            .onErrorResume(throwable -> {
+                log.warn("DDB connection pool warm-up timed out");
+                return Mono.empty();
+            })
+            .block();
+
+        log.info("Warmed up DDB connection pool: {}", connectionPoolMetricPublisher.getUsage());
+    }
+
+    /**
+     * Closes the client and its connection pool. Safe to call more than once,
+     * e.g. from both a shutdown hook and the end of main.
+     */
+    public void shutdown() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        log.info("Closing DDB client: {}", connectionPoolMetricPublisher.getUsage());
+        client.close();
+    }
+}
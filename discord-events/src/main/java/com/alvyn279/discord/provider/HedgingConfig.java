@@ -0,0 +1,78 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.resilience.Hedger;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings of the hedging of the DDB queries, see {@link Hedger}.
+ * <p>
+ * All values can be overridden with env vars. Hedging is off by default:
+ * setting a percentile turns it on.
+ */
+@Data
+@Builder
+public class HedgingConfig {
+
+    private static final String PERCENTILE_KEY = "DISCORD_EVENTS_DDB_HEDGE_PERCENTILE";
+    private static final String BUDGET_PERCENT_KEY = "DISCORD_EVENTS_DDB_HEDGE_BUDGET_PERCENT";
+    private static final String MIN_DELAY_MILLIS_KEY = "DISCORD_EVENTS_DDB_HEDGE_MIN_DELAY_MILLIS";
+
+    private static final Integer DEFAULT_PERCENTILE = 0;
+    private static final Integer DEFAULT_BUDGET_PERCENT = 5;
+    private static final Integer DEFAULT_MIN_DELAY_MILLIS = 10;
+
+    /**
+     * Percentile of the recent query latencies after which a query is hedged, 0 turns hedging off
+     */
+    @NonNull
+    private final Integer percentile;
+
+    /**
+     * Max extra queries sent as hedges, in percent of the queries
+     */
+    @NonNull
+    private final Integer budgetPercent;
+
+    /**
+     * Min delay before a query is hedged
+     */
+    @NonNull
+    private final Duration minDelay;
+
+    public boolean isEnabled() {
+        return percentile > 0 && budgetPercent > 0;
+    }
+
+    public Hedger toHedger() {
+        return Hedger.builder()
+            .percentile(percentile)
+            .budgetRatio(budgetPercent / 100.0)
+            .minDelay(minDelay)
+            .build();
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return HedgingConfig
+     */
+    public static HedgingConfig fromEnvironment() {
+        HedgingConfig config = HedgingConfig.builder()
+            .percentile(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                PERCENTILE_KEY, DEFAULT_PERCENTILE))
+            .budgetPercent(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                BUDGET_PERCENT_KEY, DEFAULT_BUDGET_PERCENT))
+            .minDelay(Duration.ofMillis(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                MIN_DELAY_MILLIS_KEY, DEFAULT_MIN_DELAY_MILLIS)))
+            .build();
+        if (config.getPercentile() < 0 || config.getPercentile() >= 100) {
+            throw new Error(String.format("`%s` must be in [0, 100), got %d", PERCENTILE_KEY, config.getPercentile()));
+        }
+        return config;
+    }
+}
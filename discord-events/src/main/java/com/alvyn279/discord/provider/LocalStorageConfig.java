@@ -0,0 +1,69 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Settings for the storage of the events on the local disk, used in place
+ * of the DDB table by self-hosted bots.
+ * <p>
+ * All values can be overridden with env vars. The bot uses DDB unless the
+ * storage is set to `local`.
+ */
+@Data
+@Builder
+public class LocalStorageConfig {
+
+    private static final String STORAGE_KEY = "DISCORD_EVENTS_STORAGE";
+    private static final String DIRECTORY_KEY = "DISCORD_EVENTS_LOCAL_STORAGE_DIR";
+    private static final String COMPACTION_MIN_DEAD_MB_KEY = "DISCORD_EVENTS_LOCAL_STORAGE_COMPACTION_MIN_DEAD_MB";
+
+    private static final String STORAGE_DDB = "ddb";
+    private static final String STORAGE_LOCAL = "local";
+    private static final String DEFAULT_DIRECTORY = "discord-events-data";
+    private static final Integer DEFAULT_COMPACTION_MIN_DEAD_MB = 16;
+
+    /**
+     * Whether events are stored on the local disk instead of DDB
+     */
+    private final boolean enabled;
+
+    /**
+     * Directory of the storage files, kept across restarts
+     */
+    @NonNull
+    private final Path directory;
+
+    /**
+     * Min size of the overwritten and deleted records before the log is compacted
+     */
+    @NonNull
+    private final Long compactionMinDeadBytes;
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return LocalStorageConfig
+     */
+    public static LocalStorageConfig fromEnvironment() {
+        return LocalStorageConfig.builder()
+            .enabled(localStorageFromEnvironment())
+            .directory(Paths.get(EnvironmentUtils.getEnvVarOrDefault(DIRECTORY_KEY, DEFAULT_DIRECTORY)))
+            .compactionMinDeadBytes(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                COMPACTION_MIN_DEAD_MB_KEY, DEFAULT_COMPACTION_MIN_DEAD_MB) * 1024L * 1024L)
+            .build();
+    }
+
+    private static boolean localStorageFromEnvironment() {
+        String value = EnvironmentUtils.getEnvVarOrDefault(STORAGE_KEY, STORAGE_DDB).trim().toLowerCase();
+        if (!value.equals(STORAGE_DDB) && !value.equals(STORAGE_LOCAL)) {
+            throw new Error(String.format("`%s` must be one of ddb, local, got `%s`", STORAGE_KEY, value));
+        }
+        return value.equals(STORAGE_LOCAL);
+    }
+}
@@ -0,0 +1,110 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.retry.RetryPolicies;
+import com.alvyn279.discord.retry.RetryPolicy;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings of the retries of the storage and Discord calls.
+ * <p>
+ * All values can be overridden with env vars. Setting a number of
+ * retries to 0 turns the retries of those calls off.
+ */
+@Data
+@Builder
+public class RetryConfig {
+
+    private static final String STORAGE_MAX_RETRIES_KEY = "DISCORD_EVENTS_RETRY_STORAGE_MAX_RETRIES";
+    private static final String STORAGE_FIRST_BACKOFF_MILLIS_KEY = "DISCORD_EVENTS_RETRY_STORAGE_FIRST_BACKOFF_MILLIS";
+    private static final String DISCORD_MAX_RETRIES_KEY = "DISCORD_EVENTS_RETRY_DISCORD_MAX_RETRIES";
+    private static final String DISCORD_FIRST_BACKOFF_MILLIS_KEY = "DISCORD_EVENTS_RETRY_DISCORD_FIRST_BACKOFF_MILLIS";
+
+    private static final Integer DEFAULT_STORAGE_MAX_RETRIES = 3;
+    private static final Integer DEFAULT_STORAGE_FIRST_BACKOFF_MILLIS = 50;
+    private static final Integer DEFAULT_DISCORD_MAX_RETRIES = 2;
+    private static final Integer DEFAULT_DISCORD_FIRST_BACKOFF_MILLIS = 250;
+
+    private static final Duration STORAGE_MAX_BACKOFF = Duration.ofSeconds(2);
+    private static final Duration DISCORD_MAX_BACKOFF = Duration.ofSeconds(5);
+
+    /**
+     * Max number of retries of a failed DDB call
+     */
+    @NonNull
+    private final Integer storageMaxRetries;
+
+    /**
+     * Backoff before the first retry of a DDB call, doubled on each retry
+     */
+    @NonNull
+    private final Duration storageFirstBackoff;
+
+    /**
+     * Max number of retries of a failed Discord call
+     */
+    @NonNull
+    private final Integer discordMaxRetries;
+
+    /**
+     * Backoff before the first retry of a Discord call, doubled on each retry
+     */
+    @NonNull
+    private final Duration discordFirstBackoff;
+
+    /**
+     * Builds the retry policy of each kind of operation.
+     *
+     * @return RetryPolicies
+     */
+    public RetryPolicies toRetryPolicies() {
+        return RetryPolicies.builder()
+            .storageReads(storagePolicy("storage-reads"))
+            .storageWrites(storagePolicy("storage-writes"))
+            .discordIdempotentCalls(discordPolicy("discord-idempotent-calls", true))
+            .discordCreateCalls(discordPolicy("discord-create-calls", false))
+            .build();
+    }
+
+    private RetryPolicy storagePolicy(String name) {
+        return RetryPolicy.builder()
+            .name(name)
+            .maxRetries(storageMaxRetries)
+            .firstBackoff(storageFirstBackoff)
+            .maxBackoff(STORAGE_MAX_BACKOFF)
+            .idempotent(true)
+            .build();
+    }
+
+    private RetryPolicy discordPolicy(String name, boolean idempotent) {
+        return RetryPolicy.builder()
+            .name(name)
+            .maxRetries(discordMaxRetries)
+            .firstBackoff(discordFirstBackoff)
+            .maxBackoff(DISCORD_MAX_BACKOFF)
+            .idempotent(idempotent)
+            .build();
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return RetryConfig
+     */
+    public static RetryConfig fromEnvironment() {
+        return RetryConfig.builder()
+            .storageMaxRetries(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                STORAGE_MAX_RETRIES_KEY, DEFAULT_STORAGE_MAX_RETRIES))
+            .storageFirstBackoff(Duration.ofMillis(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                STORAGE_FIRST_BACKOFF_MILLIS_KEY, DEFAULT_STORAGE_FIRST_BACKOFF_MILLIS)))
+            .discordMaxRetries(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                DISCORD_MAX_RETRIES_KEY, DEFAULT_DISCORD_MAX_RETRIES))
+            .discordFirstBackoff(Duration.ofMillis(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                DISCORD_FIRST_BACKOFF_MILLIS_KEY, DEFAULT_DISCORD_FIRST_BACKOFF_MILLIS)))
+            .build();
+    }
+}
@@ -1,15 +1,33 @@
 package com.alvyn279.discord.provider;
 
+import com.alvyn279.discord.changefeed.DiscordEventChangeFeed;
+import com.alvyn279.discord.changefeed.DynamoDbStreamsChangeFeed;
+import com.alvyn279.discord.changefeed.InProcessDiscordEventChangeFeed;
+import com.alvyn279.discord.repository.CachedDiscordEventReactiveRepository;
+import com.alvyn279.discord.repository.CoalescingDiscordEventReactiveRepository;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepositoryImpl;
+import com.alvyn279.discord.repository.GuardedDiscordEventReactiveRepository;
+import com.alvyn279.discord.repository.LocalDiscordEventReactiveRepository;
+import com.alvyn279.discord.repository.PublishingDiscordEventReactiveRepository;
+import com.alvyn279.discord.resilience.Hedger;
+import com.alvyn279.discord.resilience.StorageBudget;
+import com.alvyn279.discord.retry.RetryPolicies;
+import com.alvyn279.discord.stateful.metrics.ConnectionPoolMetricPublisher;
+import com.alvyn279.discord.stateful.metrics.MetricsReporter;
 import com.alvyn279.discord.utils.EnvironmentUtils;
 import com.google.inject.AbstractModule;
+import com.google.inject.Provider;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
+import io.netty.channel.ChannelOption;
 import software.amazon.awssdk.auth.credentials.DefaultCredentialsProvider;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.streams.DynamoDbStreamsAsyncClient;
 
+import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 
@@ -17,11 +35,22 @@ import java.util.concurrent.ScheduledExecutorService;
  * Main provider module for Guice. It resolves instances of:
  * - Async clients
  * - AWS configuration constants
+ * <p>
+ * The DDB client and the repository are singletons: they hold the
+ * connection pool and the events cache that are shared by every command.
+ * With local storage, the DDB client is never built.
  */
 public class RootModule extends AbstractModule {
 
     private static final String AWS_DEFAULT_REGION_KEY = "AWS_DEFAULT_REGION";
     private static final Integer EVENTS_REMINDER_ALLOCATED_THREADS = 5;
+    private static final String EVENTS_CACHE_METRICS_NAME = "discord-events-cache";
+    private static final String QUERY_COALESCING_METRICS_NAME = "discord-events-query-coalescing";
+    private static final String LOCAL_STORAGE_METRICS_NAME = "local-storage";
+    private static final String RETRIES_METRICS_NAME = "retries";
+    private static final String STORAGE_GUARD_METRICS_NAME = "storage-guard";
+    private static final String HEDGING_METRICS_NAME = "ddb-query-hedging";
+    private static final String CHANGE_FEED_METRICS_NAME = "ddb-change-feed";
 
     @Override
     protected void configure() {
@@ -35,20 +64,215 @@ public class RootModule extends AbstractModule {
     }
 
     @Provides
-    static DynamoDbAsyncClient provideDynamoDbAsyncClient(Region region) {
+    @Singleton
+    static DynamoDbClientConfig provideDynamoDbClientConfig() {
+        return DynamoDbClientConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static DynamoDbAsyncClient provideDynamoDbAsyncClient(Region region,
+                                                          DynamoDbClientConfig config,
+                                                          ConnectionPoolMetricPublisher connectionPoolMetricPublisher) {
         return DynamoDbAsyncClient.builder()
             .region(region)
             .credentialsProvider(DefaultCredentialsProvider.builder()
                 .build())
+            .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                .maxConcurrency(config.getMaxConnections())
+                .connectionMaxIdleTime(config.getConnectionMaxIdleTime())
+                .useIdleConnectionReaper(true)
+                .putChannelOption(ChannelOption.SO_KEEPALIVE, true))
+            .overrideConfiguration(overrideConfiguration -> overrideConfiguration
+                // Calls are retried by the repository, see RetryConfig
+                .retryPolicy(software.amazon.awssdk.core.retry.RetryPolicy.none())
+                .addMetricPublisher(connectionPoolMetricPublisher))
             .build();
     }
 
     @Provides
-    static DiscordEventReactiveRepository provideDiscordEventReactiveRepository(
-        DynamoDbAsyncClient client) {
-        return DiscordEventReactiveRepositoryImpl.builder()
+    @Singleton
+    static DynamoDbStreamsAsyncClient provideDynamoDbStreamsAsyncClient(Region region) {
+        return DynamoDbStreamsAsyncClient.builder()
+            .region(region)
+            .credentialsProvider(DefaultCredentialsProvider.builder()
+                .build())
+            .build();
+    }
+
+    @Provides
+    @Singleton
+    static ChangeFeedConfig provideChangeFeedConfig() {
+        return ChangeFeedConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static DynamoDbStreamsChangeFeed provideDynamoDbStreamsChangeFeed(DynamoDbAsyncClient client,
+                                                                      DynamoDbStreamsAsyncClient streamsClient,
+                                                                      ChangeFeedConfig config,
+                                                                      MetricsReporter metricsReporter) {
+        DynamoDbStreamsChangeFeed changeFeed = DynamoDbStreamsChangeFeed.builder()
             .client(client)
+            .streamsClient(streamsClient)
+            .tableName(EnvironmentUtils.getDDBTableName())
+            .pollInterval(config.getPollInterval())
+            .shardRefreshInterval(config.getShardRefreshInterval())
+            .build();
+        metricsReporter.register(CHANGE_FEED_METRICS_NAME, changeFeed::getUsage);
+        return changeFeed;
+    }
+
+    @Provides
+    @Singleton
+    static DiscordEventChangeFeed provideDiscordEventChangeFeed(
+        LocalStorageConfig localStorageConfig,
+        Provider<InProcessDiscordEventChangeFeed> inProcessChangeFeedProvider,
+        Provider<ChangeFeedConfig> configProvider,
+        Provider<DynamoDbStreamsChangeFeed> streamsChangeFeedProvider) {
+        // The local storage has a single writer, its writes are published as they are made
+        if (localStorageConfig.isEnabled()) {
+            return inProcessChangeFeedProvider.get();
+        }
+        if (configProvider.get().isEnabled()) {
+            return streamsChangeFeedProvider.get();
+        }
+        return DiscordEventChangeFeed.NONE;
+    }
+
+    @Provides
+    @Singleton
+    static RetryConfig provideRetryConfig() {
+        return RetryConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static RetryPolicies provideRetryPolicies(RetryConfig config, MetricsReporter metricsReporter) {
+        RetryPolicies retryPolicies = config.toRetryPolicies();
+        metricsReporter.register(RETRIES_METRICS_NAME, retryPolicies::getUsage);
+        return retryPolicies;
+    }
+
+    @Provides
+    @Singleton
+    static StorageGuardConfig provideStorageGuardConfig() {
+        return StorageGuardConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static HedgingConfig provideHedgingConfig() {
+        return HedgingConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static DiscordEventCacheConfig provideDiscordEventCacheConfig() {
+        return DiscordEventCacheConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static DiscordEventArchiveConfig provideDiscordEventArchiveConfig() {
+        return DiscordEventArchiveConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static LocalStorageConfig provideLocalStorageConfig() {
+        return LocalStorageConfig.fromEnvironment();
+    }
+
+    @Provides
+    @Singleton
+    static LocalDiscordEventReactiveRepository provideLocalDiscordEventReactiveRepository(
+        LocalStorageConfig localStorageConfig,
+        MetricsReporter metricsReporter) {
+        try {
+            LocalDiscordEventReactiveRepository repository = LocalDiscordEventReactiveRepository.open(
+                localStorageConfig.getDirectory(), localStorageConfig.getCompactionMinDeadBytes());
+            metricsReporter.register(LOCAL_STORAGE_METRICS_NAME, repository::getUsage);
+            return repository;
+        } catch (IOException e) {
+            throw new Error(String.format(
+                "Could not open local storage in `%s`", localStorageConfig.getDirectory()), e);
+        }
+    }
+
+    @Provides
+    @Singleton
+    static DiscordEventReactiveRepository provideDiscordEventReactiveRepository(
+        Provider<DynamoDbAsyncClient> clientProvider,
+        Provider<DynamoDbClientConfig> configProvider,
+        Provider<LocalDiscordEventReactiveRepository> localRepositoryProvider,
+        LocalStorageConfig localStorageConfig,
+        DiscordEventCacheConfig cacheConfig,
+        DiscordEventArchiveConfig archiveConfig,
+        Provider<RetryPolicies> retryPoliciesProvider,
+        Provider<StorageGuardConfig> guardConfigProvider,
+        Provider<HedgingConfig> hedgingConfigProvider,
+        Provider<InProcessDiscordEventChangeFeed> inProcessChangeFeedProvider,
+        Provider<DiscordEventChangeFeed> changeFeedProvider,
+        MetricsReporter metricsReporter) {
+        // Reads are served from memory and the page cache already, no need for the events cache
+        if (localStorageConfig.isEnabled()) {
+            return PublishingDiscordEventReactiveRepository.builder()
+                .delegate(localRepositoryProvider.get())
+                .changeFeed(inProcessChangeFeedProvider.get())
+                .build();
+        }
+
+        DynamoDbClientConfig config = configProvider.get();
+        RetryPolicies retryPolicies = retryPoliciesProvider.get();
+        HedgingConfig hedgingConfig = hedgingConfigProvider.get();
+        Hedger readHedger = Hedger.NONE;
+        if (hedgingConfig.isEnabled()) {
+            readHedger = hedgingConfig.toHedger();
+            metricsReporter.register(HEDGING_METRICS_NAME, readHedger::getUsage);
+        }
+        DiscordEventReactiveRepository repository = DiscordEventReactiveRepositoryImpl.builder()
+            .client(clientProvider.get())
+            .pageSize(config.getQueryPageSize())
+            .partitionKeyScheme(config.getPartitionKeyScheme())
+            .bucketHorizonMonths(config.getBucketHorizonMonths())
+            .archiveBatchInterval(archiveConfig.getBatchInterval())
+            .readRetryPolicy(retryPolicies.getStorageReads())
+            .writeRetryPolicy(retryPolicies.getStorageWrites())
+            .readHedger(readHedger)
+            .build();
+
+        // Callers fail fast rather than pile up while DDB is slow or failing
+        StorageGuardConfig guardConfig = guardConfigProvider.get();
+        GuardedDiscordEventReactiveRepository guardedRepository = GuardedDiscordEventReactiveRepository.builder()
+            .delegate(repository)
+            .circuitBreaker(guardConfig.toCircuitBreaker())
+            .interactiveBulkhead(guardConfig.toBulkhead(StorageBudget.INTERACTIVE))
+            .backgroundBulkhead(guardConfig.toBulkhead(StorageBudget.BACKGROUND))
+            .build();
+        metricsReporter.register(STORAGE_GUARD_METRICS_NAME, guardedRepository::getUsage);
+        repository = guardedRepository;
+
+        // Identical reads in flight share one query, including the cache's loads of a guild
+        CoalescingDiscordEventReactiveRepository coalescingRepository = CoalescingDiscordEventReactiveRepository.builder()
+            .delegate(repository)
+            .build();
+        metricsReporter.register(QUERY_COALESCING_METRICS_NAME, coalescingRepository::getUsage);
+        repository = coalescingRepository;
+
+        if (!cacheConfig.isEnabled()) {
+            return repository;
+        }
+
+        CachedDiscordEventReactiveRepository cachedRepository = CachedDiscordEventReactiveRepository.builder()
+            .delegate(repository)
+            .maxGuilds(cacheConfig.getMaxGuilds())
+            .maxEventsPerGuild(cacheConfig.getMaxEventsPerGuild())
+            .ttl(cacheConfig.getTtl())
             .build();
+        cachedRepository.follow(changeFeedProvider.get());
+        metricsReporter.register(EVENTS_CACHE_METRICS_NAME, cachedRepository::getUsage);
+        return cachedRepository;
     }
 
     @Provides
@@ -0,0 +1,97 @@
+package com.alvyn279.discord.provider;
+
+import com.alvyn279.discord.resilience.Bulkhead;
+import com.alvyn279.discord.resilience.CircuitBreaker;
+import com.alvyn279.discord.resilience.StorageBudget;
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Settings of the circuit breaker and the bulkheads in front of the DDB repository.
+ * <p>
+ * All values can be overridden with env vars. Setting the failure threshold to 0
+ * keeps the circuit breaker closed.
+ */
+@Data
+@Builder
+public class StorageGuardConfig {
+
+    private static final String FAILURE_THRESHOLD_KEY = "DISCORD_EVENTS_STORAGE_GUARD_FAILURE_THRESHOLD";
+    private static final String OPEN_SECONDS_KEY = "DISCORD_EVENTS_STORAGE_GUARD_OPEN_SECONDS";
+    private static final String INTERACTIVE_MAX_CONCURRENCY_KEY = "DISCORD_EVENTS_STORAGE_GUARD_INTERACTIVE_MAX_CONCURRENCY";
+    private static final String BACKGROUND_MAX_CONCURRENCY_KEY = "DISCORD_EVENTS_STORAGE_GUARD_BACKGROUND_MAX_CONCURRENCY";
+
+    private static final String CIRCUIT_BREAKER_NAME = "storage";
+    private static final Integer DEFAULT_FAILURE_THRESHOLD = 5;
+    private static final Integer DEFAULT_OPEN_SECONDS = 10;
+    // Together, they fit in the default DDB connection pool
+    private static final Integer DEFAULT_INTERACTIVE_MAX_CONCURRENCY = 40;
+    private static final Integer DEFAULT_BACKGROUND_MAX_CONCURRENCY = 10;
+
+    /**
+     * Storage calls failed in a row that open the circuit breaker
+     */
+    @NonNull
+    private final Integer failureThreshold;
+
+    /**
+     * Time the circuit breaker refuses calls before letting a probe call through
+     */
+    @NonNull
+    private final Duration openDuration;
+
+    /**
+     * Max storage calls in flight for users' commands and reactions
+     */
+    @NonNull
+    private final Integer interactiveMaxConcurrency;
+
+    /**
+     * Max storage calls in flight for background tasks (reminders, archiver)
+     */
+    @NonNull
+    private final Integer backgroundMaxConcurrency;
+
+    public CircuitBreaker toCircuitBreaker() {
+        return CircuitBreaker.builder()
+            .name(CIRCUIT_BREAKER_NAME)
+            .failureThreshold(failureThreshold)
+            .openDuration(openDuration)
+            .build();
+    }
+
+    public Bulkhead toBulkhead(StorageBudget budget) {
+        return Bulkhead.builder()
+            .name(budget.name().toLowerCase())
+            .maxConcurrentCalls(budget == StorageBudget.BACKGROUND ?
+                backgroundMaxConcurrency : interactiveMaxConcurrency)
+            .build();
+    }
+
+    /**
+     * Builds the config from the execution environment.
+     *
+     * @return StorageGuardConfig
+     */
+    public static StorageGuardConfig fromEnvironment() {
+        StorageGuardConfig config = StorageGuardConfig.builder()
+            .failureThreshold(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                FAILURE_THRESHOLD_KEY, DEFAULT_FAILURE_THRESHOLD))
+            .openDuration(Duration.ofSeconds(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                OPEN_SECONDS_KEY, DEFAULT_OPEN_SECONDS)))
+            .interactiveMaxConcurrency(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                INTERACTIVE_MAX_CONCURRENCY_KEY, DEFAULT_INTERACTIVE_MAX_CONCURRENCY))
+            .backgroundMaxConcurrency(EnvironmentUtils.getIntegerEnvVarOrDefault(
+                BACKGROUND_MAX_CONCURRENCY_KEY, DEFAULT_BACKGROUND_MAX_CONCURRENCY))
+            .build();
+        if (config.getInteractiveMaxConcurrency() <= 0 || config.getBackgroundMaxConcurrency() <= 0) {
+            throw new Error(String.format("`%s` and `%s` must be positive",
+                INTERACTIVE_MAX_CONCURRENCY_KEY, BACKGROUND_MAX_CONCURRENCY_KEY));
+        }
+        return config;
+    }
+}
@@ -0,0 +1,418 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.changefeed.DiscordEventChange;
+import com.alvyn279.discord.changefeed.DiscordEventChangeFeed;
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Decorator of a {@link DiscordEventReactiveRepository} that keeps each guild's
+ * upcoming events in memory, sorted by their sort key like in the table.
+ * <p>
+ * Upcoming and date time range reads are served from memory when the cached
+ * events can answer them. Writes go to the decorated repository first, then
+ * update the cached events in place (write-through).
+ * <p>
+ * Guilds are evicted when the cache is full (least recently used first) and
+ * some time after they were read, so that writes from other bot instances
+ * eventually show up. When it follows a {@link DiscordEventChangeFeed}, those
+ * writes are applied to the cached events as soon as they are published.
+ */
+@Slf4j
+public class CachedDiscordEventReactiveRepository implements DiscordEventReactiveRepository {
+
+    // Cached events start a bit in the past so that reads like
+    // `!list-events on [today]` can be served too.
+    private static final Duration CACHE_LOOKBACK = Duration.ofDays(1);
+    // Power of two, guilds share a write generation when their ids hash to the same slot
+    private static final int WRITE_GENERATION_SLOTS = 1024;
+
+    private final DiscordEventReactiveRepository delegate;
+    private final Integer maxEventsPerGuild;
+    // { guildId -> upcoming events of the guild }
+    private final Cache<Long, GuildEvents> guildEventsCache;
+    // Incremented on every write to a guild so that a load that raced with
+    // a write does not cache events that miss it. Writes to other guilds do
+    // not hold a load back, even when the change feed is busy.
+    private final AtomicLongArray writeGenerations;
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+
+    /**
+     * Point-in-time view of the cache usage.
+     */
+    @Data
+    @Builder
+    public static class CacheUsage {
+        private final long guilds;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+    }
+
+    @Builder
+    public CachedDiscordEventReactiveRepository(@NonNull DiscordEventReactiveRepository delegate,
+                                                @NonNull Integer maxGuilds,
+                                                @NonNull Integer maxEventsPerGuild,
+                                                @NonNull Duration ttl) {
+        this.delegate = delegate;
+        this.maxEventsPerGuild = maxEventsPerGuild;
+        this.guildEventsCache = CacheBuilder.newBuilder()
+            .maximumSize(maxGuilds)
+            .expireAfterWrite(ttl)
+            .recordStats()
+            .build();
+        this.writeGenerations = new AtomicLongArray(WRITE_GENERATION_SLOTS);
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+    }
+
+    /**
+     * Returns the hit/miss counts of the reads that the cache can serve.
+     *
+     * @return CacheUsage
+     */
+    public CacheUsage getUsage() {
+        return CacheUsage.builder()
+            .guilds(guildEventsCache.size())
+            .hits(hits.get())
+            .misses(misses.get())
+            .evictions(guildEventsCache.stats().evictionCount())
+            .build();
+    }
+
+    /**
+     * Applies the changes of the feed to the cached events from now on. When the feed
+     * stops, cached guilds are only refreshed once they expire.
+     *
+     * @param changeFeed feed of the changes made by every bot instance
+     */
+    public void follow(DiscordEventChangeFeed changeFeed) {
+        changeFeed.changes()
+            .subscribe(
+                this::applyDiscordEventChange,
+                throwable -> log.warn("Events cache stopped following changes: {}", throwable.toString()),
+                () -> log.info("Events cache stopped following changes"));
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return delegate.deleteDiscordEvent(args)
+            .doOnNext(this::evictDiscordEvent);
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return delegate.deleteDiscordEvents(args)
+            .doOnNext(deleteResult -> {
+                if (deleteResult.getStatus() == DeleteDiscordEventResultDTO.Status.DELETED) {
+                    evictDiscordEvent(deleteResult.getDiscordEvent());
+                }
+            });
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        return readThrough(
+            args.getGuildId(),
+            guildEvents -> guildEvents.upcoming(args.getCurrentDateTime().toString(), args.getUpcomingLimit()),
+            () -> delegate.streamDiscordEventsByUpcoming(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return readThrough(
+            args.getGuildId(),
+            guildEvents -> guildEvents.range(args.getStartDateTime().toString(), args.getEndDateTime().toString()),
+            () -> delegate.streamDiscordEventsByDateTimeRange(args));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return readThrough(
+            args.getGuildId(),
+            guildEvents -> guildEvents.range(args.getStartDateTime().toString(), args.getEndDateTime().toString())
+                .map(discordEvents -> discordEvents.stream()
+                    .map(DiscordEventSummary::of)
+                    .collect(Collectors.toList())),
+            () -> delegate.streamDiscordEventSummariesByDateTimeRange(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        // All-time events of a user are not held in the cache
+        return delegate.streamDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return delegate.streamArchivedDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        // Guilds are cached one by one, none of them tells about the others
+        return delegate.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(startDateTime, endDateTime);
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        return delegate.saveDiscordEvent(discordEventDTO)
+            .doOnNext(discordEvent -> {
+                incrementWriteGeneration(discordEvent.getGuildId());
+                GuildEvents guildEvents = guildEventsCache.getIfPresent(discordEvent.getGuildId());
+                if (guildEvents != null && !guildEvents.put(discordEvent, maxEventsPerGuild)) {
+                    // Guild has outgrown the cache, it is read again on next access
+                    guildEventsCache.invalidate(discordEvent.getGuildId());
+                }
+            })
+            // Written elsewhere in the meantime, the cached events are likely stale
+            .doOnError(DiscordEventConflictException.class, e -> {
+                incrementWriteGeneration(discordEventDTO.getGuildId());
+                guildEventsCache.invalidate(discordEventDTO.getGuildId());
+            });
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.addDiscordEventAttendee(args)
+            .doOnNext(this::replaceDiscordEvent);
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.removeDiscordEventAttendee(args)
+            .doOnNext(this::replaceDiscordEvent);
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return delegate.archiveDiscordEventsBefore(cutoff)
+            .doOnNext(archivedCount -> {
+                // Rare, and only touches events older than the cache usually holds
+                if (archivedCount > 0) {
+                    for (int slot = 0; slot < WRITE_GENERATION_SLOTS; slot++) {
+                        writeGenerations.incrementAndGet(slot);
+                    }
+                    guildEventsCache.invalidateAll();
+                }
+            });
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        // Cached events do not hold their start slot
+        return delegate.backfillDiscordEventStartSlots(from);
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventCreators() {
+        // Cached events are not read by creator
+        return delegate.backfillDiscordEventCreators();
+    }
+
+    /**
+     * Serves a read from the guild's cached events, loading them first if needed.
+     * Falls back on the decorated repository when the cached events cannot answer.
+     *
+     * @param guildId  guild of the read
+     * @param cached   read on the cached events, empty if they cannot answer
+     * @param uncached read on the decorated repository
+     * @return Flux of events or event summaries
+     */
+    private <T> Flux<T> readThrough(long guildId,
+                                    Function<GuildEvents, Optional<List<T>>> cached,
+                                    Supplier<Flux<T>> uncached) {
+        return Flux.defer(() -> {
+            GuildEvents guildEvents = guildEventsCache.getIfPresent(guildId);
+            if (guildEvents == null) {
+                misses.incrementAndGet();
+                return loadGuildEvents(guildId)
+                    .flatMapMany(loadedGuildEvents -> cached.apply(loadedGuildEvents)
+                        .map(Flux::fromIterable)
+                        .orElseGet(uncached));
+            }
+
+            Optional<List<T>> results = cached.apply(guildEvents);
+            if (results.isPresent()) {
+                hits.incrementAndGet();
+                return Flux.fromIterable(results.get());
+            }
+            misses.incrementAndGet();
+            return uncached.get();
+        });
+    }
+
+    /**
+     * Reads the upcoming events of a guild from the decorated repository and caches them,
+     * unless the guild was written to in the meantime.
+     *
+     * @param guildId guild to load
+     * @return Mono<GuildEvents> loaded events
+     */
+    private Mono<GuildEvents> loadGuildEvents(long guildId) {
+        long generation = writeGenerations.get(writeGenerationSlot(guildId));
+        String loadedFrom = Instant.now().minus(CACHE_LOOKBACK).toString();
+
+        return delegate.streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO.builder()
+            .guildId(guildId)
+            .currentDateTime(Instant.parse(loadedFrom))
+            .upcomingLimit(maxEventsPerGuild + 1)
+            .build())
+            .collectList()
+            .map(discordEvents -> {
+                GuildEvents guildEvents = new GuildEvents(loadedFrom, discordEvents, maxEventsPerGuild);
+                if (writeGenerations.get(writeGenerationSlot(guildId)) == generation) {
+                    guildEventsCache.put(guildId, guildEvents);
+                }
+                log.info("Loaded {} events of guild {} in cache", discordEvents.size(), guildId);
+                return guildEvents;
+            });
+    }
+
+    /**
+     * Applies a change made to a stored event, by this or another bot instance, to the
+     * cached events of its guild. Changes older than the cached event are ignored, since
+     * the feed may publish them after this instance wrote a newer version through.
+     *
+     * @param change change of a stored event
+     */
+    void applyDiscordEventChange(DiscordEventChange change) {
+        incrementWriteGeneration(change.getGuildId());
+        GuildEvents guildEvents = guildEventsCache.getIfPresent(change.getGuildId());
+        if (guildEvents == null) {
+            return;
+        }
+        if (change.getType() == DiscordEventChange.Type.REMOVE) {
+            guildEvents.remove(change.getOldDiscordEvent());
+        } else if (!guildEvents.put(change.getNewDiscordEvent(), maxEventsPerGuild)) {
+            guildEventsCache.invalidate(change.getGuildId());
+        }
+    }
+
+    private void evictDiscordEvent(DiscordEvent discordEvent) {
+        incrementWriteGeneration(discordEvent.getGuildId());
+        GuildEvents guildEvents = guildEventsCache.getIfPresent(discordEvent.getGuildId());
+        if (guildEvents != null) {
+            guildEvents.events.remove(discordEvent.datetimeCreatedBy());
+        }
+    }
+
+    private void replaceDiscordEvent(DiscordEvent discordEvent) {
+        incrementWriteGeneration(discordEvent.getGuildId());
+        GuildEvents guildEvents = guildEventsCache.getIfPresent(discordEvent.getGuildId());
+        if (guildEvents != null) {
+            // Write-throughs of concurrent updates can land out of order
+            guildEvents.events.computeIfPresent(discordEvent.datetimeCreatedBy(),
+                (key, cachedEvent) -> GuildEvents.newer(cachedEvent, discordEvent));
+        }
+    }
+
+    private void incrementWriteGeneration(long guildId) {
+        writeGenerations.incrementAndGet(writeGenerationSlot(guildId));
+    }
+
+    private static int writeGenerationSlot(long guildId) {
+        return Long.hashCode(guildId) & (WRITE_GENERATION_SLOTS - 1);
+    }
+
+    /**
+     * Events of a guild from `loadedFrom` onwards, keyed by `datetimeCreatedBy`
+     * so that they are in the same order as in the table and string bounds
+     * behave the same as in the DDB key conditions.
+     * <p>
+     * When the guild has more events than the cache holds, `upperBound` is the
+     * key of the last event held and reads past it cannot be answered.
+     */
+    private static class GuildEvents {
+        private final String loadedFrom;
+        private final String upperBound;
+        private final ConcurrentSkipListMap<String, DiscordEvent> events;
+
+        GuildEvents(String loadedFrom, List<DiscordEvent> discordEvents, Integer maxEvents) {
+            List<DiscordEvent> heldEvents = discordEvents.size() > maxEvents ?
+                discordEvents.subList(0, maxEvents) : discordEvents;
+            this.loadedFrom = loadedFrom;
+            this.upperBound = discordEvents.size() > maxEvents ?
+                heldEvents.get(heldEvents.size() - 1).datetimeCreatedBy() : null;
+            this.events = heldEvents.stream()
+                .collect(Collectors.toMap(
+                    DiscordEvent::datetimeCreatedBy,
+                    Function.identity(),
+                    (first, second) -> second,
+                    ConcurrentSkipListMap::new));
+        }
+
+        Optional<List<DiscordEvent>> upcoming(String from, Integer limit) {
+            if (from.compareTo(loadedFrom) < 0) {
+                return Optional.empty();
+            }
+            List<DiscordEvent> discordEvents = events.tailMap(from, true).values().stream()
+                .limit(limit == null ? Long.MAX_VALUE : limit)
+                .collect(Collectors.toCollection(ArrayList::new));
+            if (upperBound != null && (limit == null || discordEvents.size() < limit)) {
+                return Optional.empty();
+            }
+            return Optional.of(discordEvents);
+        }
+
+        Optional<List<DiscordEvent>> range(String from, String to) {
+            if (from.compareTo(loadedFrom) < 0 || (upperBound != null && to.compareTo(upperBound) > 0)) {
+                return Optional.empty();
+            }
+            return Optional.of(new ArrayList<>(events.subMap(from, true, to, true).values()));
+        }
+
+        /**
+         * @return false if the event belongs in the cached window but there is no room left
+         */
+        boolean put(DiscordEvent discordEvent, Integer maxEvents) {
+            String key = discordEvent.datetimeCreatedBy();
+            if (key.compareTo(loadedFrom) < 0 || (upperBound != null && key.compareTo(upperBound) > 0)) {
+                return true;
+            }
+            if (!events.containsKey(key) && events.size() >= maxEvents) {
+                return false;
+            }
+            events.merge(key, discordEvent, GuildEvents::newer);
+            return true;
+        }
+
+        void remove(DiscordEvent discordEvent) {
+            events.computeIfPresent(discordEvent.datetimeCreatedBy(), (key, cachedEvent) ->
+                cachedEvent.getVersion() > discordEvent.getVersion() ? cachedEvent : null);
+        }
+
+        private static DiscordEvent newer(DiscordEvent cachedEvent, DiscordEvent discordEvent) {
+            return cachedEvent.getVersion() > discordEvent.getVersion() ? cachedEvent : discordEvent;
+        }
+    }
+}
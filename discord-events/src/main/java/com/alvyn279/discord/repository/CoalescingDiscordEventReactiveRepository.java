@@ -0,0 +1,240 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Decorator of a {@link DiscordEventReactiveRepository} that coalesces identical
+ * concurrent reads: callers that ask for the same query while it is in flight
+ * share its single call to the decorated repository and its results.
+ * <p>
+ * Queries are keyed on their normalized form: the projection, the guild, the
+ * lower bound rounded up and the upper bound rounded down to the second, and the
+ * limit. Event times are whole minutes, so narrowing the bounds to whole seconds
+ * does not change which events are read, but it lets the reads of a busy guild
+ * that start within the same second share one call.
+ * <p>
+ * A query is removed once it completes or fails. Results are never kept around
+ * for later callers, that is up to {@link CachedDiscordEventReactiveRepository}.
+ */
+public class CoalescingDiscordEventReactiveRepository implements DiscordEventReactiveRepository {
+
+    private final DiscordEventReactiveRepository delegate;
+    // { normalized query -> results of the call in flight }
+    private final Map<QueryKey, Mono<? extends List<?>>> inFlightQueries;
+    private final AtomicLong calls;
+    private final AtomicLong coalescedCalls;
+
+    /**
+     * Point-in-time view of the calls saved by coalescing.
+     */
+    @Data
+    @Builder
+    public static class CoalescingUsage {
+        private final long inFlight;
+        private final long calls;
+        private final long coalescedCalls;
+    }
+
+    private enum Projection {
+        UPCOMING_EVENTS,
+        RANGE_EVENTS,
+        RANGE_SUMMARIES,
+    }
+
+    @Data
+    @Builder
+    private static class QueryKey {
+        private final Projection projection;
+        private final long guildId;
+        private final Instant from;
+        private final Instant to;
+        private final Integer limit;
+    }
+
+    @Builder
+    public CoalescingDiscordEventReactiveRepository(@NonNull DiscordEventReactiveRepository delegate) {
+        this.delegate = delegate;
+        this.inFlightQueries = new ConcurrentHashMap<>();
+        this.calls = new AtomicLong();
+        this.coalescedCalls = new AtomicLong();
+    }
+
+    /**
+     * Returns the number of calls made to the decorated repository and the number
+     * of calls saved by joining one in flight.
+     *
+     * @return CoalescingUsage
+     */
+    public CoalescingUsage getUsage() {
+        return CoalescingUsage.builder()
+            .inFlight(inFlightQueries.size())
+            .calls(calls.get())
+            .coalescedCalls(coalescedCalls.get())
+            .build();
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return delegate.deleteDiscordEvent(args);
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return delegate.deleteDiscordEvents(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        // Without a limit, callers stop reading whenever they want: those are not collected
+        if (args.getUpcomingLimit() == null) {
+            return delegate.streamDiscordEventsByUpcoming(args);
+        }
+        return coalesce(
+            QueryKey.builder()
+                .projection(Projection.UPCOMING_EVENTS)
+                .guildId(args.getGuildId())
+                .from(roundUp(args.getCurrentDateTime()))
+                .limit(args.getUpcomingLimit())
+                .build(),
+            key -> delegate.streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO.builder()
+                .guildId(key.getGuildId())
+                .currentDateTime(key.getFrom())
+                .upcomingLimit(key.getLimit())
+                .build()));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return coalesce(
+            rangeKey(Projection.RANGE_EVENTS, args),
+            key -> delegate.streamDiscordEventsByDateTimeRange(rangeArgs(key)));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return coalesce(
+            rangeKey(Projection.RANGE_SUMMARIES, args),
+            key -> delegate.streamDiscordEventSummariesByDateTimeRange(rangeArgs(key)));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        // Per-user reads are rarely identical, and callers only read the first few
+        return delegate.streamDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return delegate.streamArchivedDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        // Only read by the reminders, once a minute
+        return delegate.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(startDateTime, endDateTime);
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        return delegate.saveDiscordEvent(discordEventDTO);
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.addDiscordEventAttendee(args);
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.removeDiscordEventAttendee(args);
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return delegate.archiveDiscordEventsBefore(cutoff);
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        return delegate.backfillDiscordEventStartSlots(from);
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventCreators() {
+        return delegate.backfillDiscordEventCreators();
+    }
+
+    /**
+     * Joins the call in flight for a query, or makes it. The call's results are
+     * collected so that callers joining late still get all of them, and it keeps
+     * going if the caller that made it cancels.
+     *
+     * @param key   normalized query
+     * @param query call to the decorated repository for the normalized query
+     * @return Flux of events or event summaries
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Flux<T> coalesce(QueryKey key, Function<QueryKey, Flux<T>> query) {
+        return Flux.defer(() -> {
+            boolean[] made = {false};
+            Mono<? extends List<?>> inFlightQuery = inFlightQueries.computeIfAbsent(key, k -> {
+                made[0] = true;
+                return query.apply(k)
+                    .collectList()
+                    // Removed before callers see the results: the call is never cancelled once cached
+                    .doOnTerminate(() -> inFlightQueries.remove(k))
+                    .cache();
+            });
+            (made[0] ? calls : coalescedCalls).incrementAndGet();
+            return ((Mono<List<T>>) inFlightQuery).flatMapIterable(Function.identity());
+        });
+    }
+
+    private static QueryKey rangeKey(Projection projection, ListDiscordEventsCommandDTO args) {
+        return QueryKey.builder()
+            .projection(projection)
+            .guildId(args.getGuildId())
+            .from(roundUp(args.getStartDateTime()))
+            .to(roundDown(args.getEndDateTime()))
+            .build();
+    }
+
+    private static ListDiscordEventsCommandDTO rangeArgs(QueryKey key) {
+        return ListDiscordEventsCommandDTO.builder()
+            .guildId(key.getGuildId())
+            .startDateTime(key.getFrom())
+            .endDateTime(key.getTo())
+            .build();
+    }
+
+    // A lower bound rounded down would let in the events of the last second before it
+    private static Instant roundUp(Instant instant) {
+        Instant roundedDown = roundDown(instant);
+        return roundedDown.equals(instant) ? instant : roundedDown.plusSeconds(1);
+    }
+
+    private static Instant roundDown(Instant instant) {
+        return instant.truncatedTo(ChronoUnit.SECONDS);
+    }
+}
@@ -1,16 +1,27 @@
 package com.alvyn279.discord.repository;
 
 import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
 import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
 import com.alvyn279.discord.repository.dto.DiscordEventDTO;
 import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Instant;
 import java.util.List;
 
 /**
  * Declares all the logical reads and write for the @link{DiscordEvent}
  * entity.
+ * <p>
+ * Reads come in two flavours: `stream*` operations return a {@link Flux}
+ * that reads the datastore lazily, page by page, as the subscriber requests
+ * more events (cancelling, e.g. with `take(n)`, stops reading pages), and
+ * `list*` operations collect the whole result in memory.
  */
 public interface DiscordEventReactiveRepository {
 
@@ -23,6 +34,111 @@ public interface DiscordEventReactiveRepository {
      */
     Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args);
 
+    /**
+     * Deletes many {@link DiscordEvent}s identified with their messageIds
+     * from a datastore in a reactive manner. Events that the user did not create
+     * are left untouched.
+     *
+     * @param args {@link DeleteDiscordEventsCommandDTO} with `guildId`, `userId`, `deleteCodes`
+     * @return Flux<DeleteDiscordEventResultDTO> one result per distinct delete code, in order
+     */
+    Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args);
+
+    /**
+     * Streams upcoming {@link DiscordEvent}s from a datastore in time order.
+     * Stops after `upcomingLimit` events when it is set.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `guildId`, `currentDateTime`
+     *             and optional `upcomingLimit`
+     * @return Flux<DiscordEvent> events
+     */
+    Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args);
+
+    /**
+     * Streams {@link DiscordEvent}s in a given date time range from a datastore
+     * in time order.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `startDateTime`,`endDateTime`, `guildId`
+     * @return Flux<DiscordEvent> events
+     */
+    Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args);
+
+    /**
+     * Streams {@link DiscordEventSummary}s in a given date time range from a datastore
+     * in time order. Only the summary attributes are read.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `startDateTime`,`endDateTime`, `guildId`
+     * @return Flux<DiscordEventSummary> event summaries
+     */
+    Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args);
+
+    /**
+     * Streams {@link DiscordEvent}s created by given user from a datastore
+     * in time order.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `guildId`,`userId`
+     * @return Flux<DiscordEvent> events
+     */
+    Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args);
+
+    /**
+     * Streams archived {@link DiscordEvent}s created by given user from a datastore,
+     * most recent first. Archived events are past events that were moved out of the
+     * live datastore by {@link #archiveDiscordEventsBefore(Instant)}.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `guildId`,`userId`
+     * @return Flux<DiscordEvent> archived events
+     */
+    Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args);
+
+    /**
+     * Streams the {@link DiscordEventSummary}s of all guilds that start in a given
+     * date-time range, with the same bounds as {@link #streamDiscordEventSummariesByDateTimeRange}.
+     * The events of a guild come in time order.
+     * <p>
+     * Reads grow with the number of events in the range, not with the number of guilds,
+     * so one call finds the events of every guild that are due soon.
+     *
+     * @param startDateTime start of the range
+     * @param endDateTime   end of the range
+     * @return Flux<DiscordEventSummary> event summaries
+     */
+    Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                    Instant endDateTime);
+
+    /**
+     * Streams upcoming {@link DiscordEvent}s from a datastore in time order.
+     * Looks for the events within the next `upcomingTimeLimit` timeframe.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `upcomingTimeLimit`,
+     *             `guildId`, `currentDateTime`
+     * @return Flux<DiscordEvent> events
+     */
+    default Flux<DiscordEvent> streamDiscordEventsByUpcomingWithTimeLimit(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO.builder()
+            .startDateTime(args.getCurrentDateTime())
+            .endDateTime(args.getCurrentDateTime().plus(args.getUpcomingTimeLimit()))
+            .guildId(args.getGuildId())
+            .build());
+    }
+
+    /**
+     * Streams upcoming {@link DiscordEventSummary}s from a datastore in time order.
+     * Looks for the events within the next `upcomingTimeLimit` timeframe.
+     *
+     * @param args {@link ListDiscordEventsCommandDTO} with `upcomingTimeLimit`,
+     *             `guildId`, `currentDateTime`
+     * @return Flux<DiscordEventSummary> event summaries
+     */
+    default Flux<DiscordEventSummary> streamDiscordEventSummariesByUpcomingWithTimeLimit(
+        ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO.builder()
+            .startDateTime(args.getCurrentDateTime())
+            .endDateTime(args.getCurrentDateTime().plus(args.getUpcomingTimeLimit()))
+            .guildId(args.getGuildId())
+            .build());
+    }
+
     /**
      * Fetches upcoming {@link DiscordEvent}s from a datastore in a
      * reactive manner. Looks for the next `upcomingLimit` events.
@@ -31,7 +147,9 @@ public interface DiscordEventReactiveRepository {
      *             `guildId`, `currentDateTime`
      * @return Mono<List < DiscordEvent>> events
      */
-    Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithLimit(ListDiscordEventsCommandDTO args);
+    default Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithLimit(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByUpcoming(args).collectList();
+    }
 
     /**
      * Fetches upcoming {@link DiscordEvent}s from a datastore in a
@@ -42,7 +160,9 @@ public interface DiscordEventReactiveRepository {
      *             `guildId`, `currentDateTime`
      * @return Mono<List < DiscordEvent>> events
      */
-    Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithTimeLimit(ListDiscordEventsCommandDTO args);
+    default Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithTimeLimit(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByUpcomingWithTimeLimit(args).collectList();
+    }
 
     /**
      * Fetches {@link DiscordEvent}s in a given date time range from a datastore in a
@@ -51,7 +171,9 @@ public interface DiscordEventReactiveRepository {
      * @param args {@link ListDiscordEventsCommandDTO} with `startDateTime`,`endDateTime`, `guildId`
      * @return Mono<List < DiscordEvent>> events
      */
-    Mono<List<DiscordEvent>> listDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args);
+    default Mono<List<DiscordEvent>> listDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByDateTimeRange(args).collectList();
+    }
 
     /**
      * Fetches {@link DiscordEvent}s created by given user from a datastore in a
@@ -60,15 +182,79 @@ public interface DiscordEventReactiveRepository {
      * @param args {@link ListDiscordEventsCommandDTO} with `guildId`,`userId`
      * @return Mono<List < DiscordEvent>> events
      */
-    Mono<List<DiscordEvent>> listDiscordEventCreatedByUser(ListDiscordEventsCommandDTO args);
+    default Mono<List<DiscordEvent>> listDiscordEventCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsCreatedByUser(args).collectList();
+    }
 
     /**
      * Saves a {@link DiscordEvent} to a datastore in a reactive manner. This should have
-     * create and update behaviour (PUT).
+     * create and update behaviour (PUT), conditional on `expectedVersion`
+     * (see {@link DiscordEventDTO#canReplace}).
      *
      * @param discordEventDTO DiscordEvent data transfer object that has nullable
-     *                        `description` and `attendees` fields.
-     * @return Mono<DiscordEvent> saved event
+     *                        `description`, `attendees` and `expectedVersion` fields.
+     * @return Mono<DiscordEvent> saved event, or an error with a
+     * {@link com.alvyn279.discord.exception.DiscordEventConflictException} when the condition fails
      */
     Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO);
+
+    /**
+     * Adds an attendee to a {@link DiscordEvent} in a datastore in a reactive manner,
+     * without rewriting the rest of the event. Concurrent updates do not overwrite
+     * each other.
+     *
+     * @param args {@link UpdateDiscordEventAttendeeDTO} with `discordEvent` as it was read, `attendeeId`
+     * @return Mono<DiscordEvent> event with its attendees as stored, empty if the
+     * event no longer exists
+     */
+    Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args);
+
+    /**
+     * Removes an attendee from a {@link DiscordEvent} in a datastore in a reactive manner,
+     * without rewriting the rest of the event. Concurrent updates do not overwrite
+     * each other.
+     *
+     * @param args {@link UpdateDiscordEventAttendeeDTO} with `discordEvent` as it was read, `attendeeId`
+     * @return Mono<DiscordEvent> event with its attendees as stored, empty if the
+     * event no longer exists
+     */
+    Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args);
+
+    /**
+     * Moves every {@link DiscordEvent} of all guilds that happened before a given
+     * date-time from the live datastore to the archive, so that live reads do not
+     * grow with the history of the guilds.
+     *
+     * @param cutoff events strictly before this date-time are archived
+     * @return Mono<Long> number of archived events
+     */
+    Mono<Long> archiveDiscordEventsBefore(Instant cutoff);
+
+    /**
+     * Indexes by start time the {@link DiscordEvent}s starting from a given date-time
+     * that were written before events were indexed that way, so that
+     * {@link #streamDiscordEventSummariesOfAllGuildsByDateTimeRange} finds them too.
+     * This is a one-off migration: once it finished, later calls have nothing to do.
+     * Datastores that index every event by start time have nothing to do.
+     *
+     * @param from events starting from this date-time are indexed
+     * @return Mono<Long> number of indexed events
+     */
+    default Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        return Mono.just(0L);
+    }
+
+    /**
+     * Indexes by guild and creator the {@link DiscordEvent}s, live and archived, that
+     * were written before events were indexed that way, so that
+     * {@link #streamDiscordEventsCreatedByUser} and
+     * {@link #streamArchivedDiscordEventsCreatedByUser} find them too.
+     * This is a one-off migration: once it finished, later calls have nothing to do.
+     * Datastores that index every event by creator have nothing to do.
+     *
+     * @return Mono<Long> number of indexed events
+     */
+    default Mono<Long> backfillDiscordEventCreators() {
+        return Mono.just(0L);
+    }
 }
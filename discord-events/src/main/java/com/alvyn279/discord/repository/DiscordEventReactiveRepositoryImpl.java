@@ -1,26 +1,60 @@
 package com.alvyn279.discord.repository;
 
 import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventItemCodec;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.domain.PartitionKeyScheme;
 import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
 import com.alvyn279.discord.repository.dto.DiscordEventDTO;
 import com.alvyn279.discord.repository.dto.DiscordEventsCommandDTO;
 import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
 import com.alvyn279.discord.exception.AccessDeniedException;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.resilience.Hedger;
+import com.alvyn279.discord.retry.RetryPolicy;
 import com.alvyn279.discord.utils.EnvironmentUtils;
+import com.google.common.collect.Lists;
 import lombok.Builder;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.http.SdkHttpResponse;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 import software.amazon.awssdk.utils.ImmutableMap;
 
+import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
@@ -35,247 +69,1176 @@ import static com.alvyn279.discord.utils.DiscordStringUtils.EMPTY;
 @Builder
 public class DiscordEventReactiveRepositoryImpl implements DiscordEventReactiveRepository {
 
-    private static final String DISCORD_EVENTS_TABLE_NAME = EnvironmentUtils.getDDBTableName();
+    public static final Integer DEFAULT_PAGE_SIZE = 100;
+    public static final Integer DEFAULT_BUCKET_HORIZON_MONTHS = 24;
+    public static final Integer DEFAULT_BUCKET_CONCURRENCY = 4;
+    public static final Duration DEFAULT_ARCHIVE_BATCH_INTERVAL = Duration.ofSeconds(1);
+
+    // DDB caps `BatchWriteItem` to 25 write requests
+    private static final Integer BATCH_WRITE_MAX_ITEMS = 25;
+    private static final Integer BATCH_WRITE_MAX_RETRIES = 5;
+    private static final Duration BATCH_WRITE_RETRY_BASE_DELAY = Duration.ofMillis(50);
+    // Max number of concurrent lookups/batches for a single bulk delete
+    private static final Integer BULK_DELETE_CONCURRENCY = 4;
+    // One-off migrations that finished are recorded in the archive table, which has no
+    // stream and is only scanned by a migration, under a partition no guild can have
+    private static final String MIGRATIONS_PARTITION = "migrations";
+    private static final String MIGRATION_FINISHED_AT_KEY = "finishedAt";
+    private static final String START_SLOT_MIGRATION = "startSlot";
+    private static final String GUILD_ID_CREATED_BY_MIGRATION = "guildIdCreatedBy";
 
     private final DynamoDbAsyncClient client;
 
+    // Table names are only read from the environment when the repository is built,
+    // bots on local storage do not need them
+    @Builder.Default
+    private final String tableName = EnvironmentUtils.getDDBTableName();
+
+    @Builder.Default
+    private final String archiveTableName = EnvironmentUtils.getDDBArchiveTableName();
+
+    // Max number of items read per query page (DDB `Limit`)
+    @Builder.Default
+    private final Integer pageSize = DEFAULT_PAGE_SIZE;
+
+    // Layout of the partition keys, see {@link PartitionKeyScheme}
+    @Builder.Default
+    private final PartitionKeyScheme partitionKeyScheme = PartitionKeyScheme.LEGACY;
+
+    // With bucketed partitions, how many monthly buckets ahead upcoming reads look into
+    @Builder.Default
+    private final Integer bucketHorizonMonths = DEFAULT_BUCKET_HORIZON_MONTHS;
+
+    // With bucketed partitions, max number of buckets read at once by range reads
+    @Builder.Default
+    private final Integer bucketConcurrency = DEFAULT_BUCKET_CONCURRENCY;
+
+    // Pause before each archive batch of 25 events, so that archiving does
+    // not compete with the commands for the table's capacity
+    @Builder.Default
+    private final Duration archiveBatchInterval = DEFAULT_ARCHIVE_BATCH_INTERVAL;
+
+    // Retries of each DDB call on its own, rather than of a whole operation
+    @Builder.Default
+    private final RetryPolicy readRetryPolicy = RetryPolicy.NONE;
+
+    @Builder.Default
+    private final RetryPolicy writeRetryPolicy = RetryPolicy.NONE;
+
+    // Duplicates of slow queries, to cut their tail latency
+    @Builder.Default
+    private final Hedger readHedger = Hedger.NONE;
+
     @Override
     public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
 
         return getDiscordEventByMessageId(args, args.getDeleteCode())
-            .flatMap(discordEvent -> {
-                Map<String, AttributeValue> keysAttributeValues = ImmutableMap.of(
-                    DiscordEvent.PARTITION_KEY, AttributeValue.builder().s(discordEvent.getGuildId()).build(),
-                    DiscordEvent.SORT_KEY, AttributeValue.builder().s(discordEvent.datetimeCreatedBy()).build()
-                );
-
-                DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
-                    .tableName(DISCORD_EVENTS_TABLE_NAME)
-                    .key(keysAttributeValues)
-                    .build();
-
-                return Mono.fromCompletionStage(client.deleteItem(deleteItemRequest))
-                    .flatMap(queryResponse -> {
-                        SdkHttpResponse httpResponse = queryResponse.sdkHttpResponse();
-                        log.info("Deleted DDB event {}: {} {}",
-                            discordEvent.getMessageId(),
-                            httpResponse.statusCode(),
-                            httpResponse.statusText().isPresent() ? httpResponse.statusText().get() : EMPTY);
-                        return Mono.just(discordEvent);
-                    })
-                    .onErrorResume(throwable -> {
-                        log.error("Error deleting an event from DDB", throwable);
-                        return Mono.error(throwable);
-                    });
+            // During a migration, the event may be in either partition layout
+            .flatMap(discordEvent -> Flux.fromIterable(primaryKeys(discordEvent))
+                .concatMap(primaryKey -> {
+                    DeleteItemRequest deleteItemRequest = DeleteItemRequest.builder()
+                        .tableName(tableName)
+                        .key(primaryKey)
+                        .build();
+
+                    return writeCall(() -> client.deleteItem(deleteItemRequest))
+                        .doOnNext(deleteItemResponse -> {
+                            SdkHttpResponse httpResponse = deleteItemResponse.sdkHttpResponse();
+                            log.info("Deleted DDB event {}: {} {}",
+                                discordEvent.getMessageId(),
+                                httpResponse.statusCode(),
+                                httpResponse.statusText().isPresent() ? httpResponse.statusText().get() : EMPTY);
+                        });
+                })
+                .then(Mono.just(discordEvent))
+                .onErrorResume(throwable -> {
+                    log.error("Error deleting an event from DDB", throwable);
+                    return Mono.error(throwable);
+                }));
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        List<String> deleteCodes = args.getDeleteCodes().stream()
+            .distinct()
+            .collect(Collectors.toList());
+
+        // Ownership is checked in memory: owned events are marked DELETED until the
+        // batch writes tell otherwise.
+        return Flux.fromIterable(deleteCodes)
+            .flatMapSequential(deleteCode -> findDiscordEventByMessageId(args.getGuildId(), deleteCode)
+                    .map(discordEvent -> discordEvent.getCreatedBy() == args.getUserId() ?
+                        deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.DELETED, discordEvent) :
+                        deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.ACCESS_DENIED, discordEvent))
+                    .defaultIfEmpty(deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.NOT_FOUND, null))
+                    .onErrorResume(throwable -> Mono.just(
+                        deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.FAILED, null))),
+                BULK_DELETE_CONCURRENCY)
+            .collectList()
+            .flatMapMany(lookupResults -> {
+                List<DiscordEvent> ownedDiscordEvents = lookupResults.stream()
+                    .filter(result -> result.getStatus() == DeleteDiscordEventResultDTO.Status.DELETED)
+                    .map(DeleteDiscordEventResultDTO::getDiscordEvent)
+                    .collect(Collectors.toList());
+
+                return batchDeleteDiscordEvents(ownedDiscordEvents)
+                    .flatMapIterable(failedMessageIds -> lookupResults.stream()
+                        .map(result -> result.getStatus() == DeleteDiscordEventResultDTO.Status.DELETED &&
+                            failedMessageIds.contains(result.getDiscordEvent().getMessageId()) ?
+                            result.toBuilder().status(DeleteDiscordEventResultDTO.Status.FAILED).build() :
+                            result)
+                        .collect(Collectors.toList()));
             });
     }
 
     @Override
-    public Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithLimit(ListDiscordEventsCommandDTO args) {
-        // TODO: check args.guildId, args.currentDateTime, args.upcomingLimit
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        // TODO: check args.guildId, args.currentDateTime
 
-        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+        // Buckets are read one after the other so that `take(n)` stops at the
+        // first buckets that have enough events.
+        Integer limit = args.getUpcomingLimit();
+        Flux<DiscordEvent> discordEvents = queryPartitions(
+            args.getGuildId(),
+            args.getCurrentDateTime(),
+            args.getCurrentDateTime().atZone(ZoneOffset.UTC).plusMonths(bucketHorizonMonths).toInstant(),
+            partitionKey -> upcomingQueryRequest(partitionKey, args.getCurrentDateTime(), limit),
+            false,
+            "upcoming events")
+            .map(DiscordEvent::fromDDBMap);
+        return limit == null ? discordEvents : discordEvents.take(limit);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        // TODO: check args.guildId, args.startDateTime, args.endDateTime
+
+        return queryPartitions(
+            args.getGuildId(),
+            args.getStartDateTime(),
+            args.getEndDateTime(),
+            partitionKey -> dateTimeRangeQueryRequest(partitionKey, args.getStartDateTime(), args.getEndDateTime()),
+            true,
+            "events by range")
+            .map(DiscordEvent::fromDDBMap);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        // TODO: check args.guildId, args.startDateTime, args.endDateTime
+
+        return queryPartitions(
+            args.getGuildId(),
+            args.getStartDateTime(),
+            args.getEndDateTime(),
+            partitionKey -> withSummaryProjection(
+                dateTimeRangeQueryRequest(partitionKey, args.getStartDateTime(), args.getEndDateTime())),
+            true,
+            "event summaries by range")
+            .map(DiscordEventSummary::fromDDBMap);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        // We allow users to view their all-time events so they can
+        // clean up eventually the events they do not need.
+        // The `guildIdCreatedBy` index only holds the user's events, so reads
+        // grow with their own event count instead of the guild's.
+        // TODO: check args.guildId, args.userId
+
+        return currentCopies(queryAllPages(createdByQueryRequest(tableName, args), "events by guild and user"))
+            .map(DiscordEvent::fromDDBMap);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        // TODO: check args.guildId, args.userId
+
+        QueryRequest queryRequest = createdByQueryRequest(archiveTableName, args).toBuilder()
+            .scanIndexForward(false)
+            .build();
+        return currentCopies(queryAllPages(queryRequest, "archived events by guild and user"))
+            .map(DiscordEvent::fromDDBMap);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * It reads the `startSlot` GSI one UTC hour at a time, so a range of a few minutes
+     * is one or two queries whatever the number of guilds. During a migration of the
+     * partition key scheme, events found in both layouts are only emitted once.
+     */
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        return Flux.fromIterable(DiscordEvent.startSlots(startDateTime, endDateTime))
+            .concatMap(startSlot -> queryAllPages(
+                startSlotQueryRequest(startSlot, startDateTime, endDateTime),
+                String.format("event summaries of all guilds in %s", startSlot)))
+            .map(DiscordEventSummary::fromDDBMap)
+            .distinct(DiscordEventSummary::getMessageId);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The write is conditional (see {@link DiscordEventDTO#canReplace}), so that a slow
+     * or retried write never overwrites a newer one, and a retried write whose result
+     * was lost goes through again thanks to its idempotency key. When the condition fails,
+     * it errors with a {@link DiscordEventConflictException}.
+     */
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        Map<String, AttributeValue> itemToSave = DiscordEvent.toDDBItem(discordEventDTO, partitionKeyScheme);
+        PutItemRequest.Builder putDiscordEventRequestBuilder = PutItemRequest.builder()
+            .tableName(tableName)
+            .item(itemToSave);
+
+        // Or already written by this very write, when its result was lost
+        String writtenByThisWrite = "(#idempotencyKey = :idempotencyKey AND #version = :writtenVersion)";
+        Map<String, String> expressionAttributesNames = new HashMap<>(ImmutableMap.of(
             "#guildId", DiscordEvent.PARTITION_KEY,
+            "#version", DiscordEvent.VERSION_KEY,
+            "#idempotencyKey", DiscordEvent.IDEMPOTENCY_KEY_KEY));
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(ImmutableMap.of(
+            ":idempotencyKey", itemToSave.get(DiscordEvent.IDEMPOTENCY_KEY_KEY),
+            ":writtenVersion", itemToSave.get(DiscordEvent.VERSION_KEY)));
+
+        if (discordEventDTO.getExpectedVersion() == null) {
+            putDiscordEventRequestBuilder.conditionExpression(
+                "attribute_not_exists(#guildId) OR " + writtenByThisWrite);
+        } else {
+            // Events written before versions were introduced have no version attribute
+            putDiscordEventRequestBuilder.conditionExpression(discordEventDTO.getExpectedVersion() == 0 ?
+                "(attribute_exists(#guildId) AND (attribute_not_exists(#version) OR #version = :expectedVersion)) OR "
+                    + writtenByThisWrite :
+                "#version = :expectedVersion OR " + writtenByThisWrite);
+            expressionAttributeValues.put(":expectedVersion",
+                AttributeValue.builder().n(discordEventDTO.getExpectedVersion().toString()).build());
+        }
+        putDiscordEventRequestBuilder
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues);
+
+        return writeCall(() -> client.putItem(putDiscordEventRequestBuilder.build()))
+            .flatMap(putItemResponse -> {
+                SdkHttpResponse httpResponse = putItemResponse.sdkHttpResponse();
+                DiscordEvent savedDiscordEvent = DiscordEvent.fromDDBMap(itemToSave);
+                log.info("Wrote to DDB event {}: {} {}",
+                    savedDiscordEvent.getMessageId(),
+                    httpResponse.statusCode(),
+                    httpResponse.statusText().isPresent() ? httpResponse.statusText().get() : EMPTY);
+                return Mono.just(savedDiscordEvent);
+            })
+            .onErrorMap(ConditionalCheckFailedException.class, e -> new DiscordEventConflictException(
+                String.format("Conflicting write of DDB event %s with expected version %s",
+                    discordEventDTO.getMessageId(), discordEventDTO.getExpectedVersion()),
+                discordEventDTO))
+            .onErrorResume(throwable -> {
+                if (throwable instanceof DiscordEventConflictException) {
+                    log.warn(throwable.getMessage());
+                } else {
+                    log.error("Error writing to DDB", throwable);
+                }
+                return Mono.error(throwable);
+            });
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return updateDiscordEventAttendees(args, "ADD #attendeesPacked :attendee", false);
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        // Attendees added before the compact codec are in the legacy string set
+        return updateDiscordEventAttendees(args,
+            "DELETE #attendeesPacked :attendee, #attendees :legacyAttendee",
+            true);
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
             "#datetimeCreatedBy", DiscordEvent.SORT_KEY
         );
 
         Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
-            ":guildIdValue", AttributeValue.builder().s(args.getGuildId()).build(),
-            ":datetimeCreatedByValue", AttributeValue.builder().s(args.getCurrentDateTime().toString()).build()
+            ":cutoff", AttributeValue.builder().s(cutoff.toString()).build()
         );
 
-        QueryRequest queryRequest = QueryRequest.builder()
-            .tableName(DISCORD_EVENTS_TABLE_NAME)
-            .keyConditionExpression("#guildId = :guildIdValue and #datetimeCreatedBy >= :datetimeCreatedByValue")
-            .limit(args.getUpcomingLimit())
+        // Past events are spread over every partition, so the whole table is scanned
+        // page by page. Batches are archived one at a time, after a pause, and the
+        // scan only reads ahead by one batch.
+        ScanRequest scanRequest = ScanRequest.builder()
+            .tableName(tableName)
+            .filterExpression("#datetimeCreatedBy < :cutoff")
+            .limit(pageSize)
             .expressionAttributeNames(expressionAttributesNames)
             .expressionAttributeValues(expressionAttributeValues)
             .build();
 
-        return Mono.fromCompletionStage(client.query(queryRequest))
-            .flatMap(queryResponse -> {
-                log.info("Read upcoming events from DDB table: {} items", queryResponse.count());
-                return Mono.just(queryResponse.items().stream()
-                    .map(DiscordEvent::fromDDBMap)
-                    .collect(Collectors.toList())
-                );
-            })
-            .onErrorResume(throwable -> {
-                log.error("Error reading upcoming events from DDB", throwable);
-                return Mono.error(throwable);
-            });
+        return scanAllPages(scanRequest, "events to archive")
+            .buffer(BATCH_WRITE_MAX_ITEMS)
+            .concatMap(items -> archiveBatch(items).delaySubscription(archiveBatchInterval), 1)
+            .reduce(0L, Long::sum)
+            .doOnNext(archivedCount -> log.info("Archived {} DDB events before {}", archivedCount, cutoff));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Events written before the `startSlot` GSI are found with a scan, then given
+     * their slot one at a time. The update leaves the version as is, since the event
+     * itself does not change, and skips events deleted in the meantime.
+     */
     @Override
-    public Mono<List<DiscordEvent>> listDiscordEventsByUpcomingWithTimeLimit(ListDiscordEventsCommandDTO args) {
-        // TODO: check args.guildId, args.currentDateTime and args.upcomingTimeLimit
-        Instant startDateTime = args.getCurrentDateTime();
-        Instant endDateTime = args.getCurrentDateTime().plus(args.getUpcomingTimeLimit());
-
-        return listDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO.builder()
-            .startDateTime(startDateTime)
-            .endDateTime(endDateTime)
-            .guildId(args.getGuildId())
-            .build());
+    public Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        return migrateOnce(START_SLOT_MIGRATION, () -> backfillStartSlots(from));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Events of both tables written before the `guildIdCreatedBy` GSI are found with
+     * a scan, then given their index value one at a time, read from their own keys.
+     * The live table goes first since `!my-events` reads it the most.
+     */
     @Override
-    public Mono<List<DiscordEvent>> listDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
-        // TODO: check args.guildId, args.startDateTime, args.endDateTime
+    public Mono<Long> backfillDiscordEventCreators() {
+        return migrateOnce(GUILD_ID_CREATED_BY_MIGRATION, () -> backfillGuildIdCreatedBy(tableName)
+            .concatWith(Mono.defer(() -> backfillGuildIdCreatedBy(archiveTableName)))
+            .reduce(0L, Long::sum));
+    }
 
+    /**
+     * Helper method that gives their `startSlot` to the events starting from a given
+     * date-time that were written before the GSI.
+     *
+     * @param from events starting from this date-time are updated
+     * @return Mono<Long> number of updated events
+     */
+    private Mono<Long> backfillStartSlots(Instant from) {
         Map<String, String> expressionAttributesNames = ImmutableMap.of(
             "#guildId", DiscordEvent.PARTITION_KEY,
-            "#datetimeCreatedBy", DiscordEvent.SORT_KEY
+            "#datetimeCreatedBy", DiscordEvent.SORT_KEY,
+            "#startSlot", DiscordEvent.START_SLOT_KEY
         );
 
         Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
-            ":guildIdValue", AttributeValue.builder().s(args.getGuildId()).build(),
-            ":dateTimeStart", AttributeValue.builder().s(args.getStartDateTime().toString()).build(),
-            ":dateTimeEnd", AttributeValue.builder().s(args.getEndDateTime().toString()).build()
+            ":from", AttributeValue.builder().s(from.toString()).build()
         );
 
-        QueryRequest queryRequest = QueryRequest.builder()
-            .tableName(DISCORD_EVENTS_TABLE_NAME)
-            .keyConditionExpression("#guildId = :guildIdValue and #datetimeCreatedBy between :dateTimeStart and :dateTimeEnd")
+        ScanRequest scanRequest = ScanRequest.builder()
+            .tableName(tableName)
+            .filterExpression("attribute_not_exists(#startSlot) and #datetimeCreatedBy >= :from")
+            .projectionExpression("#guildId, #datetimeCreatedBy")
+            .limit(pageSize)
             .expressionAttributeNames(expressionAttributesNames)
             .expressionAttributeValues(expressionAttributeValues)
             .build();
 
-        return Mono.fromCompletionStage(client.query(queryRequest))
-            .flatMap(queryResponse -> {
-                log.info("Read events by range from DDB table: {} items", queryResponse.count());
-                return Mono.just(queryResponse.items().stream()
-                    .map(DiscordEvent::fromDDBMap)
-                    .collect(Collectors.toList())
-                );
-            })
-            .onErrorResume(throwable -> {
-                log.error("Error reading events by range from DDB", throwable);
-                return Mono.error(throwable);
+        return scanAllPages(scanRequest, "events without a start slot")
+            .flatMap(this::backfillStartSlot, BULK_DELETE_CONCURRENCY)
+            .reduce(0L, Long::sum)
+            .doOnNext(backfilledCount -> log.info("Backfilled the start slot of {} DDB events", backfilledCount));
+    }
+
+    /**
+     * Helper method that runs a one-off migration unless it is recorded as finished,
+     * then records it once it finishes. A migration that fails is not recorded, so it
+     * runs again in full the next time; migrations only make idempotent updates.
+     *
+     * @param migration name of the migration
+     * @param migrate   runs the migration
+     * @return Mono<Long> number of migrated events, 0 if the migration had already finished
+     */
+    private Mono<Long> migrateOnce(String migration, Supplier<Mono<Long>> migrate) {
+        Map<String, AttributeValue> migrationKey = ImmutableMap.of(
+            DiscordEvent.PARTITION_KEY, AttributeValue.builder().s(MIGRATIONS_PARTITION).build(),
+            DiscordEvent.SORT_KEY, AttributeValue.builder().s(migration).build()
+        );
+
+        GetItemRequest getItemRequest = GetItemRequest.builder()
+            .tableName(archiveTableName)
+            .key(migrationKey)
+            .consistentRead(true)
+            .build();
+
+        return readCall(() -> client.getItem(getItemRequest))
+            .flatMap(getItemResponse -> {
+                if (getItemResponse.hasItem() && !getItemResponse.item().isEmpty()) {
+                    log.info("DDB migration {} finished at {}", migration,
+                        getItemResponse.item().get(MIGRATION_FINISHED_AT_KEY).s());
+                    return Mono.just(0L);
+                }
+                return migrate.get()
+                    .flatMap(migratedCount -> {
+                        Map<String, AttributeValue> migrationItem = new HashMap<>(migrationKey);
+                        migrationItem.put(MIGRATION_FINISHED_AT_KEY,
+                            AttributeValue.builder().s(Instant.now().toString()).build());
+                        return writeCall(() -> client.putItem(PutItemRequest.builder()
+                            .tableName(archiveTableName)
+                            .item(migrationItem)
+                            .build()))
+                            .doOnSuccess(ignored -> log.info("Recorded DDB migration {} as finished", migration))
+                            .thenReturn(migratedCount);
+                    });
             });
     }
 
-    @Override
-    public Mono<List<DiscordEvent>> listDiscordEventCreatedByUser(ListDiscordEventsCommandDTO args) {
-        // We allow users to view their all-time events so they can
-        // clean up eventually the events they do not need.
-        // TODO: check args.guildId, args.userId
+    /**
+     * Helper method that reads the events of a guild between two date-times
+     * across the partitions of the key scheme, in sort key order.
+     * <p>
+     * Bucketed partitions are disjoint in time, so they are read in parallel
+     * (`eager`) or one after the other, and emitted in bucket order. During a
+     * migration, the legacy partition is merged in and events found in both
+     * layouts are only emitted once, from their bucket.
+     *
+     * @param guildId         guild of the events
+     * @param start           start of the time range, selects the first bucket
+     * @param end             end of the time range, selects the last bucket
+     * @param queryRequestFor builds the query of one partition key value
+     * @param eager           whether buckets are read in parallel
+     * @param description     what is being read, for logging purposes
+     * @return Flux of raw DDB items
+     */
+    private Flux<Map<String, AttributeValue>> queryPartitions(long guildId,
+                                                              Instant start,
+                                                              Instant end,
+                                                              Function<String, QueryRequest> queryRequestFor,
+                                                              boolean eager,
+                                                              String description) {
+        String legacyPartitionKey = Long.toUnsignedString(guildId);
+        if (!partitionKeyScheme.readsBuckets()) {
+            return queryAllPages(queryRequestFor.apply(legacyPartitionKey), description);
+        }
+
+        List<Flux<Map<String, AttributeValue>>> bucketReads = PartitionKeyScheme.buckets(guildId, start, end)
+            .stream()
+            .map(bucket -> queryAllPages(queryRequestFor.apply(bucket), String.format("%s in %s", description, bucket)))
+            .collect(Collectors.toList());
+        Flux<Map<String, AttributeValue>> bucketedItems = eager ?
+            Flux.mergeSequential(bucketReads, bucketConcurrency, pageSize) :
+            Flux.concat(bucketReads);
+
+        if (!partitionKeyScheme.readsLegacy()) {
+            return bucketedItems;
+        }
+
+        Comparator<Map<String, AttributeValue>> bySortKey = Comparator.comparing(item -> item.get(DiscordEvent.SORT_KEY).s());
+        return currentCopies(
+            Flux.mergeOrdered(bySortKey, bucketedItems, queryAllPages(queryRequestFor.apply(legacyPartitionKey), description)));
+    }
+
+    /**
+     * Helper method that keeps one item per event out of items in sort key order
+     * read from a GSI, which holds the items of both partition layouts.
+     *
+     * @param items raw DDB items in sort key order
+     * @return Flux of raw DDB items, one per event
+     */
+    private Flux<Map<String, AttributeValue>> currentCopies(Flux<Map<String, AttributeValue>> items) {
+        if (!partitionKeyScheme.readsLegacy() || !partitionKeyScheme.readsBuckets()) {
+            return items;
+        }
+        return items
+            .bufferUntilChanged(item -> item.get(DiscordEvent.SORT_KEY).s())
+            .map(this::currentCopy);
+    }
+
+    /**
+     * Helper method that picks, among the items of a same event, the one that is
+     * up to date. An event rewritten during a migration is written in its bucket,
+     * while its legacy item stays as it was until the event is deleted, so the item
+     * under the partition key the scheme writes to wins.
+     *
+     * @param copies raw DDB items of a same event
+     * @return raw DDB item
+     */
+    private Map<String, AttributeValue> currentCopy(List<Map<String, AttributeValue>> copies) {
+        Map<String, AttributeValue> firstCopy = copies.get(0);
+        String writtenPartitionKey = partitionKeyScheme.writePartitionKey(
+            PartitionKeyScheme.guildIdOf(firstCopy.get(DiscordEvent.PARTITION_KEY).s()),
+            DiscordEvent.timestampOf(firstCopy.get(DiscordEvent.SORT_KEY).s()));
+        return copies.stream()
+            .filter(copy -> writtenPartitionKey.equals(copy.get(DiscordEvent.PARTITION_KEY).s()))
+            .findFirst()
+            .orElse(firstCopy);
+    }
 
+    /**
+     * Helper method that builds the query of the upcoming events of one partition.
+     *
+     * @param partitionKey    partition key value
+     * @param currentDateTime start of the upcoming events
+     * @param limit           max number of events the caller wants, nullable
+     * @return first page query request
+     */
+    private QueryRequest upcomingQueryRequest(String partitionKey, Instant currentDateTime, Integer limit) {
         Map<String, String> expressionAttributesNames = ImmutableMap.of(
             "#guildId", DiscordEvent.PARTITION_KEY,
-            "#createdBy", DiscordEvent.CREATED_BY_KEY
+            "#datetimeCreatedBy", DiscordEvent.SORT_KEY
         );
 
         Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
-            ":guildIdValue", AttributeValue.builder().s(args.getGuildId()).build(),
-            ":createdByValue", AttributeValue.builder().s(args.getUserId()).build()
+            ":guildIdValue", AttributeValue.builder().s(partitionKey).build(),
+            ":datetimeCreatedByValue", AttributeValue.builder().s(currentDateTime.toString()).build()
         );
 
-        QueryRequest queryRequest = QueryRequest.builder()
-            .tableName(DISCORD_EVENTS_TABLE_NAME)
-            .keyConditionExpression("#guildId = :guildIdValue")
-            .filterExpression("#createdBy = :createdByValue")
+        // Do not read a bigger page than what the caller asked for
+        return QueryRequest.builder()
+            .tableName(tableName)
+            .keyConditionExpression("#guildId = :guildIdValue and #datetimeCreatedBy >= :datetimeCreatedByValue")
+            .limit(limit == null ? pageSize : Math.min(limit, pageSize))
             .expressionAttributeNames(expressionAttributesNames)
             .expressionAttributeValues(expressionAttributeValues)
             .build();
+    }
 
-        return Mono.fromCompletionStage(client.query(queryRequest))
-            .flatMap(queryResponse -> {
-                log.info("Read events by guild and filtered by user from DDB table: {} items", queryResponse.count());
-                return Mono.just(queryResponse.items().stream()
-                    .map(DiscordEvent::fromDDBMap)
-                    .collect(Collectors.toList())
-                );
-            })
+    /**
+     * Helper method that builds the query of the events of one partition in a
+     * given date time range.
+     *
+     * @param partitionKey  partition key value
+     * @param startDateTime start of the range
+     * @param endDateTime   end of the range
+     * @return first page query request
+     */
+    private QueryRequest dateTimeRangeQueryRequest(String partitionKey, Instant startDateTime, Instant endDateTime) {
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#guildId", DiscordEvent.PARTITION_KEY,
+            "#datetimeCreatedBy", DiscordEvent.SORT_KEY
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
+            ":guildIdValue", AttributeValue.builder().s(partitionKey).build(),
+            ":dateTimeStart", AttributeValue.builder().s(startDateTime.toString()).build(),
+            ":dateTimeEnd", AttributeValue.builder().s(endDateTime.toString()).build()
+        );
+
+        return QueryRequest.builder()
+            .tableName(tableName)
+            .keyConditionExpression("#guildId = :guildIdValue and #datetimeCreatedBy between :dateTimeStart and :dateTimeEnd")
+            .limit(pageSize)
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .build();
+    }
+
+    /**
+     * Helper method that builds the query of the events of all guilds that start in
+     * a given UTC hour and in a given date time range.
+     *
+     * @param startSlot     `startSlot` GSI partition key value
+     * @param startDateTime start of the range
+     * @param endDateTime   end of the range
+     * @return first page query request
+     */
+    private QueryRequest startSlotQueryRequest(String startSlot, Instant startDateTime, Instant endDateTime) {
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#startSlot", DiscordEvent.START_SLOT_KEY,
+            "#datetimeCreatedBy", DiscordEvent.SORT_KEY
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
+            ":startSlotValue", AttributeValue.builder().s(startSlot).build(),
+            ":dateTimeStart", AttributeValue.builder().s(startDateTime.toString()).build(),
+            ":dateTimeEnd", AttributeValue.builder().s(endDateTime.toString()).build()
+        );
+
+        return withSummaryProjection(QueryRequest.builder()
+            .tableName(tableName)
+            .indexName(DiscordEvent.START_SLOT_INDEX)
+            .keyConditionExpression("#startSlot = :startSlotValue and #datetimeCreatedBy between :dateTimeStart and :dateTimeEnd")
+            .limit(pageSize)
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .build());
+    }
+
+    /**
+     * Helper method that restricts a query to the {@link DiscordEventSummary} attributes.
+     * Descriptions and attendee sets are left in the table.
+     *
+     * @param queryRequest query request
+     * @return projected query request
+     */
+    private static QueryRequest withSummaryProjection(QueryRequest queryRequest) {
+        Map<String, String> expressionAttributesNames = new HashMap<>(queryRequest.expressionAttributeNames());
+        expressionAttributesNames.putAll(DiscordEventSummary.PROJECTION_EXPRESSION_NAMES);
+
+        return queryRequest.toBuilder()
+            .projectionExpression(DiscordEventSummary.PROJECTION_EXPRESSION)
+            .expressionAttributeNames(expressionAttributesNames)
+            .build();
+    }
+
+    /**
+     * Helper method that reads every page of a DDB query by following
+     * `LastEvaluatedKey`. A page is only read once the subscriber has consumed the
+     * previous one and requests more items (see {@link OnDemandPages}), so `take(n)`
+     * or cancelling the returned Flux stops reading the table.
+     *
+     * @param queryRequest first page query request
+     * @param description  what is being read, for logging purposes
+     * @return Flux of raw DDB items
+     */
+    private Flux<Map<String, AttributeValue>> queryAllPages(QueryRequest queryRequest, String description) {
+        return OnDemandPages.read(
+            queryPage(queryRequest, description),
+            QueryResponse::hasLastEvaluatedKey,
+            queryResponse -> queryPage(queryRequest.toBuilder()
+                .exclusiveStartKey(queryResponse.lastEvaluatedKey())
+                .build(), description),
+            QueryResponse::items)
             .onErrorResume(throwable -> {
-                log.error("Error reading events by guild and filtering by user from DDB", throwable);
-                return Mono.error(throwable);
+                log.error(String.format("Error reading %s from DDB", description), throwable);
+                return Flux.error(throwable);
             });
     }
 
-    @Override
-    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
-        Map<String, AttributeValue> itemToSave = DiscordEvent.toDDBItem(discordEventDTO);
-        PutItemRequest putDiscordEventRequest = PutItemRequest.builder()
-            .tableName(DISCORD_EVENTS_TABLE_NAME)
-            .item(itemToSave)
+    private Mono<QueryResponse> queryPage(QueryRequest pageRequest, String description) {
+        return hedgedReadCall(() -> client.query(pageRequest))
+            .doOnNext(queryResponse -> log.info("Read {} page from DDB table: {} items",
+                description, queryResponse.count()));
+    }
+
+    /**
+     * Helper method that builds the query of the events created by a user
+     * on the `guildIdCreatedBy` index of a table.
+     *
+     * @param targetTableName live or archive table
+     * @param args            context args (guild, user)
+     * @return first page query request
+     */
+    private QueryRequest createdByQueryRequest(String targetTableName, ListDiscordEventsCommandDTO args) {
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#guildIdCreatedBy", DiscordEvent.GUILD_ID_CREATED_BY_KEY
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
+            ":guildIdCreatedByValue", AttributeValue.builder().s(
+                DiscordEvent.guildIdCreatedBy(args.getGuildId(), args.getUserId())).build()
+        );
+
+        return QueryRequest.builder()
+            .tableName(targetTableName)
+            .indexName(DiscordEvent.GUILD_ID_CREATED_BY_INDEX)
+            .keyConditionExpression("#guildIdCreatedBy = :guildIdCreatedByValue")
+            .limit(pageSize)
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
             .build();
+    }
 
-        return Mono.fromCompletionStage(client.putItem(putDiscordEventRequest))
-            .flatMap(putItemResponse -> {
-                SdkHttpResponse httpResponse = putItemResponse.sdkHttpResponse();
-                DiscordEvent savedDiscordEvent = DiscordEvent.fromDDBMap(itemToSave);
-                log.info("Wrote to DDB event {}: {} {}",
-                    savedDiscordEvent.getMessageId(),
-                    httpResponse.statusCode(),
-                    httpResponse.statusText().isPresent() ? httpResponse.statusText().get() : EMPTY);
-                return Mono.just(savedDiscordEvent);
-            })
+    /**
+     * Helper method that reads every page of a DDB scan by following
+     * `LastEvaluatedKey`, the same way as {@link #queryAllPages(QueryRequest, String)}.
+     *
+     * @param scanRequest first page scan request
+     * @param description what is being read, for logging purposes
+     * @return Flux of raw DDB items
+     */
+    private Flux<Map<String, AttributeValue>> scanAllPages(ScanRequest scanRequest, String description) {
+        return OnDemandPages.read(
+            scanPage(scanRequest, description),
+            ScanResponse::hasLastEvaluatedKey,
+            scanResponse -> scanPage(scanRequest.toBuilder()
+                .exclusiveStartKey(scanResponse.lastEvaluatedKey())
+                .build(), description),
+            ScanResponse::items)
             .onErrorResume(throwable -> {
-                log.error("Error writing to DDB", throwable);
-                return Mono.error(throwable);
+                log.error(String.format("Error scanning %s from DDB", description), throwable);
+                return Flux.error(throwable);
             });
     }
 
+    private Mono<ScanResponse> scanPage(ScanRequest pageRequest, String description) {
+        return readCall(() -> client.scan(pageRequest))
+            .doOnNext(scanResponse -> log.info("Scanned {} page from DDB table: {} of {} items",
+                description, scanResponse.count(), scanResponse.scannedCount()));
+    }
+
     /**
      * Helper method that gets a {@link DiscordEvent} from the DDB table based
-     * on a unique identifier for all events within a discord server.
-     * <p>
-     * TEMPORARY: this can easily be replaced by adding an index to `messageId`
-     * on DDB table.
+     * on a unique identifier for all events within a discord server, and checks
+     * that the user is the one that created it.
      *
-     * @param args      context args (guild)
+     * @param args      context args (guild, user)
      * @param messageId unique identifier for all the events in
      * @return Mono<DiscordEvent>
      */
     private Mono<DiscordEvent> getDiscordEventByMessageId(DiscordEventsCommandDTO args, String messageId) {
-        // TODO: check args.guildID and args.messageId
+        return findDiscordEventByMessageId(args.getGuildId(), messageId)
+            .switchIfEmpty(Mono.error(new Exception(String.format(
+                "Found invalid amount of events with a message ID: %s", messageId))))
+            .flatMap(discordEvent -> {
+                if (discordEvent.getCreatedBy() != args.getUserId()) {
+                    return Mono.error(new AccessDeniedException(String.format(
+                        "Access denied: User [%s] tried to obtain resource [%s] belonging to user [%s]",
+                        args.getUserId(),
+                        discordEvent.getMessageId(),
+                        discordEvent.getCreatedBy()
+                    ), discordEvent));
+                }
+                return Mono.just(discordEvent);
+            });
+    }
+
+    /**
+     * Helper method that finds a {@link DiscordEvent} of a guild by its messageId.
+     * <p>
+     * It reads the `messageId` GSI, which projects every attribute, so the lookup
+     * costs a single item read regardless of the size of the guild's history.
+     *
+     * @param guildId   guild of the event
+     * @param messageId unique identifier for all the events in
+     * @return Mono<DiscordEvent>, empty if the guild has no such event
+     */
+    private Mono<DiscordEvent> findDiscordEventByMessageId(long guildId, String messageId) {
+        // TODO: check guildId and messageId
 
         Map<String, String> expressionAttributesNames = ImmutableMap.of(
-            "#guildId", DiscordEvent.PARTITION_KEY,
             "#messageId", DiscordEvent.MESSAGE_ID_KEY
         );
 
         Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
-            ":guildIdValue", AttributeValue.builder().s(args.getGuildId()).build(),
             ":messageIdValue", AttributeValue.builder().s(messageId).build()
         );
 
         QueryRequest queryRequest = QueryRequest.builder()
-            .tableName(DISCORD_EVENTS_TABLE_NAME)
-            .keyConditionExpression("#guildId = :guildIdValue")
-            .filterExpression("#messageId = :messageIdValue")
+            .tableName(tableName)
+            .indexName(DiscordEvent.MESSAGE_ID_INDEX)
+            .keyConditionExpression("#messageId = :messageIdValue")
             .expressionAttributeNames(expressionAttributesNames)
             .expressionAttributeValues(expressionAttributeValues)
             .build();
 
-        return Mono.fromCompletionStage(client.query(queryRequest))
+        return hedgedReadCall(() -> client.query(queryRequest))
             .flatMap(queryResponse -> {
-                // Validate one event and its access rights
-                if (queryResponse.items().size() != 1) {
+                // The index spans all guilds, so events of other guilds are not found.
+                // During a migration, an event may be found in both partition layouts.
+                List<Map<String, AttributeValue>> items = queryResponse.items().stream()
+                    .filter(item -> PartitionKeyScheme.guildIdOf(item.get(DiscordEvent.PARTITION_KEY).s()) == guildId)
+                    .collect(Collectors.toList());
+
+                if (items.stream().map(item -> item.get(DiscordEvent.SORT_KEY).s()).distinct().count() > 1) {
                     return Mono.error(new Exception(String.format(
                         "Found invalid amount of events with a message ID: %s", messageId)));
                 }
-
-                log.info("Found event by message ID from DDB table");
-                DiscordEvent discordEvent = queryResponse.items().stream()
-                    .map(DiscordEvent::fromDDBMap)
-                    .findFirst()
-                    .orElseThrow();
-
-                if (!discordEvent.getCreatedBy().equals(args.getUserId())) {
-                    return Mono.error(new AccessDeniedException(String.format(
-                        "Access denied: User [%s] tried to obtain resource [%s] belonging to user [%s]",
-                        args.getUserId(),
-                        discordEvent.getMessageId(),
-                        discordEvent.getCreatedBy()
-                    ), discordEvent));
+                if (items.isEmpty()) {
+                    return Mono.empty();
                 }
-                return Mono.just(discordEvent);
+
+                log.info("Found event by message ID from DDB index");
+                return Mono.just(DiscordEvent.fromDDBMap(currentCopy(items)));
             })
             .onErrorResume(throwable -> {
                 log.error("Error finding one discord event from DDB", throwable);
                 return Mono.error(throwable);
             });
     }
+
+    /**
+     * Helper method that deletes events with `BatchWriteItem` requests of at most
+     * 25 items, with a few of them in flight at once.
+     *
+     * @param discordEvents events to delete
+     * @return Mono<Set<Long>> messageIds of the events that could not be deleted
+     */
+    private Mono<Set<Long>> batchDeleteDiscordEvents(List<DiscordEvent> discordEvents) {
+        // { primary key -> event }, an event has more than one key during a migration
+        Map<Map<String, AttributeValue>, DiscordEvent> discordEventsByKey = new HashMap<>();
+        discordEvents.forEach(discordEvent -> primaryKeys(discordEvent)
+            .forEach(primaryKey -> discordEventsByKey.put(primaryKey, discordEvent)));
+
+        return Flux.fromIterable(Lists.partition(new ArrayList<>(discordEventsByKey.keySet()), BATCH_WRITE_MAX_ITEMS))
+            .flatMap(chunk -> {
+                List<WriteRequest> writeRequests = chunk.stream()
+                    .map(key -> WriteRequest.builder()
+                        .deleteRequest(DeleteRequest.builder().key(key).build())
+                        .build())
+                    .collect(Collectors.toList());
+
+                return batchWriteWithRetries(tableName, writeRequests, 0)
+                    .map(unprocessedItems -> unprocessedItems.stream()
+                        .map(writeRequest -> discordEventsByKey.get(writeRequest.deleteRequest().key()))
+                        .map(DiscordEvent::getMessageId)
+                        .collect(Collectors.toList()))
+                    .onErrorResume(throwable -> {
+                        log.error("Error deleting a batch of events from DDB", throwable);
+                        return Mono.just(chunk.stream()
+                            .map(key -> discordEventsByKey.get(key).getMessageId())
+                            .collect(Collectors.toList()));
+                    });
+            }, BULK_DELETE_CONCURRENCY)
+            .flatMapIterable(Function.identity())
+            .collect(Collectors.toSet());
+    }
+
+    /**
+     * Helper method that copies at most 25 raw items to the archive table, then
+     * deletes from the live table the ones that were copied. Items that could not be
+     * copied or deleted stay in the live table and are archived on a later run.
+     * <p>
+     * `BatchWriteItem` takes no conditions, so each copied item is deleted on its own,
+     * on the condition that it is still at the version that was copied. An item written
+     * in between stays in the live table, and its newer version overwrites the copy on
+     * a later run.
+     *
+     * @param items raw DDB items of the live table
+     * @return Mono<Long> number of items moved to the archive table
+     */
+    private Mono<Long> archiveBatch(List<Map<String, AttributeValue>> items) {
+        List<WriteRequest> putRequests = items.stream()
+            .map(item -> WriteRequest.builder()
+                .putRequest(PutRequest.builder().item(item).build())
+                .build())
+            .collect(Collectors.toList());
+
+        return batchWriteWithRetries(archiveTableName, putRequests, 0)
+            .flatMap(unprocessedPuts -> {
+                Set<Map<String, AttributeValue>> unprocessedItems = unprocessedPuts.stream()
+                    .map(writeRequest -> writeRequest.putRequest().item())
+                    .collect(Collectors.toSet());
+                return Flux.fromIterable(items)
+                    .filter(item -> !unprocessedItems.contains(item))
+                    .flatMap(this::deleteArchivedItem, BULK_DELETE_CONCURRENCY)
+                    .reduce(0L, Long::sum);
+            })
+            .onErrorResume(throwable -> {
+                log.error("Error archiving a batch of events in DDB", throwable);
+                return Mono.just(0L);
+            });
+    }
+
+    /**
+     * Helper method that deletes from the live table an item copied to the archive
+     * table, unless it was written since it was copied.
+     *
+     * @param item raw DDB item of the live table, as copied
+     * @return Mono<Long> 1 if the item was deleted, 0 otherwise
+     */
+    private Mono<Long> deleteArchivedItem(Map<String, AttributeValue> item) {
+        AttributeValue version = item.get(DiscordEvent.VERSION_KEY);
+        DeleteItemRequest.Builder deleteItemRequestBuilder = DeleteItemRequest.builder()
+            .tableName(tableName)
+            .key(ImmutableMap.of(
+                DiscordEvent.PARTITION_KEY, item.get(DiscordEvent.PARTITION_KEY),
+                DiscordEvent.SORT_KEY, item.get(DiscordEvent.SORT_KEY)))
+            .expressionAttributeNames(ImmutableMap.of("#version", DiscordEvent.VERSION_KEY));
+
+        // Events written before versions were introduced have no version attribute
+        if (version == null) {
+            deleteItemRequestBuilder.conditionExpression("attribute_not_exists(#version)");
+        } else {
+            deleteItemRequestBuilder
+                .conditionExpression("#version = :copiedVersion")
+                .expressionAttributeValues(ImmutableMap.of(":copiedVersion", version));
+        }
+        DeleteItemRequest deleteItemRequest = deleteItemRequestBuilder.build();
+
+        return writeCall(() -> client.deleteItem(deleteItemRequest))
+            .thenReturn(1L)
+            .onErrorResume(ConditionalCheckFailedException.class, e -> {
+                log.info("Did not archive DDB event {} written or deleted since it was copied",
+                    item.get(DiscordEvent.SORT_KEY).s());
+                return Mono.just(0L);
+            });
+    }
+
+    /**
+     * Helper method that sends a `BatchWriteItem` request and sends its
+     * `UnprocessedItems` back with exponential backoff, up to a max number of retries.
+     *
+     * @param targetTableName table to write to
+     * @param writeRequests   write requests for the table
+     * @param attempt         number of retries done so far
+     * @return Mono<List<WriteRequest>> write requests still unprocessed after the last retry
+     */
+    private Mono<List<WriteRequest>> batchWriteWithRetries(String targetTableName,
+                                                           List<WriteRequest> writeRequests,
+                                                           int attempt) {
+        BatchWriteItemRequest batchWriteItemRequest = BatchWriteItemRequest.builder()
+            .requestItems(Collections.singletonMap(targetTableName, writeRequests))
+            .build();
+
+        return writeCall(() -> client.batchWriteItem(batchWriteItemRequest))
+            .flatMap(batchWriteItemResponse -> {
+                List<WriteRequest> unprocessedItems = batchWriteItemResponse.unprocessedItems()
+                    .getOrDefault(targetTableName, Collections.emptyList());
+                log.info("Batch wrote to DDB table {}: {} requested, {} unprocessed",
+                    targetTableName, writeRequests.size(), unprocessedItems.size());
+
+                if (unprocessedItems.isEmpty() || attempt >= BATCH_WRITE_MAX_RETRIES) {
+                    return Mono.just(unprocessedItems);
+                }
+                return Mono.delay(BATCH_WRITE_RETRY_BASE_DELAY.multipliedBy(1L << attempt))
+                    .then(Mono.defer(() -> batchWriteWithRetries(targetTableName, unprocessedItems, attempt + 1)));
+            });
+    }
+
+    /**
+     * Helper method that applies an `ADD`/`DELETE` update expression on the
+     * packed attendee set of an event (see {@link DiscordEventItemCodec}).
+     * DDB applies these atomically on its side, and `ALL_NEW` sends back the resulting
+     * event, with the attendees of both sets.
+     * <p>
+     * Set `ADD`/`DELETE` commute, so unlike {@link #saveDiscordEvent} the update does not
+     * depend on the version that was read: concurrent reactions all apply, and each bumps
+     * the version with `ADD`. The update stores its idempotency key, so that a retried
+     * update whose first attempt landed is skipped rather than bumping the version twice.
+     * <p>
+     * The event must still exist, otherwise `UpdateItem` would create an item
+     * with only its key and attendees. During a migration, the keys of both
+     * partition layouts are tried in turn.
+     *
+     * @param args               event as read, and attendee to update
+     * @param updateExpression   `ADD` or `DELETE` expression on `#attendeesPacked` with `:attendee`
+     * @param withLegacyAttendee whether the expression also uses the `#attendees` string set
+     *                           with `:legacyAttendee`
+     * @return Mono<DiscordEvent> event with stored attendees, empty if the event no longer exists
+     */
+    private Mono<DiscordEvent> updateDiscordEventAttendees(UpdateDiscordEventAttendeeDTO args,
+                                                           String updateExpression,
+                                                           boolean withLegacyAttendee) {
+        DiscordEvent discordEvent = args.getDiscordEvent();
+
+        Map<String, String> expressionAttributesNames = new HashMap<>(ImmutableMap.of(
+            "#guildId", DiscordEvent.PARTITION_KEY,
+            "#attendeesPacked", DiscordEventItemCodec.ATTENDEES_PACKED_KEY,
+            "#version", DiscordEvent.VERSION_KEY,
+            "#idempotencyKey", DiscordEvent.IDEMPOTENCY_KEY_KEY
+        ));
+
+        Map<String, AttributeValue> expressionAttributeValues = new HashMap<>(ImmutableMap.of(
+            ":attendee", DiscordEventItemCodec.packedAttendee(args.getAttendeeId()),
+            ":one", AttributeValue.builder().n("1").build(),
+            ":idempotencyKey", AttributeValue.builder().s(args.getIdempotencyKey()).build()
+        ));
+
+        if (withLegacyAttendee) {
+            expressionAttributesNames.put("#attendees", DiscordEvent.ATTENDEES_KEY);
+            expressionAttributeValues.put(":legacyAttendee", DiscordEventItemCodec.legacyAttendee(args.getAttendeeId()));
+        }
+
+        // An `ADD` expression takes the version bump as one more action of its clause
+        String versionUpdateExpression = updateExpression.startsWith("ADD ") ?
+            updateExpression + ", #version :one" :
+            updateExpression + " ADD #version :one";
+
+        UpdateItemRequest updateRequest = UpdateItemRequest.builder()
+            .tableName(tableName)
+            .updateExpression(versionUpdateExpression + " SET #idempotencyKey = :idempotencyKey")
+            .conditionExpression("attribute_exists(#guildId) AND " +
+                "(attribute_not_exists(#idempotencyKey) OR #idempotencyKey <> :idempotencyKey)")
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .returnValues(ReturnValue.ALL_NEW)
+            .build();
+
+        return Flux.fromIterable(primaryKeys(discordEvent))
+            .concatMap(primaryKey -> updateAttendeesAt(updateRequest.toBuilder().key(primaryKey).build(), discordEvent))
+            .next()
+            .map(DiscordEvent::fromDDBMap)
+            .switchIfEmpty(Mono.fromRunnable(() ->
+                log.warn("Did not update attendees of deleted DDB event {}", discordEvent.getMessageId())))
+            .doOnError(throwable -> log.error("Error updating attendees in DDB", throwable));
+    }
+
+    /**
+     * Helper method that makes an attendee update of the event stored under one
+     * primary key. When the condition fails, either there is no event under the key,
+     * or the update already landed: the event is then read as it is stored.
+     *
+     * @param updateRequest conditional attendee update of the primary key
+     * @param discordEvent  event as read
+     * @return Mono<Map<String, AttributeValue>> raw stored event, empty if there is no
+     * event under the primary key
+     */
+    private Mono<Map<String, AttributeValue>> updateAttendeesAt(UpdateItemRequest updateRequest,
+                                                                DiscordEvent discordEvent) {
+        return writeCall(() -> client.updateItem(updateRequest))
+            .map(updateItemResponse -> {
+                SdkHttpResponse httpResponse = updateItemResponse.sdkHttpResponse();
+                log.info("Updated attendees of DDB event {}: {} {}",
+                    discordEvent.getMessageId(),
+                    httpResponse.statusCode(),
+                    httpResponse.statusText().isPresent() ? httpResponse.statusText().get() : EMPTY);
+                return updateItemResponse.attributes();
+            })
+            .onErrorResume(ConditionalCheckFailedException.class, e -> storedItem(updateRequest.key())
+                .doOnNext(item -> log.info("Attendee update {} of DDB event {} had already landed",
+                    updateRequest.expressionAttributeValues().get(":idempotencyKey").s(),
+                    discordEvent.getMessageId())));
+    }
+
+    /**
+     * Helper method that reads the event stored under a primary key,
+     * with a strongly consistent read.
+     *
+     * @param primaryKey raw DDB primary key of the event
+     * @return Mono<Map<String, AttributeValue>> raw stored event, empty if there is no
+     * event under the primary key
+     */
+    private Mono<Map<String, AttributeValue>> storedItem(Map<String, AttributeValue> primaryKey) {
+        GetItemRequest getItemRequest = GetItemRequest.builder()
+            .tableName(tableName)
+            .key(primaryKey)
+            .consistentRead(true)
+            .build();
+
+        return readCall(() -> client.getItem(getItemRequest))
+            .filter(getItemResponse -> getItemResponse.hasItem() && !getItemResponse.item().isEmpty())
+            .map(GetItemResponse::item);
+    }
+
+    /**
+     * Helper method that sets the `guildIdCreatedBy` of every event of a table
+     * written before the GSI.
+     *
+     * @param table name of the live or archive table
+     * @return Mono<Long> number of updated events
+     */
+    private Mono<Long> backfillGuildIdCreatedBy(String table) {
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#guildId", DiscordEvent.PARTITION_KEY,
+            "#datetimeCreatedBy", DiscordEvent.SORT_KEY,
+            "#guildIdCreatedBy", DiscordEvent.GUILD_ID_CREATED_BY_KEY
+        );
+
+        ScanRequest scanRequest = ScanRequest.builder()
+            .tableName(table)
+            .filterExpression("attribute_not_exists(#guildIdCreatedBy)")
+            .projectionExpression("#guildId, #datetimeCreatedBy")
+            .limit(pageSize)
+            .expressionAttributeNames(expressionAttributesNames)
+            .build();
+
+        return scanAllPages(scanRequest, "events without a guild and creator in " + table)
+            .flatMap(primaryKey -> backfillGuildIdCreatedBy(table, primaryKey), BULK_DELETE_CONCURRENCY)
+            .reduce(0L, Long::sum)
+            .doOnNext(backfilledCount ->
+                log.info("Backfilled the guild and creator of {} DDB events in {}", backfilledCount, table));
+    }
+
+    /**
+     * Helper method that sets the `guildIdCreatedBy` of an event written before the GSI.
+     * Like the start slot, the version is left as is and deleted events are skipped.
+     *
+     * @param table      name of the live or archive table
+     * @param primaryKey raw DDB primary key of the event
+     * @return Mono<Long> 1 if the event was updated, 0 otherwise
+     */
+    private Mono<Long> backfillGuildIdCreatedBy(String table, Map<String, AttributeValue> primaryKey) {
+        String guildIdCreatedBy = DiscordEvent.guildIdCreatedBy(
+            PartitionKeyScheme.guildIdOf(primaryKey.get(DiscordEvent.PARTITION_KEY).s()),
+            DiscordEvent.createdByOf(primaryKey.get(DiscordEvent.SORT_KEY).s()));
+
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#guildId", DiscordEvent.PARTITION_KEY,
+            "#guildIdCreatedBy", DiscordEvent.GUILD_ID_CREATED_BY_KEY
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
+            ":guildIdCreatedByValue", AttributeValue.builder().s(guildIdCreatedBy).build()
+        );
+
+        // Setting the same value twice is harmless, so the update can be retried
+        return writeCall(() -> client.updateItem(UpdateItemRequest.builder()
+            .tableName(table)
+            .key(primaryKey)
+            .updateExpression("SET #guildIdCreatedBy = :guildIdCreatedByValue")
+            .conditionExpression("attribute_exists(#guildId)")
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .build()))
+            .thenReturn(1L)
+            .onErrorResume(ConditionalCheckFailedException.class, e -> Mono.just(0L));
+    }
+
+    /**
+     * Helper method that sets the `startSlot` of an event written before the GSI.
+     *
+     * @param primaryKey raw DDB primary key of the event
+     * @return Mono<Long> 1 if the event was updated, 0 otherwise
+     */
+    private Mono<Long> backfillStartSlot(Map<String, AttributeValue> primaryKey) {
+        Instant timestamp = DiscordEvent.timestampOf(primaryKey.get(DiscordEvent.SORT_KEY).s());
+
+        Map<String, String> expressionAttributesNames = ImmutableMap.of(
+            "#guildId", DiscordEvent.PARTITION_KEY,
+            "#startSlot", DiscordEvent.START_SLOT_KEY
+        );
+
+        Map<String, AttributeValue> expressionAttributeValues = ImmutableMap.of(
+            ":startSlotValue", AttributeValue.builder().s(DiscordEvent.startSlotOf(timestamp)).build()
+        );
+
+        // Setting the same slot twice is harmless, so the update can be retried
+        return writeCall(() -> client.updateItem(UpdateItemRequest.builder()
+            .tableName(tableName)
+            .key(primaryKey)
+            .updateExpression("SET #startSlot = :startSlotValue")
+            .conditionExpression("attribute_exists(#guildId)")
+            .expressionAttributeNames(expressionAttributesNames)
+            .expressionAttributeValues(expressionAttributeValues)
+            .build()))
+            .thenReturn(1L)
+            .onErrorResume(ConditionalCheckFailedException.class, e -> Mono.just(0L));
+    }
+
+    /**
+     * Helper method that makes a DDB read call, retried with the read retry policy.
+     *
+     * @param request sends the request, called again on every attempt
+     * @return Mono of the response
+     */
+    private <T> Mono<T> readCall(Supplier<CompletableFuture<T>> request) {
+        return readRetryPolicy.apply(Mono.fromCompletionStage(request));
+    }
+
+    /**
+     * Helper method that makes a DDB read call like {@link #readCall(Supplier)}, with each
+     * attempt hedged when it is slow. Only used for the queries that users wait on:
+     * scans of the archiver are not worth the extra reads.
+     *
+     * @param request sends the request, called again on every attempt and hedge
+     * @return Mono of the response
+     */
+    private <T> Mono<T> hedgedReadCall(Supplier<CompletableFuture<T>> request) {
+        return readRetryPolicy.apply(readHedger.apply(() -> Mono.fromCompletionStage(request)));
+    }
+
+    /**
+     * Helper method that makes a DDB write call, retried with the write retry policy.
+     * The write must be idempotent: unconditional, or conditional with an idempotency key.
+     *
+     * @param request sends the request, called again on every attempt
+     * @return Mono of the response
+     */
+    private <T> Mono<T> writeCall(Supplier<CompletableFuture<T>> request) {
+        return writeRetryPolicy.apply(Mono.fromCompletionStage(request));
+    }
+
+    private List<Map<String, AttributeValue>> primaryKeys(DiscordEvent discordEvent) {
+        return partitionKeyScheme.partitionKeys(discordEvent.getGuildId(), discordEvent.getTimestamp()).stream()
+            .map(partitionKey -> ImmutableMap.of(
+                DiscordEvent.PARTITION_KEY, AttributeValue.builder().s(partitionKey).build(),
+                DiscordEvent.SORT_KEY, AttributeValue.builder().s(discordEvent.datetimeCreatedBy()).build()
+            ))
+            .collect(Collectors.toList());
+    }
+
+    private static DeleteDiscordEventResultDTO deleteResult(String deleteCode,
+                                                            DeleteDiscordEventResultDTO.Status status,
+                                                            DiscordEvent discordEvent) {
+        return DeleteDiscordEventResultDTO.builder()
+            .deleteCode(deleteCode)
+            .status(status)
+            .discordEvent(discordEvent)
+            .build();
+    }
 }
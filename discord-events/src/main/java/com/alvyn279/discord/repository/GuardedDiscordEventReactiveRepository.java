@@ -0,0 +1,205 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.exception.StorageBusyException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.alvyn279.discord.resilience.Bulkhead;
+import com.alvyn279.discord.resilience.CircuitBreaker;
+import com.alvyn279.discord.resilience.StorageBudget;
+import com.alvyn279.discord.retry.RetryableErrors;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Decorator of a {@link DiscordEventReactiveRepository} that stops callers from piling
+ * calls onto a slow or failing storage:
+ * - a circuit breaker refuses every call while the storage keeps failing, then lets
+ * a probe call through from time to time to find out whether it recovered.
+ * - a bulkhead per {@link StorageBudget} bounds the calls in flight of interactive
+ * commands and of background tasks separately, so neither can starve the other.
+ * <p>
+ * Refused calls error right away with a {@link StorageBusyException}. Only storage
+ * failures (see {@link RetryableErrors#isTransient}) count against the circuit breaker:
+ * a failed condition or a denied delete means the storage answered.
+ * <p>
+ * It sits right on top of the storage calls, below the coalescing of reads and the
+ * cache, so that coalesced reads and cache hits take no slot and are never refused.
+ */
+public class GuardedDiscordEventReactiveRepository implements DiscordEventReactiveRepository {
+
+    private final DiscordEventReactiveRepository delegate;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead interactiveBulkhead;
+    private final Bulkhead backgroundBulkhead;
+
+    /**
+     * Point-in-time view of the state of the guards.
+     */
+    @Data
+    @Builder
+    public static class GuardUsage {
+        private final CircuitBreaker.State circuitState;
+        private final long circuitRejected;
+        private final long interactiveInFlight;
+        private final long interactiveRejected;
+        private final long backgroundInFlight;
+        private final long backgroundRejected;
+    }
+
+    @Builder
+    public GuardedDiscordEventReactiveRepository(@NonNull DiscordEventReactiveRepository delegate,
+                                                 @NonNull CircuitBreaker circuitBreaker,
+                                                 @NonNull Bulkhead interactiveBulkhead,
+                                                 @NonNull Bulkhead backgroundBulkhead) {
+        this.delegate = delegate;
+        this.circuitBreaker = circuitBreaker;
+        this.interactiveBulkhead = interactiveBulkhead;
+        this.backgroundBulkhead = backgroundBulkhead;
+    }
+
+    /**
+     * Returns the state of the circuit breaker, and the calls in flight and refused of each budget.
+     *
+     * @return GuardUsage
+     */
+    public GuardUsage getUsage() {
+        return GuardUsage.builder()
+            .circuitState(circuitBreaker.getState())
+            .circuitRejected(circuitBreaker.getRejectedCalls())
+            .interactiveInFlight(interactiveBulkhead.getInFlight())
+            .interactiveRejected(interactiveBulkhead.getRejectedCalls())
+            .backgroundInFlight(backgroundBulkhead.getInFlight())
+            .backgroundRejected(backgroundBulkhead.getRejectedCalls())
+            .build();
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return guard(() -> delegate.deleteDiscordEvent(args));
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.deleteDiscordEvents(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.streamDiscordEventsByUpcoming(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.streamDiscordEventsByDateTimeRange(args));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.streamDiscordEventSummariesByDateTimeRange(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.streamDiscordEventsCreatedByUser(args));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return guardMany(() -> delegate.streamArchivedDiscordEventsCreatedByUser(args));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        return guardMany(() -> delegate.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(startDateTime, endDateTime));
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        return guard(() -> delegate.saveDiscordEvent(discordEventDTO));
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return guard(() -> delegate.addDiscordEventAttendee(args));
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return guard(() -> delegate.removeDiscordEventAttendee(args));
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return guard(() -> delegate.archiveDiscordEventsBefore(cutoff));
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        return guard(() -> delegate.backfillDiscordEventStartSlots(from));
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventCreators() {
+        return guard(() -> delegate.backfillDiscordEventCreators());
+    }
+
+    private <T> Mono<T> guard(Supplier<Mono<T>> call) {
+        return Mono.from(guardMany(() -> call.get().flux()));
+    }
+
+    /**
+     * Makes a call if both the circuit breaker and the bulkhead of the caller's budget
+     * let it through, and reports its outcome to the circuit breaker once it ends.
+     *
+     * @param call call to the decorated repository
+     * @return Flux of the call's results, or a {@link StorageBusyException} if it was refused
+     */
+    private <T> Flux<T> guardMany(Supplier<Flux<T>> call) {
+        return Mono.subscriberContext().flatMapMany(context -> {
+            Bulkhead bulkhead = StorageBudget.of(context) == StorageBudget.BACKGROUND ?
+                backgroundBulkhead : interactiveBulkhead;
+            if (!circuitBreaker.tryAcquire()) {
+                return Flux.error(new StorageBusyException(
+                    "Storage calls are refused while it is failing", StorageBusyException.Reason.CIRCUIT_OPEN));
+            }
+            if (!bulkhead.tryAcquire()) {
+                circuitBreaker.onIgnored();
+                return Flux.error(new StorageBusyException(String.format(
+                    "Too many %s storage calls in flight", bulkhead.getName()),
+                    StorageBusyException.Reason.BULKHEAD_FULL));
+            }
+
+            // The outcome is reported before the caller sees the end of the call
+            AtomicBoolean ended = new AtomicBoolean();
+            AtomicBoolean emitted = new AtomicBoolean();
+            return call.get()
+                .doOnNext(result -> emitted.set(true))
+                .doOnComplete(() -> end(ended, bulkhead, circuitBreaker::onSuccess))
+                .doOnError(throwable -> end(ended, bulkhead, RetryableErrors.isTransient(throwable) ?
+                    circuitBreaker::onFailure : circuitBreaker::onSuccess))
+                .doOnCancel(() -> end(ended, bulkhead, emitted.get() ?
+                    circuitBreaker::onSuccess : circuitBreaker::onIgnored));
+        });
+    }
+
+    private static void end(AtomicBoolean ended, Bulkhead bulkhead, Runnable reportOutcome) {
+        if (ended.compareAndSet(false, true)) {
+            bulkhead.release();
+            reportOutcome.run();
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import com.alvyn279.discord.exception.AccessDeniedException;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.alvyn279.discord.repository.local.LocalEventStore;
+import com.alvyn279.discord.utils.DiscordStringUtils;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+
+/**
+ * Implementation of {@link DiscordEventReactiveRepository} backed by a {@link LocalEventStore}
+ * on the local disk, for self-hosted bots that do not use DDB.
+ * <p>
+ * It follows the DDB implementation: events are ordered by `datetimeCreatedBy` within a
+ * guild, and ranges and limits apply to that key the same way. Reads are served from
+ * the in-memory index and the log, writes are synced to disk, both on the bounded
+ * elastic scheduler so that the caller's thread, like the gateway's event loop, never
+ * waits on the disk.
+ */
+@Slf4j
+public class LocalDiscordEventReactiveRepository implements DiscordEventReactiveRepository, Closeable {
+
+    private static final String EVENTS_STORE_NAME = "events";
+    private static final String ARCHIVE_STORE_NAME = "archive";
+
+    private final LocalEventStore store;
+    private final LocalEventStore archiveStore;
+
+    private LocalDiscordEventReactiveRepository(LocalEventStore store, LocalEventStore archiveStore) {
+        this.store = store;
+        this.archiveStore = archiveStore;
+    }
+
+    /**
+     * Opens the live and archive stores of a directory.
+     *
+     * @param directory              directory of the stores' files
+     * @param compactionMinDeadBytes min size of the dead records before a store is compacted
+     * @return LocalDiscordEventReactiveRepository
+     * @throws IOException when the stores cannot be opened
+     */
+    public static LocalDiscordEventReactiveRepository open(Path directory, long compactionMinDeadBytes)
+        throws IOException {
+        LocalEventStore store = LocalEventStore.open(directory, EVENTS_STORE_NAME, compactionMinDeadBytes);
+        try {
+            return new LocalDiscordEventReactiveRepository(
+                store, LocalEventStore.open(directory, ARCHIVE_STORE_NAME, compactionMinDeadBytes));
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+    }
+
+    public LocalEventStore.StoreUsage getUsage() {
+        return store.getUsage();
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return Mono.defer(() -> {
+            Optional<DiscordEvent> discordEvent = getByDeleteCode(args.getGuildId(), args.getDeleteCode());
+            if (discordEvent.isEmpty()) {
+                return Mono.error(new Exception(String.format(
+                    "Found invalid amount of events with a message ID: %s", args.getDeleteCode())));
+            }
+            if (discordEvent.get().getCreatedBy() != args.getUserId()) {
+                return Mono.error(new AccessDeniedException(String.format(
+                    "Access denied: User [%s] tried to obtain resource [%s] belonging to user [%s]",
+                    args.getUserId(),
+                    discordEvent.get().getMessageId(),
+                    discordEvent.get().getCreatedBy()
+                ), discordEvent.get()));
+            }
+            return write(() -> store.delete(discordEvent.get().getGuildId(), discordEvent.get().datetimeCreatedBy()))
+                .flatMap(Mono::justOrEmpty)
+                .doOnNext(deletedDiscordEvent -> log.info("Deleted local event {}", deletedDiscordEvent.getMessageId()));
+        })
+            // The lookup reads the log
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return Flux.fromIterable(args.getDeleteCodes())
+            .distinct()
+            .concatMap(deleteCode -> {
+                Optional<DiscordEvent> discordEvent = getByDeleteCode(args.getGuildId(), deleteCode);
+                if (discordEvent.isEmpty()) {
+                    return Mono.just(deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.NOT_FOUND, null));
+                }
+                if (discordEvent.get().getCreatedBy() != args.getUserId()) {
+                    return Mono.just(deleteResult(
+                        deleteCode, DeleteDiscordEventResultDTO.Status.ACCESS_DENIED, discordEvent.get()));
+                }
+                return write(() -> store.delete(discordEvent.get().getGuildId(), discordEvent.get().datetimeCreatedBy()))
+                    .map(deleted -> deleteResult(deleteCode, DeleteDiscordEventResultDTO.Status.DELETED, discordEvent.get()))
+                    .onErrorResume(throwable -> {
+                        log.error("Error deleting a local event", throwable);
+                        return Mono.just(deleteResult(
+                            deleteCode, DeleteDiscordEventResultDTO.Status.FAILED, discordEvent.get()));
+                    });
+            })
+            // The lookups read the log
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        Flux<DiscordEvent> discordEvents = read(store, args.getGuildId(), keys ->
+            keys.tailSet(args.getCurrentDateTime().toString(), true).stream());
+        return args.getUpcomingLimit() == null ? discordEvents : discordEvents.take(args.getUpcomingLimit());
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        // Same bounds as the DDB `between` key condition
+        return read(store, args.getGuildId(), keys -> keys.subSet(
+            args.getStartDateTime().toString(), true, args.getEndDateTime().toString(), true).stream());
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByDateTimeRange(args)
+            .map(DiscordEventSummary::of);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        // Keys hold the creator, only the user's events are read
+        return read(store, args.getGuildId(), keys -> keys.stream()
+            .filter(datetimeCreatedBy -> DiscordEvent.createdByOf(datetimeCreatedBy) == args.getUserId()));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return read(archiveStore, args.getGuildId(), keys -> keys.descendingSet().stream()
+            .filter(datetimeCreatedBy -> DiscordEvent.createdByOf(datetimeCreatedBy) == args.getUserId()));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        // Key ranges of each guild are looked up in memory, only the events in range are read
+        return Flux.defer(() -> Flux.fromIterable(store.guildIds()))
+            .concatMap(guildId -> read(store, guildId, keys -> keys.subSet(
+                startDateTime.toString(), true, endDateTime.toString(), true).stream()))
+            .map(DiscordEventSummary::of);
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        // Goes through the DDB item so that optional fields get the same defaults
+        DiscordEvent discordEvent = DiscordEvent.fromDDBMap(DiscordEvent.toDDBItem(discordEventDTO));
+        return write(() -> store.putIf(discordEvent, discordEventDTO::canReplace))
+            .flatMap(written -> written ?
+                Mono.just(discordEvent) :
+                Mono.error(new DiscordEventConflictException(String.format(
+                    "Conflicting write of local event %s with expected version %s",
+                    discordEventDTO.getMessageId(), discordEventDTO.getExpectedVersion()), discordEventDTO)))
+            .doOnNext(savedDiscordEvent -> log.info("Wrote local event {}", savedDiscordEvent.getMessageId()));
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return updateDiscordEventAttendees(args, attendees -> attendees.with(args.getAttendeeId()));
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return updateDiscordEventAttendees(args, attendees -> attendees.without(args.getAttendeeId()));
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return write(() -> {
+            long archivedCount = 0;
+            for (long guildId : store.guildIds()) {
+                for (String datetimeCreatedBy : store.keys(guildId).headSet(cutoff.toString(), false)) {
+                    Optional<DiscordEvent> discordEvent = store.get(guildId, datetimeCreatedBy);
+                    if (discordEvent.isPresent()) {
+                        // Copied before being deleted, so a crash in between at worst leaves it in both
+                        archiveStore.put(discordEvent.get());
+                        store.delete(guildId, datetimeCreatedBy);
+                        archivedCount++;
+                    }
+                }
+            }
+            return archivedCount;
+        })
+            .doOnNext(archivedCount -> log.info("Archived {} local events before {}", archivedCount, cutoff));
+    }
+
+    /**
+     * Writes the index snapshots and closes the stores.
+     *
+     * @throws IOException when the stores cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            store.close();
+        } finally {
+            archiveStore.close();
+        }
+    }
+
+    /**
+     * Helper method that reads the events of a guild lazily, in key order, off the
+     * calling thread. Events deleted in the meantime are skipped.
+     *
+     * @param eventStore live or archive store
+     * @param guildId    guild of the events
+     * @param selectKeys selects the keys to read, in order
+     * @return Flux<DiscordEvent> events
+     */
+    private static Flux<DiscordEvent> read(LocalEventStore eventStore,
+                                           long guildId,
+                                           Function<NavigableSet<String>, Stream<String>> selectKeys) {
+        return Flux.defer(() -> Flux.fromStream(selectKeys.apply(eventStore.keys(guildId))
+            .map(datetimeCreatedBy -> eventStore.get(guildId, datetimeCreatedBy))
+            .flatMap(Optional::stream)))
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Helper method that runs a blocking write of the stores off the calling thread.
+     *
+     * @param write write on the stores
+     * @return Mono of the write's result
+     */
+    private static <T> Mono<T> write(Callable<T> write) {
+        return Mono.fromCallable(write)
+            .subscribeOn(Schedulers.boundedElastic())
+            .onErrorResume(throwable -> {
+                log.error("Error writing to local storage", throwable);
+                return Mono.error(throwable);
+            });
+    }
+
+    /**
+     * Helper method that adds or removes an attendee of an event, with no other
+     * write to the event in between.
+     *
+     * @param args   event and attendee to update
+     * @param change modification of the stored attendees
+     * @return Mono<DiscordEvent> event with stored attendees, empty if the event no longer exists
+     */
+    private Mono<DiscordEvent> updateDiscordEventAttendees(UpdateDiscordEventAttendeeDTO args,
+                                                           UnaryOperator<SnowflakeSet> change) {
+        DiscordEvent discordEvent = args.getDiscordEvent();
+        return write(() -> store.update(discordEvent.getGuildId(), discordEvent.datetimeCreatedBy(), storedEvent ->
+            storedEvent.toBuilder()
+                .attendees(change.apply(storedEvent.getAttendees()))
+                .version(storedEvent.getVersion() + 1)
+                .build()))
+            .flatMap(Mono::justOrEmpty)
+            .doOnNext(updatedDiscordEvent -> log.info("Updated attendees of local event {}",
+                updatedDiscordEvent.getMessageId()))
+            .switchIfEmpty(Mono.fromRunnable(() ->
+                log.warn("Did not update attendees of deleted local event {}", discordEvent.getMessageId())));
+    }
+
+    /**
+     * Helper method that reads the event of a guild that a delete code refers to.
+     *
+     * @param guildId    guild of the event
+     * @param deleteCode messageId given by the user
+     * @return Optional<DiscordEvent>, empty if the guild has no such event
+     */
+    private Optional<DiscordEvent> getByDeleteCode(long guildId, String deleteCode) {
+        OptionalLong messageId = DiscordStringUtils.parseDeleteCode(deleteCode);
+        return messageId.isPresent() ? store.getByMessageId(guildId, messageId.getAsLong()) : Optional.empty();
+    }
+
+    private static DeleteDiscordEventResultDTO deleteResult(String deleteCode,
+                                                            DeleteDiscordEventResultDTO.Status status,
+                                                            DiscordEvent discordEvent) {
+        return DeleteDiscordEventResultDTO.builder()
+            .deleteCode(deleteCode)
+            .status(status)
+            .discordEvent(discordEvent)
+            .build();
+    }
+}
@@ -0,0 +1,119 @@
+package com.alvyn279.discord.repository;
+
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Reads the items of a paginated result, like a DDB query that follows
+ * `LastEvaluatedKey`, one page at a time as the subscriber requests them.
+ * <p>
+ * A page is only read once every item of the previous one was emitted and the
+ * subscriber still requests more. A subscriber that stops requesting, or cancels like
+ * `take(n)` does, never pays for a page it does not read. With `expand`, the next page
+ * is read as soon as the previous one arrives, whatever the subscriber requested.
+ *
+ * @param <P> page
+ * @param <T> item of a page
+ */
+final class OnDemandPages<P, T> {
+
+    private final FluxSink<T> sink;
+    private final Predicate<P> hasNextPage;
+    private final Function<P, Mono<P>> nextPage;
+    private final Function<P, ? extends Iterable<T>> items;
+
+    private final AtomicInteger wip = new AtomicInteger();
+    private final Disposable.Swap pageRead = Disposables.swap();
+    // Page read since the last drain, empty if the read had no page
+    private volatile Optional<P> readPage;
+
+    // Only used by the drain loop
+    private Mono<P> nextPageRead;
+    private Iterator<T> pageItems = Collections.emptyIterator();
+    private boolean reading;
+    private boolean done;
+
+    private OnDemandPages(FluxSink<T> sink,
+                          Mono<P> firstPage,
+                          Predicate<P> hasNextPage,
+                          Function<P, Mono<P>> nextPage,
+                          Function<P, ? extends Iterable<T>> items) {
+        this.sink = sink;
+        this.nextPageRead = firstPage;
+        this.hasNextPage = hasNextPage;
+        this.nextPage = nextPage;
+        this.items = items;
+    }
+
+    /**
+     * @param firstPage   reads the first page, subscribed to on the first request
+     * @param hasNextPage whether there is a page after the given one
+     * @param nextPage    reads the page after the given one
+     * @param items       items of a page
+     * @return Flux of the items of every page, in order
+     */
+    static <P, T> Flux<T> read(Mono<P> firstPage,
+                               Predicate<P> hasNextPage,
+                               Function<P, Mono<P>> nextPage,
+                               Function<P, ? extends Iterable<T>> items) {
+        return Flux.create(sink -> {
+            OnDemandPages<P, T> pages = new OnDemandPages<>(sink, firstPage, hasNextPage, nextPage, items);
+            sink.onDispose(pages.pageRead);
+            sink.onRequest(n -> pages.drain());
+            pages.drain();
+        });
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Optional<P> lastPage = readPage;
+            if (lastPage != null) {
+                readPage = null;
+                reading = false;
+                if (lastPage.isPresent()) {
+                    pageItems = items.apply(lastPage.get()).iterator();
+                    nextPageRead = hasNextPage.test(lastPage.get()) ? nextPage.apply(lastPage.get()) : null;
+                } else {
+                    nextPageRead = null;
+                }
+            }
+
+            while (pageItems.hasNext() && sink.requestedFromDownstream() > 0 && !sink.isCancelled()) {
+                sink.next(pageItems.next());
+            }
+
+            if (!done && !reading && !pageItems.hasNext() && !sink.isCancelled()) {
+                if (nextPageRead == null) {
+                    done = true;
+                    sink.complete();
+                } else if (sink.requestedFromDownstream() > 0) {
+                    reading = true;
+                    pageRead.update(nextPageRead
+                        .map(Optional::of)
+                        .defaultIfEmpty(Optional.empty())
+                        .subscribe(
+                            page -> {
+                                readPage = page;
+                                drain();
+                            },
+                            sink::error));
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+}
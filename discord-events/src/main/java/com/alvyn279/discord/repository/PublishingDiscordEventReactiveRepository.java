@@ -0,0 +1,139 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.changefeed.DiscordEventChange;
+import com.alvyn279.discord.changefeed.InProcessDiscordEventChangeFeed;
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import lombok.Builder;
+import lombok.NonNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+/**
+ * Decorator of a {@link DiscordEventReactiveRepository} that publishes its
+ * successful writes to an {@link InProcessDiscordEventChangeFeed}. It stands in
+ * for the DDB stream when this process is the only writer of the storage.
+ * <p>
+ * Archived events are not published: they are past events that the followers
+ * of the feed no longer hold.
+ */
+public class PublishingDiscordEventReactiveRepository implements DiscordEventReactiveRepository {
+
+    private final DiscordEventReactiveRepository delegate;
+    private final InProcessDiscordEventChangeFeed changeFeed;
+
+    @Builder
+    public PublishingDiscordEventReactiveRepository(@NonNull DiscordEventReactiveRepository delegate,
+                                                    @NonNull InProcessDiscordEventChangeFeed changeFeed) {
+        this.delegate = delegate;
+        this.changeFeed = changeFeed;
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return delegate.deleteDiscordEvent(args)
+            .doOnNext(this::publishRemove);
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return delegate.deleteDiscordEvents(args)
+            .doOnNext(deleteResult -> {
+                if (deleteResult.getStatus() == DeleteDiscordEventResultDTO.Status.DELETED) {
+                    publishRemove(deleteResult.getDiscordEvent());
+                }
+            });
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        return delegate.streamDiscordEventsByUpcoming(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return delegate.streamDiscordEventsByDateTimeRange(args);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return delegate.streamDiscordEventSummariesByDateTimeRange(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return delegate.streamDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return delegate.streamArchivedDiscordEventsCreatedByUser(args);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        return delegate.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(startDateTime, endDateTime);
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        return delegate.saveDiscordEvent(discordEventDTO)
+            .doOnNext(discordEvent -> changeFeed.publish(DiscordEventChange.builder()
+                .type(discordEventDTO.getExpectedVersion() == null ?
+                    DiscordEventChange.Type.INSERT :
+                    DiscordEventChange.Type.MODIFY)
+                .newDiscordEvent(discordEvent)
+                .build()));
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.addDiscordEventAttendee(args)
+            .doOnNext(discordEvent -> publishModify(args.getDiscordEvent(), discordEvent));
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return delegate.removeDiscordEventAttendee(args)
+            .doOnNext(discordEvent -> publishModify(args.getDiscordEvent(), discordEvent));
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return delegate.archiveDiscordEventsBefore(cutoff);
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventStartSlots(Instant from) {
+        return delegate.backfillDiscordEventStartSlots(from);
+    }
+
+    @Override
+    public Mono<Long> backfillDiscordEventCreators() {
+        return delegate.backfillDiscordEventCreators();
+    }
+
+    private void publishModify(DiscordEvent oldDiscordEvent, DiscordEvent newDiscordEvent) {
+        changeFeed.publish(DiscordEventChange.builder()
+            .type(DiscordEventChange.Type.MODIFY)
+            .oldDiscordEvent(oldDiscordEvent)
+            .newDiscordEvent(newDiscordEvent)
+            .build());
+    }
+
+    private void publishRemove(DiscordEvent discordEvent) {
+        changeFeed.publish(DiscordEventChange.builder()
+            .type(DiscordEventChange.Type.REMOVE)
+            .oldDiscordEvent(discordEvent)
+            .build());
+    }
+}
@@ -0,0 +1,31 @@
+package com.alvyn279.discord.repository.dto;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+/**
+ * Outcome of the deletion of one delete code in a bulk delete.
+ * <p>
+ * `discordEvent` is null when no event was found for the delete code.
+ */
+@Data
+@Builder(toBuilder = true)
+public class DeleteDiscordEventResultDTO {
+
+    public enum Status {
+        DELETED,
+        NOT_FOUND,
+        ACCESS_DENIED,
+        FAILED
+    }
+
+    @NonNull
+    private final String deleteCode;
+
+    @NonNull
+    private final Status status;
+
+    private final DiscordEvent discordEvent;
+}
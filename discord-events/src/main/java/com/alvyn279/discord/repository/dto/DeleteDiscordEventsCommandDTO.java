@@ -0,0 +1,20 @@
+package com.alvyn279.discord.repository.dto;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import lombok.experimental.SuperBuilder;
+
+import java.util.List;
+
+/**
+ * POJO that holds information regarding the inputs that users
+ * add to the `delete-events` command when deleting many events at once.
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+@SuperBuilder
+public class DeleteDiscordEventsCommandDTO extends DiscordEventsCommandDTO {
+    @NonNull
+    private final List<String> deleteCodes;
+}
@@ -1,12 +1,14 @@
 package com.alvyn279.discord.repository.dto;
 
 import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.SnowflakeSet;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NonNull;
 
 import java.time.Instant;
-import java.util.Set;
+import java.util.Optional;
+import java.util.UUID;
 
 /**
  * Data transfer object for saving a {@link DiscordEvent} to the data store.
@@ -19,20 +21,64 @@ import java.util.Set;
 @Data
 @Builder
 public class DiscordEventDTO {
-    @NonNull
-    private final String guildId;
+    private final long guildId;
     @NonNull
     private final Instant timestamp;
-    @NonNull
-    private final String createdBy;
-    @NonNull
-    private final String messageId;
+    private final long createdBy;
+    private final long messageId;
     @NonNull
     private final String name;
 
     private final String description;
 
-    private final Set<String> attendees;
+    private final SnowflakeSet attendees;
+
+    /**
+     * Version of the stored event that this write replaces. When null, the write
+     * creates the event and there must not be one with the same key already.
+     */
+    private final Long expectedVersion;
+
+    /**
+     * Key of this write, stored along with the event. A write whose result was lost
+     * can be made again with the same key: if the event is still as it left it,
+     * it goes through again instead of conflicting with itself.
+     * Unique by default, creates use the ID of the command message so that
+     * running the same command twice creates the event once.
+     */
+    @NonNull
+    @Builder.Default
+    private final String idempotencyKey = UUID.randomUUID().toString();
+
+    /**
+     * Version of the event once this write goes through.
+     *
+     * @return long
+     */
+    public long writtenVersion() {
+        return expectedVersion == null ? 1L : expectedVersion + 1;
+    }
+
+    /**
+     * Checks whether this write can go through over the stored event with the same key,
+     * like the condition of the DDB write does.
+     *
+     * @param storedEvent event with the same key, empty if there is none
+     * @return true if the write can go through
+     */
+    public boolean canReplace(Optional<DiscordEvent> storedEvent) {
+        if (storedEvent.isPresent() && isWrittenAs(storedEvent.get())) {
+            return true;
+        }
+        if (expectedVersion == null) {
+            return storedEvent.isEmpty();
+        }
+        return storedEvent.isPresent() && storedEvent.get().getVersion() == expectedVersion;
+    }
+
+    private boolean isWrittenAs(DiscordEvent storedEvent) {
+        return storedEvent.getIdempotencyKey().equals(idempotencyKey) && storedEvent.getVersion() == writtenVersion();
+    }
 
     /**
      * Utility function for generating a DTO builder based on
@@ -52,6 +98,7 @@ public class DiscordEventDTO {
             .description(discordEvent.getDescription().isEmpty() ?
                 null : discordEvent.getDescription())
             .attendees(discordEvent.getAttendees().isEmpty() ?
-                null : discordEvent.getAttendees());
+                null : discordEvent.getAttendees())
+            .expectedVersion(discordEvent.getVersion());
     }
 }
@@ -1,7 +1,6 @@
 package com.alvyn279.discord.repository.dto;
 
 import lombok.Data;
-import lombok.NonNull;
 import lombok.experimental.SuperBuilder;
 
 /**
@@ -11,8 +10,8 @@ import lombok.experimental.SuperBuilder;
 @Data
 @SuperBuilder
 public class DiscordEventsCommandDTO {
-    @NonNull
-    private final String guildId;
+    private final long guildId;
 
-    private final String userId;
+    // 0 when the command is not tied to a user
+    private final long userId;
 }
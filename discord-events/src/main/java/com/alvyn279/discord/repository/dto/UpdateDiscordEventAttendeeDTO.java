@@ -0,0 +1,31 @@
+package com.alvyn279.discord.repository.dto;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.UUID;
+
+/**
+ * Data transfer object for adding or removing one attendee of
+ * a {@link DiscordEvent} in the data store.
+ * <p>
+ * Only the key attributes of `discordEvent` are used for the write: attendee
+ * updates commute, so they apply to whichever version is stored.
+ */
+@Data
+@Builder
+public class UpdateDiscordEventAttendeeDTO {
+    @NonNull
+    private final DiscordEvent discordEvent;
+    private final long attendeeId;
+
+    /**
+     * Key of this update, stored along with the event, so that a retry of an update
+     * whose first attempt landed is skipped rather than applied twice.
+     */
+    @NonNull
+    @Builder.Default
+    private final String idempotencyKey = UUID.randomUUID().toString();
+}
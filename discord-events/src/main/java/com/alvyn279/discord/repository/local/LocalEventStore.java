@@ -0,0 +1,797 @@
+package com.alvyn279.discord.repository.local;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import lombok.Builder;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+import java.util.zip.CRC32;
+
+/**
+ * Embedded storage engine for {@link DiscordEvent}s on the local disk.
+ * <p>
+ * Files in the store's directory:
+ * - `{name}.log`: append-only log of put/delete records, each one
+ * `[length:int][crc32:int][body]`, synced to disk before a write returns.
+ * - `{name}.idx`: snapshot of the index, `{guildId, datetimeCreatedBy} -> record`,
+ * written every 1000 records, on close and after compaction, and memory-mapped
+ * on open, so that a crash only replays the log written after it.
+ * <p>
+ * The index itself is held on the heap, keyed by guild then by `datetimeCreatedBy`
+ * like the DDB table: only the snapshot is memory-mapped, to load it.
+ * Events are read from the log with positional reads.
+ * When a crash leaves a partial record at the end of the log, it is cut off on open.
+ * Once overwritten and deleted records take more room than live ones,
+ * the log is compacted by copying the live records to a new log.
+ * Files are replaced by renaming a synced copy over them, and the directory is
+ * synced after each rename so that the new name survives a crash too.
+ * <p>
+ * Reads run concurrently, writes and compactions run one at a time.
+ */
+@Slf4j
+public class LocalEventStore implements Closeable {
+
+    private static final String LOG_FILE_SUFFIX = ".log";
+    private static final String INDEX_FILE_SUFFIX = ".idx";
+    private static final String COMPACTION_FILE_SUFFIX = ".compacting";
+    private static final String TMP_FILE_SUFFIX = ".tmp";
+
+    private static final int RECORD_HEADER_BYTES = Integer.BYTES * 2;
+    // Far above any event, a bigger length can only come from a torn write
+    private static final int RECORD_MAX_BODY_BYTES = 1 << 20;
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_DELETE = 2;
+
+    private static final int INDEX_MAGIC = 0x44455649;
+    private static final int INDEX_VERSION = 1;
+    // Records appended between two index snapshots, which bounds the replay after a crash
+    static final int DEFAULT_SNAPSHOT_INTERVAL_RECORDS = 1000;
+
+    private final Path directory;
+    private final Path logPath;
+    private final Path indexPath;
+    private final long compactionMinDeadBytes;
+    private final int snapshotIntervalRecords;
+    private final ReadWriteLock lock;
+
+    // { guildId -> { datetimeCreatedBy -> record } }
+    private final Map<Long, ConcurrentSkipListMap<String, RecordPointer>> guilds;
+    // { messageId -> key }
+    private final Map<Long, EventKey> messageIds;
+
+    private FileChannel channel;
+    private FileLock fileLock;
+    private long liveBytes;
+    private long deadBytes;
+    private int recordsSinceSnapshot;
+
+    /**
+     * Location of a put record in the log
+     */
+    @Data
+    @Builder(toBuilder = true)
+    private static class RecordPointer {
+        private final long offset;
+        private final int length;
+        // messageId of the event, so that overwrites and deletes can update the messageId index
+        private final long messageId;
+    }
+
+    @Data
+    @Builder
+    private static class EventKey {
+        private final long guildId;
+        private final String datetimeCreatedBy;
+    }
+
+    /**
+     * Counters of the store, for metrics purposes.
+     */
+    @Data
+    @Builder
+    public static class StoreUsage {
+        private final long events;
+        private final long liveBytes;
+        private final long deadBytes;
+    }
+
+    private LocalEventStore(Path directory, String name, long compactionMinDeadBytes, int snapshotIntervalRecords) {
+        this.directory = directory;
+        this.logPath = directory.resolve(name + LOG_FILE_SUFFIX);
+        this.indexPath = directory.resolve(name + INDEX_FILE_SUFFIX);
+        this.compactionMinDeadBytes = compactionMinDeadBytes;
+        this.snapshotIntervalRecords = snapshotIntervalRecords;
+        this.lock = new ReentrantReadWriteLock();
+        this.guilds = new ConcurrentHashMap<>();
+        this.messageIds = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Opens the store, creating its files if needed, and recovers its index
+     * from the index snapshot and the log.
+     *
+     * @param directory              directory of the store's files
+     * @param name                   name of the store's files
+     * @param compactionMinDeadBytes min size of the dead records before a compaction
+     * @return LocalEventStore
+     * @throws IOException when the files cannot be read, or are used by another process
+     */
+    public static LocalEventStore open(Path directory, String name, long compactionMinDeadBytes) throws IOException {
+        return open(directory, name, compactionMinDeadBytes, DEFAULT_SNAPSHOT_INTERVAL_RECORDS);
+    }
+
+    static LocalEventStore open(Path directory,
+                                String name,
+                                long compactionMinDeadBytes,
+                                int snapshotIntervalRecords) throws IOException {
+        Files.createDirectories(directory);
+        LocalEventStore store = new LocalEventStore(directory, name, compactionMinDeadBytes, snapshotIntervalRecords);
+        store.openLog(store.logPath);
+        // The log may have just been created
+        store.syncDirectory();
+        store.recover();
+        return store;
+    }
+
+    /**
+     * Reads one event.
+     *
+     * @param guildId           guild of the event
+     * @param datetimeCreatedBy sort key of the event
+     * @return Optional<DiscordEvent>
+     * @throws UncheckedIOException when the log cannot be read
+     */
+    public Optional<DiscordEvent> get(long guildId, String datetimeCreatedBy) {
+        lock.readLock().lock();
+        try {
+            ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(guildId);
+            RecordPointer pointer = events == null ? null : events.get(datetimeCreatedBy);
+            return pointer == null ? Optional.empty() : Optional.of(readEvent(pointer));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads one event of a guild by its messageId.
+     *
+     * @param guildId   guild of the event
+     * @param messageId messageId of the event
+     * @return Optional<DiscordEvent>, empty if the guild has no such event
+     * @throws UncheckedIOException when the log cannot be read
+     */
+    public Optional<DiscordEvent> getByMessageId(long guildId, long messageId) {
+        EventKey key = messageIds.get(messageId);
+        if (key == null || key.getGuildId() != guildId) {
+            return Optional.empty();
+        }
+        return get(key.getGuildId(), key.getDatetimeCreatedBy());
+    }
+
+    /**
+     * Sort keys of the events of a guild, in the same order as in the DDB table.
+     * The view reflects later writes.
+     *
+     * @param guildId guild of the events
+     * @return NavigableSet<String> read-only `datetimeCreatedBy` view
+     */
+    public NavigableSet<String> keys(long guildId) {
+        ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(guildId);
+        return events == null ?
+            Collections.emptyNavigableSet() :
+            Collections.unmodifiableNavigableSet(events.navigableKeySet());
+    }
+
+    /**
+     * @return Set<Long> guilds that have or had events in the store
+     */
+    public Set<Long> guildIds() {
+        return Collections.unmodifiableSet(guilds.keySet());
+    }
+
+    public StoreUsage getUsage() {
+        lock.readLock().lock();
+        try {
+            return StoreUsage.builder()
+                .events(messageIds.size())
+                .liveBytes(liveBytes)
+                .deadBytes(deadBytes)
+                .build();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes an event, replacing the one with the same key if any.
+     *
+     * @param discordEvent event to write
+     * @throws IOException when the log cannot be written
+     */
+    public void put(DiscordEvent discordEvent) throws IOException {
+        lock.writeLock().lock();
+        try {
+            putLocked(discordEvent);
+            compactIfNeeded();
+            snapshotIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes an event if the one with the same key passes a condition,
+     * with no other write in between.
+     *
+     * @param discordEvent event to write
+     * @param condition    condition on the event with the same key, empty if there is none
+     * @return true if the event was written
+     * @throws IOException when the log cannot be read or written
+     */
+    public boolean putIf(DiscordEvent discordEvent, Predicate<Optional<DiscordEvent>> condition) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(discordEvent.getGuildId());
+            RecordPointer pointer = events == null ? null : events.get(discordEvent.datetimeCreatedBy());
+            if (!condition.test(pointer == null ? Optional.empty() : Optional.of(readEvent(pointer)))) {
+                return false;
+            }
+            putLocked(discordEvent);
+            compactIfNeeded();
+            snapshotIfNeeded();
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes an event.
+     *
+     * @param guildId           guild of the event
+     * @param datetimeCreatedBy sort key of the event
+     * @return Optional<DiscordEvent> deleted event, empty if there was none
+     * @throws IOException when the log cannot be written
+     */
+    public Optional<DiscordEvent> delete(long guildId, String datetimeCreatedBy) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(guildId);
+            RecordPointer pointer = events == null ? null : events.get(datetimeCreatedBy);
+            if (pointer == null) {
+                return Optional.empty();
+            }
+            DiscordEvent discordEvent = readEvent(pointer);
+            long tombstoneLength = append(encodeDelete(guildId, datetimeCreatedBy), 0L).getLength();
+            events.remove(datetimeCreatedBy);
+            messageIds.remove(pointer.getMessageId());
+            liveBytes -= pointer.getLength();
+            deadBytes += pointer.getLength() + tombstoneLength;
+            compactIfNeeded();
+            snapshotIfNeeded();
+            return Optional.of(discordEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads, modifies and writes back an event, with no other write in between.
+     *
+     * @param guildId           guild of the event
+     * @param datetimeCreatedBy sort key of the event
+     * @param update            modification, must keep the key of the event
+     * @return Optional<DiscordEvent> written event, empty if there was none
+     * @throws IOException when the log cannot be read or written
+     */
+    public Optional<DiscordEvent> update(long guildId,
+                                         String datetimeCreatedBy,
+                                         UnaryOperator<DiscordEvent> update) throws IOException {
+        lock.writeLock().lock();
+        try {
+            ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(guildId);
+            RecordPointer pointer = events == null ? null : events.get(datetimeCreatedBy);
+            if (pointer == null) {
+                return Optional.empty();
+            }
+            DiscordEvent updatedDiscordEvent = update.apply(readEvent(pointer));
+            putLocked(updatedDiscordEvent);
+            compactIfNeeded();
+            snapshotIfNeeded();
+            return Optional.of(updatedDiscordEvent);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrites the log with the live records only.
+     *
+     * @throws IOException when the log cannot be rewritten, the store keeps the current log
+     */
+    public void compact() throws IOException {
+        lock.writeLock().lock();
+        try {
+            compactLocked();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the index snapshot and closes the log.
+     *
+     * @throws IOException when the files cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            writeIndexSnapshot();
+            fileLock.release();
+            channel.close();
+            channel = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void openLog(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            fileLock = channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            fileLock = null;
+        }
+        if (fileLock == null) {
+            channel.close();
+            throw new IOException(String.format("Local storage %s is used by another process", path));
+        }
+    }
+
+    private void putLocked(DiscordEvent discordEvent) throws IOException {
+        RecordPointer pointer = append(encodePut(discordEvent), discordEvent.getMessageId());
+        RecordPointer previous = guilds
+            .computeIfAbsent(discordEvent.getGuildId(), guildId -> new ConcurrentSkipListMap<>())
+            .put(discordEvent.datetimeCreatedBy(), pointer);
+        if (previous != null) {
+            messageIds.remove(previous.getMessageId());
+            liveBytes -= previous.getLength();
+            deadBytes += previous.getLength();
+        }
+        messageIds.put(discordEvent.getMessageId(), EventKey.builder()
+            .guildId(discordEvent.getGuildId())
+            .datetimeCreatedBy(discordEvent.datetimeCreatedBy())
+            .build());
+        liveBytes += pointer.getLength();
+    }
+
+    /**
+     * Appends a record at the end of the log and syncs it to disk.
+     *
+     * @param record    encoded record, header included
+     * @param messageId messageId of a put record, 0 for a delete record
+     * @return RecordPointer location of the record
+     */
+    private RecordPointer append(ByteBuffer record, long messageId) throws IOException {
+        long offset = channel.size();
+        int length = record.remaining();
+        long position = offset;
+        while (record.hasRemaining()) {
+            position += channel.write(record, position);
+        }
+        channel.force(false);
+        recordsSinceSnapshot++;
+        return RecordPointer.builder()
+            .offset(offset)
+            .length(length)
+            .messageId(messageId)
+            .build();
+    }
+
+    private DiscordEvent readEvent(RecordPointer pointer) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(pointer.getLength());
+        long position = pointer.getOffset();
+        while (record.hasRemaining()) {
+            int read = channel.read(record, position);
+            if (read < 0) {
+                throw new IOException(String.format("Unexpected end of %s at %d", logPath, position));
+            }
+            position += read;
+        }
+        record.flip();
+        return decodeEvent(bodyOf(record));
+    }
+
+    /**
+     * Rebuilds the index from the snapshot, if it is valid, then from the
+     * records written after it. Cuts off a partial record at the end of the log.
+     */
+    private void recover() throws IOException {
+        long replayFrom = readIndexSnapshot();
+        long logLength = channel.size();
+        long position = replayFrom;
+        int replayed = 0;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+
+        while (position < logLength) {
+            header.clear();
+            if (channel.read(header, position) < RECORD_HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            int bodyLength = header.getInt();
+            int crc = header.getInt();
+            if (bodyLength <= 0 || bodyLength > RECORD_MAX_BODY_BYTES ||
+                position + RECORD_HEADER_BYTES + bodyLength > logLength) {
+                break;
+            }
+            ByteBuffer body = ByteBuffer.allocate(bodyLength);
+            if (channel.read(body, position + RECORD_HEADER_BYTES) < bodyLength) {
+                break;
+            }
+            body.flip();
+            if (crc32(body) != crc) {
+                break;
+            }
+
+            int recordLength = RECORD_HEADER_BYTES + bodyLength;
+            replay(body, position, recordLength);
+            position += recordLength;
+            replayed++;
+        }
+
+        if (position < logLength) {
+            log.warn("Cutting off {} bytes of partial records at the end of {}", logLength - position, logPath);
+            channel.truncate(position);
+            channel.force(true);
+        }
+        deadBytes = position - liveBytes;
+        recordsSinceSnapshot = replayed;
+        log.info("Opened local storage {}: {} events, {} records replayed", logPath, messageIds.size(), replayed);
+    }
+
+    private void replay(ByteBuffer body, long offset, int recordLength) {
+        byte type = body.get(0);
+        if (type == RECORD_PUT) {
+            DiscordEvent discordEvent = decodeEvent(body);
+            RecordPointer previous = guilds
+                .computeIfAbsent(discordEvent.getGuildId(), guildId -> new ConcurrentSkipListMap<>())
+                .put(discordEvent.datetimeCreatedBy(), RecordPointer.builder()
+                    .offset(offset)
+                    .length(recordLength)
+                    .messageId(discordEvent.getMessageId())
+                    .build());
+            if (previous != null) {
+                messageIds.remove(previous.getMessageId());
+                liveBytes -= previous.getLength();
+            }
+            messageIds.put(discordEvent.getMessageId(), EventKey.builder()
+                .guildId(discordEvent.getGuildId())
+                .datetimeCreatedBy(discordEvent.datetimeCreatedBy())
+                .build());
+            liveBytes += recordLength;
+        } else if (type == RECORD_DELETE) {
+            body.position(1);
+            long guildId = getSnowflake(body);
+            String datetimeCreatedBy = getString(body);
+            ConcurrentSkipListMap<String, RecordPointer> events = guilds.get(guildId);
+            RecordPointer previous = events == null ? null : events.remove(datetimeCreatedBy);
+            if (previous != null) {
+                messageIds.remove(previous.getMessageId());
+                liveBytes -= previous.getLength();
+            }
+        }
+    }
+
+    private void compactIfNeeded() throws IOException {
+        if (deadBytes >= compactionMinDeadBytes && deadBytes > liveBytes) {
+            compactLocked();
+        }
+    }
+
+    /**
+     * Writes the index snapshot once enough records were appended since the last one.
+     * The records are already in the log, so a snapshot that cannot be written only
+     * makes the next recovery longer, and is tried again on the next write.
+     */
+    private void snapshotIfNeeded() {
+        if (recordsSinceSnapshot < snapshotIntervalRecords) {
+            return;
+        }
+        try {
+            writeIndexSnapshot();
+        } catch (IOException e) {
+            log.warn("Could not write the index snapshot of {}: {}", logPath, e.toString());
+        }
+    }
+
+    private void compactLocked() throws IOException {
+        long startNanos = System.nanoTime();
+        long previousLength = channel.size();
+        Path compactionPath = logPath.resolveSibling(logPath.getFileName() + COMPACTION_FILE_SUFFIX);
+        Map<EventKey, RecordPointer> compactedPointers = new HashMap<>();
+
+        // The snapshot describes the current log, it must not outlive it
+        Files.deleteIfExists(indexPath);
+        syncDirectory();
+
+        try (FileChannel compactionChannel = FileChannel.open(compactionPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (Map.Entry<Long, ConcurrentSkipListMap<String, RecordPointer>> guild : guilds.entrySet()) {
+                for (Map.Entry<String, RecordPointer> event : guild.getValue().entrySet()) {
+                    RecordPointer pointer = event.getValue();
+                    long copied = 0;
+                    while (copied < pointer.getLength()) {
+                        copied += channel.transferTo(
+                            pointer.getOffset() + copied, pointer.getLength() - copied, compactionChannel);
+                    }
+                    compactedPointers.put(
+                        EventKey.builder().guildId(guild.getKey()).datetimeCreatedBy(event.getKey()).build(),
+                        pointer.toBuilder().offset(position).build());
+                    position += pointer.getLength();
+                }
+            }
+            compactionChannel.force(true);
+        }
+
+        fileLock.release();
+        channel.close();
+        Files.move(compactionPath, logPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        openLog(logPath);
+
+        compactedPointers.forEach((key, pointer) -> guilds.get(key.getGuildId())
+            .put(key.getDatetimeCreatedBy(), pointer));
+        guilds.values().removeIf(Map::isEmpty);
+        deadBytes = 0;
+        writeIndexSnapshot();
+
+        log.info("Compacted local storage {} from {} to {} bytes in {} ms", logPath, previousLength,
+            channel.size(), (System.nanoTime() - startNanos) / 1_000_000);
+    }
+
+    /**
+     * Writes the index snapshot next to the log, atomically.
+     */
+    private void writeIndexSnapshot() throws IOException {
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        DataOutputStream entriesOutput = new DataOutputStream(entries);
+        int entryCount = 0;
+        for (Map.Entry<Long, ConcurrentSkipListMap<String, RecordPointer>> guild : guilds.entrySet()) {
+            for (Map.Entry<String, RecordPointer> event : guild.getValue().entrySet()) {
+                putSnowflake(entriesOutput, guild.getKey());
+                putString(entriesOutput, event.getKey());
+                putSnowflake(entriesOutput, event.getValue().getMessageId());
+                entriesOutput.writeLong(event.getValue().getOffset());
+                entriesOutput.writeInt(event.getValue().getLength());
+                entryCount++;
+            }
+        }
+        ByteBuffer entriesBuffer = ByteBuffer.wrap(entries.toByteArray());
+
+        ByteBuffer header = ByteBuffer.allocate(Integer.BYTES * 4 + Long.BYTES)
+            .putInt(INDEX_MAGIC)
+            .putInt(INDEX_VERSION)
+            .putLong(channel.size())
+            .putInt(entryCount)
+            .putInt(crc32(entriesBuffer));
+        header.flip();
+
+        Path tmpPath = indexPath.resolveSibling(indexPath.getFileName() + TMP_FILE_SUFFIX);
+        try (FileChannel indexChannel = FileChannel.open(tmpPath,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                indexChannel.write(header);
+            }
+            while (entriesBuffer.hasRemaining()) {
+                indexChannel.write(entriesBuffer);
+            }
+            indexChannel.force(true);
+        }
+        Files.move(tmpPath, indexPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        syncDirectory();
+        recordsSinceSnapshot = 0;
+    }
+
+    /**
+     * Syncs the entries of the store's directory to disk, so that files created,
+     * renamed or deleted in it stay that way after a crash.
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        } catch (AccessDeniedException e) {
+            // Windows cannot open a directory, its renames are made durable by the file system
+            log.debug("Cannot sync directory {}: {}", directory, e.toString());
+        }
+    }
+
+    /**
+     * Loads the index snapshot, if there is a valid one.
+     *
+     * @return long length of the log covered by the snapshot, 0 without snapshot
+     */
+    private long readIndexSnapshot() throws IOException {
+        if (!Files.exists(indexPath)) {
+            return 0;
+        }
+
+        try (FileChannel indexChannel = FileChannel.open(indexPath, StandardOpenOption.READ)) {
+            MappedByteBuffer snapshot = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexChannel.size());
+            if (snapshot.getInt() != INDEX_MAGIC || snapshot.getInt() != INDEX_VERSION) {
+                log.warn("Ignoring index snapshot {} of unknown format", indexPath);
+                return 0;
+            }
+            long logLength = snapshot.getLong();
+            int entryCount = snapshot.getInt();
+            int crc = snapshot.getInt();
+            if (logLength > channel.size() || crc32(snapshot.slice()) != crc) {
+                log.warn("Ignoring index snapshot {} that does not match the log", indexPath);
+                return 0;
+            }
+
+            for (int i = 0; i < entryCount; i++) {
+                long guildId = getSnowflake(snapshot);
+                String datetimeCreatedBy = getString(snapshot);
+                long messageId = getSnowflake(snapshot);
+                RecordPointer pointer = RecordPointer.builder()
+                    .offset(snapshot.getLong())
+                    .length(snapshot.getInt())
+                    .messageId(messageId)
+                    .build();
+                guilds.computeIfAbsent(guildId, id -> new ConcurrentSkipListMap<>())
+                    .put(datetimeCreatedBy, pointer);
+                messageIds.put(messageId, EventKey.builder()
+                    .guildId(guildId)
+                    .datetimeCreatedBy(datetimeCreatedBy)
+                    .build());
+                liveBytes += pointer.getLength();
+            }
+            return logLength;
+        } catch (BufferUnderflowException | IllegalArgumentException e) {
+            log.warn("Ignoring truncated index snapshot {}", indexPath);
+            guilds.clear();
+            messageIds.clear();
+            liveBytes = 0;
+            return 0;
+        }
+    }
+
+    private static ByteBuffer encodePut(DiscordEvent discordEvent) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(body);
+        output.writeByte(RECORD_PUT);
+        putSnowflake(output, discordEvent.getGuildId());
+        output.writeLong(discordEvent.getTimestamp().getEpochSecond());
+        output.writeInt(discordEvent.getTimestamp().getNano());
+        putSnowflake(output, discordEvent.getCreatedBy());
+        putSnowflake(output, discordEvent.getMessageId());
+        putString(output, discordEvent.getName());
+        putString(output, discordEvent.getDescription());
+        output.writeInt(discordEvent.getAttendees().size());
+        for (long attendee : discordEvent.getAttendees().stream().toArray()) {
+            putSnowflake(output, attendee);
+        }
+        output.writeLong(discordEvent.getVersion());
+        putString(output, discordEvent.getIdempotencyKey());
+        return withHeader(body.toByteArray());
+    }
+
+    private static ByteBuffer encodeDelete(long guildId, String datetimeCreatedBy) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(body);
+        output.writeByte(RECORD_DELETE);
+        putSnowflake(output, guildId);
+        putString(output, datetimeCreatedBy);
+        return withHeader(body.toByteArray());
+    }
+
+    private static DiscordEvent decodeEvent(ByteBuffer body) {
+        body.position(1);
+        DiscordEvent.DiscordEventBuilder builder = DiscordEvent.builder()
+            .guildId(getSnowflake(body))
+            .timestamp(Instant.ofEpochSecond(body.getLong(), body.getInt()))
+            .createdBy(getSnowflake(body))
+            .messageId(getSnowflake(body))
+            .name(getString(body))
+            .description(getString(body));
+        long[] attendees = new long[body.getInt()];
+        for (int i = 0; i < attendees.length; i++) {
+            attendees[i] = getSnowflake(body);
+        }
+        builder.attendees(SnowflakeSet.of(attendees));
+        // Records written before versions were introduced end with the attendees,
+        // and the ones written before idempotency keys end with the version
+        if (body.hasRemaining()) {
+            builder.version(body.getLong());
+        }
+        if (body.hasRemaining()) {
+            builder.idempotencyKey(getString(body));
+        }
+        return builder.build();
+    }
+
+    private static ByteBuffer withHeader(byte[] body) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.length)
+            .putInt(body.length)
+            .putInt(crc32(ByteBuffer.wrap(body)))
+            .put(body);
+        record.flip();
+        return record;
+    }
+
+    private static ByteBuffer bodyOf(ByteBuffer record) {
+        ByteBuffer body = record.duplicate();
+        body.position(RECORD_HEADER_BYTES);
+        return body.slice();
+    }
+
+    private static int crc32(ByteBuffer buffer) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(buffer.duplicate());
+        return (int) crc32.getValue();
+    }
+
+    private static void putString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IllegalArgumentException(String.format("Invalid string length %d", length));
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // Snowflakes are unsigned 64-bit ids, written as the raw bits of a long
+    private static void putSnowflake(DataOutputStream output, long value) throws IOException {
+        output.writeLong(value);
+    }
+
+    private static long getSnowflake(ByteBuffer buffer) {
+        return buffer.getLong();
+    }
+}
@@ -0,0 +1,70 @@
+package com.alvyn279.discord.resilience;
+
+import lombok.Builder;
+import lombok.NonNull;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulkhead that bounds the number of concurrent calls of one kind of caller.
+ * Calls over the limit are refused right away rather than queued, so that a slow
+ * dependency does not make callers pile up behind it.
+ */
+public class Bulkhead {
+
+    private final String name;
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+    private final AtomicLong rejectedCalls;
+
+    @Builder
+    public Bulkhead(@NonNull String name, int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException(String.format(
+                "Bulkhead `%s` must allow at least 1 call, got %d", name, maxConcurrentCalls));
+        }
+        this.name = name;
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls);
+        this.rejectedCalls = new AtomicLong();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return number of calls in flight
+     */
+    public int getInFlight() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    /**
+     * @return number of calls refused because the bulkhead was full
+     */
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * Asks for a slot for a call, without waiting.
+     *
+     * @return true if the call can be made, and {@link #release()} must then be called once it ends
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Gives back the slot of a call that ended.
+     */
+    public void release() {
+        permits.release();
+    }
+}
@@ -0,0 +1,128 @@
+package com.alvyn279.discord.resilience;
+
+import lombok.Builder;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker in front of a dependency, here the storage. It stops sending calls
+ * to a dependency that keeps failing, so that callers fail fast instead of piling
+ * more calls onto it:
+ * - CLOSED: calls go through. After `failureThreshold` failed calls in a row, it opens.
+ * - OPEN: calls are refused. After `openDuration`, it lets a probe call through.
+ * - HALF_OPEN: one probe call is in flight, other calls are refused. It closes if the
+ * probe succeeds, and opens again if it fails.
+ * <p>
+ * Callers ask for a permit with {@link #tryAcquire()}, then report the outcome of the
+ * call with exactly one of {@link #onSuccess()}, {@link #onFailure()} or {@link #onIgnored()}.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN,
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+
+    private State state;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private final AtomicLong rejectedCalls;
+
+    /**
+     * @param name             name of the dependency, for logs
+     * @param failureThreshold failed calls in a row that open the breaker, 0 never opens it
+     * @param openDuration     time the breaker stays open before a probe call
+     */
+    @Builder
+    public CircuitBreaker(@NonNull String name, int failureThreshold, @NonNull Duration openDuration) {
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openDurationNanos = openDuration.toNanos();
+        this.state = State.CLOSED;
+        this.rejectedCalls = new AtomicLong();
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * @return number of calls refused while the breaker was open or probing
+     */
+    public long getRejectedCalls() {
+        return rejectedCalls.get();
+    }
+
+    /**
+     * Asks for the permission to make a call.
+     *
+     * @return true if the call can be made, and its outcome must then be reported
+     */
+    public synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAtNanos >= openDurationNanos) {
+                    log.info("Probing {} after the circuit breaker was open", name);
+                    state = State.HALF_OPEN;
+                    return true;
+                }
+                break;
+            default:
+                // Only one probe at a time
+                break;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * Reports that a permitted call succeeded.
+     */
+    public synchronized void onSuccess() {
+        if (state == State.OPEN) {
+            // A call made before the breaker opened, only a probe can close it
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            log.info("Closing circuit breaker of {}: the probe succeeded", name);
+        }
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+    }
+
+    /**
+     * Reports that a permitted call failed because of the dependency.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN
+            || (state == State.CLOSED && failureThreshold > 0 && consecutiveFailures >= failureThreshold)) {
+            log.warn("Opening circuit breaker of {} after {} failed calls in a row", name, consecutiveFailures);
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Reports that a permitted call ended without telling anything about the
+     * dependency, e.g. it was cancelled before its result.
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            // Let the next call probe instead
+            state = State.OPEN;
+            openedAtNanos = System.nanoTime() - openDurationNanos;
+        }
+    }
+}
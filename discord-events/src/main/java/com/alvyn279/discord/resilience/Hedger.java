@@ -0,0 +1,191 @@
+package com.alvyn279.discord.resilience;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Hedges idempotent calls to cut their tail latency: when a call has not answered
+ * after the delay in which most calls answer, a duplicate is sent, and whichever
+ * answers first is kept while the other is cancelled.
+ * <p>
+ * The delay is a percentile of the latencies of the recent calls, so only the slowest
+ * calls are hedged. The extra load is capped by a budget: every call earns a fraction
+ * of a hedge, and a hedge is only sent if one was earned.
+ * <p>
+ * A hedge that fails is ignored, the first call decides the result.
+ */
+public class Hedger {
+
+    public static final Hedger NONE = Hedger.builder()
+        .percentile(0)
+        .budgetRatio(0)
+        .minDelay(Duration.ZERO)
+        .build();
+
+    // Latencies of the last calls that the delay is computed from
+    private static final int WINDOW_SIZE = 1000;
+    // The delay is computed again once this many calls were made since the last time
+    private static final int RECOMPUTE_EVERY = 100;
+    // No hedging until this many latencies are known
+    private static final int MIN_SAMPLES = 100;
+    // Hedges that can be saved up, so that a burst of slow calls can still be hedged
+    private static final long MAX_BUDGET_MILLIS = 10_000;
+    private static final long MILLIS_PER_HEDGE = 1_000;
+
+    private final double percentile;
+    private final long budgetMillisPerCall;
+    private final long minDelayNanos;
+
+    private final long[] latencies;
+    private int latencyCount;
+    private int nextLatency;
+    private int latenciesSinceDelay;
+    private volatile long delayNanos;
+
+    // In thousandths of a hedge
+    private final AtomicLong budgetMillis;
+    private final AtomicLong calls;
+    private final AtomicLong hedges;
+    private final AtomicLong hedgeWins;
+
+    /**
+     * Point-in-time view of the hedging of calls.
+     */
+    @Data
+    @Builder
+    public static class HedgeUsage {
+        private final long calls;
+        private final long hedges;
+        private final long hedgeWins;
+        // hedges / calls
+        private final double hedgeRate;
+        // hedgeWins / hedges
+        private final double winRate;
+        private final long delayMillis;
+    }
+
+    /**
+     * @param percentile  percentile of the recent latencies after which a call is hedged, 0 turns hedging off
+     * @param budgetRatio max ratio of hedges to calls, e.g. 0.05 for at most 5% extra calls
+     * @param minDelay    min delay before a hedge, whatever the recent latencies
+     */
+    @Builder
+    public Hedger(double percentile, double budgetRatio, @NonNull Duration minDelay) {
+        if (percentile < 0 || percentile >= 100) {
+            throw new IllegalArgumentException(String.format(
+                "Hedging percentile must be in [0, 100), got %s", percentile));
+        }
+        this.percentile = percentile;
+        this.budgetMillisPerCall = Math.round(budgetRatio * MILLIS_PER_HEDGE);
+        this.minDelayNanos = minDelay.toNanos();
+        this.latencies = new long[WINDOW_SIZE];
+        this.delayNanos = -1;
+        this.budgetMillis = new AtomicLong();
+        this.calls = new AtomicLong();
+        this.hedges = new AtomicLong();
+        this.hedgeWins = new AtomicLong();
+    }
+
+    public boolean isEnabled() {
+        return percentile > 0 && budgetMillisPerCall > 0;
+    }
+
+    /**
+     * Returns the number of calls, hedges and hedges that answered first, and the current delay.
+     *
+     * @return HedgeUsage
+     */
+    public HedgeUsage getUsage() {
+        long callCount = calls.get();
+        long hedgeCount = hedges.get();
+        long winCount = hedgeWins.get();
+        long delay = delayNanos;
+        return HedgeUsage.builder()
+            .calls(callCount)
+            .hedges(hedgeCount)
+            .hedgeWins(winCount)
+            .hedgeRate(callCount == 0 ? 0 : (double) hedgeCount / callCount)
+            .winRate(hedgeCount == 0 ? 0 : (double) winCount / hedgeCount)
+            .delayMillis(delay < 0 ? -1 : Duration.ofNanos(delay).toMillis())
+            .build();
+    }
+
+    /**
+     * Makes a call, hedged if it is slow.
+     *
+     * @param call makes the call, called again for the hedge: it must be idempotent
+     * @return Mono of the result of the call or of its hedge, whichever answers first
+     */
+    public <T> Mono<T> apply(Supplier<Mono<T>> call) {
+        if (!isEnabled()) {
+            return Mono.defer(call);
+        }
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            earnBudget();
+            Mono<T> first = timed(call.get());
+            long delay = delayNanos;
+            if (delay < 0) {
+                return first;
+            }
+            Mono<T> hedge = Mono.delay(Duration.ofNanos(delay))
+                .flatMap(ignored -> {
+                    if (!spendBudget()) {
+                        return Mono.never();
+                    }
+                    hedges.incrementAndGet();
+                    return timed(call.get())
+                        .doOnSuccess(result -> hedgeWins.incrementAndGet())
+                        .onErrorResume(throwable -> Mono.never());
+                });
+            return Mono.first(first, hedge);
+        });
+    }
+
+    /**
+     * Records the latency of a call when it answers. Calls that fail or are cancelled,
+     * like a hedge cancelled just after the first call answered, are left out: their
+     * time says nothing of how long an answer takes, and would pull the delay down.
+     */
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return call.doOnSuccess(result -> recordLatency(System.nanoTime() - startNanos));
+        });
+    }
+
+    private synchronized void recordLatency(long latencyNanos) {
+        latencies[nextLatency] = latencyNanos;
+        nextLatency = (nextLatency + 1) % WINDOW_SIZE;
+        latencyCount = Math.min(latencyCount + 1, WINDOW_SIZE);
+        if (++latenciesSinceDelay >= RECOMPUTE_EVERY && latencyCount >= MIN_SAMPLES) {
+            latenciesSinceDelay = 0;
+            long[] sorted = Arrays.copyOf(latencies, latencyCount);
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            delayNanos = Math.max(minDelayNanos, sorted[Math.max(index, 0)]);
+        }
+    }
+
+    private void earnBudget() {
+        budgetMillis.getAndUpdate(budget -> Math.min(MAX_BUDGET_MILLIS, budget + budgetMillisPerCall));
+    }
+
+    private boolean spendBudget() {
+        long budget;
+        do {
+            budget = budgetMillis.get();
+            if (budget < MILLIS_PER_HEDGE) {
+                return false;
+            }
+        } while (!budgetMillis.compareAndSet(budget, budget - MILLIS_PER_HEDGE));
+        return true;
+    }
+}
@@ -0,0 +1,40 @@
+package com.alvyn279.discord.resilience;
+
+import reactor.util.context.Context;
+
+/**
+ * Kind of caller of the storage, each with its own budget of concurrent calls,
+ * so that background work cannot starve the commands of users and the other way round.
+ * <p>
+ * The budget of a call is read from the Reactor subscriber context of its pipeline.
+ * Calls without one are interactive; background pipelines tag themselves with
+ * {@code .subscriberContext(StorageBudget.BACKGROUND.context())}.
+ */
+public enum StorageBudget {
+    /**
+     * Calls made to answer a user's command or reaction
+     */
+    INTERACTIVE,
+
+    /**
+     * Calls made by background tasks, e.g. the reminders and the archiver
+     */
+    BACKGROUND;
+
+    private static final String CONTEXT_KEY = StorageBudget.class.getName();
+
+    /**
+     * @return subscriber context that makes the storage calls of a pipeline use this budget
+     */
+    public Context context() {
+        return Context.of(CONTEXT_KEY, this);
+    }
+
+    /**
+     * @param context subscriber context of a storage call
+     * @return budget of the call
+     */
+    public static StorageBudget of(Context context) {
+        return context.getOrDefault(CONTEXT_KEY, INTERACTIVE);
+    }
+}
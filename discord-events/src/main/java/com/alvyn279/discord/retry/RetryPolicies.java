@@ -0,0 +1,56 @@
+package com.alvyn279.discord.retry;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Retry policies of each kind of operation of the bot. Each stage of a command
+ * (storage reads, storage writes, Discord calls) retries on its own, so a failed
+ * Discord message does not redo the storage write before it.
+ */
+@Data
+@Builder
+public class RetryPolicies {
+
+    /**
+     * DDB reads (queries and scans)
+     */
+    @NonNull
+    private final RetryPolicy storageReads;
+
+    /**
+     * DDB writes, idempotent thanks to their conditions and idempotency keys
+     */
+    @NonNull
+    private final RetryPolicy storageWrites;
+
+    /**
+     * Discord calls that can be made twice with the same result (GET, PUT, PATCH, DELETE)
+     */
+    @NonNull
+    private final RetryPolicy discordIdempotentCalls;
+
+    /**
+     * Discord calls that create something (POST), e.g. sending a message
+     */
+    @NonNull
+    private final RetryPolicy discordCreateCalls;
+
+    /**
+     * Returns the number of retries made by each policy.
+     *
+     * @return Map<String, Long> { policy name -> retries }
+     */
+    public Map<String, Long> getUsage() {
+        Map<String, Long> usage = new LinkedHashMap<>();
+        for (RetryPolicy policy : new RetryPolicy[]{
+            storageReads, storageWrites, discordIdempotentCalls, discordCreateCalls}) {
+            usage.put(policy.getName(), policy.getRetryCount());
+        }
+        return usage;
+    }
+}
@@ -0,0 +1,105 @@
+package com.alvyn279.discord.retry;
+
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Retry policy of one kind of operation: how many times a failed call is retried,
+ * with an exponential backoff and jitter in between, and which errors are retried
+ * (see {@link RetryableErrors}).
+ * <p>
+ * Calls that are not idempotent are only retried when they had no effect.
+ * Writes are made idempotent with a key (see
+ * {@link com.alvyn279.discord.repository.dto.DiscordEventDTO#getIdempotencyKey()}).
+ */
+@Slf4j
+@Getter
+public class RetryPolicy {
+
+    public static final RetryPolicy NONE = RetryPolicy.builder()
+        .name("none")
+        .maxRetries(0)
+        .build();
+
+    private static final Duration DEFAULT_FIRST_BACKOFF = Duration.ofMillis(50);
+    private static final Duration DEFAULT_MAX_BACKOFF = Duration.ofSeconds(2);
+    private static final double DEFAULT_JITTER = 0.5;
+
+    private final String name;
+    private final int maxRetries;
+    private final Duration firstBackoff;
+    private final Duration maxBackoff;
+    private final double jitter;
+    private final boolean idempotent;
+    @Getter(AccessLevel.NONE)
+    private final AtomicLong retries;
+
+    @Builder
+    public RetryPolicy(@NonNull String name,
+                       int maxRetries,
+                       Duration firstBackoff,
+                       Duration maxBackoff,
+                       Double jitter,
+                       boolean idempotent) {
+        this.name = name;
+        this.maxRetries = maxRetries;
+        this.firstBackoff = firstBackoff == null ? DEFAULT_FIRST_BACKOFF : firstBackoff;
+        this.maxBackoff = maxBackoff == null ? DEFAULT_MAX_BACKOFF : maxBackoff;
+        this.jitter = jitter == null ? DEFAULT_JITTER : jitter;
+        this.idempotent = idempotent;
+        this.retries = new AtomicLong();
+    }
+
+    /**
+     * @return total number of retries made with this policy
+     */
+    public long getRetryCount() {
+        return retries.get();
+    }
+
+    /**
+     * Retries a call, which is made again on every subscription.
+     *
+     * @param call call to retry
+     * @return Mono of the call's result, or of its last error
+     */
+    public <T> Mono<T> apply(Mono<T> call) {
+        return maxRetries == 0 ? call : call.retryWhen(toRetry());
+    }
+
+    /**
+     * Retries a call, which is made again on every subscription. Only retry
+     * calls with a single element, or that can be read again from the start.
+     *
+     * @param call call to retry
+     * @return Flux of the call's results, or of its last error
+     */
+    public <T> Flux<T> apply(Flux<T> call) {
+        return maxRetries == 0 ? call : call.retryWhen(toRetry());
+    }
+
+    private Retry toRetry() {
+        Predicate<Throwable> retryable = idempotent ? RetryableErrors::isTransient : RetryableErrors::isRejected;
+        return Retry.backoff(maxRetries, firstBackoff)
+            .maxBackoff(maxBackoff)
+            .jitter(jitter)
+            .filter(retryable)
+            .doBeforeRetry(retrySignal -> {
+                retries.incrementAndGet();
+                log.warn("Retrying {} call (retry {}/{}): {}",
+                    name, retrySignal.totalRetries() + 1, maxRetries, retrySignal.failure().toString());
+            })
+            // Callers handle the error of the call, not a wrapper of it
+            .onRetryExhaustedThrow((retrySpec, retrySignal) -> retrySignal.failure());
+    }
+}
@@ -0,0 +1,84 @@
+package com.alvyn279.discord.retry;
+
+import discord4j.rest.http.client.ClientException;
+import reactor.netty.http.client.PrematureCloseException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Classification of the errors of DDB and Discord calls that are worth retrying.
+ * <p>
+ * Two kinds of errors are told apart:
+ * - rejected: the call had no effect, e.g. it was throttled, or its pooled connection
+ * had been closed by the server before the request was sent. Any call can be retried.
+ * A connection closed after the request was sent (e.g. a cold pooled connection closed
+ * before the response) is only transient.
+ * - transient: the call may or may not have had an effect, e.g. a 5xx or a timeout.
+ * Only idempotent calls can be retried.
+ * <p>
+ * Anything else (validation errors, failed conditions, access denied...) is not retried.
+ */
+public final class RetryableErrors {
+
+    private static final int HTTP_TOO_MANY_REQUESTS = 429;
+    private static final int HTTP_SERVER_ERROR = 500;
+    // reactor-netty builds a new PrematureCloseException for every closed connection,
+    // only its message tells whether the request had been sent
+    private static final String CLOSED_WHILE_SENDING_REQUEST = "while sending request body";
+
+    private RetryableErrors() {
+    }
+
+    /**
+     * @param throwable error of a call, or one of its causes
+     * @return true if the call had no effect and can be retried
+     */
+    public static boolean isRejected(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (isClosedWhileSendingRequest(cause) || cause instanceof ConnectException) {
+                return true;
+            }
+            if (cause instanceof SdkServiceException) {
+                return ((SdkServiceException) cause).isThrottlingException();
+            }
+            if (cause instanceof ClientException) {
+                return ((ClientException) cause).getStatus().code() == HTTP_TOO_MANY_REQUESTS;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isClosedWhileSendingRequest(Throwable cause) {
+        return cause instanceof PrematureCloseException
+            && cause.getMessage() != null
+            && cause.getMessage().contains(CLOSED_WHILE_SENDING_REQUEST);
+    }
+
+    /**
+     * @param throwable error of a call, or one of its causes
+     * @return true if the call may have failed only temporarily
+     */
+    public static boolean isTransient(Throwable throwable) {
+        if (isRejected(throwable)) {
+            return true;
+        }
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SdkServiceException) {
+                return ((SdkServiceException) cause).statusCode() >= HTTP_SERVER_ERROR;
+            }
+            if (cause instanceof ClientException) {
+                return ((ClientException) cause).getStatus().code() >= HTTP_SERVER_ERROR;
+            }
+            if (cause instanceof SdkClientException
+                || cause instanceof TimeoutException
+                || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,32 @@
+package com.alvyn279.discord.retry;
+
+import discord4j.rest.http.client.ClientResponse;
+import discord4j.rest.request.DiscordWebRequest;
+import discord4j.rest.response.ResponseFunction;
+import io.netty.handler.codec.http.HttpMethod;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+
+/**
+ * Discord4J response function that retries every Discord REST call with the
+ * retry policy of its HTTP method. It is applied once, when building the client,
+ * so that each Discord call of a command retries on its own.
+ */
+public class RetryingResponseFunction implements ResponseFunction {
+
+    private final RetryPolicies retryPolicies;
+
+    public RetryingResponseFunction(@NonNull RetryPolicies retryPolicies) {
+        this.retryPolicies = retryPolicies;
+    }
+
+    @Override
+    public Function<Mono<ClientResponse>, Mono<ClientResponse>> transform(DiscordWebRequest request) {
+        RetryPolicy retryPolicy = HttpMethod.POST.equals(request.getRoute().getMethod()) ?
+            retryPolicies.getDiscordCreateCalls() :
+            retryPolicies.getDiscordIdempotentCalls();
+        return retryPolicy::apply;
+    }
+}
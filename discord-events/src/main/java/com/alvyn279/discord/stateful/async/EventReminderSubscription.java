@@ -0,0 +1,70 @@
+package com.alvyn279.discord.stateful.async;
+
+import com.alvyn279.discord.domain.BotMessages;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.domain.Emoji;
+import com.alvyn279.discord.domain.GuildUtils;
+import discord4j.core.object.entity.Guild;
+import discord4j.core.object.entity.channel.MessageChannel;
+import discord4j.rest.util.Color;
+import lombok.Builder;
+import lombok.NonNull;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Subscription of a guild to the events reminders. It holds the Discord
+ * context needed to remind the subscribed channel of the events that the
+ * {@link EventsCheckerTask} found to be coming up soon.
+ */
+@Builder
+public class EventReminderSubscription {
+
+    private static final String REMINDER_TITLE = "Events Happening Soon!";
+    // TODO: insert @here mention for notifs
+    private static final String REMINDER_DESCRIPTION = "Just a reminder that" +
+        " these events are happening soon:";
+
+    @NonNull
+    private final MessageChannel messageChannel;
+
+    @NonNull
+    private final Guild guild;
+
+    /**
+     * Gets the message channel that initiated the !remind-events
+     * command. This is considered to be the subscribed channel.
+     *
+     * @return MessageChannel
+     */
+    public MessageChannel getSubscribedChannel() {
+        return this.messageChannel;
+    }
+
+    /**
+     * Sends a reminder of the given events to the subscribed channel.
+     *
+     * @param discordEventSummaries events of the guild happening soon, at most
+     *                              {@link BotMessages#EMBED_FIELD_LIMIT}
+     * @return Mono<Void>
+     */
+    public Mono<Void> remind(List<DiscordEventSummary> discordEventSummaries) {
+        return GuildUtils.retrieveGuildUsers(guild)
+            .flatMap(usersMap -> messageChannel.createEmbed(embedCreateSpec -> {
+                embedCreateSpec
+                    .setTitle(String.format(
+                        BotMessages.EMOJI_AND_TITLE_FORMAT_STR,
+                        Emoji.ALARM_CLOCK,
+                        REMINDER_TITLE))
+                    .setDescription(REMINDER_DESCRIPTION)
+                    .setColor(Color.ENDEAVOUR)
+                    .setTimestamp(Instant.now());
+
+                BotMessages.attachDiscordEventSummariesListToEmbed(
+                    embedCreateSpec, discordEventSummaries, usersMap);
+            }))
+            .then();
+    }
+}
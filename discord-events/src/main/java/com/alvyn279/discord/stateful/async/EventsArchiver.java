@@ -0,0 +1,80 @@
+package com.alvyn279.discord.stateful.async;
+
+import com.alvyn279.discord.provider.DiscordEventArchiveConfig;
+import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
+import com.alvyn279.discord.resilience.StorageBudget;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Singleton that periodically moves the events older than the configured
+ * age from the live table to the archive table, so that guild-wide reads
+ * of the live table do not grow with the history of the guilds.
+ * <p>
+ * Runs are scheduled on the shared scheduler and never overlap.
+ */
+@Slf4j
+@Singleton
+public class EventsArchiver {
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final DiscordEventReactiveRepository repository;
+    private final DiscordEventArchiveConfig config;
+    private Future<?> archiving;
+
+    @Inject
+    public EventsArchiver(ScheduledExecutorService scheduledExecutorService,
+                          DiscordEventReactiveRepository repository,
+                          DiscordEventArchiveConfig config) {
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.repository = repository;
+        this.config = config;
+    }
+
+    /**
+     * Archives the events that are older than the configured age.
+     * Blocks until the run is done.
+     */
+    public void archive() {
+        Instant cutoff = Instant.now().minus(config.getArchiveAfter());
+        try {
+            repository.archiveDiscordEventsBefore(cutoff)
+                .subscriberContext(StorageBudget.BACKGROUND.context())
+                .block();
+        } catch (RuntimeException e) {
+            // Keep the schedule alive, the next run picks up where this one stopped
+            log.error("Error archiving events before {}", cutoff, e);
+        }
+    }
+
+    /**
+     * Starts archiving at the rate configured in the environment.
+     * Calling it more than once, or with the archiver turned off, has no effect.
+     */
+    public synchronized void start() {
+        if (archiving != null || !config.isEnabled()) {
+            return;
+        }
+        long interval = config.getArchiveInterval().toMinutes();
+        archiving = scheduledExecutorService.scheduleWithFixedDelay(
+            this::archive, interval, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Stops archiving. A run in progress is interrupted, events it did not
+     * move yet stay in the live table.
+     */
+    public synchronized void stop() {
+        if (archiving == null) {
+            return;
+        }
+        archiving.cancel(true);
+        archiving = null;
+    }
+}
@@ -1,116 +1,109 @@
 package com.alvyn279.discord.stateful.async;
 
+import com.alvyn279.discord.changefeed.DiscordEventChangeFeed;
+import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
 import com.google.inject.Inject;
 import com.google.inject.Singleton;
-import lombok.Builder;
-import lombok.Data;
 
-import java.util.HashMap;
+import java.util.Collections;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 /**
- * Singleton scheduler that can schedule periodically-ran {@link EventsCheckerTask}
- * on a thread different than the main one. It holds a thread pool to distribute
- * threads amongst the guilds that opt in the events reminder feature.
+ * Singleton scheduler that periodically runs a single {@link EventsCheckerTask}
+ * on a thread different than the main one, for all the guilds that opt in the
+ * events reminder feature. The task is only scheduled while at least one guild
+ * is subscribed.
  * <p>
  * Being a singleton, stateless commands from the discord context can easily refer
- * back to the task to cancel it.
+ * back to the subscription of their guild to cancel it.
  */
 @Singleton
 public class EventsCheckerScheduler {
 
-    private final ScheduledExecutorService scheduledExecutorService;
-    private final Map<String, EventsCheckerExecution> executions;
+    private static final int EVENT_CHECK_INITIAL_DELAY_IN_SECONDS = 0;
+    private static final int EVENT_CHECK_INTERVAL_IN_SECONDS = 60;
 
-    /**
-     * Tuple class to hold the execution of an events-
-     * checker task. It holds the task executed and
-     * its completion object for cancelling purposes.
-     */
-    @Builder
-    @Data
-    private static class EventsCheckerExecution {
-        private EventsCheckerTask task;
-        private Future<?> eventCompletion;
-    }
+    private final ScheduledExecutorService scheduledExecutorService;
+    private final Map<Long, EventReminderSubscription> subscriptions;
+    private final EventsCheckerTask task;
+    private Future<?> eventCompletion;
 
     @Inject
-    public EventsCheckerScheduler(ScheduledExecutorService scheduledExecutorService) {
+    public EventsCheckerScheduler(ScheduledExecutorService scheduledExecutorService,
+                                  DiscordEventReactiveRepository repository,
+                                  DiscordEventChangeFeed changeFeed) {
         this.scheduledExecutorService = scheduledExecutorService;
-        this.executions = new HashMap<>();
+        this.subscriptions = new ConcurrentHashMap<>();
+        this.task = EventsCheckerTask.builder()
+            .repository(repository)
+            .subscriptions(Collections.unmodifiableMap(subscriptions))
+            .build();
+        this.task.follow(changeFeed);
     }
 
     /**
-     * Returns the event checker task that was scheduled.
+     * Returns the events reminder subscription of the guild.
      *
      * @param guildId guild id snowflake
-     * @return EventsCheckerTask nullable/runnable task
+     * @return EventReminderSubscription nullable subscription
      */
-    public EventsCheckerTask getGuildEventsCheckerTask(String guildId) {
-        if (!executions.containsKey(guildId)) return null;
-        return executions.get(guildId).getTask();
+    public EventReminderSubscription getGuildSubscription(long guildId) {
+        return subscriptions.get(guildId);
     }
 
     /**
-     * Checks if it is safe to schedule a task for the guild on the scheduler.
+     * Checks if it is safe to subscribe the guild to the events reminders.
      *
      * @param guildId guild id snowflake
      * @return boolean
      */
-    public boolean isSafeToStart(String guildId) {
-        if (!executions.containsKey(guildId)) return true;
-        Future<?> eventCompletion = executions.get(guildId).getEventCompletion();
-        return eventCompletion == null || eventCompletion.isDone();
+    public boolean isSafeToStart(long guildId) {
+        return !subscriptions.containsKey(guildId);
     }
 
     /**
-     * Checks if it is safe to cancel the task for the guild.
+     * Checks if it is safe to unsubscribe the guild from the events reminders.
      *
      * @param guildId guild id snowflake
      * @return boolean
      */
-    public boolean isSafeToStop(String guildId) {
-        if (!executions.containsKey(guildId)) return false;
-        Future<?> eventCompletion = executions.get(guildId).getEventCompletion();
-        return !eventCompletion.isCancelled() && !eventCompletion.isDone();
+    public boolean isSafeToStop(long guildId) {
+        return subscriptions.containsKey(guildId);
     }
 
     /**
-     * Schedules the desired {@link EventsCheckerTask} task at desired rate
-     * on the scheduler. It sets this.eventCheckerThread {@link Future} that
-     * can be used later to cancel the task.
+     * Subscribes the guild to the events reminders. The {@link EventsCheckerTask}
+     * is scheduled along with the first subscription.
      *
      * @param guildId      guild id snowflake
-     * @param task         task definition
-     * @param initialDelay initial delay
-     * @param period       periodic rate
-     * @param unit         time unit
+     * @param subscription channel to remind, and its guild
      */
-    public void scheduleAtFixedRate(String guildId,
-                                    EventsCheckerTask task,
-                                    long initialDelay,
-                                    long period,
-                                    TimeUnit unit) {
-        executions.put(guildId, EventsCheckerExecution.builder()
-            .eventCompletion(scheduledExecutorService
-                .scheduleAtFixedRate(task, initialDelay, period, unit)
-            )
-            .task(task)
-            .build()
-        );
+    public synchronized void subscribe(long guildId, EventReminderSubscription subscription) {
+        subscriptions.put(guildId, subscription);
+        if (eventCompletion == null) {
+            eventCompletion = scheduledExecutorService.scheduleAtFixedRate(task,
+                EVENT_CHECK_INITIAL_DELAY_IN_SECONDS,
+                EVENT_CHECK_INTERVAL_IN_SECONDS,
+                TimeUnit.SECONDS);
+        }
     }
 
     /**
-     * Issues a cancel request for the execution's {@link Future}.
+     * Unsubscribes the guild from the events reminders. The {@link EventsCheckerTask}
+     * is cancelled along with the last subscription.
      * Must be called after a successful `this.isSafeToStop()` call.
      *
      * @param guildId guild id snowflake
      */
-    public void stopEventChecker(String guildId) {
-        executions.get(guildId).getEventCompletion().cancel(true);
-        executions.get(guildId).setTask(null);
+    public synchronized void stopEventChecker(long guildId) {
+        subscriptions.remove(guildId);
+        if (subscriptions.isEmpty() && eventCompletion != null) {
+            eventCompletion.cancel(true);
+            eventCompletion = null;
+        }
     }
 }
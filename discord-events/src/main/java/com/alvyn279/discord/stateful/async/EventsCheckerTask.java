@@ -1,105 +1,213 @@
 package com.alvyn279.discord.stateful.async;
 
+import com.alvyn279.discord.changefeed.DiscordEventChange;
+import com.alvyn279.discord.changefeed.DiscordEventChangeFeed;
 import com.alvyn279.discord.domain.BotMessages;
-import com.alvyn279.discord.domain.DiscordEvent;
-import com.alvyn279.discord.domain.Emoji;
-import com.alvyn279.discord.domain.GuildUtils;
+import com.alvyn279.discord.domain.DiscordEventSummary;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
-import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
-import discord4j.core.object.entity.Guild;
-import discord4j.core.object.entity.channel.MessageChannel;
-import discord4j.rest.util.Color;
+import com.alvyn279.discord.resilience.StorageBudget;
 import lombok.Builder;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
- * Task ran on a thread that will check whether there is an
- * event that is coming up soon. It uses the DDB repo and Discord
- * context to notify the subscribed channel.
+ * Task ran on a thread that will check whether there are events
+ * coming up soon in any of the subscribed guilds. A single read of
+ * the repository covers all guilds, then the events are dispatched
+ * to the {@link EventReminderSubscription} of their guild.
+ * <p>
+ * When it follows a {@link DiscordEventChangeFeed}, the events of the next
+ * hour are read once into an agenda that the changes keep up to date, so
+ * runs in between do not read the repository.
  */
-@Builder
+@Slf4j
 public class EventsCheckerTask implements Runnable {
 
-    private static final String REMINDER_TITLE = "Events Happening Soon!";
-    // TODO: insert @here mention for notifs
-    private static final String REMINDER_DESCRIPTION = "Just a reminder that" +
-        " these events are happening soon:";
-    private static final Integer EVENT_CHECK_TIME_DELTA_IN_MINUTES = 15;
+    private static final Duration EVENT_CHECK_TIME_DELTA = Duration.ofMinutes(15);
+    private static final Duration AGENDA_HORIZON = Duration.ofHours(1);
 
-    @NonNull
     private final DiscordEventReactiveRepository repository;
 
-    @NonNull
-    private final MessageChannel messageChannel;
+    // { guildId -> subscription }, owned by the scheduler
+    private final Map<Long, EventReminderSubscription> subscriptions;
 
-    @NonNull
-    private final Guild guild;
+    // We keep an in-memory cache of the IDs of the {@link DiscordEvent}s that
+    // have already been notified for, with their time so that past ones can be
+    // dropped. This allows to limit the reminders for an event to 1.
+    private final Map<Long, Instant> notifiedDiscordEvents;
 
-    // We keep an in-memory cache of string IDs of {@link DiscordEvent}s
-    // that have already been notified for. This allows to limit the
-    // reminders for that event to 1 to the subscribed message channel.
-    private static final Set<String> notifiedDiscordEvents;
+    // { messageId -> event } of all guilds, from the last read up to `agendaUntil`.
+    // Guarded by `this`, along with the changes received while it is read again.
+    private Map<Long, DiscordEventSummary> agenda;
+    private Instant agendaUntil;
+    private List<DiscordEventChange> changesWhileLoading;
+    private volatile boolean followingChanges;
 
-    static {
-        notifiedDiscordEvents = new HashSet<>();
+    @Builder
+    public EventsCheckerTask(@NonNull DiscordEventReactiveRepository repository,
+                             @NonNull Map<Long, EventReminderSubscription> subscriptions) {
+        this.repository = repository;
+        this.subscriptions = subscriptions;
+        this.notifiedDiscordEvents = new ConcurrentHashMap<>();
+        this.agenda = new ConcurrentHashMap<>();
     }
 
     /**
-     * Gets the message channel that initiated the !remind-events
-     * command. This is considered to be the subscribed channel.
+     * Keeps the agenda up to date with the changes of the feed from now on. When
+     * the feed stops, runs go back to reading the repository.
      *
-     * @return MessageChannel
+     * @param changeFeed feed of the changes made by every bot instance
      */
-    public MessageChannel getSubscribedChannel() {
-        return this.messageChannel;
+    public void follow(DiscordEventChangeFeed changeFeed) {
+        followingChanges = true;
+        changeFeed.changes()
+            .subscribe(
+                this::applyDiscordEventChange,
+                throwable -> {
+                    log.warn("Reminders stopped following changes: {}", throwable.toString());
+                    unfollow();
+                },
+                this::unfollow);
     }
 
     public void run() {
-        // Reads the DDB at each minute to find events that are occurring within
-        // the next 15 minutes. The task filters out the events that have already
-        // been notified as per its own in-memory cache, then sends a message to
-        // the subscribed channel.
-
-        repository.listDiscordEventsByUpcomingWithTimeLimit(ListDiscordEventsCommandDTO.builder()
-            .guildId(guild.getId().asString())
-            .currentDateTime(Instant.now())
-            .upcomingTimeLimit(Duration.ofMinutes(EVENT_CHECK_TIME_DELTA_IN_MINUTES))
-            .build()
-        )
-            .flatMap(discordEvents -> Mono.just(discordEvents.stream()
-                .filter(discordEvent -> !notifiedDiscordEvents.contains(discordEvent.getMessageId()))
-                .collect(Collectors.toList())))
-            .flatMap(unNotifiedDiscordEvents -> {
-                if (!unNotifiedDiscordEvents.isEmpty()) {
-                    notifiedDiscordEvents.addAll(unNotifiedDiscordEvents.stream()
-                        .map(DiscordEvent::getMessageId)
-                        .collect(Collectors.toList())
-                    );
-                    return GuildUtils.retrieveGuildUsers(guild)
-                        .flatMap(usersMap -> messageChannel.createEmbed(embedCreateSpec -> {
-                            embedCreateSpec
-                                .setTitle(String.format(
-                                    BotMessages.EMOJI_AND_TITLE_FORMAT_STR,
-                                    Emoji.ALARM_CLOCK,
-                                    REMINDER_TITLE))
-                                .setDescription(REMINDER_DESCRIPTION)
-                                .setColor(Color.ENDEAVOUR)
-                                .setTimestamp(Instant.now());
-
-                            BotMessages.attachDiscordEventsListToEmbed(
-                                embedCreateSpec, unNotifiedDiscordEvents, usersMap);
-                        }));
+        // Reads the DDB at each minute, or the agenda when following changes, to find
+        // the events of all guilds that are occurring within the next 15 minutes. Only
+        // event summaries are read since reminders do not show descriptions nor attendees.
+        // The task filters out the events of unsubscribed guilds and the ones that have
+        // already been notified as per its own in-memory cache, then reminds each
+        // subscribed channel.
+
+        sweep(Instant.now())
+            // Takes no slot from the users' commands
+            .subscriberContext(StorageBudget.BACKGROUND.context())
+            .subscribe(null, throwable -> log.warn("Could not check events: {}", throwable.toString()));
+    }
+
+    /**
+     * Reminds the subscribed guilds of their events that start between now and
+     * the next 15 minutes, and that they were not reminded of yet.
+     *
+     * @param now current date time
+     * @return Mono<Void> completes once every reminder is sent
+     */
+    Mono<Void> sweep(Instant now) {
+        notifiedDiscordEvents.values().removeIf(timestamp -> timestamp.isBefore(now));
+
+        return upcomingDiscordEvents(now, now.plus(EVENT_CHECK_TIME_DELTA))
+            .filter(discordEvent -> subscriptions.containsKey(discordEvent.getGuildId()) &&
+                !notifiedDiscordEvents.containsKey(discordEvent.getMessageId()))
+            .collectMultimap(DiscordEventSummary::getGuildId)
+            .flatMapMany(discordEventsByGuild -> Flux.fromIterable(discordEventsByGuild.entrySet()))
+            .flatMap(guildDiscordEvents -> remind(guildDiscordEvents.getKey(), guildDiscordEvents.getValue()))
+            .then();
+    }
+
+    /**
+     * Events of all guilds that start in the given range, in time order. They come from
+     * the agenda when it covers the range, otherwise from the repository.
+     */
+    private Flux<DiscordEventSummary> upcomingDiscordEvents(Instant from, Instant until) {
+        if (!followingChanges) {
+            return repository.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(from, until);
+        }
+
+        synchronized (this) {
+            if (agendaUntil != null && !until.isAfter(agendaUntil)) {
+                agenda.values().removeIf(discordEvent -> discordEvent.getTimestamp().isBefore(from));
+                return Flux.fromIterable(inRange(agenda.values(), from, until));
+            }
+            if (changesWhileLoading != null) {
+                // The previous run is still reading the agenda
+                return repository.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(from, until);
+            }
+            changesWhileLoading = new ArrayList<>();
+        }
+
+        Instant loadedUntil = from.plus(AGENDA_HORIZON);
+        return repository.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(from, loadedUntil)
+            .collectMap(DiscordEventSummary::getMessageId, Function.identity(), ConcurrentHashMap::new)
+            .map(loadedAgenda -> {
+                synchronized (this) {
+                    changesWhileLoading.forEach(change -> applyTo(loadedAgenda, loadedUntil, change));
+                    changesWhileLoading = null;
+                    agenda = loadedAgenda;
+                    agendaUntil = loadedUntil;
+                    return inRange(loadedAgenda.values(), from, until);
                 }
-                return Mono.empty();
             })
-            .then()
-            .subscribe();
+            .doOnError(throwable -> {
+                synchronized (this) {
+                    changesWhileLoading = null;
+                }
+            })
+            .flatMapIterable(Function.identity());
+    }
+
+    synchronized void applyDiscordEventChange(DiscordEventChange change) {
+        if (changesWhileLoading != null) {
+            changesWhileLoading.add(change);
+        }
+        if (agendaUntil != null) {
+            applyTo(agenda, agendaUntil, change);
+        }
+    }
+
+    private synchronized void unfollow() {
+        followingChanges = false;
+        agendaUntil = null;
+    }
+
+    private static void applyTo(Map<Long, DiscordEventSummary> agenda, Instant agendaUntil, DiscordEventChange change) {
+        long messageId = change.getDiscordEvent().getMessageId();
+        if (change.getType() == DiscordEventChange.Type.REMOVE ||
+            !change.getNewDiscordEvent().getTimestamp().isBefore(agendaUntil)) {
+            agenda.remove(messageId);
+        } else {
+            agenda.put(messageId, DiscordEventSummary.of(change.getNewDiscordEvent()));
+        }
+    }
+
+    private static List<DiscordEventSummary> inRange(Collection<DiscordEventSummary> discordEvents,
+                                                     Instant from,
+                                                     Instant until) {
+        return discordEvents.stream()
+            .filter(discordEvent -> !discordEvent.getTimestamp().isBefore(from) &&
+                discordEvent.getTimestamp().isBefore(until))
+            .sorted(Comparator.comparing(DiscordEventSummary::getTimestamp))
+            .collect(Collectors.toList());
+    }
+
+    private Mono<Void> remind(long guildId, Collection<DiscordEventSummary> discordEvents) {
+        EventReminderSubscription subscription = subscriptions.get(guildId);
+        if (subscription == null) {
+            return Mono.empty();
+        }
+
+        List<DiscordEventSummary> unNotifiedDiscordEvents = discordEvents.stream()
+            .limit(BotMessages.EMBED_FIELD_LIMIT)
+            .collect(Collectors.toList());
+        unNotifiedDiscordEvents.forEach(discordEvent ->
+            notifiedDiscordEvents.put(discordEvent.getMessageId(), discordEvent.getTimestamp()));
+
+        // One guild failing to be reminded does not keep the others from it
+        return subscription.remind(unNotifiedDiscordEvents)
+            .onErrorResume(throwable -> {
+                log.warn("Could not remind guild {} of its events: {}", guildId, throwable.toString());
+                return Mono.empty();
+            });
     }
 }
@@ -0,0 +1,97 @@
+package com.alvyn279.discord.stateful.metrics;
+
+import com.google.inject.Singleton;
+import lombok.Builder;
+import lombok.Data;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * AWS SDK {@link MetricPublisher} that keeps track of the HTTP connection
+ * pool usage of the client it is attached to.
+ * <p>
+ * The SDK reports the pool state on every API call attempt, so the
+ * snapshot reflects the state of the pool at the last DDB call.
+ */
+@Singleton
+public class ConnectionPoolMetricPublisher implements MetricPublisher {
+
+    private final AtomicInteger maxConcurrency = new AtomicInteger();
+    private final AtomicInteger availableConcurrency = new AtomicInteger();
+    private final AtomicInteger leasedConcurrency = new AtomicInteger();
+    private final AtomicInteger pendingConcurrencyAcquires = new AtomicInteger();
+    private final AtomicInteger peakLeasedConcurrency = new AtomicInteger();
+    private final AtomicLong apiCalls = new AtomicLong();
+
+    /**
+     * Point-in-time view of the connection pool.
+     */
+    @Data
+    @Builder
+    public static class ConnectionPoolUsage {
+        private final int maxConcurrency;
+        private final int availableConcurrency;
+        private final int leasedConcurrency;
+        private final int pendingConcurrencyAcquires;
+        private final int peakLeasedConcurrency;
+        private final long apiCalls;
+    }
+
+    @Override
+    public void publish(MetricCollection metricCollection) {
+        apiCalls.incrementAndGet();
+        collect(metricCollection);
+    }
+
+    @Override
+    public void close() {
+        // Nothing to flush, snapshot lives in memory
+    }
+
+    /**
+     * Returns the last known usage of the connection pool.
+     *
+     * @return ConnectionPoolUsage
+     */
+    public ConnectionPoolUsage getUsage() {
+        return ConnectionPoolUsage.builder()
+            .maxConcurrency(maxConcurrency.get())
+            .availableConcurrency(availableConcurrency.get())
+            .leasedConcurrency(leasedConcurrency.get())
+            .pendingConcurrencyAcquires(pendingConcurrencyAcquires.get())
+            .peakLeasedConcurrency(peakLeasedConcurrency.get())
+            .apiCalls(apiCalls.get())
+            .build();
+    }
+
+    /**
+     * Walks the metric collection tree since the HTTP metrics are
+     * reported in the children of the API call collection.
+     *
+     * @param metricCollection collection to read
+     */
+    private void collect(MetricCollection metricCollection) {
+        setLast(maxConcurrency, metricCollection, HttpMetric.MAX_CONCURRENCY);
+        setLast(availableConcurrency, metricCollection, HttpMetric.AVAILABLE_CONCURRENCY);
+        setLast(pendingConcurrencyAcquires, metricCollection, HttpMetric.PENDING_CONCURRENCY_ACQUIRES);
+        if (setLast(leasedConcurrency, metricCollection, HttpMetric.LEASED_CONCURRENCY)) {
+            peakLeasedConcurrency.accumulateAndGet(leasedConcurrency.get(), Math::max);
+        }
+        metricCollection.children().forEach(this::collect);
+    }
+
+    private static boolean setLast(AtomicInteger target, MetricCollection collection, SdkMetric<Integer> metric) {
+        List<Integer> values = collection.metricValues(metric);
+        if (values.isEmpty()) {
+            return false;
+        }
+        target.set(values.get(values.size() - 1));
+        return true;
+    }
+}
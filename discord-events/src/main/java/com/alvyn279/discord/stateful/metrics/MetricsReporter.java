@@ -0,0 +1,89 @@
+package com.alvyn279.discord.stateful.metrics;
+
+import com.alvyn279.discord.utils.EnvironmentUtils;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Singleton that periodically logs the in-memory metrics of the
+ * stateful components of the bot (connection pool, caches, ...).
+ * <p>
+ * Components register a named supplier once and the reporter
+ * takes care of polling it on the shared scheduler.
+ */
+@Slf4j
+@Singleton
+public class MetricsReporter {
+
+    private static final String REPORT_INTERVAL_SECONDS_KEY = "DISCORD_EVENTS_METRICS_REPORT_INTERVAL_SECONDS";
+    private static final Integer DEFAULT_REPORT_INTERVAL_SECONDS = 300;
+
+    private final ScheduledExecutorService scheduledExecutorService;
+    // { name:str -> metrics snapshot supplier }, sorted for stable log output
+    private final Map<String, Supplier<?>> sources;
+    private Future<?> reporting;
+
+    @Inject
+    public MetricsReporter(ScheduledExecutorService scheduledExecutorService) {
+        this.scheduledExecutorService = scheduledExecutorService;
+        this.sources = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Registers a metrics source. The supplier is called on every
+     * report and its `toString()` is logged.
+     *
+     * @param name   name of the metrics source
+     * @param source snapshot supplier
+     */
+    public void register(String name, Supplier<?> source) {
+        sources.put(name, source);
+    }
+
+    /**
+     * Logs the current snapshot of every registered source.
+     */
+    public void report() {
+        sources.forEach((name, source) -> {
+            try {
+                log.info("[metrics] {}: {}", name, source.get());
+            } catch (RuntimeException e) {
+                log.warn("[metrics] Could not report {}", name, e);
+            }
+        });
+    }
+
+    /**
+     * Starts reporting at the rate configured in the environment.
+     * Calling it more than once has no effect.
+     */
+    public synchronized void start() {
+        if (reporting != null) {
+            return;
+        }
+        long interval = EnvironmentUtils.getIntegerEnvVarOrDefault(
+            REPORT_INTERVAL_SECONDS_KEY, DEFAULT_REPORT_INTERVAL_SECONDS);
+        reporting = scheduledExecutorService.scheduleAtFixedRate(
+            this::report, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops reporting and logs one last snapshot.
+     */
+    public synchronized void stop() {
+        if (reporting == null) {
+            return;
+        }
+        reporting.cancel(false);
+        reporting = null;
+        report();
+    }
+}
@@ -4,9 +4,8 @@ import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordEvent;
 import com.alvyn279.discord.domain.GuildUtils;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
-import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.ImmutableSet;
 import discord4j.core.event.domain.message.ReactionAddEvent;
 import discord4j.core.event.domain.message.ReactionRemoveEvent;
 import discord4j.core.object.entity.Guild;
@@ -18,7 +17,6 @@ import lombok.experimental.SuperBuilder;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Object for messages sent by the bot in response
@@ -45,7 +43,7 @@ public class AttendMessage extends BaseMessage implements ReactableMessage {
      * @param index        index at which it appeared in the list
      * @return list of the newly update list of discord events
      */
-    private List<DiscordEvent> popAndReplaceAtIndex(DiscordEvent discordEvent, Integer index) {
+    private synchronized List<DiscordEvent> popAndReplaceAtIndex(DiscordEvent discordEvent, Integer index) {
         ImmutableList.Builder<DiscordEvent> listBuilder = ImmutableList.builder();
         for (int i = 0; i < discordEvents.size(); ++i) {
             if (i == index) {
@@ -82,15 +80,12 @@ public class AttendMessage extends BaseMessage implements ReactableMessage {
 
     @Override
     public Mono<Void> onReactionAdd(ReactionAddEvent event) {
-        String attendeeId = event.getUserId().asString();
+        long attendeeId = event.getUserId().asLong();
         return retrieveRawUnicode(event.getEmoji())
             .map(rawReactionEmojiStr -> GuildUtils.getNumberedEmojiIndex(rawReactionEmojiStr)
-                .map(index -> repository.saveDiscordEvent(DiscordEventDTO
-                    .copyOfBuilder(discordEvents.get(index))
-                    .attendees(ImmutableSet.<String>builder()
-                        .addAll(discordEvents.get(index).getAttendees())
-                        .add(attendeeId)
-                        .build())
+                .map(index -> repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+                    .discordEvent(discordEvents.get(index))
+                    .attendeeId(attendeeId)
                     .build())
                     .flatMap(modifiedDiscordEvent -> updateAttendMessage(modifiedDiscordEvent, index)))
                 .orElse(Mono.empty())
@@ -101,17 +96,12 @@ public class AttendMessage extends BaseMessage implements ReactableMessage {
 
     @Override
     public Mono<Void> onReactionRemove(ReactionRemoveEvent event) {
-        String dipperId = event.getUserId().asString();
+        long dipperId = event.getUserId().asLong();
         return retrieveRawUnicode(event.getEmoji())
             .map(rawReactionEmojiStr -> GuildUtils.getNumberedEmojiIndex(rawReactionEmojiStr)
-                .map(index -> repository.saveDiscordEvent(DiscordEventDTO
-                    .copyOfBuilder(discordEvents.get(index))
-                    .attendees(ImmutableSet.<String>builder()
-                        .addAll(discordEvents.get(index).getAttendees().stream()
-                            .filter(s -> !s.equals(dipperId))
-                            .collect(Collectors.toSet())
-                        )
-                        .build())
+                .map(index -> repository.removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+                    .discordEvent(discordEvents.get(index))
+                    .attendeeId(dipperId)
                     .build())
                     .flatMap(modifiedDiscordEvent -> updateAttendMessage(modifiedDiscordEvent, index)))
                 .orElse(Mono.empty())
@@ -14,8 +14,8 @@ import java.util.Optional;
  */
 @Singleton
 public class ReactableMessagePool {
-    // { GuildId:str -> { MessageId:str -> ReactableMessage } }
-    private final Map<String, Map<String, ReactableMessage>> reactableMessages;
+    // { GuildId -> { MessageId -> ReactableMessage } }
+    private final Map<Long, Map<Long, ReactableMessage>> reactableMessages;
 
     public ReactableMessagePool() {
         this.reactableMessages = new HashMap<>();
@@ -29,9 +29,9 @@ public class ReactableMessagePool {
      * @param messageId        bot message id
      * @param reactableMessage reactable/actionable message
      */
-    public void putReactableMessage(Guild guild, String messageId, ReactableMessage reactableMessage) {
+    public void putReactableMessage(Guild guild, long messageId, ReactableMessage reactableMessage) {
         reactableMessages.put(
-            guild.getId().asString(),
+            guild.getId().asLong(),
             ImmutableMap.of(messageId, reactableMessage)
         );
     }
@@ -44,11 +44,11 @@ public class ReactableMessagePool {
      * @param messageId bot message id (obtained by discord4j provided event listeners
      * @return optional of type ReactableMessage
      */
-    public Optional<ReactableMessage> getReactableMessage(Guild guild, String messageId) {
-        if (!reactableMessages.containsKey(guild.getId().asString()) ||
-            !reactableMessages.get(guild.getId().asString()).containsKey(messageId)) {
+    public Optional<ReactableMessage> getReactableMessage(Guild guild, long messageId) {
+        Map<Long, ReactableMessage> guildReactableMessages = reactableMessages.get(guild.getId().asLong());
+        if (guildReactableMessages == null || !guildReactableMessages.containsKey(messageId)) {
             return Optional.empty();
         }
-        return Optional.of(reactableMessages.get(guild.getId().asString()).get(messageId));
+        return Optional.of(guildReactableMessages.get(messageId));
     }
 }
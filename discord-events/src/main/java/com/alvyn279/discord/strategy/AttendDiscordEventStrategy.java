@@ -46,17 +46,18 @@ public class AttendDiscordEventStrategy {
 
     }
 
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<Void> context) {
         Guild guild = context.getGuild();
         MessageCreateEvent event = context.getMessageCreateEvent();
         Message msg = event.getMessage();
         ListDiscordEventsCommandDTO dto = ListDiscordEventsCommandDTO.builder()
-            .guildId(guild.getId().asString())
+            .guildId(guild.getId().asLong())
             .currentDateTime(Instant.now())
             .upcomingLimit(REACTION_LIMIT)
             .build();
 
-        return discordEventReactiveRepository.listDiscordEventsByUpcomingWithLimit(dto)
+        return discordEventReactiveRepository.streamDiscordEventsByUpcoming(dto)
+            .collectList()
             .flatMap(discordEvents -> msg.getChannel()
                 .flatMap(messageChannel -> GuildUtils.retrieveGuildUsers(guild)
                     .flatMap(stringUserMap -> messageChannel.createEmbed(embedCreateSpec ->
@@ -78,7 +79,7 @@ public class AttendDiscordEventStrategy {
                 .flatMap(message -> {
                     reactableMessagePool.putReactableMessage(
                         guild,
-                        message.getId().asString(),
+                        message.getId().asLong(),
                         attendMessageFactory.createAttendMessage(guild, message, discordEvents)
                     );
                     return Mono.empty();
@@ -0,0 +1,254 @@
+package com.alvyn279.discord.strategy;
+
+import com.alvyn279.discord.command.CommandGrammar;
+import com.alvyn279.discord.command.CommandParser;
+import com.alvyn279.discord.domain.CommandBehaviour;
+import com.alvyn279.discord.domain.Constants;
+import com.alvyn279.discord.domain.DiscordCommandContext;
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.stateful.metrics.MetricsReporter;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import lombok.Builder;
+import lombok.Data;
+import lombok.Getter;
+import org.apache.commons.lang3.StringUtils;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Dispatch table of the bot commands, built once at startup.
+ * <p>
+ * Every strategy is resolved when the registry is created, including the ones a
+ * command picks from the shape of its arguments, so that running a command does
+ * not go through the injector. Each of these handlers parses the arguments with the
+ * {@link CommandGrammar} before anything is fetched, and keeps its own latency, from
+ * the dispatch of the command to its completion.
+ */
+@Singleton
+public class CommandRegistry {
+
+    private static final String COMMANDS_METRICS_NAME = "commands";
+
+    /**
+     * Commands of the bot, by the word that follows the command prefix.
+     */
+    public enum Command {
+        ATTEND_EVENTS("attend-events"),
+        CREATE_EVENT("create-event"),
+        DELETE_EVENTS("delete-events"),
+        HELP("help-events"),
+        LIST_EVENTS("list-events"),
+        MY_EVENTS("my-events"),
+        PING("ping"),
+        REMIND_EVENTS("remind-events");
+
+        @Getter
+        private final String word;
+
+        Command(String word) {
+            this.word = word;
+        }
+    }
+
+    /**
+     * Point-in-time view of the latency of a handler.
+     */
+    @Data
+    @Builder
+    public static class HandlerUsage {
+        private final long calls;
+        private final long errors;
+        private final long meanMillis;
+        private final long maxMillis;
+    }
+
+    private final Map<Command, CommandBehaviour> commands;
+    // { handler name -> latency }, sorted for stable log output
+    private final Map<String, HandlerLatency> latencies;
+
+    @Inject
+    public CommandRegistry(AttendDiscordEventStrategy attendDiscordEventStrategy,
+                           CreateFullDiscordEventStrategy createDiscordEventStrategy,
+                           DeleteSingleDiscordEventStrategy deleteSingleDiscordEventStrategy,
+                           DeleteMultipleDiscordEventsStrategy deleteMultipleDiscordEventsStrategy,
+                           ListUpcomingDiscordEventsStrategy listUpcomingDiscordEventsStrategy,
+                           ListDiscordEventsOnDateStrategy listDiscordEventsOnDateStrategy,
+                           ListDiscordEventsInDateRangeStrategy listDiscordEventsInDateRangeStrategy,
+                           ListDiscordEventsForCurrentUserStrategy listPersonalDiscordEventsStrategy,
+                           StartEventReminderServiceStrategy startEventReminderServiceStrategy,
+                           StatusEventReminderServiceStrategy statusEventReminderServiceStrategy,
+                           StopEventReminderServiceStrategy stopEventReminderServiceStrategy,
+                           MetricsReporter metricsReporter) {
+        final Map<String, HandlerLatency> latencies = new TreeMap<>();
+        final Map<Command, CommandBehaviour> commands = new EnumMap<>(Command.class);
+        final HelpStrategy helpStrategy = new HelpStrategy();
+
+        commands.put(Command.PING, timed(latencies, "ping", (event, tokens) -> event.getMessage().getChannel()
+            .flatMap(messageChannel -> messageChannel.createEmbed(
+                embedCreateSpec -> {
+                    embedCreateSpec
+                        .setTitle("Pong mf!")
+                        .setDescription("tt le monde est sus. J'suis en train d'apprendre reactive programming")
+                        .setTimestamp(Instant.now());
+                    Constants.CHANNEL_USERS
+                        .forEach(user -> embedCreateSpec.addField(user.getName(), user.getRole(), true));
+                }))
+            .then()));
+
+        commands.put(Command.HELP, timed(latencies, "help-events", (event, tokens) -> helpStrategy.execute(event)));
+
+        // COMMAND FORMAT: !attend-event
+        commands.put(Command.ATTEND_EVENTS, inGuild(latencies, "attend-events",
+            CommandGrammar::noArguments, attendDiscordEventStrategy::execute));
+
+        // COMMAND FORMAT: !create-event [str] [date] [time] [str]?
+        //                 ex: !create-event “Event title” 2/2/2021 19:00 “Event description”
+        commands.put(Command.CREATE_EVENT, inGuild(latencies, "create-event",
+            CommandGrammar::createEvent, createDiscordEventStrategy::execute));
+
+        // COMMAND FORMAT: !delete-events [deleteCode:str]
+        final CommandBehaviour deleteSingle = inGuild(latencies, "delete-events [deleteCode]",
+            CommandGrammar::deleteEvents, deleteSingleDiscordEventStrategy::execute);
+        // COMMAND FORMAT: !delete-events [deleteCode:str] [deleteCode:str] [deleteCode:str] ...
+        final CommandBehaviour deleteMultiple = inGuild(latencies, "delete-events [deleteCode]...",
+            CommandGrammar::deleteEvents, deleteMultipleDiscordEventsStrategy::execute);
+        commands.put(Command.DELETE_EVENTS, (event, tokens) ->
+            (tokens.size() <= 2 ? deleteSingle : deleteMultiple).execute(event, tokens));
+
+        // COMMAND FORMAT: !list-events [num] |
+        //                 !list-events [date] |
+        //                 !list-events [startDate] [endDate]
+        final CommandBehaviour listDefault = inGuild(latencies, "list-events",
+            CommandGrammar::listUpcoming, listUpcomingDiscordEventsStrategy::execute);
+        final CommandBehaviour listUpcoming = inGuild(latencies, "list-events [num]",
+            CommandGrammar::listUpcoming, listUpcomingDiscordEventsStrategy::execute);
+        final CommandBehaviour listOnDate = inGuild(latencies, "list-events [date]",
+            CommandGrammar::listOnDate, listDiscordEventsOnDateStrategy::execute);
+        final CommandBehaviour listInDateRange = inGuild(latencies, "list-events [startDate] [endDate]",
+            CommandGrammar::listRange, listDiscordEventsInDateRangeStrategy::execute);
+        commands.put(Command.LIST_EVENTS, (event, tokens) -> {
+            if (tokens.size() == 1) {
+                return listDefault.execute(event, tokens);
+            } else if (tokens.size() == 2) {
+                return (StringUtils.isNumeric(tokens.view(1)) ? listUpcoming : listOnDate).execute(event, tokens);
+            }
+            return listInDateRange.execute(event, tokens);
+        });
+
+        // COMMAND FORMAT: !my-events [history:str]?
+        commands.put(Command.MY_EVENTS, inGuild(latencies, "my-events",
+            CommandGrammar::myEvents, listPersonalDiscordEventsStrategy::execute));
+
+        // COMMAND FORMAT: !remind-events [on|off:str]
+        final CommandBehaviour remindStatus = inGuild(latencies, "remind-events",
+            CommandGrammar::remindEvents, statusEventReminderServiceStrategy::execute);
+        final CommandBehaviour remindOn = inGuild(latencies, "remind-events on",
+            CommandGrammar::remindEvents, startEventReminderServiceStrategy::execute);
+        final CommandBehaviour remindOff = inGuild(latencies, "remind-events off",
+            CommandGrammar::remindEvents, stopEventReminderServiceStrategy::execute);
+        // Other arguments are rejected by the grammar of the status
+        commands.put(Command.REMIND_EVENTS, (event, tokens) -> {
+            if (tokens.matches(1, CommandGrammar.REMIND_ON_QUALIFIER)) {
+                return remindOn.execute(event, tokens);
+            } else if (tokens.matches(1, CommandGrammar.REMIND_OFF_QUALIFIER)) {
+                return remindOff.execute(event, tokens);
+            }
+            return remindStatus.execute(event, tokens);
+        });
+
+        this.commands = Maps.immutableEnumMap(commands);
+        this.latencies = ImmutableSortedMap.copyOf(latencies);
+        metricsReporter.register(COMMANDS_METRICS_NAME, this::getUsage);
+    }
+
+    /**
+     * @return Map of the behaviour of every command, by its word
+     */
+    public Map<String, CommandBehaviour> getCommandsByWord() {
+        ImmutableMap.Builder<String, CommandBehaviour> commandsByWord = ImmutableMap.builder();
+        commands.forEach((command, behaviour) -> commandsByWord.put(command.getWord(), behaviour));
+        return commandsByWord.build();
+    }
+
+    /**
+     * Returns the number of calls, errors and the mean and max latency of every handler.
+     *
+     * @return Map of HandlerUsage by handler name
+     */
+    public Map<String, HandlerUsage> getUsage() {
+        return ImmutableSortedMap.copyOf(Maps.transformValues(latencies, HandlerLatency::getUsage));
+    }
+
+    private static <C> CommandBehaviour inGuild(Map<String, HandlerLatency> latencies,
+                                                String name,
+                                                CommandParser<C> parser,
+                                                Function<DiscordCommandContext<C>, Mono<Void>> strategy) {
+        return timed(latencies, name, (event, tokens) -> {
+            final C command;
+            try {
+                command = parser.parse(tokens);
+            } catch (InvalidCommandException e) {
+                return Mono.error(e);
+            }
+            // Only valid commands fetch the guild
+            return event.getGuild()
+                .flatMap(guild -> strategy.apply(DiscordCommandContext.<C>builder()
+                    .command(command)
+                    .guild(guild)
+                    .messageCreateEvent(event)
+                    .build()));
+        });
+    }
+
+    private static CommandBehaviour timed(Map<String, HandlerLatency> latencies,
+                                          String name,
+                                          CommandBehaviour behaviour) {
+        final HandlerLatency latency = new HandlerLatency();
+        latencies.put(name, latency);
+        // Recorded before the caller sees the outcome, unlike doFinally
+        return (event, tokens) -> Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            return behaviour.execute(event, tokens)
+                .doOnSuccess(ignored -> latency.record(System.nanoTime() - startNanos, false))
+                .doOnError(throwable -> latency.record(System.nanoTime() - startNanos, true))
+                .doOnCancel(() -> latency.record(System.nanoTime() - startNanos, false));
+        });
+    }
+
+    private static class HandlerLatency {
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        void record(long nanos, boolean error) {
+            calls.incrementAndGet();
+            if (error) {
+                errors.incrementAndGet();
+            }
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        HandlerUsage getUsage() {
+            long callCount = calls.get();
+            return HandlerUsage.builder()
+                .calls(callCount)
+                .errors(errors.get())
+                .meanMillis(callCount == 0 ? 0 : Duration.ofNanos(totalNanos.get() / callCount).toMillis())
+                .maxMillis(Duration.ofNanos(maxNanos.get()).toMillis())
+                .build();
+        }
+    }
+}
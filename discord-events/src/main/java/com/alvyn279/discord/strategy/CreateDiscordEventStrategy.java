@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.CreateEventCommand;
 import com.alvyn279.discord.domain.DiscordEvent;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import reactor.core.publisher.Mono;
@@ -16,5 +17,5 @@ public interface CreateDiscordEventStrategy {
      * @param context Discord context with arguments
      * @return Mono<Void>
      */
-    public Mono<Void> execute(DiscordCommandContext context);
+    public Mono<Void> execute(DiscordCommandContext<CreateEventCommand> context);
 }
@@ -1,7 +1,10 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.CreateEventCommand;
+import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
 import com.alvyn279.discord.repository.dto.DiscordEventDTO;
 import com.alvyn279.discord.utils.DateUtils;
@@ -13,7 +16,6 @@ import discord4j.rest.util.Color;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
-import java.util.List;
 
 /**
  * Implements {@link CreateDiscordEventStrategy} by writing a discord event
@@ -21,7 +23,8 @@ import java.util.List;
  */
 public class CreateFullDiscordEventStrategy implements CreateDiscordEventStrategy {
 
-    public static final String DEFAULT_CREATOR = "BOT";
+    // Snowflakes are never 0
+    public static final long DEFAULT_CREATOR = 0L;
 
     private final DiscordEventReactiveRepository discordEventReactiveRepository;
 
@@ -31,26 +34,26 @@ public class CreateFullDiscordEventStrategy implements CreateDiscordEventStrateg
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<CreateEventCommand> context) {
         MessageCreateEvent event = context.getMessageCreateEvent();
         Guild guild = context.getGuild();
-        List<String> tokens = context.getTokens();
+        CreateEventCommand command = context.getCommand();
         Message msg = event.getMessage();
-        // Support optional descriptions
-        String desc = (tokens.size() == 5 ? tokens.get(4) : null);
 
         DiscordEventDTO discordEventDTO = DiscordEventDTO.builder()
-            .guildId(guild.getId().asString())
-            .timestamp(DateUtils.fromDateAndTime(tokens.get(2), tokens.get(3)))
+            .guildId(guild.getId().asLong())
+            .timestamp(command.getTimestamp())
             .createdBy(msg.getAuthor().isPresent() ?
-                msg.getAuthor().get().getId().asString() : DEFAULT_CREATOR)
-            .messageId(msg.getId().asString())
-            .name(tokens.get(1))
-            .description(desc)
+                msg.getAuthor().get().getId().asLong() : DEFAULT_CREATOR)
+            .messageId(msg.getId().asLong())
+            .name(command.getName())
+            .description(command.getDescription())
+            // The command message identifies the write: handling it again is a no-op
+            .idempotencyKey(msg.getId().asString())
             .build();
 
-        //TODO: check existence before writing
-
+        // The write is conditional: retrying it does not create the event twice,
+        // and it does not replace another event of the user at the same time
         return discordEventReactiveRepository.saveDiscordEvent(discordEventDTO)
             // Announce newly created event
             .flatMap(discordEventRes -> msg.getChannel()
@@ -69,7 +72,12 @@ public class CreateFullDiscordEventStrategy implements CreateDiscordEventStrateg
                             true)
                         .setTimestamp(Instant.now())
                 ))
-            ).then();
+            )
+            .onErrorResume(DiscordEventConflictException.class, e -> msg.getChannel()
+                .flatMap(messageChannel -> messageChannel.createEmbed(embedCreateSpec ->
+                    BotMessages.attachCreateConflictToEmbed(embedCreateSpec, discordEventDTO.getTimestamp()))
+                ))
+            .then();
     }
 }
 
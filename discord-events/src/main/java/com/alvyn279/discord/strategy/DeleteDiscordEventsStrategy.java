@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.DeleteEventsCommand;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.domain.DiscordEvent;
 import reactor.core.publisher.Mono;
@@ -15,5 +16,5 @@ public interface DeleteDiscordEventsStrategy {
      * @param context Discord context with arguments
      * @return Mono<Void>
      */
-    public Mono<Void> execute(DiscordCommandContext context);
+    public Mono<Void> execute(DiscordCommandContext<DeleteEventsCommand> context);
 }
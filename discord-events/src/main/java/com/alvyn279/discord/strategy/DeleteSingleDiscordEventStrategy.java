@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.DeleteEventsCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.exception.AccessDeniedException;
@@ -24,11 +25,11 @@ public class DeleteSingleDiscordEventStrategy implements DeleteDiscordEventsStra
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<DeleteEventsCommand> context) {
         return discordEventReactiveRepository.deleteDiscordEvent(DeleteDiscordEventCommandDTO.builder()
-            .guildId(context.getGuild().getId().asString())
-            .userId(context.getMessageCreateEvent().getMessage().getAuthor().orElseThrow().getId().asString())
-            .deleteCode(context.getTokens().get(1))
+            .guildId(context.getGuild().getId().asLong())
+            .userId(context.getMessageCreateEvent().getMessage().getAuthor().orElseThrow().getId().asLong())
+            .deleteCode(context.getCommand().getDeleteCodes().get(0))
             .build()
         )
             .flatMap(discordEvent -> context.getMessageCreateEvent().getMessage().getChannel()
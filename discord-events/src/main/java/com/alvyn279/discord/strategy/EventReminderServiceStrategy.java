@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.RemindCommand;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import reactor.core.publisher.Mono;
 
@@ -16,5 +17,5 @@ public interface EventReminderServiceStrategy {
      * @param context discord context
      * @return Mono<void>
      */
-    public Mono<Void> execute(DiscordCommandContext context);
+    public Mono<Void> execute(DiscordCommandContext<RemindCommand> context);
 }
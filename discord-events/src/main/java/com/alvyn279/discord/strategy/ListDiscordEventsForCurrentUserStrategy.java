@@ -1,14 +1,15 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.MyEventsCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
+import com.alvyn279.discord.domain.DiscordEvent;
 import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
-import com.google.common.collect.ImmutableList;
 import com.google.inject.Inject;
-import discord4j.core.event.domain.message.MessageCreateEvent;
 import discord4j.rest.util.Color;
 import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.Instant;
@@ -17,12 +18,16 @@ import java.time.Instant;
  * Behaviour for the !my-events command.
  * Implements {@link ListDiscordEventsStrategy} by listing all the
  * events that have been created by the requesting user.
+ * <p>
+ * With the `history` qualifier, it lists the user's past events that
+ * were moved to the archive instead, most recent first.
  */
 @Slf4j
-public class ListDiscordEventsForCurrentUserStrategy implements ListDiscordEventsStrategy {
+public class ListDiscordEventsForCurrentUserStrategy implements ListDiscordEventsStrategy<MyEventsCommand> {
 
     private static final String EMBED_TITLE_FORMAT_STR = "%s's Events";
     private final static String EMBED_DESCRIPTION = "Here are the events you created:";
+    private final static String EMBED_HISTORY_DESCRIPTION = "Here are your past events, most recent first:";
 
     private final DiscordEventReactiveRepository discordEventReactiveRepository;
 
@@ -32,45 +37,40 @@ public class ListDiscordEventsForCurrentUserStrategy implements ListDiscordEvent
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<MyEventsCommand> context) {
+        // COMMAND FORMAT: !my-events [history:str]?
+        boolean history = context.getCommand().isHistory();
+
         return Mono.just(context.getMessageCreateEvent().getMessage().getAuthor())
-            .flatMap(optionalUser -> discordEventReactiveRepository.listDiscordEventCreatedByUser(
-                ListDiscordEventsCommandDTO.builder()
-                    .guildId(context.getGuild().getId().asString())
-                    .userId(optionalUser.orElseThrow().getId().asString())
-                    .build())
-                .flatMap(discordEvents -> context.getMessageCreateEvent().getMessage().getChannel()
-                    .flatMap(messageChannel -> messageChannel.createEmbed(embedCreateSpec -> {
-                        embedCreateSpec
-                            .setTitle(String.format(
-                                EMBED_TITLE_FORMAT_STR,
-                                optionalUser.orElseThrow().getUsername()
-                            ))
-                            .setThumbnail(optionalUser.orElseThrow().getAvatarUrl())
-                            .setDescription(EMBED_DESCRIPTION)
-                            .setColor(Color.DARK_GOLDENROD)
-                            .setTimestamp(Instant.now());
+            .flatMap(optionalUser -> {
+                ListDiscordEventsCommandDTO args = ListDiscordEventsCommandDTO.builder()
+                    .guildId(context.getGuild().getId().asLong())
+                    .userId(optionalUser.orElseThrow().getId().asLong())
+                    .build();
+                // The archive is only read when asked for
+                Flux<DiscordEvent> userDiscordEvents = history ?
+                    discordEventReactiveRepository.streamArchivedDiscordEventsCreatedByUser(args) :
+                    discordEventReactiveRepository.streamDiscordEventsCreatedByUser(args);
 
-                        BotMessages.attachDiscordEventsPersonalListToEmbed(embedCreateSpec, discordEvents);
-                    }))
-                )
-                .then()
-            );
-    }
+                return userDiscordEvents
+                    .take(BotMessages.EMBED_FIELD_LIMIT)
+                    .collectList()
+                    .flatMap(discordEvents -> context.getMessageCreateEvent().getMessage().getChannel()
+                        .flatMap(messageChannel -> messageChannel.createEmbed(embedCreateSpec -> {
+                            embedCreateSpec
+                                .setTitle(String.format(
+                                    EMBED_TITLE_FORMAT_STR,
+                                    optionalUser.orElseThrow().getUsername()
+                                ))
+                                .setThumbnail(optionalUser.orElseThrow().getAvatarUrl())
+                                .setDescription(history ? EMBED_HISTORY_DESCRIPTION : EMBED_DESCRIPTION)
+                                .setColor(Color.DARK_GOLDENROD)
+                                .setTimestamp(Instant.now());
 
-    /**
-     * Execute strategy from a {@link MessageCreateEvent}
-     *
-     * @param messageCreateEvent event initiated by user message
-     * @return Mono<Void>
-     */
-    public Mono<Void> execute(MessageCreateEvent messageCreateEvent) {
-        return messageCreateEvent.getGuild()
-            .flatMap(guild -> execute(DiscordCommandContext.builder()
-                .tokens(ImmutableList.of()) // no-op
-                .guild(guild)
-                .messageCreateEvent(messageCreateEvent)
-                .build()
-            ));
+                            BotMessages.attachDiscordEventsPersonalListToEmbed(embedCreateSpec, discordEvents);
+                        }))
+                    )
+                    .then();
+            });
     }
 }
@@ -1,11 +1,11 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.ListRangeCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.domain.GuildUtils;
 import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
 import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
-import com.alvyn279.discord.utils.DateUtils;
 import com.google.inject.Inject;
 import discord4j.rest.util.Color;
 import reactor.core.publisher.Mono;
@@ -16,7 +16,7 @@ import java.time.Instant;
  * Implements {@link ListDiscordEventsStrategy} by listing all events
  * in DDB based on a date range.
  */
-public class ListDiscordEventsInDateRangeStrategy implements ListDiscordEventsStrategy {
+public class ListDiscordEventsInDateRangeStrategy implements ListDiscordEventsStrategy<ListRangeCommand> {
 
     private final static String EMBED_TITLE = "Events";
     private final static String EMBED_DESCRIPTION_FORMAT_STR = "Here are the events between %1$s and %2$s:";
@@ -29,14 +29,16 @@ public class ListDiscordEventsInDateRangeStrategy implements ListDiscordEventsSt
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<ListRangeCommand> context) {
         ListDiscordEventsCommandDTO dto = ListDiscordEventsCommandDTO.builder()
-            .guildId(context.getGuild().getId().asString())
-            .startDateTime(DateUtils.fromDate(context.getTokens().get(1)))
-            .endDateTime(DateUtils.fromDate(context.getTokens().get(2)))
+            .guildId(context.getGuild().getId().asLong())
+            .startDateTime(context.getCommand().getFrom())
+            .endDateTime(context.getCommand().getTo())
             .build();
 
-        return discordEventReactiveRepository.listDiscordEventsByDateTimeRange(dto)
+        return discordEventReactiveRepository.streamDiscordEventsByDateTimeRange(dto)
+            .take(BotMessages.EMBED_FIELD_LIMIT)
+            .collectList()
             .flatMap(discordEvents -> context.getMessageCreateEvent().getMessage().getChannel()
                 .flatMap(messageChannel -> GuildUtils.retrieveGuildUsers(context.getGuild())
                     .flatMap(usersMap -> messageChannel.createEmbed(embedCreateSpec -> {
@@ -44,8 +46,8 @@ public class ListDiscordEventsInDateRangeStrategy implements ListDiscordEventsSt
                             .setTitle(EMBED_TITLE)
                             .setDescription(String.format(
                                 EMBED_DESCRIPTION_FORMAT_STR,
-                                context.getTokens().get(1),
-                                context.getTokens().get(2)
+                                context.getCommand().getFromText(),
+                                context.getCommand().getToText()
                             ))
                             .setColor(Color.DEEP_LILAC)
                             .setTimestamp(Instant.now());
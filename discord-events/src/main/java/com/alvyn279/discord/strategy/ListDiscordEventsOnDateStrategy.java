@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.ListOnDateCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.domain.GuildUtils;
@@ -16,7 +17,7 @@ import java.time.Instant;
  * Implements {@link ListDiscordEventsStrategy} by listing all events
  * in DDB based on a given date.
  */
-public class ListDiscordEventsOnDateStrategy implements ListDiscordEventsStrategy {
+public class ListDiscordEventsOnDateStrategy implements ListDiscordEventsStrategy<ListOnDateCommand> {
 
     private final static String EMBED_TITLE = "Events";
     private final static String EMBED_DESCRIPTION_FORMAT_STR = "Here are the events on %1$s:";
@@ -29,15 +30,17 @@ public class ListDiscordEventsOnDateStrategy implements ListDiscordEventsStrateg
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
-        Instant targetDate = DateUtils.fromDate(context.getTokens().get(1));
+    public Mono<Void> execute(DiscordCommandContext<ListOnDateCommand> context) {
+        Instant targetDate = context.getCommand().getDate();
         ListDiscordEventsCommandDTO dto = ListDiscordEventsCommandDTO.builder()
-            .guildId(context.getGuild().getId().asString())
+            .guildId(context.getGuild().getId().asLong())
             .startDateTime(targetDate)
             .endDateTime(DateUtils.nextDaySameTime(targetDate))
             .build();
 
-        return discordEventReactiveRepository.listDiscordEventsByDateTimeRange(dto)
+        return discordEventReactiveRepository.streamDiscordEventsByDateTimeRange(dto)
+            .take(BotMessages.EMBED_FIELD_LIMIT)
+            .collectList()
             .flatMap(discordEvents -> context.getMessageCreateEvent().getMessage().getChannel()
                 .flatMap(messageChannel -> GuildUtils.retrieveGuildUsers(context.getGuild())
                     .flatMap(usersMap -> messageChannel.createEmbed(embedCreateSpec -> {
@@ -45,7 +48,7 @@ public class ListDiscordEventsOnDateStrategy implements ListDiscordEventsStrateg
                             .setTitle(EMBED_TITLE)
                             .setDescription(String.format(
                                 EMBED_DESCRIPTION_FORMAT_STR,
-                                context.getTokens().get(1)
+                                context.getCommand().getDateText()
                             ))
                             .setColor(Color.DEEP_SEA)
                             .setTimestamp(Instant.now());
@@ -7,13 +7,15 @@ import reactor.core.publisher.Mono;
 /**
  * Strategy interface to perform a list operation of
  * all {@link DiscordEvent}s in the data store.
+ *
+ * @param <C> type of the arguments of the list command
  */
-public interface ListDiscordEventsStrategy {
+public interface ListDiscordEventsStrategy<C> {
 
     /**
      * Executes the listing all discord events.
      * @param context Discord context with arguments
      * @return Mono<Void>
      */
-    public Mono<Void> execute(DiscordCommandContext context);
+    public Mono<Void> execute(DiscordCommandContext<C> context);
 }
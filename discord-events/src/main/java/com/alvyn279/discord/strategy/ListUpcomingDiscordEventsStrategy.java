@@ -1,5 +1,6 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.command.ListUpcomingCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.alvyn279.discord.domain.GuildUtils;
@@ -15,7 +16,7 @@ import java.time.Instant;
  * Implements {@link ListDiscordEventsStrategy} by listing all upcoming
  * discord events in DDB based on an upcoming limit.
  */
-public class ListUpcomingDiscordEventsStrategy implements ListDiscordEventsStrategy {
+public class ListUpcomingDiscordEventsStrategy implements ListDiscordEventsStrategy<ListUpcomingCommand> {
 
     private final static String EMBED_TITLE = "Upcoming events";
     private final static String EMBED_DESCRIPTION = "Here are the upcoming events:";
@@ -28,14 +29,16 @@ public class ListUpcomingDiscordEventsStrategy implements ListDiscordEventsStrat
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<ListUpcomingCommand> context) {
         ListDiscordEventsCommandDTO dto = ListDiscordEventsCommandDTO.builder()
-            .guildId(context.getGuild().getId().asString())
-            .upcomingLimit(Integer.parseInt(context.getTokens().get(1)))
+            .guildId(context.getGuild().getId().asLong())
+            .upcomingLimit(context.getCommand().getUpcomingLimit())
             .currentDateTime(Instant.now())
             .build();
 
-        return discordEventReactiveRepository.listDiscordEventsByUpcomingWithLimit(dto)
+        return discordEventReactiveRepository.streamDiscordEventsByUpcoming(dto)
+            .take(BotMessages.EMBED_FIELD_LIMIT)
+            .collectList()
             .flatMap(discordEvents -> context.getMessageCreateEvent().getMessage().getChannel()
                 .flatMap(messageChannel -> GuildUtils.retrieveGuildUsers(context.getGuild())
                     .flatMap(usersMap -> messageChannel.createEmbed(embedCreateSpec -> {
@@ -1,54 +1,42 @@
 package com.alvyn279.discord.strategy;
 
-import com.alvyn279.discord.stateful.async.EventsCheckerTask;
+import com.alvyn279.discord.stateful.async.EventReminderSubscription;
 import com.alvyn279.discord.stateful.async.EventsCheckerScheduler;
+import com.alvyn279.discord.command.RemindCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
-import com.alvyn279.discord.repository.DiscordEventReactiveRepository;
 import com.google.inject.Inject;
 import reactor.core.publisher.Mono;
 
-import java.util.concurrent.TimeUnit;
-
 /**
- * Concrete strategy that starts a {@link EventsCheckerTask} through the {@link EventsCheckerScheduler}
- * based on different states of the latter.
+ * Concrete strategy that subscribes the guild to the events reminders through the
+ * {@link EventsCheckerScheduler} based on different states of the latter.
  */
 public class StartEventReminderServiceStrategy implements EventReminderServiceStrategy {
 
-    private static final int EVENT_CHECK_INITIAL_DELAY_IN_SECONDS = 0;
-    private static final int EVENT_CHECK_INTERVAL_IN_SECONDS = 60;
-
-    private final DiscordEventReactiveRepository discordEventReactiveRepository;
     private final EventsCheckerScheduler eventsCheckerScheduler;
 
     @Inject
-    public StartEventReminderServiceStrategy(DiscordEventReactiveRepository discordEventReactiveRepository,
-                                             EventsCheckerScheduler eventsCheckerScheduler) {
-        this.discordEventReactiveRepository = discordEventReactiveRepository;
+    public StartEventReminderServiceStrategy(EventsCheckerScheduler eventsCheckerScheduler) {
         this.eventsCheckerScheduler = eventsCheckerScheduler;
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
         return context.getMessageCreateEvent().getMessage().getChannel()
             .flatMap(messageChannel -> {
-                String guildId = context.getGuild().getId().asString();
+                long guildId = context.getGuild().getId().asLong();
 
                 if (!eventsCheckerScheduler.isSafeToStart(guildId)) {
                     return messageChannel.createEmbed(BotMessages::eventRemindersOn);
                 }
 
-                eventsCheckerScheduler.scheduleAtFixedRate(
+                eventsCheckerScheduler.subscribe(
                     guildId,
-                    EventsCheckerTask.builder()
+                    EventReminderSubscription.builder()
                         .messageChannel(messageChannel)
                         .guild(context.getGuild())
-                        .repository(discordEventReactiveRepository)
-                        .build(),
-                    EVENT_CHECK_INITIAL_DELAY_IN_SECONDS,
-                    EVENT_CHECK_INTERVAL_IN_SECONDS,
-                    TimeUnit.SECONDS
+                        .build()
                 );
 
                 return messageChannel.createEmbed(BotMessages::eventRemindersTurnedOn);
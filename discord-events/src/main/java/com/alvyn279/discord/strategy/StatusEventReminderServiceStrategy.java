@@ -1,14 +1,15 @@
 package com.alvyn279.discord.strategy;
 
+import com.alvyn279.discord.stateful.async.EventReminderSubscription;
 import com.alvyn279.discord.stateful.async.EventsCheckerScheduler;
-import com.alvyn279.discord.stateful.async.EventsCheckerTask;
+import com.alvyn279.discord.command.RemindCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.google.inject.Inject;
 import reactor.core.publisher.Mono;
 
 /**
- * Concrete strategy that gives the status of the events reminder {@link EventsCheckerTask}
+ * Concrete strategy that gives the status of the events reminder {@link EventReminderSubscription}
  * through the {@link EventsCheckerScheduler}.
  */
 public class StatusEventReminderServiceStrategy implements EventReminderServiceStrategy {
@@ -21,13 +22,14 @@ public class StatusEventReminderServiceStrategy implements EventReminderServiceS
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
         return context.getMessageCreateEvent().getMessage().getChannel()
             .flatMap(messageChannel -> {
-                String guildId = context.getGuild().getId().asString();
+                long guildId = context.getGuild().getId().asLong();
 
-                if (eventsCheckerScheduler.getGuildEventsCheckerTask(guildId) != null) {
-                    return eventsCheckerScheduler.getGuildEventsCheckerTask(guildId)
+                EventReminderSubscription subscription = eventsCheckerScheduler.getGuildSubscription(guildId);
+                if (subscription != null) {
+                    return subscription
                         .getSubscribedChannel().getRestChannel().getData()
                         .flatMap(channelData -> messageChannel.createEmbed(embedCreateSpec ->
                             BotMessages.eventRemindersOnStatus(embedCreateSpec, channelData.name().get())
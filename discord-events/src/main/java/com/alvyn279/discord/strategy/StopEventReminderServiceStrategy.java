@@ -1,14 +1,15 @@
 package com.alvyn279.discord.strategy;
 
-import com.alvyn279.discord.stateful.async.EventsCheckerTask;
+import com.alvyn279.discord.stateful.async.EventReminderSubscription;
 import com.alvyn279.discord.stateful.async.EventsCheckerScheduler;
+import com.alvyn279.discord.command.RemindCommand;
 import com.alvyn279.discord.domain.BotMessages;
 import com.alvyn279.discord.domain.DiscordCommandContext;
 import com.google.inject.Inject;
 import reactor.core.publisher.Mono;
 
 /**
- * Concrete strategy that attempts to cancel a {@link EventsCheckerTask} through
+ * Concrete strategy that attempts to cancel a {@link EventReminderSubscription} through
  * the {@link EventsCheckerScheduler} based on different states of the latter.
  */
 public class StopEventReminderServiceStrategy implements EventReminderServiceStrategy {
@@ -21,10 +22,10 @@ public class StopEventReminderServiceStrategy implements EventReminderServiceStr
     }
 
     @Override
-    public Mono<Void> execute(DiscordCommandContext context) {
+    public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
         return context.getMessageCreateEvent().getMessage().getChannel()
             .flatMap(messageChannel -> {
-                String guildId = context.getGuild().getId().asString();
+                long guildId = context.getGuild().getId().asLong();
 
                 if (!eventsCheckerScheduler.isSafeToStop(guildId)) {
                     return messageChannel.createEmbed(BotMessages::eventRemindersOff);
@@ -0,0 +1,157 @@
+package com.alvyn279.discord.utils;
+
+import java.nio.CharBuffer;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Tokens of a command, held as offsets into the content of the message rather
+ * than as copies of it. A token only becomes a String when {@link #get(int)} is called,
+ * {@link #view(int)} and {@link #matches(int, String)} read it in place.
+ * <p>
+ * Tokens are separated by whitespace. A token starting with " or ' runs to the
+ * next matching quote, whitespace included, and is read without its quotes:
+ * "!create-event \"Event title\" 2021/02/02 19:00 'Event description'" ->
+ * ["!create-event", "Event title", "2021/02/02", "19:00", "Event description"]
+ * <p>
+ * A quote without a matching one is read as part of its word. A quoted token that
+ * is itself wrapped in the other kind of quote loses those as well, ex: "'a'" -> a.
+ */
+public final class CommandTokens extends AbstractList<String> implements RandomAccess {
+
+    private final CharSequence source;
+    // { start of token i, end of token i, ... }
+    private final int[] bounds;
+    private final int size;
+
+    private CommandTokens(CharSequence source, int[] bounds, int size) {
+        this.source = source;
+        this.bounds = bounds;
+        this.size = size;
+    }
+
+    /**
+     * Tokenizes a command in a single pass over it.
+     *
+     * @param commandAndArgs the entire command written by the user
+     * @return CommandTokens of the command
+     */
+    public static CommandTokens tokenize(CharSequence commandAndArgs) {
+        int length = commandAndArgs.length();
+        int[] bounds = new int[8];
+        int size = 0;
+        int i = 0;
+        while (i < length) {
+            char c = commandAndArgs.charAt(i);
+            if (isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int end = -1;
+            if (c == '"' || c == '\'') {
+                end = indexOf(commandAndArgs, c, i + 1);
+            }
+            if (end >= 0) {
+                // Quoted token, the next one can start right after the closing quote
+                start++;
+                i = end + 1;
+                char innerQuote = c == '"' ? '\'' : '"';
+                if (end - start >= 2 && commandAndArgs.charAt(start) == innerQuote
+                    && commandAndArgs.charAt(end - 1) == innerQuote) {
+                    start++;
+                    end--;
+                }
+            } else {
+                while (i < length && !isWhitespace(commandAndArgs.charAt(i))) {
+                    i++;
+                }
+                end = i;
+            }
+
+            if (size * 2 == bounds.length) {
+                bounds = Arrays.copyOf(bounds, bounds.length * 2);
+            }
+            bounds[size * 2] = start;
+            bounds[size * 2 + 1] = end;
+            size++;
+        }
+        return new CommandTokens(commandAndArgs, bounds, size);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param index index of the token
+     * @return String copy of the token
+     */
+    @Override
+    public String get(int index) {
+        return view(index).toString();
+    }
+
+    /**
+     * @param index index of the token
+     * @return CharSequence of the token, backed by the command: it is only copied by `toString`
+     */
+    public CharSequence view(int index) {
+        // String.subSequence copies, a wrapped buffer reads the command in place
+        return CharBuffer.wrap(source, start(index), end(index));
+    }
+
+    /**
+     * @param index index of the token
+     * @param s     expected token
+     * @return boolean, true if there is a token at the index and it is equal to the string
+     */
+    public boolean matches(int index, String s) {
+        if (index >= size) {
+            return false;
+        }
+        int start = start(index);
+        if (end(index) - start != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (source.charAt(start + i) != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int start(int index) {
+        checkIndex(index);
+        return bounds[index * 2];
+    }
+
+    private int end(int index) {
+        checkIndex(index);
+        return bounds[index * 2 + 1];
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Token " + index + " out of " + size);
+        }
+    }
+
+    private static int indexOf(CharSequence s, char c, int from) {
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // Same as \s in a regex, unlike Character.isWhitespace
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+}
@@ -1,10 +1,14 @@
 package com.alvyn279.discord.utils;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.time.format.FormatStyle;
+import java.time.format.ResolverStyle;
 import java.time.temporal.ChronoUnit;
 import java.util.Locale;
 
@@ -16,19 +20,23 @@ public class DateUtils {
     public static final ZoneId DEFAULT_TIMEZONE = ZoneId.of("America/Toronto");
     public static final Locale DEFAULT_LOCALE = Locale.CANADA;
 
+    // Strict: 2/30/2021 or 24:00 are rejected rather than adjusted
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("M/d/uuuu", DEFAULT_LOCALE)
+        .withResolverStyle(ResolverStyle.STRICT);
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("H:mm", DEFAULT_LOCALE)
+        .withResolverStyle(ResolverStyle.STRICT);
+
     /**
      * Creates an {@link Instant} object from a date string.
      * Default timezone is set to EST.
      *
      * @param dateString date string of format MM/DD/YYYY
      * @return Instant object
+     * @throws DateTimeParseException if the string is not a valid date
      */
-    public static Instant fromDate(String dateString) {
-        return LocalDateTime
-            .parse(
-                String.format("%1$s, 0:00", dateString),
-                DateTimeFormatter.ofPattern("M/d/uuuu, H:mm", Locale.CANADA))
-            .atZone(DEFAULT_TIMEZONE)
+    public static Instant fromDate(CharSequence dateString) {
+        return LocalDate.parse(dateString, DATE_FORMATTER)
+            .atStartOfDay(DEFAULT_TIMEZONE)
             .toInstant();
     }
 
@@ -39,12 +47,11 @@ public class DateUtils {
      * @param dateString date string of format MM/DD/YYYY
      * @param timeString time of day of format 23:59
      * @return Instant object
+     * @throws DateTimeParseException if the strings are not a valid date and time
      */
-    public static Instant fromDateAndTime(String dateString, String timeString) {
+    public static Instant fromDateAndTime(CharSequence dateString, CharSequence timeString) {
         return LocalDateTime
-            .parse(
-                String.format("%1$s, %2$s", dateString, timeString),
-                DateTimeFormatter.ofPattern("M/d/uuuu, H:mm", Locale.CANADA))
+            .of(LocalDate.parse(dateString, DATE_FORMATTER), LocalTime.parse(timeString, TIME_FORMATTER))
             .atZone(DEFAULT_TIMEZONE)
             .toInstant();
     }
@@ -8,6 +8,7 @@ public class EnvironmentUtils {
     private static final String DISCORD_EVENTS_PROD_IDENTIFIER = "prod";
     private static final String DISCORD_EVENTS_TABLE_NAME_KEY = "DISCORD_EVENTS_TABLE_NAME";
     private static final String DISCORD_EVENTS_TABLE_NAME_NON_PROD_SUFFIX = "Test";
+    private static final String DISCORD_EVENTS_ARCHIVE_TABLE_NAME_SUFFIX = "Archive";
 
     /**
      * Tries to retrieve the an env var in execution environment variables.
@@ -30,6 +31,43 @@ public class EnvironmentUtils {
         }
     }
 
+    /**
+     * Tries to retrieve an optional env var in execution environment variables.
+     * Falls back on the given default value when the env var is not set.
+     *
+     * @param envVarKey    Environment variable name
+     * @param defaultValue Value returned when the env var is not set
+     * @return String Environment variable value or default
+     */
+    public static String getEnvVarOrDefault(String envVarKey, String defaultValue) {
+        try {
+            return System.getenv().getOrDefault(envVarKey, defaultValue);
+        } catch (SecurityException e) {
+            throw new Error("Security policy doesn't allow access to system environment", e);
+        }
+    }
+
+    /**
+     * Tries to retrieve an optional numeric env var in execution environment variables.
+     * Falls back on the given default value when the env var is not set.
+     *
+     * @param envVarKey    Environment variable name
+     * @param defaultValue Value returned when the env var is not set
+     * @return Integer Environment variable value or default
+     * @throws Error Will terminate if the env var is set but is not an integer
+     */
+    public static Integer getIntegerEnvVarOrDefault(String envVarKey, Integer defaultValue) {
+        String value = getEnvVarOrDefault(envVarKey, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new Error(String.format("`%s` must be an integer, got `%s`", envVarKey, value), e);
+        }
+    }
+
     /**
      * Retrieves the DDB table name in the AWS account based on the
      * execution's environment. If we're on prod, just use the DDB table name
@@ -45,4 +83,15 @@ public class EnvironmentUtils {
         return env.equals(DISCORD_EVENTS_PROD_IDENTIFIER) ?
             ddbTableName : ddbTableName.concat(DISCORD_EVENTS_TABLE_NAME_NON_PROD_SUFFIX);
     }
+
+    /**
+     * Retrieves the DDB archive table name in the AWS account, where past
+     * events are moved to. It is named after the live table of the execution's
+     * environment, with an `Archive` suffix.
+     *
+     * @return DDB string archive table name
+     */
+    public static String getDDBArchiveTableName() {
+        return getDDBTableName().concat(DISCORD_EVENTS_ARCHIVE_TABLE_NAME_SUFFIX);
+    }
 }
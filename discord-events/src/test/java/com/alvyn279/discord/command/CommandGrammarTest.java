@@ -0,0 +1,71 @@
+package com.alvyn279.discord.command;
+
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.utils.CommandTokens;
+import com.alvyn279.discord.utils.DateUtils;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandGrammarTest {
+
+    @Test
+    public void createEventIsParsedIntoItsArguments() throws InvalidCommandException {
+        CreateEventCommand command = CommandGrammar.createEvent(
+            CommandTokens.tokenize("!create-event \"Event title\" 2/2/2021 19:00 'Event description'"));
+
+        assertEquals("Event title", command.getName());
+        assertEquals(DateUtils.fromDateAndTime("2/2/2021", "19:00"), command.getTimestamp());
+        assertEquals("Event description", command.getDescription());
+        assertNull(CommandGrammar.createEvent(
+            CommandTokens.tokenize("!create-event title 2/2/2021 19:00")).getDescription());
+    }
+
+    @Test
+    public void createEventRejectsMissingArgumentsAndInvalidDates() {
+        assertInvalid(CommandGrammar::createEvent, "!create-event title 2/2/2021");
+        assertInvalid(CommandGrammar::createEvent, "!create-event \" \" 2/2/2021 19:00");
+        assertInvalid(CommandGrammar::createEvent, "!create-event title 2/30/2021 19:00");
+        assertInvalid(CommandGrammar::createEvent, "!create-event title 2/2/2021 25:00");
+    }
+
+    @Test
+    public void deleteEventsRejectsInvalidDeleteCodes() throws InvalidCommandException {
+        assertEquals(ImmutableList.of("795463592128462850", "795463592128462851"), CommandGrammar.deleteEvents(
+            CommandTokens.tokenize("!delete-events 795463592128462850 795463592128462851")).getDeleteCodes());
+
+        assertInvalid(CommandGrammar::deleteEvents, "!delete-events");
+        assertInvalid(CommandGrammar::deleteEvents, "!delete-events 795463592128462850 nope");
+    }
+
+    @Test
+    public void listEventsChecksItsNumberAndDates() throws InvalidCommandException {
+        assertEquals(CommandGrammar.DEFAULT_UPCOMING_LIMIT,
+            CommandGrammar.listUpcoming(CommandTokens.tokenize("!list-events")).getUpcomingLimit());
+        assertEquals(3, CommandGrammar.listUpcoming(CommandTokens.tokenize("!list-events 3")).getUpcomingLimit());
+        assertEquals("3/1/2021", CommandGrammar.listOnDate(CommandTokens.tokenize("!list-events 3/1/2021")).getDateText());
+
+        assertInvalid(CommandGrammar::listUpcoming, "!list-events 0");
+        assertInvalid(CommandGrammar::listUpcoming, "!list-events 99999999999");
+        assertInvalid(CommandGrammar::listOnDate, "!list-events 13/1/2021");
+        assertInvalid(CommandGrammar::listRange, "!list-events 3/2/2021 3/1/2021");
+    }
+
+    @Test
+    public void qualifiersMustBeKnown() throws InvalidCommandException {
+        assertTrue(CommandGrammar.myEvents(CommandTokens.tokenize("!my-events history")).isHistory());
+        assertFalse(CommandGrammar.myEvents(CommandTokens.tokenize("!my-events")).isHistory());
+        assertEquals(RemindCommand.Mode.OFF,
+            CommandGrammar.remindEvents(CommandTokens.tokenize("!remind-events off")).getMode());
+
+        assertInvalid(CommandGrammar::myEvents, "!my-events histroy");
+        assertInvalid(CommandGrammar::remindEvents, "!remind-events maybe");
+    }
+
+    private static void assertInvalid(CommandParser<?> parser, String command) {
+        InvalidCommandException e = assertThrows(InvalidCommandException.class,
+            () -> parser.parse(CommandTokens.tokenize(command)));
+        assertNotNull(e.getUsage());
+    }
+}
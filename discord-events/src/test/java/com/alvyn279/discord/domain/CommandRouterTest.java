@@ -0,0 +1,36 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRouterTest {
+
+    private static final CommandBehaviour LIST_EVENTS = (event, tokens) -> Mono.empty();
+    private static final CommandBehaviour MY_EVENTS = (event, tokens) -> Mono.empty();
+
+    private final CommandRouter router = new CommandRouter("!", ImmutableMap.of(
+        "list-events", LIST_EVENTS,
+        "my-events", MY_EVENTS));
+
+    @Test
+    public void commandsAreFoundByTheirFirstWord() {
+        assertEquals(Optional.of(LIST_EVENTS), router.find("!list-events"));
+        assertEquals(Optional.of(LIST_EVENTS), router.find("!list-events 2021/03/01"));
+        assertEquals(Optional.of(MY_EVENTS), router.find("!my-events\thistory"));
+    }
+
+    @Test
+    public void otherMessagesAreNotCommands() {
+        assertEquals(Optional.empty(), router.find(""));
+        assertEquals(Optional.empty(), router.find("list-events"));
+        assertEquals(Optional.empty(), router.find("!"));
+        assertEquals(Optional.empty(), router.find("! list-events"));
+        assertEquals(Optional.empty(), router.find("!list-events-please"));
+        assertEquals(Optional.empty(), router.find("!unknown"));
+    }
+}
@@ -0,0 +1,102 @@
+package com.alvyn279.discord.domain;
+
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.google.common.base.Strings;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscordEventItemCodecTest {
+
+    private static final String LONG_DESCRIPTION = Strings.repeat("Bring snacks and a controller. ", 40);
+    // The largest unsigned snowflake is -1 as a signed long
+    private static final SnowflakeSet ATTENDEES = SnowflakeSet.of(-1L, 795463592128462858L);
+
+    @Test
+    public void longDescriptionsAndSnowflakesAreEncodedCompactly() {
+        Map<String, AttributeValue> item = DiscordEvent.toDDBItem(dto(LONG_DESCRIPTION, ATTENDEES));
+
+        assertEquals("1", item.get(DiscordEventItemCodec.CODEC_KEY).n());
+        assertFalse(item.containsKey(DiscordEvent.DESCRIPTION_KEY));
+        assertTrue(item.get(DiscordEventItemCodec.DESCRIPTION_Z_KEY).b().asByteArray().length < LONG_DESCRIPTION.length());
+        assertFalse(item.containsKey(DiscordEvent.ATTENDEES_KEY));
+        assertEquals(2, item.get(DiscordEventItemCodec.ATTENDEES_PACKED_KEY).bs().size());
+
+        DiscordEvent discordEvent = DiscordEvent.fromDDBMap(item);
+        assertFalse(discordEvent.isDecoded());
+        assertEquals(LONG_DESCRIPTION, discordEvent.getDescription());
+        assertEquals(ATTENDEES, discordEvent.getAttendees());
+        assertTrue(discordEvent.isDecoded());
+    }
+
+    @Test
+    public void shortDescriptionsAreStoredAsStrings() {
+        Map<String, AttributeValue> item = DiscordEvent.toDDBItem(dto("Game night", SnowflakeSet.EMPTY));
+
+        assertEquals("Game night", item.get(DiscordEvent.DESCRIPTION_KEY).s());
+        assertFalse(item.containsKey(DiscordEventItemCodec.DESCRIPTION_Z_KEY));
+        assertFalse(item.containsKey(DiscordEventItemCodec.ATTENDEES_PACKED_KEY));
+
+        DiscordEvent discordEvent = DiscordEvent.fromDDBMap(item);
+        assertEquals("Game night", discordEvent.getDescription());
+        assertEquals(SnowflakeSet.EMPTY, discordEvent.getAttendees());
+    }
+
+    @Test
+    public void legacyItemsAreRead() {
+        Map<String, AttributeValue> item = new HashMap<>(DiscordEvent.toDDBItem(dto(null, SnowflakeSet.EMPTY)));
+        item.remove(DiscordEventItemCodec.CODEC_KEY);
+        item.put(DiscordEvent.DESCRIPTION_KEY, AttributeValue.builder().s(LONG_DESCRIPTION).build());
+        item.put(DiscordEvent.ATTENDEES_KEY, AttributeValue.builder().ss("795463592128462858").build());
+        // Added by the current codec to a legacy item
+        item.put(DiscordEventItemCodec.ATTENDEES_PACKED_KEY,
+            DiscordEventItemCodec.packedAttendee(-1L));
+
+        DiscordEvent discordEvent = DiscordEvent.fromDDBMap(item);
+        assertEquals(LONG_DESCRIPTION, discordEvent.getDescription());
+        assertEquals(ATTENDEES, discordEvent.getAttendees());
+    }
+
+    @Test
+    public void eventsAreComparedWithoutBeingDecoded() {
+        DiscordEventDTO dto = dto(LONG_DESCRIPTION, ATTENDEES);
+        DiscordEvent built = DiscordEvent.builder()
+            .guildId(dto.getGuildId())
+            .timestamp(dto.getTimestamp())
+            .createdBy(dto.getCreatedBy())
+            .messageId(dto.getMessageId())
+            .name(dto.getName())
+            .description(LONG_DESCRIPTION)
+            .attendees(ATTENDEES)
+            .version(1L)
+            .idempotencyKey(dto.getIdempotencyKey())
+            .build();
+
+        DiscordEvent read = DiscordEvent.fromDDBMap(DiscordEvent.toDDBItem(dto));
+        assertEquals(built, read);
+        assertEquals(built.hashCode(), read.hashCode());
+        assertEquals(built, read.toBuilder().build());
+        assertEquals(built.toString(), read.toString());
+        assertFalse(read.isDecoded());
+
+        // Another write of the event
+        assertNotEquals(built, read.toBuilder().version(2L).build());
+    }
+
+    private static DiscordEventDTO dto(String description, SnowflakeSet attendees) {
+        return DiscordEventDTO.builder()
+            .guildId(795463592128462850L)
+            .messageId(795463592128462851L)
+            .timestamp(Instant.parse("2021-03-01T20:00:00Z"))
+            .createdBy(795463592128462852L)
+            .name("Game night")
+            .description(description)
+            .attendees(attendees)
+            .build();
+    }
+}
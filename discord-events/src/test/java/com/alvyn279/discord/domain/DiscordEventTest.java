@@ -0,0 +1,40 @@
+package com.alvyn279.discord.domain;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscordEventTest {
+
+    @Test
+    public void startSlotIsTheUtcHourOfTheEvent() {
+        assertEquals("2021-03-01T23", DiscordEvent.startSlotOf(Instant.parse("2021-03-01T23:59:00Z")));
+        assertEquals("2021-03-02T00", DiscordEvent.startSlotOf(Instant.parse("2021-03-02T00:00:00Z")));
+    }
+
+    @Test
+    public void startSlotsCoverTheRange() {
+        assertEquals(ImmutableList.of("2021-03-01T12"), DiscordEvent.startSlots(
+            Instant.parse("2021-03-01T12:00:00Z"), Instant.parse("2021-03-01T12:15:00Z")));
+        assertEquals(ImmutableList.of("2021-03-01T23", "2021-03-02T00"), DiscordEvent.startSlots(
+            Instant.parse("2021-03-01T23:50:00Z"), Instant.parse("2021-03-02T00:05:00Z")));
+    }
+
+    @Test
+    public void summariesOfItemsWithMissingAttributesGetDefaults() {
+        DiscordEventSummary summary = DiscordEventSummary.fromDDBMap(ImmutableMap.of(
+            DiscordEvent.PARTITION_KEY, AttributeValue.builder().s("795463592128462850").build(),
+            DiscordEvent.SORT_KEY, AttributeValue.builder().s("2021-03-01T12:00:00Z#795463592128462852").build()
+        ));
+
+        assertEquals(795463592128462850L, summary.getGuildId());
+        assertEquals(795463592128462852L, summary.getCreatedBy());
+        assertEquals(0L, summary.getMessageId());
+        assertEquals("", summary.getName());
+    }
+}
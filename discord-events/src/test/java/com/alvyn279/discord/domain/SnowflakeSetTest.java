@@ -0,0 +1,34 @@
+package com.alvyn279.discord.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnowflakeSetTest {
+
+    @Test
+    public void setsAreSortedWithoutDuplicates() {
+        SnowflakeSet snowflakes = SnowflakeSet.of(3L, 1L, 2L, 1L);
+
+        assertEquals(3, snowflakes.size());
+        assertArrayEquals(new long[]{1L, 2L, 3L}, snowflakes.stream().toArray());
+        assertEquals(SnowflakeSet.of(1L, 2L, 3L), snowflakes);
+    }
+
+    @Test
+    public void withAndWithoutCopyOnlyOnChange() {
+        SnowflakeSet snowflakes = SnowflakeSet.of(1L, 3L);
+
+        assertSame(snowflakes, snowflakes.with(3L));
+        assertSame(snowflakes, snowflakes.without(2L));
+        assertEquals(SnowflakeSet.of(1L, 2L, 3L), snowflakes.with(2L));
+        assertEquals(SnowflakeSet.of(3L), snowflakes.without(1L));
+        assertSame(SnowflakeSet.EMPTY, SnowflakeSet.of(1L).without(1L));
+        assertFalse(snowflakes.contains(2L));
+    }
+
+    @Test
+    public void snowflakesArePrintedUnsigned() {
+        assertEquals("[18446744073709551615]", SnowflakeSet.of(-1L).toString());
+    }
+}
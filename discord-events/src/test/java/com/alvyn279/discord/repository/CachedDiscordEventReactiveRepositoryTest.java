@@ -0,0 +1,195 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.changefeed.DiscordEventChange;
+import com.alvyn279.discord.changefeed.InProcessDiscordEventChangeFeed;
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachedDiscordEventReactiveRepositoryTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    private static final long OTHER_GUILD_ID = 795463592128462851L;
+    private static final long USER_ID = 795463592128462852L;
+    private static final long OTHER_USER_ID = 795463592128462853L;
+    private static final Instant NOW = Instant.now().plusSeconds(3600);
+
+    private long nextMessageId = 795463592128462900L;
+
+    private InMemoryDiscordEventReactiveRepository storage;
+    // Another bot instance writing to the same storage
+    private PublishingDiscordEventReactiveRepository otherInstance;
+    private CachedDiscordEventReactiveRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        InProcessDiscordEventChangeFeed changeFeed = new InProcessDiscordEventChangeFeed();
+        storage = InMemoryDiscordEventReactiveRepository.builder().build();
+        otherInstance = PublishingDiscordEventReactiveRepository.builder()
+            .delegate(storage)
+            .changeFeed(changeFeed)
+            .build();
+        repository = CachedDiscordEventReactiveRepository.builder()
+            .delegate(storage)
+            .maxGuilds(10)
+            .maxEventsPerGuild(10)
+            .ttl(Duration.ofHours(1))
+            .build();
+        repository.follow(changeFeed);
+    }
+
+    @Test
+    public void changesOfOtherInstancesAreAppliedToCachedGuilds() {
+        DiscordEvent first = otherInstance.saveDiscordEvent(dto("first", NOW)).block();
+        assertEquals(ImmutableList.of("first"), upcomingNames());
+        long operationsAfterLoad = storage.getOperationCount();
+
+        otherInstance.saveDiscordEvent(dto("second", NOW.plusSeconds(60))).block();
+        assertEquals(ImmutableList.of("first", "second"), upcomingNames());
+
+        otherInstance.deleteDiscordEvent(DeleteDiscordEventCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .userId(USER_ID)
+            .deleteCode(Long.toUnsignedString(first.getMessageId()))
+            .build())
+            .block();
+        assertEquals(ImmutableList.of("second"), upcomingNames());
+
+        // Both writes made by the other instance, no read from the cache
+        assertEquals(2, storage.getOperationCount() - operationsAfterLoad);
+    }
+
+    @Test
+    public void olderChangesDoNotOverwriteCachedEvents() {
+        DiscordEvent created = repository.saveDiscordEvent(dto("event", NOW)).block();
+        upcomingNames();
+        DiscordEvent renamed = repository.saveDiscordEvent(DiscordEventDTO.copyOfBuilder(created)
+            .name("renamed")
+            .build())
+            .block();
+
+        // The create shows up on the feed after the rename was written through
+        repository.applyDiscordEventChange(DiscordEventChange.builder()
+            .type(DiscordEventChange.Type.INSERT)
+            .newDiscordEvent(created)
+            .build());
+
+        assertEquals("renamed", upcoming().get(0).getName());
+        assertEquals(renamed.getVersion(), upcoming().get(0).getVersion());
+    }
+
+    @Test
+    public void olderAttendeeWriteThroughsDoNotOverwriteCachedEvents() {
+        AtomicReference<DiscordEvent> lateAnswer = new AtomicReference<>();
+        storage = new InMemoryDiscordEventReactiveRepository(null, null) {
+            @Override
+            public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+                return lateAnswer.get() == null ? super.addDiscordEventAttendee(args) : Mono.just(lateAnswer.get());
+            }
+        };
+        repository = CachedDiscordEventReactiveRepository.builder()
+            .delegate(storage)
+            .maxGuilds(10)
+            .maxEventsPerGuild(10)
+            .ttl(Duration.ofHours(1))
+            .build();
+        DiscordEvent created = repository.saveDiscordEvent(dto("event", NOW)).block();
+        upcomingNames();
+        DiscordEvent attended = repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(created)
+            .attendeeId(USER_ID)
+            .build())
+            .block();
+
+        // The answer of an earlier update is written through last
+        lateAnswer.set(created);
+        repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(created)
+            .attendeeId(OTHER_USER_ID)
+            .build())
+            .block();
+
+        assertEquals(attended.getVersion(), upcoming().get(0).getVersion());
+        assertEquals(attended.getAttendees(), upcoming().get(0).getAttendees());
+    }
+
+    @Test
+    public void writesToOtherGuildsDuringALoadDoNotKeepItFromTheCache() {
+        storage = InMemoryDiscordEventReactiveRepository.builder()
+            .latency(Duration.ofMillis(100))
+            .build();
+        repository = CachedDiscordEventReactiveRepository.builder()
+            .delegate(storage)
+            .maxGuilds(10)
+            .maxEventsPerGuild(10)
+            .ttl(Duration.ofHours(1))
+            .build();
+        storage.saveDiscordEvent(dto("event", NOW)).block();
+        DiscordEvent elsewhere = storage.saveDiscordEvent(DiscordEventDTO.builder()
+            .guildId(OTHER_GUILD_ID)
+            .messageId(nextMessageId++)
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .name("elsewhere")
+            .attendees(SnowflakeSet.EMPTY)
+            .build())
+            .block();
+
+        CompletableFuture<List<DiscordEvent>> load = upcomingRead().toFuture();
+        // The other guild's write shows up on the feed while this guild is read
+        repository.applyDiscordEventChange(DiscordEventChange.builder()
+            .type(DiscordEventChange.Type.INSERT)
+            .newDiscordEvent(elsewhere)
+            .build());
+        assertEquals("event", load.join().get(0).getName());
+
+        long operationsAfterLoad = storage.getOperationCount();
+        assertEquals(ImmutableList.of("event"), upcomingNames());
+        assertEquals(operationsAfterLoad, storage.getOperationCount());
+    }
+
+    private Mono<List<DiscordEvent>> upcomingRead() {
+        return repository.listDiscordEventsByUpcomingWithLimit(ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .currentDateTime(NOW.minusSeconds(60))
+            .upcomingLimit(5)
+            .build());
+    }
+
+    private List<DiscordEvent> upcoming() {
+        return upcomingRead().block();
+    }
+
+    private List<String> upcomingNames() {
+        return upcoming().stream()
+            .map(DiscordEvent::getName)
+            .collect(Collectors.toList());
+    }
+
+    private DiscordEventDTO dto(String name, Instant timestamp) {
+        return DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .messageId(nextMessageId++)
+            .timestamp(timestamp)
+            .createdBy(USER_ID)
+            .name(name)
+            .attendees(SnowflakeSet.EMPTY)
+            .build();
+    }
+}
@@ -0,0 +1,127 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CoalescingDiscordEventReactiveRepositoryTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+
+    private InMemoryDiscordEventReactiveRepository delegate;
+    private CoalescingDiscordEventReactiveRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = InMemoryDiscordEventReactiveRepository.builder()
+            .latency(Duration.ofMillis(50))
+            .build();
+        repository = CoalescingDiscordEventReactiveRepository.builder()
+            .delegate(delegate)
+            .build();
+        save("now", NOW);
+        save("soon", NOW.plusSeconds(60));
+    }
+
+    @Test
+    public void concurrentIdenticalReadsShareOneCall() {
+        long operationsBefore = delegate.getOperationCount();
+
+        List<List<DiscordEvent>> results = Flux.range(0, 10)
+            .flatMap(i -> repository.listDiscordEventsByUpcomingWithLimit(ListDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                // Callers within the same second share the query
+                .currentDateTime(NOW.minusMillis(100 + i * 10))
+                .upcomingLimit(5)
+                .build()))
+            .collectList()
+            .block();
+
+        assertEquals(10, results.size());
+        results.forEach(discordEvents -> assertEquals(2, discordEvents.size()));
+        assertEquals(1, delegate.getOperationCount() - operationsBefore);
+        assertEquals(1, repository.getUsage().getCalls());
+        assertEquals(9, repository.getUsage().getCoalescedCalls());
+        assertEquals(0, repository.getUsage().getInFlight());
+    }
+
+    @Test
+    public void differentQueriesAreNotCoalesced() {
+        Flux.merge(
+            repository.streamDiscordEventsByUpcoming(upcoming(NOW, 1)),
+            repository.streamDiscordEventsByUpcoming(upcoming(NOW, 2)),
+            repository.streamDiscordEventsByUpcoming(upcoming(NOW.plusSeconds(1), 2)),
+            repository.streamDiscordEventSummariesByDateTimeRange(range()),
+            repository.streamDiscordEventsByDateTimeRange(range()))
+            .blockLast();
+
+        assertEquals(5, repository.getUsage().getCalls());
+        assertEquals(0, repository.getUsage().getCoalescedCalls());
+    }
+
+    @Test
+    public void sharedReadsHoldNoEventBeforeTheCallersBounds() {
+        Flux.merge(
+            repository.streamDiscordEventsByUpcoming(upcoming(NOW, 5)),
+            repository.streamDiscordEventsByUpcoming(upcoming(NOW.plusMillis(10), 5)))
+            .blockLast();
+        assertEquals(2, repository.getUsage().getCalls());
+
+        assertEquals(1, repository.listDiscordEventsByUpcomingWithLimit(upcoming(NOW.plusMillis(10), 5)).block().size());
+        assertEquals(1, repository.streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .startDateTime(NOW.plusMillis(10))
+            .endDateTime(NOW.plusSeconds(3600))
+            .build())
+            .count()
+            .block());
+    }
+
+    @Test
+    public void completedQueriesAreReadAgain() {
+        repository.streamDiscordEventsByUpcoming(upcoming(NOW, 5)).blockLast();
+        save("later", NOW.plusSeconds(120));
+
+        assertEquals(3, repository.listDiscordEventsByUpcomingWithLimit(upcoming(NOW, 5)).block().size());
+        assertEquals(2, repository.getUsage().getCalls());
+    }
+
+    private static ListDiscordEventsCommandDTO upcoming(Instant currentDateTime, int limit) {
+        return ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .currentDateTime(currentDateTime)
+            .upcomingLimit(limit)
+            .build();
+    }
+
+    private static ListDiscordEventsCommandDTO range() {
+        return ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .startDateTime(NOW)
+            .endDateTime(NOW.plusSeconds(3600))
+            .build();
+    }
+
+    private void save(String name, Instant timestamp) {
+        repository.saveDiscordEvent(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .messageId(timestamp.toEpochMilli())
+            .timestamp(timestamp)
+            .createdBy(795463592128462852L)
+            .name(name)
+            .attendees(SnowflakeSet.EMPTY)
+            .build())
+            .block();
+    }
+}
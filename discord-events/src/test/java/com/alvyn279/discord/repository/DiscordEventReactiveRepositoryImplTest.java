@@ -0,0 +1,465 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.PartitionKeyScheme;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.http.SdkHttpResponse;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DiscordEventReactiveRepositoryImplTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    private static final long USER_ID = 795463592128462852L;
+    private static final long OTHER_USER_ID = 795463592128462853L;
+    private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+    private static final int PAGE_SIZE = 3;
+
+    private StubDynamoDbAsyncClient client;
+    private DiscordEventReactiveRepositoryImpl repository;
+
+    @BeforeEach
+    public void setUp() {
+        client = new StubDynamoDbAsyncClient();
+        for (int i = 0; i < 10; i++) {
+            client.items.add(DiscordEvent.toDDBItem(DiscordEventDTO.builder()
+                .guildId(GUILD_ID)
+                .timestamp(NOW.plusSeconds(60L * i))
+                .createdBy(USER_ID)
+                .messageId(795463592128462900L + i)
+                .name("event " + i)
+                .build()));
+        }
+        client.items.sort(Comparator.comparing(item -> item.get(DiscordEvent.SORT_KEY).s()));
+        repository = DiscordEventReactiveRepositoryImpl.builder()
+            .client(client)
+            .tableName("DiscordEvents")
+            .archiveTableName("DiscordEventsArchive")
+            .pageSize(PAGE_SIZE)
+            .build();
+    }
+
+    @Test
+    public void takingItemsOnlyReadsThePagesThatHoldThem() {
+        assertEquals(3, rangeEvents().take(3).count().block());
+        assertEquals(1, client.queries.get());
+
+        client.queries.set(0);
+        assertEquals(4, rangeEvents().take(4).count().block());
+        assertEquals(2, client.queries.get());
+
+        client.queries.set(0);
+        assertEquals(10, rangeEvents().count().block());
+        assertEquals(4, client.queries.get());
+    }
+
+    @Test
+    public void pagesAreOnlyReadWhenTheSubscriberRequestsMoreItems() {
+        List<DiscordEvent> received = new ArrayList<>();
+        BaseSubscriber<DiscordEvent> subscriber = new BaseSubscriber<DiscordEvent>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(PAGE_SIZE);
+            }
+
+            @Override
+            protected void hookOnNext(DiscordEvent discordEvent) {
+                received.add(discordEvent);
+            }
+        };
+        rangeEvents().subscribe(subscriber);
+
+        // The first page was consumed, but nothing more was requested
+        assertEquals(PAGE_SIZE, received.size());
+        assertEquals(1, client.queries.get());
+
+        subscriber.request(1);
+        assertEquals(PAGE_SIZE + 1, received.size());
+        assertEquals(2, client.queries.get());
+        subscriber.dispose();
+    }
+
+    @Test
+    public void eventsWrittenBeforeTheCreatorIndexAreIndexedInBothTables() {
+        client.items.set(0, withoutGuildIdCreatedBy(client.items.get(0)));
+        client.items.set(4, withoutGuildIdCreatedBy(client.items.get(4)));
+        client.archivedItems.add(withoutGuildIdCreatedBy(DiscordEvent.toDDBItem(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .timestamp(NOW.minusSeconds(3600))
+            .createdBy(USER_ID)
+            .messageId(795463592128462899L)
+            .name("archived event")
+            .build())));
+
+        assertEquals(3, repository.backfillDiscordEventCreators().block());
+        assertEquals(DiscordEvent.guildIdCreatedBy(GUILD_ID, USER_ID),
+            client.archivedItems.get(0).get(DiscordEvent.GUILD_ID_CREATED_BY_KEY).s());
+        assertTrue(client.items.stream().allMatch(item ->
+            DiscordEvent.guildIdCreatedBy(GUILD_ID, USER_ID).equals(item.get(DiscordEvent.GUILD_ID_CREATED_BY_KEY).s())));
+
+        // Recorded as finished, so later calls do not scan the tables again, even for
+        // an event that an instance of an earlier version wrote in the meantime
+        assertEquals(2, client.archivedItems.size());
+        client.items.set(2, withoutGuildIdCreatedBy(client.items.get(2)));
+        assertEquals(0, repository.backfillDiscordEventCreators().block());
+        assertFalse(client.items.get(2).containsKey(DiscordEvent.GUILD_ID_CREATED_BY_KEY));
+    }
+
+    @Test
+    public void migrationsThatFailAreNotRecordedAsFinished() {
+        client.items.set(0, withoutGuildIdCreatedBy(client.items.get(0)));
+        client.failingPuts = true;
+        assertThrows(RuntimeException.class, () -> repository.backfillDiscordEventCreators().block());
+
+        // The next run scans the tables again
+        client.failingPuts = false;
+        client.items.set(3, withoutGuildIdCreatedBy(client.items.get(3)));
+        assertEquals(1, repository.backfillDiscordEventCreators().block());
+        // Each migration is recorded on its own
+        assertEquals(1, client.archivedItems.size());
+        assertEquals(0, repository.backfillDiscordEventStartSlots(NOW).block());
+        assertEquals(2, client.archivedItems.size());
+    }
+
+    @Test
+    public void eventsWrittenAgainDuringAMigrationAreReadAndDeletedOnce() {
+        long messageId = 795463592128462899L;
+        client.items.clear();
+        // The legacy item is first, as the index does not order the items of both layouts
+        client.items.add(DiscordEvent.toDDBItem(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .messageId(messageId)
+            .name("event")
+            .build()));
+        client.items.add(DiscordEvent.toDDBItem(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .messageId(messageId)
+            .name("renamed event")
+            .build(), PartitionKeyScheme.MIGRATING));
+        DiscordEventReactiveRepositoryImpl migratingRepository = DiscordEventReactiveRepositoryImpl.builder()
+            .client(client)
+            .tableName("DiscordEvents")
+            .archiveTableName("DiscordEventsArchive")
+            .pageSize(PAGE_SIZE)
+            .partitionKeyScheme(PartitionKeyScheme.MIGRATING)
+            .build();
+
+        List<DiscordEvent> myEvents = migratingRepository.streamDiscordEventsCreatedByUser(
+            ListDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                .userId(USER_ID)
+                .build())
+            .collectList()
+            .block();
+        assertEquals(1, myEvents.size());
+        assertEquals("renamed event", myEvents.get(0).getName());
+
+        DiscordEvent deletedEvent = migratingRepository.deleteDiscordEvent(DeleteDiscordEventCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .userId(USER_ID)
+            .deleteCode(Long.toUnsignedString(messageId))
+            .build())
+            .block();
+        assertEquals("renamed event", deletedEvent.getName());
+        assertTrue(client.items.isEmpty());
+    }
+
+    @Test
+    public void eventsWrittenWhileBeingArchivedStayInTheLiveTable() {
+        repository = DiscordEventReactiveRepositoryImpl.builder()
+            .client(client)
+            .tableName("DiscordEvents")
+            .archiveTableName("DiscordEventsArchive")
+            .pageSize(PAGE_SIZE)
+            .archiveBatchInterval(Duration.ZERO)
+            .build();
+        DiscordEvent writtenEvent = DiscordEvent.fromDDBMap(client.items.get(1));
+        // A reaction lands between the copy and the delete of its event, the stub answers right away
+        client.onBatchWrite = () -> repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(writtenEvent)
+            .attendeeId(OTHER_USER_ID)
+            .build())
+            .subscribe();
+
+        assertEquals(2, repository.archiveDiscordEventsBefore(NOW.plusSeconds(150)).block());
+        assertEquals(8, client.items.size());
+        assertEquals(writtenEvent.getMessageId(), DiscordEvent.fromDDBMap(client.items.get(0)).getMessageId());
+        assertEquals(2, DiscordEvent.fromDDBMap(client.items.get(0)).getVersion());
+    }
+
+    @Test
+    public void retriedAttendeeUpdatesApplyOnce() {
+        DiscordEvent readEvent = DiscordEvent.fromDDBMap(client.items.get(0));
+        assertEquals(1, readEvent.getVersion());
+        UpdateDiscordEventAttendeeDTO update = UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(readEvent)
+            .attendeeId(USER_ID)
+            .build();
+
+        DiscordEvent updatedEvent = repository.addDiscordEventAttendee(update).block();
+        assertEquals(2, updatedEvent.getVersion());
+        assertEquals(1, client.updates.size());
+
+        // The same update made again, like a retry whose result was lost, does not apply twice
+        assertEquals(2, repository.addDiscordEventAttendee(update).block().getVersion());
+        assertEquals(2, client.updates.size());
+        assertEquals(2, DiscordEvent.fromDDBMap(client.items.get(0)).getVersion());
+    }
+
+    @Test
+    public void attendeeUpdatesApplyOverANewerVersion() {
+        DiscordEvent readEvent = DiscordEvent.fromDDBMap(client.items.get(0));
+        // Written by another reaction since it was read
+        repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(readEvent)
+            .attendeeId(OTHER_USER_ID)
+            .build())
+            .block();
+        client.updates.clear();
+
+        DiscordEvent updatedEvent = repository.removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(readEvent)
+            .attendeeId(USER_ID)
+            .build())
+            .block();
+
+        assertEquals(3, updatedEvent.getVersion());
+        assertEquals(1, client.updates.size());
+        assertFalse(client.updates.get(0).conditionExpression().contains("#version"));
+    }
+
+    private static Map<String, AttributeValue> withoutGuildIdCreatedBy(Map<String, AttributeValue> item) {
+        Map<String, AttributeValue> legacyItem = new HashMap<>(item);
+        legacyItem.remove(DiscordEvent.GUILD_ID_CREATED_BY_KEY);
+        return legacyItem;
+    }
+
+    private Flux<DiscordEvent> rangeEvents() {
+        return repository.streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .startDateTime(NOW)
+            .endDateTime(NOW.plusSeconds(3600))
+            .build());
+    }
+
+    /**
+     * Answers queries with the pages of a single partition, ignoring their key condition.
+     * Scans only apply `attribute_not_exists` filters, updates either `SET` one attribute
+     * or are attendee updates, of which only the condition and version bump are applied, and deletes
+     * remove the item with the given key.
+     */
+    private static class StubDynamoDbAsyncClient implements DynamoDbAsyncClient {
+        private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        private final List<Map<String, AttributeValue>> archivedItems = new ArrayList<>();
+        private final AtomicInteger queries = new AtomicInteger();
+        private final List<UpdateItemRequest> updates = new ArrayList<>();
+        private boolean failingPuts;
+        private Runnable onBatchWrite = () -> { };
+
+        @Override
+        public CompletableFuture<ScanResponse> scan(ScanRequest scanRequest) {
+            List<Map<String, AttributeValue>> tableItems = tableItems(scanRequest.tableName());
+            String filterExpression = scanRequest.filterExpression();
+            // The archive scan filters on the sort key, and reads whole items
+            boolean archiveScan = !filterExpression.contains("attribute_not_exists(");
+            String missingAttribute = archiveScan ? null : scanRequest.expressionAttributeNames().get(
+                filterExpression.substring(
+                    filterExpression.indexOf("attribute_not_exists(") + "attribute_not_exists(".length(),
+                    filterExpression.indexOf(")")));
+            int start = 0;
+            if (scanRequest.hasExclusiveStartKey()) {
+                while (start < tableItems.size() && !primaryKey(tableItems.get(start)).equals(scanRequest.exclusiveStartKey())) {
+                    start++;
+                }
+                start++;
+            }
+            int end = Math.min(tableItems.size(), start + scanRequest.limit());
+            List<Map<String, AttributeValue>> keys = new ArrayList<>();
+            for (Map<String, AttributeValue> item : tableItems.subList(start, end)) {
+                if (archiveScan && item.get(DiscordEvent.SORT_KEY).s().compareTo(
+                    scanRequest.expressionAttributeValues().get(":cutoff").s()) < 0) {
+                    keys.add(item);
+                } else if (!archiveScan && !item.containsKey(missingAttribute)) {
+                    keys.add(primaryKey(item));
+                }
+            }
+            ScanResponse.Builder scanResponse = ScanResponse.builder()
+                .items(keys)
+                .count(keys.size());
+            if (end < tableItems.size()) {
+                scanResponse.lastEvaluatedKey(primaryKey(tableItems.get(end - 1)));
+            }
+            return CompletableFuture.completedFuture(scanResponse.build());
+        }
+
+        @Override
+        public CompletableFuture<GetItemResponse> getItem(GetItemRequest getItemRequest) {
+            GetItemResponse.Builder getItemResponse = GetItemResponse.builder();
+            tableItems(getItemRequest.tableName()).stream()
+                .filter(item -> primaryKey(item).equals(getItemRequest.key()))
+                .findFirst()
+                .ifPresent(getItemResponse::item);
+            return CompletableFuture.completedFuture(getItemResponse.build());
+        }
+
+        @Override
+        public CompletableFuture<UpdateItemResponse> updateItem(UpdateItemRequest updateItemRequest) {
+            if (updateItemRequest.conditionExpression() != null &&
+                updateItemRequest.conditionExpression().contains(":idempotencyKey")) {
+                try {
+                    return CompletableFuture.completedFuture(updateAttendees(updateItemRequest));
+                } catch (ConditionalCheckFailedException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            }
+            List<Map<String, AttributeValue>> tableItems = tableItems(updateItemRequest.tableName());
+            String[] assignment = updateItemRequest.updateExpression().replace("SET ", "").split(" = ");
+            for (int i = 0; i < tableItems.size(); i++) {
+                if (primaryKey(tableItems.get(i)).equals(updateItemRequest.key())) {
+                    Map<String, AttributeValue> item = new HashMap<>(tableItems.get(i));
+                    item.put(updateItemRequest.expressionAttributeNames().get(assignment[0]),
+                        updateItemRequest.expressionAttributeValues().get(assignment[1]));
+                    tableItems.set(i, item);
+                }
+            }
+            return CompletableFuture.completedFuture(UpdateItemResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<PutItemResponse> putItem(PutItemRequest putItemRequest) {
+            if (failingPuts) {
+                return CompletableFuture.failedFuture(new IllegalStateException("DDB is down"));
+            }
+            tableItems(putItemRequest.tableName()).add(putItemRequest.item());
+            return CompletableFuture.completedFuture(PutItemResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<BatchWriteItemResponse> batchWriteItem(BatchWriteItemRequest batchWriteItemRequest) {
+            batchWriteItemRequest.requestItems().forEach((tableName, writeRequests) -> writeRequests.forEach(writeRequest ->
+                tableItems(tableName).add(writeRequest.putRequest().item())));
+            onBatchWrite.run();
+            return CompletableFuture.completedFuture(BatchWriteItemResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<DeleteItemResponse> deleteItem(DeleteItemRequest deleteItemRequest) {
+            AttributeValue copiedVersion = deleteItemRequest.hasExpressionAttributeValues() ?
+                deleteItemRequest.expressionAttributeValues().get(":copiedVersion") : null;
+            if (copiedVersion != null && items.stream().noneMatch(item ->
+                primaryKey(item).equals(deleteItemRequest.key()) && copiedVersion.equals(item.get(DiscordEvent.VERSION_KEY)))) {
+                return CompletableFuture.failedFuture(
+                    ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+            }
+            tableItems(deleteItemRequest.tableName()).removeIf(item -> primaryKey(item).equals(deleteItemRequest.key()));
+            return CompletableFuture.completedFuture((DeleteItemResponse) DeleteItemResponse.builder()
+                .sdkHttpResponse(SdkHttpResponse.builder().statusCode(200).build())
+                .build());
+        }
+
+        private UpdateItemResponse updateAttendees(UpdateItemRequest updateItemRequest) {
+            updates.add(updateItemRequest);
+            Map<String, AttributeValue> values = updateItemRequest.expressionAttributeValues();
+            for (int i = 0; i < items.size(); i++) {
+                Map<String, AttributeValue> item = items.get(i);
+                if (!primaryKey(item).equals(updateItemRequest.key())) {
+                    continue;
+                }
+                if (values.get(":idempotencyKey").equals(item.get(DiscordEvent.IDEMPOTENCY_KEY_KEY))) {
+                    break;
+                }
+                long version = Long.parseLong(item.get(DiscordEvent.VERSION_KEY).n());
+                Map<String, AttributeValue> updatedItem = new HashMap<>(item);
+                updatedItem.put(DiscordEvent.VERSION_KEY, AttributeValue.builder().n(Long.toString(version + 1)).build());
+                updatedItem.put(DiscordEvent.IDEMPOTENCY_KEY_KEY, values.get(":idempotencyKey"));
+                items.set(i, updatedItem);
+                return (UpdateItemResponse) UpdateItemResponse.builder()
+                    .attributes(updatedItem)
+                    .sdkHttpResponse(SdkHttpResponse.builder().statusCode(200).build())
+                    .build();
+            }
+            throw ConditionalCheckFailedException.builder().message("The conditional request failed").build();
+        }
+
+        private List<Map<String, AttributeValue>> tableItems(String tableName) {
+            return "DiscordEventsArchive".equals(tableName) ? archivedItems : items;
+        }
+
+        private static Map<String, AttributeValue> primaryKey(Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> primaryKey = new HashMap<>();
+            primaryKey.put(DiscordEvent.PARTITION_KEY, item.get(DiscordEvent.PARTITION_KEY));
+            primaryKey.put(DiscordEvent.SORT_KEY, item.get(DiscordEvent.SORT_KEY));
+            return primaryKey;
+        }
+
+        @Override
+        public CompletableFuture<QueryResponse> query(QueryRequest queryRequest) {
+            queries.incrementAndGet();
+            int start = 0;
+            if (queryRequest.hasExclusiveStartKey()) {
+                String lastSortKey = queryRequest.exclusiveStartKey().get(DiscordEvent.SORT_KEY).s();
+                while (start < items.size() && items.get(start).get(DiscordEvent.SORT_KEY).s().compareTo(lastSortKey) <= 0) {
+                    start++;
+                }
+            }
+            int end = queryRequest.limit() == null ? items.size() : Math.min(items.size(), start + queryRequest.limit());
+            QueryResponse.Builder queryResponse = QueryResponse.builder()
+                .items(items.subList(start, end))
+                .count(end - start);
+            if (end < items.size()) {
+                queryResponse.lastEvaluatedKey(Collections.singletonMap(
+                    DiscordEvent.SORT_KEY, items.get(end - 1).get(DiscordEvent.SORT_KEY)));
+            }
+            return CompletableFuture.completedFuture(queryResponse.build());
+        }
+
+        @Override
+        public String serviceName() {
+            return SERVICE_NAME;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.exception.StorageBusyException;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.resilience.Bulkhead;
+import com.alvyn279.discord.resilience.CircuitBreaker;
+import com.alvyn279.discord.resilience.StorageBudget;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GuardedDiscordEventReactiveRepositoryTest {
+
+    private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private InMemoryDiscordEventReactiveRepository delegate;
+    private CircuitBreaker circuitBreaker;
+    private GuardedDiscordEventReactiveRepository repository;
+
+    @BeforeEach
+    public void setUp() {
+        delegate = InMemoryDiscordEventReactiveRepository.builder()
+            .latency(Duration.ofMillis(50))
+            .build();
+        circuitBreaker = CircuitBreaker.builder()
+            .name("test")
+            .failureThreshold(3)
+            .openDuration(OPEN_DURATION)
+            .build();
+        repository = GuardedDiscordEventReactiveRepository.builder()
+            .delegate(delegate)
+            .circuitBreaker(circuitBreaker)
+            .interactiveBulkhead(Bulkhead.builder().name("interactive").maxConcurrentCalls(2).build())
+            .backgroundBulkhead(Bulkhead.builder().name("background").maxConcurrentCalls(1).build())
+            .build();
+    }
+
+    @Test
+    public void failingStorageOpensCircuitThenProbeClosesIt() throws InterruptedException {
+        delegate.setFailure(SdkClientException.create("connection reset"));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SdkClientException.class, () -> read().blockLast());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        long operationsBefore = delegate.getOperationCount();
+        assertEquals(StorageBusyException.Reason.CIRCUIT_OPEN, assertBusy(read()).getReason());
+        assertEquals(operationsBefore, delegate.getOperationCount());
+
+        delegate.setFailure(null);
+        Thread.sleep(OPEN_DURATION.toMillis());
+        read().blockLast();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void failedProbeOpensCircuitAgain() throws InterruptedException {
+        delegate.setFailure(SdkClientException.create("connection reset"));
+        for (int i = 0; i < 3; i++) {
+            assertThrows(SdkClientException.class, () -> read().blockLast());
+        }
+
+        Thread.sleep(OPEN_DURATION.toMillis());
+        assertThrows(SdkClientException.class, () -> read().blockLast());
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+    }
+
+    @Test
+    public void budgetsAreBoundedSeparately() {
+        List<Throwable> errors = Flux.merge(
+            Flux.range(0, 4).flatMap(i -> errorOf(read())),
+            Flux.range(0, 2).flatMap(i -> errorOf(read().subscriberContext(StorageBudget.BACKGROUND.context()))))
+            .collectList()
+            .block();
+
+        // 4 interactive reads for 2 slots, 2 background reads for 1 slot
+        assertEquals(3, errors.size());
+        errors.forEach(e -> assertTrue(e instanceof StorageBusyException));
+        GuardedDiscordEventReactiveRepository.GuardUsage usage = repository.getUsage();
+        assertEquals(2, usage.getInteractiveRejected());
+        assertEquals(1, usage.getBackgroundRejected());
+        assertEquals(0, usage.getInteractiveInFlight());
+        assertEquals(CircuitBreaker.State.CLOSED, usage.getCircuitState());
+    }
+
+    private Flux<?> read() {
+        return repository.streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO.builder()
+            .guildId(795463592128462850L)
+            .currentDateTime(NOW)
+            .upcomingLimit(5)
+            .build());
+    }
+
+    private static Mono<Throwable> errorOf(Flux<?> call) {
+        return call.then(Mono.<Throwable>empty()).onErrorResume(Mono::just);
+    }
+
+    private static StorageBusyException assertBusy(Flux<?> call) {
+        RuntimeException e = assertThrows(RuntimeException.class, call::blockLast);
+        assertTrue(e.getCause() instanceof StorageBusyException);
+        return (StorageBusyException) e.getCause();
+    }
+}
@@ -0,0 +1,327 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import com.alvyn279.discord.exception.AccessDeniedException;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.alvyn279.discord.utils.DiscordStringUtils;
+import com.google.common.collect.ImmutableList;
+import lombok.Builder;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.UnaryOperator;
+
+/**
+ * Reference implementation of {@link DiscordEventReactiveRepository} held in memory,
+ * to exercise strategies and schedulers without a DDB table.
+ * <p>
+ * It keeps the same indexes as the DDB table:
+ * - per guild, events keyed by `datetimeCreatedBy` (table PK/SK)
+ * - events by messageId (`messageIdIndex`)
+ * - per guild and user, `datetimeCreatedBy` keys (`guildIdCreatedByIndex`)
+ * <p>
+ * Keys are compared as strings like DDB does, so ranges and limits behave the same
+ * way: e.g. an event starting exactly at the end of a range is left out, as its
+ * `{datetime}#{createdBy}` key sorts after `{datetime}`.
+ * <p>
+ * Every operation can be delayed by a fixed latency plus a random jitter, to
+ * load-test callers against a slow datastore, and made to fail, to test them
+ * against a failing one.
+ */
+public class InMemoryDiscordEventReactiveRepository implements DiscordEventReactiveRepository {
+
+    private final Indexes live;
+    private final Indexes archive;
+    private final Duration latency;
+    private final Duration latencyJitter;
+    private final AtomicLong operations;
+    private volatile Throwable failure;
+
+    /**
+     * Indexes of one table
+     */
+    private static class Indexes {
+        // { guildId -> { datetimeCreatedBy -> event } }
+        private final Map<Long, NavigableMap<String, DiscordEvent>> eventsByGuild = new ConcurrentHashMap<>();
+        // { messageId -> event }
+        private final Map<Long, DiscordEvent> eventsByMessageId = new ConcurrentHashMap<>();
+        // { guildIdCreatedBy -> { datetimeCreatedBy } }
+        private final Map<String, NavigableSet<String>> keysByCreator = new ConcurrentHashMap<>();
+
+        private NavigableMap<String, DiscordEvent> guild(long guildId) {
+            return eventsByGuild.getOrDefault(guildId, new ConcurrentSkipListMap<>());
+        }
+
+        private void put(DiscordEvent discordEvent) {
+            DiscordEvent previous = eventsByGuild
+                .computeIfAbsent(discordEvent.getGuildId(), guildId -> new ConcurrentSkipListMap<>())
+                .put(discordEvent.datetimeCreatedBy(), discordEvent);
+            if (previous != null) {
+                eventsByMessageId.remove(previous.getMessageId());
+            }
+            eventsByMessageId.put(discordEvent.getMessageId(), discordEvent);
+            keysByCreator
+                .computeIfAbsent(guildIdCreatedBy(discordEvent), key -> new ConcurrentSkipListSet<>())
+                .add(discordEvent.datetimeCreatedBy());
+        }
+
+        private Optional<DiscordEvent> remove(DiscordEvent discordEvent) {
+            DiscordEvent removed = guild(discordEvent.getGuildId()).remove(discordEvent.datetimeCreatedBy());
+            if (removed == null) {
+                return Optional.empty();
+            }
+            eventsByMessageId.remove(removed.getMessageId());
+            keysByCreator.getOrDefault(guildIdCreatedBy(removed), new ConcurrentSkipListSet<>())
+                .remove(removed.datetimeCreatedBy());
+            return Optional.of(removed);
+        }
+
+        private Optional<DiscordEvent> findByMessageId(long guildId, String deleteCode) {
+            // The index spans all guilds, like the DDB GSI
+            OptionalLong messageId = DiscordStringUtils.parseDeleteCode(deleteCode);
+            return Optional.ofNullable(messageId.isPresent() ? eventsByMessageId.get(messageId.getAsLong()) : null)
+                .filter(discordEvent -> discordEvent.getGuildId() == guildId);
+        }
+
+        private List<DiscordEvent> createdBy(long guildId, long userId, boolean descending) {
+            NavigableSet<String> keys = keysByCreator.getOrDefault(
+                DiscordEvent.guildIdCreatedBy(guildId, userId), new ConcurrentSkipListSet<>());
+            NavigableMap<String, DiscordEvent> events = guild(guildId);
+            ImmutableList.Builder<DiscordEvent> discordEvents = ImmutableList.builder();
+            (descending ? keys.descendingSet() : keys).forEach(key -> {
+                DiscordEvent discordEvent = events.get(key);
+                if (discordEvent != null) {
+                    discordEvents.add(discordEvent);
+                }
+            });
+            return discordEvents.build();
+        }
+
+        private static String guildIdCreatedBy(DiscordEvent discordEvent) {
+            return DiscordEvent.guildIdCreatedBy(discordEvent.getGuildId(), discordEvent.getCreatedBy());
+        }
+    }
+
+    @Builder
+    public InMemoryDiscordEventReactiveRepository(Duration latency, Duration latencyJitter) {
+        this.live = new Indexes();
+        this.archive = new Indexes();
+        this.latency = latency == null ? Duration.ZERO : latency;
+        this.latencyJitter = latencyJitter == null ? Duration.ZERO : latencyJitter;
+        this.operations = new AtomicLong();
+    }
+
+    /**
+     * @return long number of operations sent to the repository so far
+     */
+    public long getOperationCount() {
+        return operations.get();
+    }
+
+    /**
+     * Makes every following operation fail with the given error, after its latency.
+     *
+     * @param failure error of the operations, or null for them to succeed again
+     */
+    public void setFailure(Throwable failure) {
+        this.failure = failure;
+    }
+
+    @Override
+    public Mono<DiscordEvent> deleteDiscordEvent(DeleteDiscordEventCommandDTO args) {
+        return withLatency(Mono.defer(() -> {
+            Optional<DiscordEvent> discordEvent = live.findByMessageId(args.getGuildId(), args.getDeleteCode());
+            if (discordEvent.isEmpty()) {
+                return Mono.error(new Exception(String.format(
+                    "Found invalid amount of events with a message ID: %s", args.getDeleteCode())));
+            }
+            if (discordEvent.get().getCreatedBy() != args.getUserId()) {
+                return Mono.error(new AccessDeniedException(String.format(
+                    "Access denied: User [%s] tried to obtain resource [%s] belonging to user [%s]",
+                    args.getUserId(),
+                    discordEvent.get().getMessageId(),
+                    discordEvent.get().getCreatedBy()
+                ), discordEvent.get()));
+            }
+            synchronized (this) {
+                live.remove(discordEvent.get());
+            }
+            return Mono.just(discordEvent.get());
+        }));
+    }
+
+    @Override
+    public Flux<DeleteDiscordEventResultDTO> deleteDiscordEvents(DeleteDiscordEventsCommandDTO args) {
+        return withLatency(Flux.fromIterable(args.getDeleteCodes())
+            .distinct()
+            .map(deleteCode -> {
+                Optional<DiscordEvent> discordEvent = live.findByMessageId(args.getGuildId(), deleteCode);
+                DeleteDiscordEventResultDTO.Status status;
+                if (discordEvent.isEmpty()) {
+                    status = DeleteDiscordEventResultDTO.Status.NOT_FOUND;
+                } else if (discordEvent.get().getCreatedBy() != args.getUserId()) {
+                    status = DeleteDiscordEventResultDTO.Status.ACCESS_DENIED;
+                } else {
+                    synchronized (this) {
+                        live.remove(discordEvent.get());
+                    }
+                    status = DeleteDiscordEventResultDTO.Status.DELETED;
+                }
+                return DeleteDiscordEventResultDTO.builder()
+                    .deleteCode(deleteCode)
+                    .status(status)
+                    .discordEvent(discordEvent.orElse(null))
+                    .build();
+            }));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO args) {
+        Flux<DiscordEvent> discordEvents = withLatency(Flux.defer(() -> Flux.fromIterable(
+            live.guild(args.getGuildId()).tailMap(args.getCurrentDateTime().toString(), true).values())));
+        return args.getUpcomingLimit() == null ? discordEvents : discordEvents.take(args.getUpcomingLimit());
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return withLatency(Flux.defer(() -> Flux.fromIterable(live.guild(args.getGuildId()).subMap(
+            args.getStartDateTime().toString(), true, args.getEndDateTime().toString(), true).values())));
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesByDateTimeRange(ListDiscordEventsCommandDTO args) {
+        return streamDiscordEventsByDateTimeRange(args)
+            .map(DiscordEventSummary::of);
+    }
+
+    @Override
+    public Flux<DiscordEventSummary> streamDiscordEventSummariesOfAllGuildsByDateTimeRange(Instant startDateTime,
+                                                                                           Instant endDateTime) {
+        return withLatency(Flux.defer(() -> Flux.fromIterable(live.eventsByGuild.values())
+            .flatMapIterable(guildEvents -> guildEvents.subMap(
+                startDateTime.toString(), true, endDateTime.toString(), true).values())))
+            .map(DiscordEventSummary::of);
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return withLatency(Flux.defer(() -> Flux.fromIterable(
+            live.createdBy(args.getGuildId(), args.getUserId(), false))));
+    }
+
+    @Override
+    public Flux<DiscordEvent> streamArchivedDiscordEventsCreatedByUser(ListDiscordEventsCommandDTO args) {
+        return withLatency(Flux.defer(() -> Flux.fromIterable(
+            archive.createdBy(args.getGuildId(), args.getUserId(), true))));
+    }
+
+    @Override
+    public Mono<DiscordEvent> saveDiscordEvent(DiscordEventDTO discordEventDTO) {
+        return withLatency(Mono.defer(() -> {
+            // Goes through the DDB item so that optional fields get the same defaults
+            DiscordEvent discordEvent = DiscordEvent.fromDDBMap(DiscordEvent.toDDBItem(discordEventDTO));
+            synchronized (this) {
+                DiscordEvent storedEvent = live.guild(discordEvent.getGuildId()).get(discordEvent.datetimeCreatedBy());
+                if (!discordEventDTO.canReplace(Optional.ofNullable(storedEvent))) {
+                    return Mono.error(new DiscordEventConflictException(String.format(
+                        "Conflicting write of in-memory event %s with expected version %s",
+                        discordEventDTO.getMessageId(), discordEventDTO.getExpectedVersion()), discordEventDTO));
+                }
+                live.put(discordEvent);
+            }
+            return Mono.just(discordEvent);
+        }));
+    }
+
+    @Override
+    public Mono<DiscordEvent> addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return updateDiscordEventAttendees(args, attendees -> attendees.with(args.getAttendeeId()));
+    }
+
+    @Override
+    public Mono<DiscordEvent> removeDiscordEventAttendee(UpdateDiscordEventAttendeeDTO args) {
+        return updateDiscordEventAttendees(args, attendees -> attendees.without(args.getAttendeeId()));
+    }
+
+    @Override
+    public Mono<Long> archiveDiscordEventsBefore(Instant cutoff) {
+        return withLatency(Mono.fromCallable(() -> {
+            long archivedCount = 0;
+            synchronized (this) {
+                for (NavigableMap<String, DiscordEvent> events : live.eventsByGuild.values()) {
+                    for (DiscordEvent discordEvent : List.copyOf(events.headMap(cutoff.toString(), false).values())) {
+                        archive.put(discordEvent);
+                        live.remove(discordEvent);
+                        archivedCount++;
+                    }
+                }
+            }
+            return archivedCount;
+        }));
+    }
+
+    private Mono<DiscordEvent> updateDiscordEventAttendees(UpdateDiscordEventAttendeeDTO args,
+                                                           UnaryOperator<SnowflakeSet> change) {
+        DiscordEvent discordEvent = args.getDiscordEvent();
+        return withLatency(Mono.fromCallable(() -> {
+            synchronized (this) {
+                DiscordEvent storedEvent = live.guild(discordEvent.getGuildId()).get(discordEvent.datetimeCreatedBy());
+                if (storedEvent == null) {
+                    return null;
+                }
+                DiscordEvent updatedEvent = storedEvent.toBuilder()
+                    .attendees(change.apply(storedEvent.getAttendees()))
+                    .version(storedEvent.getVersion() + 1)
+                    .build();
+                live.put(updatedEvent);
+                return updatedEvent;
+            }
+        }));
+    }
+
+    private <T> Mono<T> withLatency(Mono<T> operation) {
+        return Mono.defer(() -> {
+            operations.incrementAndGet();
+            Duration delay = nextLatency();
+            Mono<T> result = failure == null ? operation : Mono.error(failure);
+            return delay.isZero() ? result : result.delaySubscription(delay);
+        });
+    }
+
+    private <T> Flux<T> withLatency(Flux<T> operation) {
+        return Flux.defer(() -> {
+            operations.incrementAndGet();
+            Duration delay = nextLatency();
+            Flux<T> result = failure == null ? operation : Flux.error(failure);
+            return delay.isZero() ? result : result.delaySubscription(delay);
+        });
+    }
+
+    private Duration nextLatency() {
+        long jitterNanos = latencyJitter.toNanos();
+        return jitterNanos == 0 ?
+            latency :
+            latency.plusNanos(ThreadLocalRandom.current().nextLong(jitterNanos + 1));
+    }
+}
@@ -0,0 +1,330 @@
+package com.alvyn279.discord.repository;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.domain.DiscordEventSummary;
+import com.alvyn279.discord.domain.SnowflakeSet;
+import com.alvyn279.discord.exception.AccessDeniedException;
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventCommandDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventResultDTO;
+import com.alvyn279.discord.repository.dto.DeleteDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import com.alvyn279.discord.repository.dto.ListDiscordEventsCommandDTO;
+import com.alvyn279.discord.repository.dto.UpdateDiscordEventAttendeeDTO;
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryDiscordEventReactiveRepositoryTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    private static final long OTHER_GUILD_ID = 795463592128462851L;
+    private static final long USER_ID = 795463592128462852L;
+    private static final long OTHER_USER_ID = 795463592128462853L;
+    private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+
+    private InMemoryDiscordEventReactiveRepository repository;
+    private long nextMessageId = 795463592128462900L;
+
+    @BeforeEach
+    public void setUp() {
+        repository = InMemoryDiscordEventReactiveRepository.builder().build();
+    }
+
+    @Test
+    public void upcomingEventsStartAtCurrentDateTimeAndStopAtLimit() {
+        save(GUILD_ID, "past", NOW.minusSeconds(60), USER_ID);
+        save(GUILD_ID, "now", NOW, USER_ID);
+        save(GUILD_ID, "soon", NOW.plusSeconds(60), USER_ID);
+        save(GUILD_ID, "later", NOW.plusSeconds(120), USER_ID);
+        save(OTHER_GUILD_ID, "elsewhere", NOW.plusSeconds(30), USER_ID);
+
+        List<String> upcoming = names(repository.streamDiscordEventsByUpcoming(
+            ListDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                .currentDateTime(NOW)
+                .upcomingLimit(2)
+                .build()));
+
+        assertEquals(ImmutableList.of("now", "soon"), upcoming);
+    }
+
+    @Test
+    public void rangeLeavesOutEventsStartingExactlyAtTheEnd() {
+        // Like the DDB `between` key condition on `{datetime}#{createdBy}`
+        save(GUILD_ID, "start", NOW, USER_ID);
+        save(GUILD_ID, "middle", NOW.plusSeconds(60), USER_ID);
+        save(GUILD_ID, "end", NOW.plusSeconds(120), USER_ID);
+
+        List<String> inRange = names(repository.streamDiscordEventsByDateTimeRange(
+            ListDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                .startDateTime(NOW)
+                .endDateTime(NOW.plusSeconds(120))
+                .build()));
+
+        assertEquals(ImmutableList.of("start", "middle"), inRange);
+    }
+
+    @Test
+    public void rangeOfAllGuildsReadsEveryGuild() {
+        save(GUILD_ID, "past", NOW.minusSeconds(60), USER_ID);
+        save(GUILD_ID, "soon", NOW.plusSeconds(60), USER_ID);
+        save(OTHER_GUILD_ID, "elsewhere", NOW.plusSeconds(30), OTHER_USER_ID);
+        save(OTHER_GUILD_ID, "later", NOW.plusSeconds(3600), OTHER_USER_ID);
+
+        List<String> inRange = repository.streamDiscordEventSummariesOfAllGuildsByDateTimeRange(
+            NOW, NOW.plusSeconds(900))
+            .map(DiscordEventSummary::getName)
+            .sort()
+            .collectList()
+            .block();
+
+        assertEquals(ImmutableList.of("elsewhere", "soon"), inRange);
+    }
+
+    @Test
+    public void eventsCreatedByUserAreInTimeOrder() {
+        save(GUILD_ID, "second", NOW.plusSeconds(60), USER_ID);
+        save(GUILD_ID, "first", NOW, USER_ID);
+        save(GUILD_ID, "not-mine", NOW.plusSeconds(30), OTHER_USER_ID);
+
+        List<String> mine = names(repository.streamDiscordEventsCreatedByUser(
+            ListDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                .userId(USER_ID)
+                .build()));
+
+        assertEquals(ImmutableList.of("first", "second"), mine);
+    }
+
+    @Test
+    public void saveOfAnotherEventWithSameKeyConflicts() {
+        save(GUILD_ID, "old-message", NOW, USER_ID);
+
+        DiscordEventConflictException conflict = assertConflict(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .messageId(nextMessageId++)
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .name("new-message")
+            .build());
+
+        assertEquals(DiscordEventConflictException.Reason.ALREADY_EXISTS, conflict.getReason());
+    }
+
+    @Test
+    public void retriedCreateIsIdempotent() {
+        DiscordEventDTO discordEventDTO = DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .messageId(nextMessageId++)
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .name("message")
+            .build();
+        DiscordEvent discordEvent = repository.saveDiscordEvent(discordEventDTO).block();
+
+        assertEquals(discordEvent, repository.saveDiscordEvent(discordEventDTO).block());
+        assertEquals(1, discordEvent.getVersion());
+    }
+
+    @Test
+    public void sameCreateWithAnotherIdempotencyKeyConflicts() {
+        DiscordEvent discordEvent = save(GUILD_ID, "message", NOW, USER_ID);
+
+        assertEquals(DiscordEventConflictException.Reason.ALREADY_EXISTS, assertConflict(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .messageId(discordEvent.getMessageId())
+            .timestamp(NOW)
+            .createdBy(USER_ID)
+            .name("message")
+            .attendees(SnowflakeSet.EMPTY)
+            .build())
+            .getReason());
+    }
+
+    @Test
+    public void saveWithExpectedVersionReplacesEventOnce() {
+        DiscordEvent discordEvent = save(GUILD_ID, "message", NOW, USER_ID);
+        DiscordEventDTO renamedEventDTO = DiscordEventDTO.copyOfBuilder(discordEvent)
+            .name("renamed")
+            .build();
+
+        DiscordEvent renamedEvent = repository.saveDiscordEvent(renamedEventDTO).block();
+
+        assertEquals("renamed", renamedEvent.getName());
+        assertEquals(2, renamedEvent.getVersion());
+        // A retry of the same write goes through again, another write from the same version does not
+        assertEquals(renamedEvent, repository.saveDiscordEvent(renamedEventDTO).block());
+        assertEquals(DiscordEventConflictException.Reason.VERSION_MISMATCH,
+            assertConflict(DiscordEventDTO.copyOfBuilder(discordEvent).name("other-name").build()).getReason());
+    }
+
+    @Test
+    public void attendeeUpdatesIncrementVersion() {
+        DiscordEvent discordEvent = save(GUILD_ID, "message", NOW, USER_ID);
+
+        DiscordEvent updatedEvent = repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(discordEvent)
+            .attendeeId(OTHER_USER_ID)
+            .build())
+            .block();
+
+        assertEquals(2, updatedEvent.getVersion());
+        assertConflict(DiscordEventDTO.copyOfBuilder(discordEvent).name("renamed").build());
+    }
+
+    @Test
+    public void deleteDiscordEventsReportsOneResultPerDistinctCode() {
+        String mine = deleteCodeOf(save(GUILD_ID, "mine", NOW, USER_ID));
+        String theirs = deleteCodeOf(save(GUILD_ID, "theirs", NOW.plusSeconds(60), OTHER_USER_ID));
+        String otherGuild = deleteCodeOf(save(OTHER_GUILD_ID, "other-guild", NOW, USER_ID));
+
+        List<DeleteDiscordEventResultDTO.Status> statuses = repository.deleteDiscordEvents(
+            DeleteDiscordEventsCommandDTO.builder()
+                .guildId(GUILD_ID)
+                .userId(USER_ID)
+                .deleteCodes(ImmutableList.of(mine, theirs, otherGuild, mine))
+                .build())
+            .map(DeleteDiscordEventResultDTO::getStatus)
+            .collectList()
+            .block();
+
+        assertEquals(ImmutableList.of(
+            DeleteDiscordEventResultDTO.Status.DELETED,
+            DeleteDiscordEventResultDTO.Status.ACCESS_DENIED,
+            DeleteDiscordEventResultDTO.Status.NOT_FOUND
+        ), statuses);
+    }
+
+    @Test
+    public void deleteDiscordEventOfAnotherUserIsDenied() {
+        String theirs = deleteCodeOf(save(GUILD_ID, "theirs", NOW, OTHER_USER_ID));
+
+        assertThrows(AccessDeniedException.class, () -> {
+            try {
+                repository.deleteDiscordEvent(DeleteDiscordEventCommandDTO.builder()
+                    .guildId(GUILD_ID)
+                    .userId(USER_ID)
+                    .deleteCode(theirs)
+                    .build())
+                    .block();
+            } catch (RuntimeException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void concurrentAttendeeUpdatesDoNotOverwriteEachOther() {
+        repository = InMemoryDiscordEventReactiveRepository.builder()
+            .latency(Duration.ofMillis(5))
+            .latencyJitter(Duration.ofMillis(5))
+            .build();
+        DiscordEvent discordEvent = save(GUILD_ID, "event", NOW, USER_ID);
+
+        Flux.range(0, 50)
+            .flatMap(i -> repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+                .discordEvent(discordEvent)
+                .attendeeId(OTHER_USER_ID + i)
+                .build()))
+            .blockLast();
+
+        DiscordEvent updatedEvent = repository.streamDiscordEventsByUpcoming(ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .currentDateTime(NOW)
+            .build())
+            .blockFirst();
+        assertEquals(50, updatedEvent.getAttendees().size());
+    }
+
+    @Test
+    public void attendeeUpdateOfDeletedEventIsEmpty() {
+        DiscordEvent discordEvent = save(GUILD_ID, "event", NOW, USER_ID);
+        repository.deleteDiscordEvent(DeleteDiscordEventCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .userId(USER_ID)
+            .deleteCode(deleteCodeOf(discordEvent))
+            .build())
+            .block();
+
+        assertNull(repository.addDiscordEventAttendee(UpdateDiscordEventAttendeeDTO.builder()
+            .discordEvent(discordEvent)
+            .attendeeId(OTHER_USER_ID)
+            .build())
+            .block());
+    }
+
+    @Test
+    public void archivedEventsMoveOutOfLiveReads() {
+        save(GUILD_ID, "oldest", NOW.minus(Duration.ofDays(60)), USER_ID);
+        save(GUILD_ID, "old", NOW.minus(Duration.ofDays(40)), USER_ID);
+        save(GUILD_ID, "recent", NOW.minus(Duration.ofDays(1)), USER_ID);
+
+        assertEquals(2L, repository.archiveDiscordEventsBefore(NOW.minus(Duration.ofDays(30))).block());
+
+        ListDiscordEventsCommandDTO args = ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .userId(USER_ID)
+            .build();
+        assertEquals(ImmutableList.of("recent"), names(repository.streamDiscordEventsCreatedByUser(args)));
+        assertEquals(ImmutableList.of("old", "oldest"),
+            names(repository.streamArchivedDiscordEventsCreatedByUser(args)));
+    }
+
+    @Test
+    public void latencyIsInjectedInEveryOperation() {
+        InMemoryDiscordEventReactiveRepository slowRepository = InMemoryDiscordEventReactiveRepository.builder()
+            .latency(Duration.ofMillis(50))
+            .build();
+
+        long startNanos = System.nanoTime();
+        slowRepository.listDiscordEventCreatedByUser(ListDiscordEventsCommandDTO.builder()
+            .guildId(GUILD_ID)
+            .userId(USER_ID)
+            .build())
+            .block();
+
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(Duration.ofMillis(50)) >= 0);
+        assertEquals(1, slowRepository.getOperationCount());
+    }
+
+    private DiscordEvent save(long guildId, String name, Instant timestamp, long createdBy) {
+        return repository.saveDiscordEvent(DiscordEventDTO.builder()
+            .guildId(guildId)
+            .messageId(nextMessageId++)
+            .timestamp(timestamp)
+            .createdBy(createdBy)
+            .name(name)
+            .attendees(SnowflakeSet.EMPTY)
+            .build())
+            .block();
+    }
+
+    private DiscordEventConflictException assertConflict(DiscordEventDTO discordEventDTO) {
+        RuntimeException e = assertThrows(RuntimeException.class, () ->
+            repository.saveDiscordEvent(discordEventDTO).block());
+        assertTrue(e.getCause() instanceof DiscordEventConflictException);
+        return (DiscordEventConflictException) e.getCause();
+    }
+
+    private static String deleteCodeOf(DiscordEvent discordEvent) {
+        return Long.toUnsignedString(discordEvent.getMessageId());
+    }
+
+    private static List<String> names(Flux<DiscordEvent> discordEvents) {
+        return discordEvents.collectList()
+            .block()
+            .stream()
+            .map(DiscordEvent::getName)
+            .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,274 @@
+package com.alvyn279.discord.repository.local;
+
+import com.alvyn279.discord.domain.DiscordEvent;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalEventStoreTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    private static final long USER_ID = 795463592128462852L;
+    private static final Instant NOW = Instant.parse("2021-03-01T12:00:00Z");
+    private static final String NAME = "events";
+    private static final long NO_COMPACTION = Long.MAX_VALUE;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void partialRecordAtTheEndOfTheLogIsCutOff() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        long logLength;
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            store.put(discordEvent(0, "first"));
+            store.put(discordEvent(1, "second"));
+            logLength = Files.size(logOf(directory));
+            crash(crashed);
+        }
+        // A write that stopped half-way through its record
+        try (FileChannel log = FileChannel.open(logOf(crashed), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            log.write(ByteBuffer.allocate(6).putInt(64).putShort((short) 1).flip());
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, NO_COMPACTION)) {
+            assertEquals(2, store.getUsage().getEvents());
+            assertEquals("second", store.getByMessageId(GUILD_ID, messageIdOf(1)).get().getName());
+            assertEquals(logLength, Files.size(logOf(crashed)));
+
+            // Writes go after the last whole record
+            store.put(discordEvent(2, "third"));
+        }
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, NO_COMPACTION)) {
+            assertEquals(3, store.getUsage().getEvents());
+        }
+    }
+
+    @Test
+    public void recordThatDoesNotMatchItsChecksumEndsTheLog() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        long firstRecordLength;
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            store.put(discordEvent(0, "first"));
+            firstRecordLength = Files.size(logOf(directory));
+            store.put(discordEvent(1, "second"));
+            crash(crashed);
+        }
+        // Flips a byte in the body of the second record
+        try (FileChannel log = FileChannel.open(logOf(crashed), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer bodyByte = ByteBuffer.allocate(1);
+            long position = log.size() - 1;
+            log.read(bodyByte, position);
+            bodyByte.put(0, (byte) (bodyByte.get(0) ^ 0xFF));
+            bodyByte.rewind();
+            log.write(bodyByte, position);
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, NO_COMPACTION)) {
+            assertEquals(1, store.getUsage().getEvents());
+            assertTrue(store.getByMessageId(GUILD_ID, messageIdOf(0)).isPresent());
+            assertFalse(store.getByMessageId(GUILD_ID, messageIdOf(1)).isPresent());
+            assertEquals(firstRecordLength, Files.size(logOf(crashed)));
+        }
+    }
+
+    @Test
+    public void indexSnapshotIsLoadedThenTheLogWrittenAfterItIsReplayed() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            store.put(discordEvent(0, "first"));
+            store.put(discordEvent(1, "second"));
+        }
+        assertTrue(Files.exists(indexOf(directory)));
+
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            assertEquals(2, store.getUsage().getEvents());
+            assertEquals("first", store.getByMessageId(GUILD_ID, messageIdOf(0)).get().getName());
+
+            store.put(discordEvent(1, "second, renamed"));
+            store.delete(GUILD_ID, discordEvent(0, "first").datetimeCreatedBy());
+            // The snapshot only covers the log up to the first two records
+            crash(crashed);
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, NO_COMPACTION)) {
+            assertEquals(1, store.getUsage().getEvents());
+            assertFalse(store.getByMessageId(GUILD_ID, messageIdOf(0)).isPresent());
+            assertEquals("second, renamed", store.getByMessageId(GUILD_ID, messageIdOf(1)).get().getName());
+        }
+    }
+
+    @Test
+    public void indexSnapshotIsWrittenEveryFewRecords() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION, 2)) {
+            store.put(discordEvent(0, "first"));
+            assertFalse(Files.exists(indexOf(directory)));
+            store.put(discordEvent(1, "second"));
+            assertTrue(Files.exists(indexOf(directory)));
+
+            store.put(discordEvent(2, "third"));
+            // The snapshot covers the first two records, the third one is replayed
+            crash(crashed);
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, NO_COMPACTION, 2)) {
+            assertEquals(3, store.getUsage().getEvents());
+            assertEquals("third", store.getByMessageId(GUILD_ID, messageIdOf(2)).get().getName());
+        }
+    }
+
+    @Test
+    public void corruptIndexSnapshotIsIgnored() throws IOException {
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            store.put(discordEvent(0, "first"));
+            store.put(discordEvent(1, "second"));
+        }
+        try (FileChannel index = FileChannel.open(indexOf(directory), StandardOpenOption.WRITE)) {
+            index.write(ByteBuffer.wrap(new byte[]{0, 0, 0, 0}), index.size() - 4);
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            assertEquals(2, store.getUsage().getEvents());
+            assertEquals("second", store.getByMessageId(GUILD_ID, messageIdOf(1)).get().getName());
+        }
+    }
+
+    @Test
+    public void compactionKeepsTheLiveRecordsOnly() throws IOException {
+        Path crashed = directory.resolve("crashed");
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, 0)) {
+            for (int i = 0; i < 10; i++) {
+                store.put(discordEvent(0, "first, version " + i));
+            }
+            store.put(discordEvent(1, "second"));
+            store.delete(GUILD_ID, discordEvent(1, "second").datetimeCreatedBy());
+
+            // Compactions ran as soon as dead records outweighed live ones
+            LocalEventStore.StoreUsage usage = store.getUsage();
+            assertEquals(1, usage.getEvents());
+            assertTrue(usage.getDeadBytes() <= usage.getLiveBytes());
+
+            store.compact();
+            assertEquals(0, store.getUsage().getDeadBytes());
+            assertEquals(store.getUsage().getLiveBytes(), Files.size(logOf(directory)));
+            assertEquals("first, version 9", store.getByMessageId(GUILD_ID, messageIdOf(0)).get().getName());
+            assertFalse(Files.exists(directory.resolve(NAME + ".log.compacting")));
+            crash(crashed);
+        }
+
+        // The snapshot written after the compaction matches the compacted log
+        try (LocalEventStore store = LocalEventStore.open(crashed, NAME, 0)) {
+            assertEquals(1, store.getUsage().getEvents());
+            assertEquals("first, version 9", store.getByMessageId(GUILD_ID, messageIdOf(0)).get().getName());
+        }
+    }
+
+    @Test
+    public void recordsOfEarlierFormatsAreReplayed() throws IOException {
+        try (FileChannel log = FileChannel.open(logOf(directory), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // Written before versions, then before idempotency keys
+            log.write(earlierFormatPut(0, "unversioned", null));
+            log.write(earlierFormatPut(1, "versioned", 3L));
+        }
+
+        try (LocalEventStore store = LocalEventStore.open(directory, NAME, NO_COMPACTION)) {
+            DiscordEvent unversioned = store.getByMessageId(GUILD_ID, messageIdOf(0)).get();
+            assertEquals("unversioned", unversioned.getName());
+            assertEquals(0, unversioned.getVersion());
+
+            DiscordEvent versioned = store.getByMessageId(GUILD_ID, messageIdOf(1)).get();
+            assertEquals("versioned", versioned.getName());
+            assertEquals(3, versioned.getVersion());
+            assertEquals("", versioned.getIdempotencyKey());
+
+            // Read again from the log, rather than replayed
+            store.put(discordEvent(2, "current"));
+            assertEquals(3, store.get(GUILD_ID, versioned.datetimeCreatedBy()).get().getVersion());
+        }
+    }
+
+    /**
+     * Encodes a put record the way earlier versions of the store did, with a
+     * version but no idempotency key, or with neither.
+     */
+    private static ByteBuffer earlierFormatPut(int index, String name, Long version) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(body);
+        Instant timestamp = NOW.plusSeconds(60L * index);
+        output.writeByte(1);
+        output.writeLong(GUILD_ID);
+        output.writeLong(timestamp.getEpochSecond());
+        output.writeInt(timestamp.getNano());
+        output.writeLong(USER_ID);
+        output.writeLong(messageIdOf(index));
+        putString(output, name);
+        putString(output, "");
+        output.writeInt(0);
+        if (version != null) {
+            output.writeLong(version);
+        }
+
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc32 = new CRC32();
+        crc32.update(bodyBytes);
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES * 2 + bodyBytes.length)
+            .putInt(bodyBytes.length)
+            .putInt((int) crc32.getValue())
+            .put(bodyBytes);
+        return record.flip();
+    }
+
+    private static void putString(DataOutputStream output, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        output.writeInt(bytes.length);
+        output.write(bytes);
+    }
+
+    /**
+     * Copies the files of the store as they are on disk, without closing it.
+     */
+    private void crash(Path copy) throws IOException {
+        Files.createDirectories(copy);
+        Files.copy(logOf(directory), logOf(copy));
+        if (Files.exists(indexOf(directory))) {
+            Files.copy(indexOf(directory), indexOf(copy));
+        }
+    }
+
+    private static Path logOf(Path storeDirectory) {
+        return storeDirectory.resolve(NAME + ".log");
+    }
+
+    private static Path indexOf(Path storeDirectory) {
+        return storeDirectory.resolve(NAME + ".idx");
+    }
+
+    private static long messageIdOf(int index) {
+        return 795463592128462900L + index;
+    }
+
+    private static DiscordEvent discordEvent(int index, String name) {
+        return DiscordEvent.fromDDBMap(DiscordEvent.toDDBItem(DiscordEventDTO.builder()
+            .guildId(GUILD_ID)
+            .timestamp(NOW.plusSeconds(60L * index))
+            .createdBy(USER_ID)
+            .messageId(messageIdOf(index))
+            .name(name)
+            .build()));
+    }
+}
@@ -0,0 +1,96 @@
+package com.alvyn279.discord.resilience;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HedgerTest {
+
+    private static final Duration SLOW = Duration.ofMillis(500);
+
+    private Hedger hedger;
+
+    @BeforeEach
+    public void setUp() {
+        hedger = Hedger.builder()
+            .percentile(95)
+            .budgetRatio(0.05)
+            .minDelay(Duration.ofMillis(20))
+            .build();
+        // Fast calls, for the hedger to learn the usual latency
+        Flux.range(0, 100)
+            .concatMap(i -> hedger.apply(() -> Mono.just(i)))
+            .blockLast();
+    }
+
+    @Test
+    public void slowCallIsHedgedAndHedgeWins() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        long startNanos = System.nanoTime();
+        String result = hedger.apply(() -> attempts.incrementAndGet() == 1 ?
+            Mono.delay(SLOW).thenReturn("first") :
+            Mono.just("hedge"))
+            .block();
+
+        assertEquals("hedge", result);
+        assertTrue(Duration.ofNanos(System.nanoTime() - startNanos).compareTo(SLOW) < 0);
+        Hedger.HedgeUsage usage = hedger.getUsage();
+        assertEquals(1, usage.getHedges());
+        assertEquals(1, usage.getHedgeWins());
+        assertEquals(1.0, usage.getWinRate());
+        assertEquals(20, usage.getDelayMillis());
+    }
+
+    @Test
+    public void hedgesStopWhenBudgetIsSpent() {
+        // 100 calls at 5% earned 5 hedges, and the next 10 calls half a hedge more
+        Flux.range(0, 10)
+            .flatMap(i -> hedger.apply(() -> Mono.delay(Duration.ofMillis(100))))
+            .blockLast();
+
+        assertEquals(5, hedger.getUsage().getHedges());
+        assertEquals(110, hedger.getUsage().getCalls());
+    }
+
+    @Test
+    public void cancelledCallsDoNotLowerTheDelay() {
+        hedger = Hedger.builder()
+            .percentile(60)
+            .budgetRatio(1)
+            .minDelay(Duration.ofMillis(1))
+            .build();
+        Flux.range(0, 100)
+            .flatMap(i -> hedger.apply(() -> Mono.delay(Duration.ofMillis(10))), 10)
+            .blockLast();
+
+        // Every call is hedged after ~10ms, and the hedge is cancelled when the call answers
+        Flux.range(0, 100)
+            .flatMap(i -> {
+                AtomicInteger attempts = new AtomicInteger();
+                return hedger.apply(() -> attempts.incrementAndGet() == 1 ?
+                    Mono.delay(Duration.ofMillis(40)) :
+                    Mono.never());
+            }, 10)
+            .blockLast();
+
+        assertEquals(100, hedger.getUsage().getHedges());
+        assertTrue(hedger.getUsage().getDelayMillis() >= 40);
+    }
+
+    @Test
+    public void disabledHedgerMakesOneCall() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        Hedger.NONE.apply(() -> Mono.delay(Duration.ofMillis(50)).doOnSubscribe(s -> attempts.incrementAndGet()))
+            .block();
+
+        assertEquals(1, attempts.get());
+    }
+}
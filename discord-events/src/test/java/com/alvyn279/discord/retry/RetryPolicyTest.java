@@ -0,0 +1,125 @@
+package com.alvyn279.discord.retry;
+
+import com.alvyn279.discord.exception.DiscordEventConflictException;
+import com.alvyn279.discord.repository.dto.DiscordEventDTO;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.PrematureCloseException;
+import software.amazon.awssdk.core.exception.SdkClientException;
+
+import java.lang.reflect.Constructor;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RetryPolicyTest {
+
+    @Test
+    public void transientErrorsAreRetriedUntilSuccess() {
+        RetryPolicy retryPolicy = policy(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = retryPolicy.apply(Mono.fromCallable(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw SdkClientException.create("connection reset");
+            }
+            return "ok";
+        }))
+            .block();
+
+        assertEquals("ok", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2, retryPolicy.getRetryCount());
+    }
+
+    @Test
+    public void exhaustedRetriesFailWithTheLastError() {
+        RetryPolicy retryPolicy = policy(true);
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException e = assertThrows(SdkClientException.class, () ->
+            retryPolicy.apply(Mono.fromCallable(() -> {
+                attempts.incrementAndGet();
+                throw SdkClientException.create("connection reset");
+            }))
+                .block());
+
+        assertEquals("connection reset", e.getMessage());
+        assertEquals(4, attempts.get());
+    }
+
+    @Test
+    public void conflictsAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(RuntimeException.class, () ->
+            policy(true).apply(Mono.fromCallable(() -> {
+                attempts.incrementAndGet();
+                throw new DiscordEventConflictException("conflict", DiscordEventDTO.builder()
+                    .guildId(795463592128462850L)
+                    .timestamp(Instant.EPOCH)
+                    .createdBy(795463592128462852L)
+                    .messageId(795463592128462851L)
+                    .name("name")
+                    .build());
+            }))
+                .block());
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    public void nonIdempotentCallsAreOnlyRetriedWhenRejected() {
+        RetryPolicy retryPolicy = policy(false);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(SdkClientException.class, () ->
+            retryPolicy.apply(Mono.fromCallable(() -> {
+                attempts.incrementAndGet();
+                throw SdkClientException.create("response lost");
+            }))
+                .block());
+        assertEquals(1, attempts.get());
+
+        assertEquals("sent", retryPolicy.apply(Mono.fromCallable(() -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw prematureClose("Connection has been closed BEFORE response, while sending request body");
+            }
+            return "sent";
+        }))
+            .block());
+
+        attempts.set(0);
+        RuntimeException lost = assertThrows(RuntimeException.class, () ->
+            retryPolicy.apply(Mono.fromCallable(() -> {
+                attempts.incrementAndGet();
+                throw prematureClose("Connection prematurely closed BEFORE response");
+            }))
+                .block());
+        assertTrue(Exceptions.unwrap(lost) instanceof PrematureCloseException);
+        assertEquals(1, attempts.get());
+    }
+
+    /**
+     * Builds a new exception like reactor-netty does for every closed connection,
+     * rather than using its static instances.
+     */
+    private static PrematureCloseException prematureClose(String message) throws ReflectiveOperationException {
+        Constructor<PrematureCloseException> constructor =
+            PrematureCloseException.class.getDeclaredConstructor(String.class);
+        constructor.setAccessible(true);
+        return constructor.newInstance(message);
+    }
+
+    private static RetryPolicy policy(boolean idempotent) {
+        return RetryPolicy.builder()
+            .name("test")
+            .maxRetries(3)
+            .firstBackoff(Duration.ofMillis(1))
+            .idempotent(idempotent)
+            .build();
+    }
+}
@@ -0,0 +1,212 @@
+package com.alvyn279.discord.strategy;
+
+import com.alvyn279.discord.command.CreateEventCommand;
+import com.alvyn279.discord.command.DeleteEventsCommand;
+import com.alvyn279.discord.command.ListOnDateCommand;
+import com.alvyn279.discord.command.ListRangeCommand;
+import com.alvyn279.discord.command.ListUpcomingCommand;
+import com.alvyn279.discord.command.MyEventsCommand;
+import com.alvyn279.discord.command.RemindCommand;
+import com.alvyn279.discord.domain.DiscordCommandContext;
+import com.alvyn279.discord.exception.InvalidCommandException;
+import com.alvyn279.discord.stateful.metrics.MetricsReporter;
+import com.alvyn279.discord.utils.CommandTokens;
+import com.alvyn279.discord.utils.DateUtils;
+import com.google.common.collect.ImmutableList;
+import discord4j.core.GatewayDiscordClient;
+import discord4j.core.event.domain.message.MessageCreateEvent;
+import discord4j.core.object.entity.Guild;
+import discord4j.discordjson.json.GuildData;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandRegistryTest {
+
+    private static final long GUILD_ID = 795463592128462850L;
+    // Never connected, the handlers only read the guild of the event
+    private static final GatewayDiscordClient GATEWAY =
+        new GatewayDiscordClient(null, null, null, null, null, gateway -> null);
+    private static final Guild GUILD = new Guild(GATEWAY, GuildData.builder()
+        .id(Long.toUnsignedString(GUILD_ID))
+        .name("Guild")
+        .verificationLevel(0)
+        .ownerId("795463592128462852")
+        .region("us-east")
+        .afkTimeout(300)
+        .defaultMessageNotifications(0)
+        .explicitContentFilter(0)
+        .mfaLevel(0)
+        .premiumTier(0)
+        .joinedAt("2021-03-01T12:00:00.000000+00:00")
+        .large(false)
+        .memberCount(2)
+        .build());
+    private static final MessageCreateEvent EVENT = new MessageCreateEvent(GATEWAY, null, null, GUILD_ID, null) {
+        @Override
+        public Mono<Guild> getGuild() {
+            return Mono.just(GUILD);
+        }
+    };
+
+    // Strategies called so far, with the command they were given
+    private final List<String> strategies = new ArrayList<>();
+    private final List<Object> commands = new ArrayList<>();
+    private Duration latency = Duration.ZERO;
+    private Throwable failure;
+
+    private CommandRegistry registry;
+
+    @BeforeEach
+    public void setUp() {
+        registry = new CommandRegistry(
+            new AttendDiscordEventStrategy(null, null, null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<Void> context) {
+                    return called("attend", context);
+                }
+            },
+            new CreateFullDiscordEventStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<CreateEventCommand> context) {
+                    return called("create", context);
+                }
+            },
+            new DeleteSingleDiscordEventStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<DeleteEventsCommand> context) {
+                    return called("deleteSingle", context);
+                }
+            },
+            new DeleteMultipleDiscordEventsStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<DeleteEventsCommand> context) {
+                    return called("deleteMultiple", context);
+                }
+            },
+            new ListUpcomingDiscordEventsStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<ListUpcomingCommand> context) {
+                    return called("listUpcoming", context);
+                }
+            },
+            new ListDiscordEventsOnDateStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<ListOnDateCommand> context) {
+                    return called("listOnDate", context);
+                }
+            },
+            new ListDiscordEventsInDateRangeStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<ListRangeCommand> context) {
+                    return called("listInDateRange", context);
+                }
+            },
+            new ListDiscordEventsForCurrentUserStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<MyEventsCommand> context) {
+                    return called("myEvents", context);
+                }
+            },
+            new StartEventReminderServiceStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
+                    return called("remindOn", context);
+                }
+            },
+            new StatusEventReminderServiceStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
+                    return called("remindStatus", context);
+                }
+            },
+            new StopEventReminderServiceStrategy(null) {
+                @Override
+                public Mono<Void> execute(DiscordCommandContext<RemindCommand> context) {
+                    return called("remindOff", context);
+                }
+            },
+            new MetricsReporter(null));
+    }
+
+    @Test
+    public void listEventsPicksItsStrategyFromTheShapeOfItsArguments() {
+        run("!list-events");
+        run("!list-events 5");
+        run("!list-events 2/2/2021");
+        run("!list-events 2/2/2021 3/2/2021");
+
+        assertEquals(ImmutableList.of("listUpcoming", "listUpcoming", "listOnDate", "listInDateRange"), strategies);
+        assertEquals(5, ((ListUpcomingCommand) commands.get(1)).getUpcomingLimit());
+        assertEquals(DateUtils.fromDate("2/2/2021"), ((ListOnDateCommand) commands.get(2)).getDate());
+        assertEquals(DateUtils.fromDate("3/2/2021"), ((ListRangeCommand) commands.get(3)).getTo());
+    }
+
+    @Test
+    public void deleteEventsPicksItsStrategyFromTheNumberOfCodes() {
+        run("!delete-events 795463592128462851");
+        run("!delete-events 795463592128462851 795463592128462852");
+
+        assertEquals(ImmutableList.of("deleteSingle", "deleteMultiple"), strategies);
+        assertEquals(ImmutableList.of("795463592128462851", "795463592128462852"),
+            ((DeleteEventsCommand) commands.get(1)).getDeleteCodes());
+    }
+
+    @Test
+    public void remindEventsPicksItsStrategyFromTheQualifier() {
+        run("!remind-events");
+        run("!remind-events on");
+        run("!remind-events off");
+        assertTrue(runFailing("!remind-events maybe") instanceof InvalidCommandException);
+
+        assertEquals(ImmutableList.of("remindStatus", "remindOn", "remindOff"), strategies);
+        assertEquals(RemindCommand.Mode.OFF, ((RemindCommand) commands.get(2)).getMode());
+    }
+
+    @Test
+    public void handlersCountTheirCallsErrorsAndLatency() {
+        latency = Duration.ofMillis(50);
+        run("!list-events 5");
+        // Rejected by the grammar, before the strategy is called
+        assertTrue(runFailing("!list-events 0") instanceof InvalidCommandException);
+        failure = new IllegalStateException("DDB is down");
+        assertSame(failure, runFailing("!list-events 3"));
+
+        CommandRegistry.HandlerUsage usage = registry.getUsage().get("list-events [num]");
+        assertEquals(3, usage.getCalls());
+        assertEquals(2, usage.getErrors());
+        assertTrue(usage.getMaxMillis() >= 50);
+        assertEquals(ImmutableList.of("listUpcoming", "listUpcoming"), strategies);
+
+        // The other handlers of the command are not called
+        assertEquals(0, registry.getUsage().get("list-events").getCalls());
+        assertEquals(0, registry.getUsage().get("list-events [date]").getCalls());
+    }
+
+    private Mono<Void> called(String strategy, DiscordCommandContext<?> context) {
+        assertSame(GUILD, context.getGuild());
+        strategies.add(strategy);
+        commands.add(context.getCommand());
+        return Mono.delay(latency)
+            .then(failure == null ? Mono.<Void>empty() : Mono.error(failure));
+    }
+
+    private void run(String content) {
+        CommandTokens tokens = CommandTokens.tokenize(content);
+        registry.getCommandsByWord()
+            .get(tokens.get(0).substring(1))
+            .execute(EVENT, tokens)
+            .block();
+    }
+
+    private Throwable runFailing(String content) {
+        return Exceptions.unwrap(assertThrows(RuntimeException.class, () -> run(content)));
+    }
+}
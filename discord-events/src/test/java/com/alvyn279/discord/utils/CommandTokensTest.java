@@ -0,0 +1,77 @@
+package com.alvyn279.discord.utils;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandTokensTest {
+
+    // Tokenizer the commands were parsed with before CommandTokens
+    private static final Pattern REGEX_TOKENIZER = Pattern.compile("\"([^\"]*)\"|'([^']*)'|(\\S+)");
+
+    @Test
+    public void quotedTokensKeepTheirWhitespace() {
+        CommandTokens tokens = CommandTokens.tokenize(
+            "!create-event \"Event title\" 2021/02/02  19:00\t'Event description'");
+
+        assertEquals(ImmutableList.of("!create-event", "Event title", "2021/02/02", "19:00", "Event description"),
+            tokens);
+        assertEquals("Event title", tokens.view(1).toString());
+        assertEquals("title", tokens.view(1).subSequence(6, 11).toString());
+        assertTrue(tokens.matches(3, "19:00"));
+        assertFalse(tokens.matches(3, "19:0"));
+        assertFalse(tokens.matches(5, "19:00"));
+    }
+
+    @Test
+    public void unmatchedQuotesArePartOfTheirWord() {
+        assertEquals(ImmutableList.of("!create-event", "\"Event", "title"),
+            CommandTokens.tokenize("!create-event \"Event title"));
+        assertEquals(ImmutableList.of("it's", "fine"), CommandTokens.tokenize("it's fine"));
+    }
+
+    @Test
+    public void tokensAreTheSameAsWithTheRegexTokenizer() {
+        String alphabet = "ab \t\n\"'";
+        Random random = new Random(279);
+        for (int i = 0; i < 10_000; i++) {
+            StringBuilder command = new StringBuilder();
+            for (int c = random.nextInt(16); c > 0; c--) {
+                command.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            List<String> expected = regexTokenize(command.toString());
+            if (expected != null) {
+                assertEquals(expected, CommandTokens.tokenize(command), command.toString());
+            }
+        }
+    }
+
+    /**
+     * @return List of the tokens, null where the regex tokenizer failed on a quoted single quote
+     */
+    private static List<String> regexTokenize(String commandAndArgs) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = REGEX_TOKENIZER.matcher(commandAndArgs);
+        while (matcher.find()) {
+            String token = matcher.group(1) != null ? matcher.group(1)
+                : matcher.group(2) != null ? matcher.group(2)
+                : matcher.group(3);
+            if ((token.startsWith("\"") && token.endsWith("\"") || token.startsWith("'") && token.endsWith("'"))
+                && matcher.group(3) == null) {
+                if (token.length() == 1) {
+                    return null;
+                }
+                token = token.substring(1, token.length() - 1);
+            }
+            tokens.add(token);
+        }
+        return tokens;
+    }
+}